@@ -325,12 +325,14 @@ public class Misc {
         File textureFile = new File(filePath);
         try {
             /*
-             * If a parent directory/folder is needed, create it.
+             * If a parent directory/folder is needed, create it. Another
+             * thread may create it concurrently, so mkdirs() failing is only
+             * an error if the directory still doesn't exist.
              */
             File parentDirectory = textureFile.getParentFile();
             if (parentDirectory != null && !parentDirectory.exists()) {
                 boolean success = parentDirectory.mkdirs();
-                if (!success) {
+                if (!success && !parentDirectory.isDirectory()) {
                     throw new IOException();
                 }
             }
@@ -304,6 +304,7 @@ public class MyQuaternion {
      * {@link com.jme3.math.Quaternion#slerp(com.jme3.math.Quaternion, float)},
      * always produces a unit, and doesn't trash q1. The caller is responsible
      * for flipping the sign of q0 or q1 when it's appropriate to do so.
+     * Creates no garbage if storeResult is neither null nor q0 nor q1.
      *
      * @param t descaled parameter value (&ge;0, &le;1)
      * @param q0 function value at t=0 (not null, unaffected, norm=1)
@@ -321,11 +322,15 @@ public class MyQuaternion {
             storeResult = new Quaternion();
         }
 
-        Quaternion q0inverse = MyQuaternion.conjugate(q0, null);
-        Quaternion ratio = q0inverse.multLocal(q1);
+        Quaternion ratio;
+        if (storeResult == q0 || storeResult == q1) {
+            ratio = MyQuaternion.conjugate(q0, null);
+        } else {
+            ratio = MyQuaternion.conjugate(q0, storeResult);
+        }
+        ratio.multLocal(q1);
         Quaternion power = MyQuaternion.pow(ratio, t, ratio);
-        storeResult.set(q0);
-        storeResult.multLocal(power);
+        q0.mult(power, storeResult); // safe even if power==storeResult
 
         return storeResult;
     }
@@ -363,17 +368,49 @@ public class MyQuaternion {
      */
     public static Quaternion squad(float t, Quaternion p, Quaternion a,
             Quaternion b, Quaternion q, Quaternion storeResult) {
+        Quaternion qSlerp = new Quaternion();
+        Quaternion aSlerp = new Quaternion();
+        Quaternion result
+                = squad(t, p, a, b, q, qSlerp, aSlerp, storeResult);
+
+        return result;
+    }
+
+    /**
+     * Interpolate between 4 unit quaternions using the Squad function and
+     * caller-supplied temporary storage. Creates no garbage if storeResult is
+     * not null. The caller is responsible for flipping signs when it's
+     * appropriate to do so.
+     *
+     * @param t descaled parameter value (&ge;0, &le;1)
+     * @param p function value at t=0 (not null, unaffected, norm=1)
+     * @param a 1st control point (not null, unaffected, norm=1)
+     * @param b 2nd control point (not null, unaffected, norm=1)
+     * @param q function value at t=1 (not null, unaffected, norm=1)
+     * @param tmp1 temporary storage (not null, distinct from the other
+     * arguments, modified)
+     * @param tmp2 temporary storage (not null, distinct from the other
+     * arguments, modified)
+     * @param storeResult (modified if not null)
+     * @return interpolated unit quaternion (either storeResult or a new
+     * instance)
+     */
+    public static Quaternion squad(float t, Quaternion p, Quaternion a,
+            Quaternion b, Quaternion q, Quaternion tmp1, Quaternion tmp2,
+            Quaternion storeResult) {
         Validate.inRange(t, "t", 0f, 1f);
         MyQuaternion.validateUnit(p, "p", 0.0001f);
         MyQuaternion.validateUnit(a, "a", 0.0001f);
         MyQuaternion.validateUnit(b, "b", 0.0001f);
         MyQuaternion.validateUnit(q, "q", 0.0001f);
+        Validate.nonNull(tmp1, "tmp1");
+        Validate.nonNull(tmp2, "tmp2");
         if (storeResult == null) {
             storeResult = new Quaternion();
         }
 
-        Quaternion qSlerp = slerp(t, p, q, null);
-        Quaternion aSlerp = slerp(t, a, b, null);
+        Quaternion qSlerp = slerp(t, p, q, tmp1);
+        Quaternion aSlerp = slerp(t, a, b, tmp2);
         slerp(2f * t * (1f - t), qSlerp, aSlerp, storeResult);
 
         return storeResult;
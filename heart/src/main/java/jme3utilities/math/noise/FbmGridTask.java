@@ -0,0 +1,200 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to sample fractional Brownian motion (FBM) noise on a range
+ * of rows in a rectangular grid.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class FbmGridTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * array to store samples in (not null)
+     */
+    final private float[] storeResult;
+    /**
+     * increment of the 1st coordinate between columns
+     */
+    final private float dx;
+    /**
+     * increment of the 2nd coordinate between rows
+     */
+    final private float dy;
+    /**
+     * frequency for the 1st component (&gt;0)
+     */
+    final private float fundamental;
+    /**
+     * amplitude ratio between octaves (&gt;0, &lt;1)
+     */
+    final private float gain;
+    /**
+     * frequency ratio between octaves (&gt;1)
+     */
+    final private float lacunarity;
+    /**
+     * 1st coordinate of the sample point in column 0
+     */
+    final private float x0;
+    /**
+     * 2nd coordinate of the sample point in row 0
+     */
+    final private float y0;
+    /**
+     * index of the first row past this task's range (&gt;firstRow)
+     */
+    final private int endRow;
+    /**
+     * index of the first row in this task's range (&ge;0)
+     */
+    final private int firstRow;
+    /**
+     * maximum number of rows to sample without splitting the range (&gt;0)
+     */
+    final private int leafRows;
+    /**
+     * number of noise components (&gt;0)
+     */
+    final private int numOctaves;
+    /**
+     * number of columns in the grid (&gt;0)
+     */
+    final private int width;
+    /**
+     * base noise generator (not null)
+     */
+    final private Noise2 generator;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of rows.
+     *
+     * @param generator base noise generator (not null, alias created)
+     * @param x0 1st coordinate of the sample point in column 0
+     * @param y0 2nd coordinate of the sample point in row 0
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns in the grid (&gt;0)
+     * @param firstRow index of the first row to sample (&ge;0)
+     * @param endRow index of the first row past the range (&gt;firstRow)
+     * @param leafRows maximum number of rows to sample without splitting
+     * (&gt;0)
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param storeResult array to store samples in (not null, alias created)
+     */
+    FbmGridTask(Noise2 generator, float x0, float y0, float dx, float dy,
+            int width, int firstRow, int endRow, int leafRows,
+            int numOctaves, float fundamental, float gain, float lacunarity,
+            float[] storeResult) {
+        assert generator != null;
+        assert width > 0 : width;
+        assert firstRow >= 0 : firstRow;
+        assert endRow > firstRow : endRow;
+        assert leafRows > 0 : leafRows;
+        assert numOctaves > 0 : numOctaves;
+        assert storeResult != null;
+
+        this.generator = generator;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.dx = dx;
+        this.dy = dy;
+        this.width = width;
+        this.firstRow = firstRow;
+        this.endRow = endRow;
+        this.leafRows = leafRows;
+        this.numOctaves = numOctaves;
+        this.fundamental = fundamental;
+        this.gain = gain;
+        this.lacunarity = lacunarity;
+        this.storeResult = storeResult;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Sample the rows in this task's range, splitting the range in half until
+     * it's no larger than the leaf size.
+     */
+    @Override
+    protected void compute() {
+        if (endRow - firstRow > leafRows) {
+            int middleRow = (firstRow + endRow) >>> 1;
+            FbmGridTask low = new FbmGridTask(generator, x0, y0, dx, dy,
+                    width, firstRow, middleRow, leafRows, numOctaves,
+                    fundamental, gain, lacunarity, storeResult);
+            FbmGridTask high = new FbmGridTask(generator, x0, y0, dx, dy,
+                    width, middleRow, endRow, leafRows, numOctaves,
+                    fundamental, gain, lacunarity, storeResult);
+            invokeAll(low, high);
+            return;
+        }
+        /*
+         * Sample one octave at a time into a scratch array
+         * and accumulate the octaves in the result array.
+         */
+        int numSamples = (endRow - firstRow) * width;
+        int resultOffset = firstRow * width;
+        float[] octaveSamples = new float[numSamples];
+        float rowY = y0 + firstRow * dy;
+        float amplitude = 1f;
+        float frequency = fundamental;
+        for (int octave = 0; octave < numOctaves; octave++) {
+            generator.sampleGridNormalized(x0 * frequency, rowY * frequency,
+                    dx * frequency, dy * frequency, width, endRow - firstRow,
+                    octaveSamples);
+            if (octave == 0) {
+                System.arraycopy(octaveSamples, 0, storeResult, resultOffset,
+                        numSamples);
+            } else {
+                for (int i = 0; i < numSamples; i++) {
+                    storeResult[resultOffset + i]
+                            += amplitude * octaveSamples[i];
+                }
+            }
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+    }
+}
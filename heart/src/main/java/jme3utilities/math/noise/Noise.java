@@ -26,6 +26,7 @@
  */
 package jme3utilities.math.noise;
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -49,6 +50,10 @@ final public class Noise {
      * shared generator, for when you're not feeling fastidious
      */
     final private static Generator generator = new Generator();
+    /**
+     * approximate number of FBM samples per fork/join leaf task
+     */
+    final private static int samplesPerLeaf = 16_384;
     // *************************************************************************
     // constructors
 
@@ -60,6 +65,81 @@ final public class Noise {
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Sample fractional Brownian motion (FBM) noise on a rectangular grid of
+     * points, using the common fork/join pool.
+     *
+     * @param generator base noise generator (not null, thread-safe)
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param storeResult storage for the noise values, indexed by
+     * row*width + column (not null, length &ge;width*height, modified)
+     */
+    public static void fbmGrid(Noise2 generator, float x0, float y0,
+            float dx, float dy, int width, int height, int numOctaves,
+            float fundamental, float gain, float lacunarity,
+            float[] storeResult) {
+        fbmGrid(generator, x0, y0, dx, dy, width, height, numOctaves,
+                fundamental, gain, lacunarity, storeResult,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sample fractional Brownian motion (FBM) noise on a rectangular grid of
+     * points, using the specified fork/join pool. Each task samples a band of
+     * rows one octave at a time. The results match those of
+     * {@link #fbmNoise(jme3utilities.math.noise.Noise2, float, float, int,
+     * float, float, float)} at (x0 + column*dx, y0 + row*dy), apart from
+     * rounding of the scaled coordinates.
+     *
+     * @param generator base noise generator (not null, thread-safe)
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param storeResult storage for the noise values, indexed by
+     * row*width + column (not null, length &ge;width*height, modified)
+     * @param pool the pool to run the tasks in (not null)
+     */
+    public static void fbmGrid(Noise2 generator, float x0, float y0,
+            float dx, float dy, int width, int height, int numOctaves,
+            float fundamental, float gain, float lacunarity,
+            float[] storeResult, ForkJoinPool pool) {
+        Validate.nonNull(generator, "generator");
+        Validate.nonNegative(width, "width");
+        Validate.nonNegative(height, "height");
+        validateFbm(numOctaves, fundamental, gain, lacunarity);
+        Validate.nonNull(storeResult, "store result");
+        if (storeResult.length < (long) width * height) {
+            logger.log(Level.SEVERE, "length={0}, width={1}, height={2}",
+                    new Object[]{storeResult.length, width, height});
+            throw new IllegalArgumentException("storeResult too short");
+        }
+        Validate.nonNull(pool, "pool");
+
+        if (width > 0 && height > 0) {
+            int leafRows = Math.max(1, samplesPerLeaf / width);
+            FbmGridTask task = new FbmGridTask(generator, x0, y0, dx, dy,
+                    width, 0, height, leafRows, numOctaves, fundamental,
+                    gain, lacunarity, storeResult);
+            pool.invoke(task);
+        }
+    }
+
     /**
      * Sample fractional Brownian motion (FBM) noise in two dimensions.
      *
@@ -76,18 +156,7 @@ final public class Noise {
             float sampleY, int numOctaves, float fundamental, float gain,
             float lacunarity) {
         Validate.nonNull(generator, "generator");
-        Validate.positive(numOctaves, "octaves");
-        Validate.positive(fundamental, "fundamental");
-        if (!(gain > 0f && gain < 1f)) {
-            logger.log(Level.SEVERE, "gain={0}", gain);
-            throw new IllegalArgumentException(
-                    "gain should be between 0 and 1");
-        }
-        if (!(lacunarity > 1f)) {
-            logger.log(Level.SEVERE, "lacunarity={0}", lacunarity);
-            throw new IllegalArgumentException(
-                    "lacunarity should be greater than 1");
-        }
+        validateFbm(numOctaves, fundamental, gain, lacunarity);
 
         float amplitude = 1f;
         float frequency = fundamental;
@@ -104,7 +173,9 @@ final public class Noise {
     }
 
     /**
-     * Access the shared generator.
+     * Access the shared generator. Since all threads update its seed
+     * atomically, heavy multi-threaded use will contend: see
+     * {@link #newGenerator()}.
      *
      * @return float value (&ge;0, &lt;1)
      */
@@ -112,6 +183,20 @@ final public class Noise {
         return generator;
     }
 
+    /**
+     * Create a generator for use by a single thread or task, seeded from the
+     * shared generator. To obtain reproducible results from parallel tasks,
+     * split the returned generator once per task, in a deterministic order.
+     *
+     * @return a new instance
+     */
+    public static SplitMixGenerator newGenerator() {
+        long seed = generator.nextLong();
+        SplitMixGenerator result = new SplitMixGenerator(seed);
+
+        return result;
+    }
+
     /**
      * Obtain the next uniformly distributed, pseudo-random, single-precision
      * value from the shared generator.
@@ -130,4 +215,30 @@ final public class Noise {
     public static void reseedGenerator(long newSeed) {
         generator.setSeed(newSeed);
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Validate the parameters of fractional Brownian motion (FBM) noise.
+     *
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     */
+    private static void validateFbm(int numOctaves, float fundamental,
+            float gain, float lacunarity) {
+        Validate.positive(numOctaves, "octaves");
+        Validate.positive(fundamental, "fundamental");
+        if (!(gain > 0f && gain < 1f)) {
+            logger.log(Level.SEVERE, "gain={0}", gain);
+            throw new IllegalArgumentException(
+                    "gain should be between 0 and 1");
+        }
+        if (!(lacunarity > 1f)) {
+            logger.log(Level.SEVERE, "lacunarity={0}", lacunarity);
+            throw new IllegalArgumentException(
+                    "lacunarity should be greater than 1");
+        }
+    }
 }
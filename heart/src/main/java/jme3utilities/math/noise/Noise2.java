@@ -41,6 +41,41 @@ public interface Noise2 {
      */
     float sample(float sampleX, float sampleY);
 
+    /**
+     * Sample the noise function on a rectangular grid of points. The sample
+     * for column c and row r is taken at (x0 + c*dx, y0 + r*dy) and stored at
+     * index r*width + c. Intended for generating large textures: no objects
+     * are allocated per sample.
+     *
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param storeResult storage for the noise values (not null, length
+     * &ge;width*height, modified)
+     */
+    void sampleGrid(float x0, float y0, float dx, float dy, int width,
+            int height, float[] storeResult);
+
+    /**
+     * Sample the noise function on a rectangular grid of points and normalize
+     * the samples to the range [-1, 1]. The layout matches
+     * {@link #sampleGrid(float, float, float, float, int, int, float[])}.
+     *
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param storeResult storage for the noise values (not null, length
+     * &ge;width*height, modified)
+     */
+    void sampleGridNormalized(float x0, float y0, float dx, float dy,
+            int width, int height, float[] storeResult);
+
     /**
      * Sample the noise function at a specified point and normalize it to the
      * range [-1, 1].
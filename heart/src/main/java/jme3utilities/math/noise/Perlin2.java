@@ -51,6 +51,22 @@ public class Perlin2 implements Noise2 {
     // *************************************************************************
     // fields
 
+    /**
+     * 1st components of the hashed gradients, indexed by the wrapped X
+     * coordinate of a grid point plus the permuted Y coordinate: set by
+     * constructor
+     */
+    private float[] hashedX;
+    /**
+     * 2nd components of the hashed gradients, indexed like hashedX: set by
+     * constructor
+     */
+    private float[] hashedY;
+    /**
+     * coordinate value at which the function repeats itself: set by
+     * constructor
+     */
+    final private int period;
     /**
      * permutation for hashing: set by constructor
      */
@@ -82,8 +98,10 @@ public class Perlin2 implements Noise2 {
         Validate.inRange(numGradients, "number of gradients",
                 2, Integer.MAX_VALUE);
 
+        this.period = period;
         generateGradients(numGradients, gSeed);
         permutation = new Permutation(period, pSeed);
+        hashGradients();
     }
     // *************************************************************************
     // new methods exposed
@@ -122,6 +140,46 @@ public class Perlin2 implements Noise2 {
         return noise;
     }
 
+    /**
+     * Sample the noise function on a rectangular grid of points. The results
+     * are identical to those of {@link #sample(float, float)}, but the
+     * per-column and per-row terms are computed only once.
+     *
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param storeResult storage for the noise values (not null, length
+     * &ge;width*height, modified)
+     */
+    @Override
+    public void sampleGrid(float x0, float y0, float dx, float dy,
+            int width, int height, float[] storeResult) {
+        sampleGrid(x0, y0, dx, dy, width, height, false, storeResult);
+    }
+
+    /**
+     * Sample the noise function on a rectangular grid of points and normalize
+     * the samples to the range [-1, 1]. The results are identical to those of
+     * {@link #sampleNormalized(float, float)}.
+     *
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param storeResult storage for the noise values (not null, length
+     * &ge;width*height, modified)
+     */
+    @Override
+    public void sampleGridNormalized(float x0, float y0, float dx, float dy,
+            int width, int height, float[] storeResult) {
+        sampleGrid(x0, y0, dx, dy, width, height, true, storeResult);
+    }
+
     /**
      * Sample the noise function at a specified point and normalize it to the
      * range [-1, 1].
@@ -191,4 +249,108 @@ public class Perlin2 implements Noise2 {
 
         return result;
     }
+
+    /**
+     * Tabulate the gradient components for every sum of a wrapped X
+     * coordinate and a permuted Y coordinate, so that grid sampling needs
+     * neither modulo operations nor a 2nd permutation lookup.
+     */
+    private void hashGradients() {
+        int tableLength = 2 * period;
+        hashedX = new float[tableLength];
+        hashedY = new float[tableLength];
+        for (int sum = 0; sum < tableLength; sum++) {
+            int index = permutation.permute(sum);
+            index = MyMath.modulo(index, gradients.length);
+            Vector2f gradient = gradients[index];
+            hashedX[sum] = gradient.x;
+            hashedY[sum] = gradient.y;
+        }
+    }
+
+    /**
+     * Sample the noise function on a rectangular grid of points, optionally
+     * normalizing the samples.
+     *
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment of the 1st coordinate between columns
+     * @param dy increment of the 2nd coordinate between rows
+     * @param width number of columns (&ge;0)
+     * @param height number of rows (&ge;0)
+     * @param normalize true to normalize, false to return raw samples
+     * @param storeResult storage for the noise values (not null, length
+     * &ge;width*height, modified)
+     */
+    private void sampleGrid(float x0, float y0, float dx, float dy,
+            int width, int height, boolean normalize, float[] storeResult) {
+        Validate.nonNegative(width, "width");
+        Validate.nonNegative(height, "height");
+        Validate.nonNull(storeResult, "store result");
+        if (storeResult.length < (long) width * height) {
+            logger.log(Level.SEVERE, "length={0}, width={1}, height={2}",
+                    new Object[]{storeResult.length, width, height});
+            throw new IllegalArgumentException("storeResult too short");
+        }
+        /*
+         * Compute the terms that depend only on the column.
+         */
+        int[] wrap0 = new int[width];
+        int[] wrap1 = new int[width];
+        float[] offset0 = new float[width];
+        float[] offset1 = new float[width];
+        float[] fade = new float[width];
+        for (int column = 0; column < width; column++) {
+            float sampleX = x0 + column * dx;
+            int squareX = (int) Math.floor(sampleX);
+            wrap0[column] = MyMath.modulo(squareX, period);
+            wrap1[column] = MyMath.modulo(squareX + 1, period);
+            offset0[column] = (float) ((double) sampleX - squareX);
+            offset1[column] = (float) ((double) sampleX - (squareX + 1));
+            fade[column] = MyMath.fade(sampleX - squareX);
+        }
+
+        int resultIndex = 0;
+        for (int row = 0; row < height; row++) {
+            /*
+             * Compute the terms that depend only on the row.
+             */
+            float sampleY = y0 + row * dy;
+            int squareY = (int) Math.floor(sampleY);
+            int hash0 = permutation.permute(squareY);
+            int hash1 = permutation.permute(squareY + 1);
+            float offsetY0 = (float) ((double) sampleY - squareY);
+            float offsetY1 = (float) ((double) sampleY - (squareY + 1));
+            float fadeY = MyMath.fade(sampleY - squareY);
+
+            for (int column = 0; column < width; column++) {
+                float offsetX0 = offset0[column];
+                float offsetX1 = offset1[column];
+                /*
+                 * Compute the noise contribution of each corner.
+                 */
+                int i00 = wrap0[column] + hash0;
+                float n00 = hashedX[i00] * offsetX0 + hashedY[i00] * offsetY0;
+                int i01 = wrap0[column] + hash1;
+                float n01 = hashedX[i01] * offsetX0 + hashedY[i01] * offsetY1;
+                int i10 = wrap1[column] + hash0;
+                float n10 = hashedX[i10] * offsetX1 + hashedY[i10] * offsetY0;
+                int i11 = wrap1[column] + hash1;
+                float n11 = hashedX[i11] * offsetX1 + hashedY[i11] * offsetY1;
+                /*
+                 * 2-D interpolation between the four corners of the square.
+                 */
+                float fadeX = fade[column];
+                float nx0 = FastMath.interpolateLinear(fadeX, n00, n10);
+                float nx1 = FastMath.interpolateLinear(fadeX, n01, n11);
+                float noise = FastMath.interpolateLinear(fadeY, nx0, nx1);
+                if (normalize) {
+                    noise /= MyMath.rootHalf;
+                }
+
+                storeResult[resultIndex] = noise;
+                ++resultIndex;
+            }
+        }
+    }
 }
@@ -0,0 +1,221 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import java.util.logging.Logger;
+
+/**
+ * A Generator that can be split into statistically independent generators,
+ * using the SplitMix64 algorithm of {@link java.util.SplittableRandom}.
+ * Unlike a plain Generator, it doesn't update its state atomically, so an
+ * instance must not be shared between threads. Instead, split the root
+ * generator once per task (in a deterministic order) and give each task its
+ * own instance: the results are then reproducible for a given root seed,
+ * regardless of how the tasks are scheduled.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SplitMixGenerator extends Generator {
+    // *************************************************************************
+    // constants
+
+    /**
+     * increment for the root of a tree of generators: the odd integer closest
+     * to 2^64 divided by the golden ratio
+     */
+    final private static long goldenGamma = 0x9e3779b97f4a7c15L;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SplitMixGenerator.class.getName());
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * increment added to the state for each value generated (odd, set by
+     * #setSeed(long) or the private constructor)
+     */
+    private long gamma;
+    /**
+     * current state (set by #setSeed(long))
+     */
+    private long state;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a root generator with a seed likely to be unique.
+     */
+    public SplitMixGenerator() {
+        super();
+    }
+
+    /**
+     * Instantiate a root generator with the specified seed.
+     *
+     * @param seed initial value for the seed
+     */
+    public SplitMixGenerator(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Instantiate a generator with the specified seed and increment. Used by
+     * {@link #split()}.
+     *
+     * @param seed initial value for the state
+     * @param gamma increment (odd)
+     */
+    private SplitMixGenerator(long seed, long gamma) {
+        super(seed);
+        assert (gamma & 1L) != 0L : gamma;
+        this.gamma = gamma;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a new generator that shares no mutable state with this one. The
+     * values it generates are statistically independent of those generated by
+     * this one. Invoking split() advances this generator's state, so a given
+     * sequence of splits from a given seed always yields the same generators.
+     *
+     * @return a new instance
+     */
+    public SplitMixGenerator split() {
+        long seed = nextLong();
+        long newGamma = mixGamma(nextState());
+        SplitMixGenerator result = new SplitMixGenerator(seed, newGamma);
+
+        return result;
+    }
+    // *************************************************************************
+    // Random methods
+
+    /**
+     * Generate the next pseudo-random value, in the range from 0 to 1.
+     *
+     * @return a double-precision value (&ge;0, &lt;1)
+     */
+    @Override
+    public double nextDouble() {
+        double result = (nextLong() >>> 11) * 0x1.0p-53;
+        return result;
+    }
+
+    /**
+     * Generate the next pseudo-random long value.
+     *
+     * @return a uniformly distributed value
+     */
+    @Override
+    public long nextLong() {
+        long result = mix64(nextState());
+        return result;
+    }
+
+    /**
+     * Re-seed this generator. The increment is reset to that of a root
+     * generator.
+     *
+     * @param newSeed seed for generating pseudo-random numbers
+     */
+    @Override
+    public void setSeed(long newSeed) {
+        /*
+         * Invoked by the Random constructor, so the fields aren't
+         * initialized yet.
+         */
+        super.setSeed(newSeed);
+        state = newSeed;
+        gamma = goldenGamma;
+    }
+
+    /**
+     * Generate the next pseudo-random bits.
+     *
+     * @param numBits number of random bits to generate (&ge;1, &le;32)
+     * @return an int value whose low-order numBits are pseudo-random
+     */
+    @Override
+    protected int next(int numBits) {
+        long bits = mix64(nextState());
+        int result = (int) (bits >>> (64 - numBits));
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Mix the bits of a state to produce an increment for a split generator.
+     *
+     * @param input the state to mix
+     * @return an odd value with enough bit transitions
+     */
+    private static long mixGamma(long input) {
+        long z = (input ^ (input >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int numTransitions = Long.bitCount(z ^ (z >>> 1));
+        if (numTransitions < 24) {
+            z ^= 0xaaaaaaaaaaaaaaaaL;
+        }
+
+        return z;
+    }
+
+    /**
+     * Mix the bits of a state to produce a pseudo-random value (variant 13 of
+     * Stafford's 64-bit finalizers).
+     *
+     * @param input the state to mix
+     * @return the mixed value
+     */
+    private static long mix64(long input) {
+        long z = (input ^ (input >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        long result = z ^ (z >>> 31);
+
+        return result;
+    }
+
+    /**
+     * Advance the state.
+     *
+     * @return the new state
+     */
+    private long nextState() {
+        state += gamma;
+        return state;
+    }
+}
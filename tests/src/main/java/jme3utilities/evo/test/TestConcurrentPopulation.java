@@ -0,0 +1,217 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo.test;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.evo.ConcurrentPopulation;
+import jme3utilities.evo.FitnessFunction;
+import jme3utilities.evo.Population;
+
+/**
+ * Console application to test ConcurrentPopulation: adds elements (many of
+ * them duplicates) from several threads at once, drains the collector, and
+ * checks that the result matches a population filled sequentially.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestConcurrentPopulation {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * capacity of each population
+     */
+    final private static int capacity = 500;
+    /**
+     * number of elements added by each thread in each generation
+     */
+    final private static int numAddsPerThread = 20_000;
+    /**
+     * number of generations (collector reuses)
+     */
+    final private static int numGenerations = 10;
+    /**
+     * number of adding threads
+     */
+    final private static int numThreads = 4;
+    /**
+     * number of distinct elements, a prime
+     */
+    final private static int numValues = 100_003;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestConcurrentPopulation.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test ConcurrentPopulation.
+     *
+     * @param ignored command-line arguments
+     * @throws InterruptedException if interrupted while joining a thread
+     */
+    public static void main(String[] ignored) throws InterruptedException {
+        PrintStream console = System.out;
+        console.print("Test results for ConcurrentPopulation:\n\n");
+
+        FitnessFunction<Float, Integer> function
+                = new FitnessFunction<Float, Integer>() {
+            @Override
+            public Float evaluate(Integer element) {
+                return score(element);
+            }
+        };
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        ConcurrentPopulation<Float, Integer> collector
+                = new ConcurrentPopulation<>(capacity);
+        Random generator = new Random(1L);
+
+        int numErrors = 0;
+        for (int generation = 0; generation < numGenerations; generation++) {
+            /*
+             * Generate the elements for each thread, drawn from a small
+             * range so that threads often add the same element.
+             */
+            final List<List<Integer>> batches = new ArrayList<>(numThreads);
+            Population<Float, Integer> expected = new Population<>(capacity);
+            for (int t = 0; t < numThreads; t++) {
+                List<Integer> batch = new ArrayList<>(numAddsPerThread);
+                for (int i = 0; i < numAddsPerThread; i++) {
+                    int element = generator.nextInt(numValues / 20);
+                    batch.add(element);
+                    expected.add(element, score(element));
+                }
+                batches.add(batch);
+            }
+            /*
+             * Add from raw threads in odd generations and by parallel
+             * scoring on the pool in even ones.
+             */
+            if (generation % 2 == 1) {
+                addFromThreads(collector, batches);
+            } else {
+                List<Integer> all = new ArrayList<>(numThreads
+                        * numAddsPerThread);
+                for (List<Integer> batch : batches) {
+                    all.addAll(batch);
+                }
+                collector.addAll(all, function, pool);
+            }
+
+            Population<Float, Integer> actual = new Population<>(capacity);
+            collector.drainTo(actual);
+            if (collector.size() != 0) {
+                ++numErrors;
+            }
+            if (!sameElements(expected, actual)) {
+                ++numErrors;
+            }
+        }
+        pool.shutdown();
+
+        console.printf("%d generations, %d stripes: %d errors%n%n",
+                numGenerations, collector.numStripes(), numErrors);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add each batch of elements from its own thread, and wait for all the
+     * threads to finish.
+     *
+     * @param collector the collector to add to (not null)
+     * @param batches the elements to add, one list per thread (not null,
+     * unaffected)
+     * @throws InterruptedException if interrupted while joining a thread
+     */
+    private static void addFromThreads(
+            final ConcurrentPopulation<Float, Integer> collector,
+            List<List<Integer>> batches) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(batches.size());
+        for (final List<Integer> batch : batches) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (Integer element : batch) {
+                        collector.add(element, score(element));
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Test whether two populations, whose scores are all distinct, contain
+     * the same elements.
+     *
+     * @param a the first population (not null, unaffected)
+     * @param b the second population (not null, unaffected)
+     * @return true if same, otherwise false
+     */
+    private static boolean sameElements(Population<Float, Integer> a,
+            Population<Float, Integer> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        /*
+         * Duplicates are suppressed when merging, so the union is no larger
+         * than either population if and only if they hold the same elements.
+         */
+        Population<Float, Integer> union = new Population<>(2 * capacity);
+        a.mergeTo(union);
+        b.mergeTo(union);
+        boolean result = (union.size() == a.size());
+
+        return result;
+    }
+
+    /**
+     * Score the specified element. Distinct elements (less than numValues)
+     * get distinct scores, in a scrambled order.
+     *
+     * @param element the element to score (not null)
+     * @return a new score
+     */
+    private static Float score(Integer element) {
+        long scrambled = (element * 7_919L) % numValues;
+        Float result = (float) scrambled;
+
+        return result;
+    }
+}
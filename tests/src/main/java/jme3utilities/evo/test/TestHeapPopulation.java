@@ -0,0 +1,192 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo.test;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.evo.HeapPopulation;
+import jme3utilities.evo.Population;
+
+/**
+ * Benchmark comparing HeapPopulation with Population: times adding scored
+ * elements (half of which are evicted) and culling, then checks that the heap
+ * retained exactly the fittest scores, merges them in order, and suppresses
+ * duplicate elements.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestHeapPopulation {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * capacity of each population
+     */
+    final private static int capacity = 1_000_000;
+    /**
+     * number of elements added to each population
+     */
+    final private static int numAdds = 2 * capacity;
+    /**
+     * number of timed repetitions for each container
+     */
+    final private static int numTrials = 3;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestHeapPopulation.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark HeapPopulation against Population.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.printf("Benchmark results for %,d elements:%n%n", capacity);
+
+        Random generator = new Random(1L);
+        float[] rawScores = new float[numAdds];
+        Float[] scores = new Float[numAdds];
+        Integer[] elements = new Integer[numAdds];
+        for (int i = 0; i < numAdds; i++) {
+            rawScores[i] = generator.nextFloat();
+            scores[i] = rawScores[i];
+            elements[i] = i;
+        }
+
+        Population<Float, Integer> tree = null;
+        long treeAdd = Long.MAX_VALUE;
+        long treeCull = Long.MAX_VALUE;
+        HeapPopulation<Float, Integer> heap = null;
+        long heapAdd = Long.MAX_VALUE;
+        long heapCull = Long.MAX_VALUE;
+        for (int trial = 0; trial < numTrials; trial++) {
+            long startTime = System.nanoTime();
+            tree = new Population<>(capacity);
+            for (int i = 0; i < numAdds; i++) {
+                tree.add(elements[i], scores[i]);
+            }
+            long midTime = System.nanoTime();
+            tree.cull(capacity / 2);
+            long endTime = System.nanoTime();
+            treeAdd = Math.min(treeAdd, midTime - startTime);
+            treeCull = Math.min(treeCull, endTime - midTime);
+
+            startTime = System.nanoTime();
+            heap = new HeapPopulation<>(capacity);
+            for (int i = 0; i < numAdds; i++) {
+                heap.add(elements[i], scores[i]);
+            }
+            midTime = System.nanoTime();
+            heap.cull(capacity / 2);
+            endTime = System.nanoTime();
+            heapAdd = Math.min(heapAdd, midTime - startTime);
+            heapCull = Math.min(heapCull, endTime - midTime);
+        }
+
+        console.printf("Population:     add %,6d ms, cull %,6d ms%n",
+                treeAdd / 1_000_000, treeCull / 1_000_000);
+        console.printf("HeapPopulation: add %,6d ms, cull %,6d ms%n",
+                heapAdd / 1_000_000, heapCull / 1_000_000);
+
+        boolean match = tree.size() == heap.size()
+                && tree.bestScore().equals(heap.bestScore())
+                && tree.worstScore().equals(heap.worstScore());
+        console.printf("%nresults %s%n", match ? "match" : "DIFFER");
+        /*
+         * mergeFittestTo() must yield exactly the fittest scores, without
+         * altering the heap.
+         */
+        float[] sorted = rawScores.clone();
+        Arrays.sort(sorted);
+        int numSurvivors = capacity / 2;
+        int numMerge = 1000;
+        Population<Float, Integer> merged = new Population<>(numMerge);
+        int mergeErrors = 0;
+        if (heap.mergeFittestTo(numMerge, merged) != numMerge
+                || heap.size() != numSurvivors
+                || merged.size() != numMerge) {
+            ++mergeErrors;
+        }
+        if (merged.bestScore() != sorted[numAdds - 1]
+                || merged.worstScore() != sorted[numAdds - numMerge]) {
+            ++mergeErrors;
+        }
+        console.printf("merge errors: %d%n", mergeErrors);
+        /*
+         * The heap must yield exactly the fittest scores, best first.
+         */
+        int heapErrors = 0;
+        for (int rank = 0; rank < numSurvivors; rank++) {
+            float expected = sorted[numAdds - 1 - rank];
+            Integer element = heap.removeFittest();
+            if (element == null || rawScores[element] != expected) {
+                ++heapErrors;
+            }
+        }
+        if (heap.size() != 0) {
+            ++heapErrors;
+        }
+        console.printf("order errors: %d%n", heapErrors);
+        /*
+         * Adding the same elements a 2nd time must have no effect, even after
+         * evictions, culls, and removals have shuffled the hash index.
+         */
+        int numDistinct = 1000;
+        heap = new HeapPopulation<>(numDistinct / 2);
+        int numDuplicates = 0;
+        for (int i = 0; i < numDistinct; i++) {
+            heap.add(elements[i], scores[i]);
+        }
+        heap.cull(numDistinct / 4);
+        heap.removeFittest();
+        for (int i = 0; i < numDistinct; i++) {
+            heap.add(elements[i], scores[i]);
+            if (heap.add(elements[i], scores[i])) {
+                ++numDuplicates;
+            }
+        }
+        /*
+         * Compare with Population, which also suppresses duplicates.
+         */
+        tree = new Population<>(numDistinct / 2);
+        for (int i = 0; i < numDistinct; i++) {
+            tree.add(elements[i], scores[i]);
+        }
+        if (heap.size() != tree.size()
+                || !heap.worstScore().equals(tree.worstScore())) {
+            ++numDuplicates;
+        }
+        console.printf("duplicate errors: %d%n%n", numDuplicates);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo.test;
+
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.evo.Solution;
+import jme3utilities.evo.SolutionBatch;
+
+/**
+ * Benchmark comparing SolutionBatch with arrays of Solution instances: times
+ * breeding a generation by linear and random blending, one child at a time
+ * and with the whole-batch kernels, then checks the children. Linear children
+ * must match across all methods. Random children must match between the
+ * per-child and whole-batch kernels, must take each parameter from one of
+ * their parents, and must take parameters from the 2nd parent with the
+ * requested probability.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSolutionBatch {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of solutions in each generation
+     */
+    final private static int numSolutions = 100_000;
+    /**
+     * number of parameters per solution
+     */
+    final private static int numParameters = 16;
+    /**
+     * number of timed repetitions for each representation
+     */
+    final private static int numTrials = 5;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestSolutionBatch.class.getName());
+    /**
+     * name of the species
+     */
+    final private static String species = "test";
+    /**
+     * probabilities to check for random blending
+     */
+    final private static double[] probabilities = {0.0, 0.1, 0.25, 0.3, 0.5,
+        0.75, 0.9, 1.0};
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark SolutionBatch against Solution.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.printf("Benchmark results for %,d solutions of %d parameters:"
+                + "%n%n", numSolutions, numParameters);
+
+        Random generator = new Random(1L);
+        Solution[] parents = new Solution[numSolutions];
+        SolutionBatch parentBatch
+                = new SolutionBatch(species, numParameters, numSolutions);
+        float[] array = new float[numParameters];
+        for (int i = 0; i < numSolutions; i++) {
+            for (int j = 0; j < numParameters; j++) {
+                array[j] = generator.nextFloat();
+            }
+            parents[i] = new Solution(species, array);
+            parentBatch.set(i, parents[i]);
+        }
+        int[] firstParents = new int[numSolutions];
+        int[] secondParents = new int[numSolutions];
+        float[] blendAmounts = new float[numSolutions];
+        for (int i = 0; i < numSolutions; i++) {
+            firstParents[i] = generator.nextInt(numSolutions);
+            secondParents[i] = generator.nextInt(numSolutions);
+            blendAmounts[i] = generator.nextFloat();
+        }
+
+        Solution[] children = new Solution[numSolutions];
+        SolutionBatch childBatch
+                = new SolutionBatch(species, numParameters, numSolutions);
+        SolutionBatch wholeBatch
+                = new SolutionBatch(species, numParameters, numSolutions);
+        long objectLinear = Long.MAX_VALUE;
+        long objectRandom = Long.MAX_VALUE;
+        long batchLinear = Long.MAX_VALUE;
+        long batchRandom = Long.MAX_VALUE;
+        long wholeLinear = Long.MAX_VALUE;
+        long wholeRandom = Long.MAX_VALUE;
+        boolean match = true;
+        for (int trial = 0; trial < numTrials; trial++) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numSolutions; i++) {
+                Solution first = parents[firstParents[i]];
+                Solution second = parents[secondParents[i]];
+                children[i] = first.blendLinear(second, blendAmounts[i]);
+            }
+            long endTime = System.nanoTime();
+            objectLinear = Math.min(objectLinear, endTime - startTime);
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < numSolutions; i++) {
+                childBatch.blendLinear(i, parentBatch, firstParents[i],
+                        secondParents[i], blendAmounts[i]);
+            }
+            endTime = System.nanoTime();
+            batchLinear = Math.min(batchLinear, endTime - startTime);
+            match &= compare(children, childBatch, 1e-6f);
+
+            startTime = System.nanoTime();
+            wholeBatch.blendLinear(parentBatch, firstParents, secondParents,
+                    blendAmounts);
+            endTime = System.nanoTime();
+            wholeLinear = Math.min(wholeLinear, endTime - startTime);
+            match &= compare(childBatch, wholeBatch);
+
+            Random objectGenerator = new Random(trial);
+            startTime = System.nanoTime();
+            for (int i = 0; i < numSolutions; i++) {
+                Solution first = parents[firstParents[i]];
+                Solution second = parents[secondParents[i]];
+                children[i] = first.blendRandom(second, 0.5, objectGenerator);
+            }
+            endTime = System.nanoTime();
+            objectRandom = Math.min(objectRandom, endTime - startTime);
+
+            Random batchGenerator = new Random(trial);
+            startTime = System.nanoTime();
+            for (int i = 0; i < numSolutions; i++) {
+                childBatch.blendRandom(i, parentBatch, firstParents[i],
+                        secondParents[i], 0.5, batchGenerator);
+            }
+            endTime = System.nanoTime();
+            batchRandom = Math.min(batchRandom, endTime - startTime);
+            match &= isFromParents(childBatch, parentBatch, firstParents,
+                    secondParents);
+
+            Random wholeGenerator = new Random(trial);
+            startTime = System.nanoTime();
+            wholeBatch.blendRandom(parentBatch, firstParents, secondParents,
+                    0.5, wholeGenerator);
+            endTime = System.nanoTime();
+            wholeRandom = Math.min(wholeRandom, endTime - startTime);
+            match &= compare(childBatch, wholeBatch);
+        }
+
+        console.printf("Solution:      linear %,6d us, random %,6d us%n",
+                objectLinear / 1_000, objectRandom / 1_000);
+        console.printf("SolutionBatch: linear %,6d us, random %,6d us%n",
+                batchLinear / 1_000, batchRandom / 1_000);
+        console.printf("whole batch:   linear %,6d us, random %,6d us%n",
+                wholeLinear / 1_000, wholeRandom / 1_000);
+        console.printf("%nresults %s%n%n", match ? "match" : "DIFFER");
+        /*
+         * Check the probability of copying from the 2nd parent.
+         */
+        for (double probability : probabilities) {
+            wholeBatch.blendRandom(parentBatch, firstParents, secondParents,
+                    probability, generator);
+            double fraction = fractionFromSecond(wholeBatch, parentBatch,
+                    firstParents, secondParents);
+            boolean ok = Math.abs(fraction - probability) < 0.005;
+            console.printf("probability %.2f: observed %.4f %s%n",
+                    probability, fraction, ok ? "ok" : "WRONG");
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compare an array of solutions with a batch.
+     *
+     * @param solutions the solutions to compare (not null, unaffected)
+     * @param batch the batch to compare (not null, unaffected)
+     * @param tolerance maximum difference between corresponding parameters
+     * (&ge;0)
+     * @return true if they match, otherwise false
+     */
+    private static boolean compare(Solution[] solutions, SolutionBatch batch,
+            float tolerance) {
+        for (int i = 0; i < solutions.length; i++) {
+            for (int j = 0; j < numParameters; j++) {
+                float expected = solutions[i].getParameter(j);
+                float actual = batch.getParameter(i, j);
+                if (Math.abs(actual - expected) > tolerance) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compare 2 batches for exact equality.
+     *
+     * @param batch1 the 1st batch to compare (not null, unaffected)
+     * @param batch2 the 2nd batch to compare (not null, unaffected)
+     * @return true if they match, otherwise false
+     */
+    private static boolean compare(SolutionBatch batch1,
+            SolutionBatch batch2) {
+        for (int i = 0; i < numSolutions; i++) {
+            for (int j = 0; j < numParameters; j++) {
+                if (batch1.getParameter(i, j) != batch2.getParameter(i, j)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Measure how often the children took a parameter from their 2nd parent,
+     * counting only parameters where the parents differ.
+     *
+     * @param children the children (not null, unaffected)
+     * @param parents the parents (not null, unaffected)
+     * @param firstParents index of each child's 1st parent (not null,
+     * unaffected)
+     * @param secondParents index of each child's 2nd parent (not null,
+     * unaffected)
+     * @return the fraction (&ge;0, &le;1)
+     */
+    private static double fractionFromSecond(SolutionBatch children,
+            SolutionBatch parents, int[] firstParents, int[] secondParents) {
+        long numDiffer = 0L;
+        long numSecond = 0L;
+        for (int i = 0; i < numSolutions; i++) {
+            for (int j = 0; j < numParameters; j++) {
+                float first = parents.getParameter(firstParents[i], j);
+                float second = parents.getParameter(secondParents[i], j);
+                if (first != second) {
+                    ++numDiffer;
+                    if (children.getParameter(i, j) == second) {
+                        ++numSecond;
+                    }
+                }
+            }
+        }
+        double result = numSecond / (double) numDiffer;
+
+        return result;
+    }
+
+    /**
+     * Test whether every parameter of every child was copied from one of its
+     * parents.
+     *
+     * @param children the children (not null, unaffected)
+     * @param parents the parents (not null, unaffected)
+     * @param firstParents index of each child's 1st parent (not null,
+     * unaffected)
+     * @param secondParents index of each child's 2nd parent (not null,
+     * unaffected)
+     * @return true if so, otherwise false
+     */
+    private static boolean isFromParents(SolutionBatch children,
+            SolutionBatch parents, int[] firstParents, int[] secondParents) {
+        for (int i = 0; i < numSolutions; i++) {
+            for (int j = 0; j < numParameters; j++) {
+                float child = children.getParameter(i, j);
+                if (child != parents.getParameter(firstParents[i], j)
+                        && child != parents.getParameter(secondParents[i], j)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.math.MyVector3f;
+import jme3utilities.math.polygon.Polygon3f;
+
+/**
+ * Console application to test the cached squared distances and corner
+ * products of Polygon3f (and hence CornerSet3f): for corner sets on both
+ * sides of the caching and parallelism thresholds, every cached value, filled
+ * either lazily or by precomputeAll(), must equal the value calculated on
+ * demand, bit for bit.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestCornerCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * corner counts to test, spanning the parallelism threshold (256) and the
+     * caching threshold (2048)
+     */
+    final private static int[] sizes = {2, 3, 10, 255, 256, 700, 2048, 2049};
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestCornerCache.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test the packed caches.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for the CornerSet3f caches:\n\n");
+
+        Random generator = new Random(1L);
+        for (int numCorners : sizes) {
+            /*
+             * random corners, with some duplicates
+             */
+            Vector3f[] corners = new Vector3f[numCorners];
+            for (int i = 0; i < numCorners; i++) {
+                if (i > 0 && generator.nextInt(10) == 0) {
+                    corners[i] = corners[generator.nextInt(i)].clone();
+                } else {
+                    corners[i] = new Vector3f(generator.nextFloat(),
+                            generator.nextFloat(), generator.nextFloat());
+                }
+            }
+            Probe lazy = new Probe(corners);
+            Probe eager = new Probe(corners);
+            eager.precomputeAll();
+            /*
+             * Query the lazy probe twice in random order: once to fill its
+             * cache and once to read it back.
+             */
+            int numMismatches = 0;
+            long numPairs = (long) numCorners * numCorners;
+            for (int pass = 0; pass < 2; pass++) {
+                for (long k = 0L; k < numPairs; k++) {
+                    int i = generator.nextInt(numCorners);
+                    int j = generator.nextInt(numCorners);
+                    if (lazy.distance(i, j) != expected(corners, i, j)) {
+                        ++numMismatches;
+                    }
+                }
+            }
+            for (int i = 0; i < numCorners; i++) {
+                for (int j = 0; j < numCorners; j++) {
+                    double expected = expected(corners, i, j);
+                    if (lazy.distance(i, j) != expected
+                            || eager.distance(i, j) != expected) {
+                        ++numMismatches;
+                    }
+                }
+            }
+            /*
+             * corner products
+             */
+            for (int i = 0; i < numCorners; i++) {
+                int prev = (i + numCorners - 1) % numCorners;
+                int next = (i + 1) % numCorners;
+                Vector3f offsetAB = corners[i].subtract(corners[prev]);
+                Vector3f offsetBC = corners[next].subtract(corners[i]);
+                double dot = MyVector3f.dot(offsetAB, offsetBC);
+                Vector3f cross = offsetAB.cross(offsetBC);
+                if (lazy.dotProduct(i) != dot || eager.dotProduct(i) != dot
+                        || !lazy.crossProduct(i).equals(cross)
+                        || !eager.crossProduct(i).equals(cross)) {
+                    ++numMismatches;
+                }
+            }
+
+            console.printf("%,5d corners: %d mismatches%n", numCorners,
+                    numMismatches);
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the squared distance between 2 corners on demand.
+     *
+     * @param corners the corner locations (not null, unaffected)
+     * @param i index of the 1st corner
+     * @param j index of the 2nd corner
+     * @return squared distance (&ge;0)
+     */
+    private static double expected(Vector3f[] corners, int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        double result = MyVector3f.distanceSquared(corners[i], corners[j]);
+        return result;
+    }
+    // *************************************************************************
+    // private classes
+
+    /**
+     * Polygon that exposes its cached squared distances.
+     */
+    private static class Probe extends Polygon3f {
+        /**
+         * Instantiate a probe with the specified corners.
+         *
+         * @param corners the corner locations (not null, unaffected)
+         */
+        Probe(Vector3f[] corners) {
+            super(corners, 0f);
+        }
+
+        /**
+         * Look up (or calculate) the squared distance between 2 corners.
+         *
+         * @param i index of the 1st corner
+         * @param j index of the 2nd corner
+         * @return squared distance (&ge;0)
+         */
+        double distance(int i, int j) {
+            double result = squaredDistance(i, j);
+            return result;
+        }
+    }
+}
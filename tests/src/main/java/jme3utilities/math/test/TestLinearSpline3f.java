@@ -0,0 +1,311 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.io.PrintStream;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.math.spline.LinearSpline3f;
+
+/**
+ * Console application to test LinearSpline3f's interpolateByDistance() and
+ * sample() on random paths, some with repeated control points. The
+ * interpolations are compared with a reference that walks the path in double
+ * precision, and sample() must reproduce interpolateByDistance() exactly,
+ * whatever the order of its inputs. Distances beyond either end of the path
+ * must clamp to the end points.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestLinearSpline3f {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of random paths to generate
+     */
+    final private static int numPaths = 500;
+    /**
+     * number of samples per path
+     */
+    final private static int numSamples = 200;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestLinearSpline3f.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pseudo-random generator for the paths and samples
+     */
+    final private static Random random = new Random(3L);
+    /**
+     * number of interpolations that disagree with the reference
+     */
+    private static int numWrong = 0;
+    /**
+     * number of samples that differ from interpolateByDistance()
+     */
+    private static int numInconsistent = 0;
+    /**
+     * number of other failures (control points, buffers, arguments)
+     */
+    private static int numOther = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test LinearSpline3f.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for LinearSpline3f:\n\n");
+
+        for (int pathIndex = 0; pathIndex < numPaths; pathIndex++) {
+            int numPoints = 1 + random.nextInt(12);
+            Vector3f[] points = new Vector3f[numPoints];
+            for (int i = 0; i < numPoints; i++) {
+                if (i > 0 && random.nextInt(5) == 0) {
+                    points[i] = points[i - 1].clone();
+                } else {
+                    points[i] = new Vector3f(randomCoordinate(),
+                            randomCoordinate(), randomCoordinate());
+                }
+            }
+            check(points);
+        }
+        checkBuffers();
+
+        console.printf("%d paths, %d samples each%n", numPaths, numSamples);
+        console.printf("%d wrong interpolations, %d inconsistent samples, "
+                + "%d other failures%n", numWrong, numInconsistent, numOther);
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test one path.
+     *
+     * @param points the control points (not null, unaffected)
+     */
+    private static void check(Vector3f[] points) {
+        LinearSpline3f spline = new LinearSpline3f(points);
+        /*
+         * Compute the reference: distinct points and cumulative lengths.
+         */
+        int numDistinct = 1;
+        for (int i = 1; i < points.length; i++) {
+            if (!points[i].equals(points[i - 1])) {
+                ++numDistinct;
+            }
+        }
+        if (spline.numControlPoints() != numDistinct) {
+            ++numOther;
+            return;
+        }
+        double[] lengths = new double[numDistinct];
+        Vector3f[] distinct = new Vector3f[numDistinct];
+        distinct[0] = points[0];
+        int count = 1;
+        for (int i = 1; i < points.length; i++) {
+            if (!points[i].equals(points[i - 1])) {
+                distinct[count] = points[i];
+                lengths[count] = lengths[count - 1]
+                        + points[i].distance(points[i - 1]);
+                ++count;
+            }
+        }
+        double totalLength = lengths[numDistinct - 1];
+        if (Math.abs(spline.totalLength() - totalLength)
+                > 1e-5 * (1.0 + totalLength)) {
+            ++numOther;
+        }
+        /*
+         * Every control point lies at its cumulative length.
+         */
+        for (int i = 0; i < numDistinct; i++) {
+            Vector3f location
+                    = spline.interpolateByDistance((float) lengths[i], null);
+            if (location.distance(distinct[i]) > 1e-4f) {
+                ++numOther;
+            }
+        }
+        /*
+         * Pick distances, including some beyond each end and some exactly on
+         * control points.
+         */
+        float[] distances = new float[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            if (i % 10 == 0) {
+                distances[i] = (float) lengths[random.nextInt(numDistinct)];
+            } else {
+                double fraction = 1.2 * random.nextDouble() - 0.1;
+                distances[i] = (float) (fraction * totalLength);
+            }
+        }
+        distances[1] = -1f;
+        distances[2] = spline.totalLength() + 1f;
+
+        Vector3f store = new Vector3f();
+        for (float distance : distances) {
+            Vector3f expected = reference(distinct, lengths, distance);
+            Vector3f actual = spline.interpolateByDistance(distance, store);
+            if (actual != store) {
+                ++numOther;
+            }
+            float tolerance = 1e-4f * (1f + (float) totalLength);
+            if (actual.distance(expected) > tolerance) {
+                ++numWrong;
+            }
+            if (!spline.interpolate(distance).equals(actual)) {
+                ++numInconsistent;
+            }
+        }
+        /*
+         * sample() in random, ascending, and descending order
+         */
+        checkSample(spline, distances);
+        float[] sorted = distances.clone();
+        Arrays.sort(sorted);
+        checkSample(spline, sorted);
+        float[] reversed = new float[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            reversed[i] = sorted[numSamples - 1 - i];
+        }
+        checkSample(spline, reversed);
+    }
+
+    /**
+     * Test sample()'s handling of the buffer: the locations start at the
+     * buffer's position, the position is unaffected, and a buffer that's too
+     * small is rejected.
+     */
+    private static void checkBuffers() {
+        Vector3f[] points = {
+            new Vector3f(0f, 0f, 0f), new Vector3f(1f, 0f, 0f),
+            new Vector3f(1f, 2f, 0f)
+        };
+        LinearSpline3f spline = new LinearSpline3f(points);
+        float[] distances = {0.5f, 2f};
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(9);
+        buffer.put(-7f);
+        spline.sample(distances, buffer);
+        float[] expected = {-7f, 0.5f, 0f, 0f, 1f, 1f, 0f};
+        if (buffer.position() != 1) {
+            ++numOther;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(i) != expected[i]) {
+                ++numOther;
+            }
+        }
+
+        FloatBuffer small = BufferUtils.createFloatBuffer(5);
+        try {
+            spline.sample(distances, small);
+            ++numOther;
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that sample() reproduces interpolateByDistance() exactly.
+     *
+     * @param spline the spline to test (not null)
+     * @param distances the input values (not null, unaffected)
+     */
+    private static void checkSample(LinearSpline3f spline,
+            float[] distances) {
+        int count = distances.length;
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(3 * count);
+        spline.sample(distances, buffer);
+
+        Vector3f expected = new Vector3f();
+        for (int i = 0; i < count; i++) {
+            spline.interpolateByDistance(distances[i], expected);
+            if (buffer.get(3 * i) != expected.x
+                    || buffer.get(3 * i + 1) != expected.y
+                    || buffer.get(3 * i + 2) != expected.z) {
+                ++numInconsistent;
+            }
+        }
+    }
+
+    /**
+     * Generate a pseudo-random coordinate.
+     *
+     * @return a value between -10 and 10
+     */
+    private static float randomCoordinate() {
+        float result = 20f * random.nextFloat() - 10f;
+        return result;
+    }
+
+    /**
+     * Interpolate a path in double precision by walking its segments.
+     *
+     * @param points the distinct control points (not null, unaffected)
+     * @param lengths the cumulative length at each point (not null,
+     * unaffected)
+     * @param distance the distance along the path
+     * @return a new vector
+     */
+    private static Vector3f reference(Vector3f[] points, double[] lengths,
+            float distance) {
+        int last = points.length - 1;
+        if (distance <= 0f || last == 0) {
+            return points[0].clone();
+        } else if (distance >= lengths[last]) {
+            return points[last].clone();
+        }
+
+        int segment = 0;
+        while (lengths[segment + 1] < distance) {
+            ++segment;
+        }
+        double fraction = (distance - lengths[segment])
+                / (lengths[segment + 1] - lengths[segment]);
+        Vector3f start = points[segment];
+        Vector3f end = points[segment + 1];
+        Vector3f result = new Vector3f(
+                (float) (start.x + fraction * (end.x - start.x)),
+                (float) (start.y + fraction * (end.y - start.y)),
+                (float) (start.z + fraction * (end.z - start.z)));
+
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.FloatBuffer;
+import java.util.BitSet;
+import java.util.logging.Logger;
+import jme3utilities.math.locus.Locus3f;
+import jme3utilities.math.locus.Segment3f;
+import jme3utilities.math.locus.Shell3f;
+import jme3utilities.math.noise.Generator;
+import jme3utilities.math.polygon.SimplePolygon3f;
+
+/**
+ * Benchmark for bulk point-in-locus classification: compares
+ * Locus3f.contains(FloatBuffer, int, BitSet) with repeated calls to
+ * Locus3f.contains(Vector3f), reporting time and heap allocation per location
+ * and checking that both give the same answers.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestLocusBatch {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of locations classified in each pass
+     */
+    final private static int numLocations = 100_000;
+    /**
+     * number of timed passes for each method
+     */
+    final private static int numPasses = 20;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestLocusBatch.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark bulk classification.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.printf("Benchmark results for %,d locations:%n%n",
+                numLocations);
+
+        Generator generator = new Generator(170_707);
+        FloatBuffer xyz = BufferUtils.createFloatBuffer(3 * numLocations);
+        for (int i = 0; i < 3 * numLocations; i++) {
+            xyz.put(4f * generator.nextFloat() - 2f);
+        }
+        xyz.flip();
+        /*
+         * Flatten every other location into the polygon's plane (Y=0).
+         */
+        for (int i = 0; i < numLocations; i += 2) {
+            xyz.put(3 * i + 1, 0f);
+        }
+
+        Vector3f[] corners = {
+            new Vector3f(-1f, 0f, -1f), new Vector3f(-1f, 0f, 1f),
+            new Vector3f(0f, 0f, 0.5f), new Vector3f(1f, 0f, 1f),
+            new Vector3f(1f, 0f, -1f)
+        };
+        Locus3f[] loci = {
+            new Shell3f(new Vector3f(0.1f, 0.2f, 0.3f), 0.5f, 1.5f),
+            new Segment3f(new Vector3f(-1f, -1f, 0f), new Vector3f(1f, 1f, 0f),
+            0.5f),
+            new SimplePolygon3f(corners, 0.001f)
+        };
+        for (Locus3f locus : loci) {
+            benchmark(locus, xyz, console);
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Read how many bytes the current thread has allocated so far.
+     *
+     * @return count of bytes, or -1 if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1L;
+        }
+        com.sun.management.ThreadMXBean sunBean
+                = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+        long result = sunBean.getThreadAllocatedBytes(threadId);
+
+        return result;
+    }
+
+    /**
+     * Benchmark both methods for a single locus and print the results.
+     *
+     * @param locus the locus to test (not null)
+     * @param xyz location coordinates (not null, unaffected)
+     * @param console where to print the results (not null)
+     */
+    private static void benchmark(Locus3f locus, FloatBuffer xyz,
+            PrintStream console) {
+        BitSet batchResults = new BitSet(numLocations);
+        Vector3f location = new Vector3f();
+        /*
+         * Warm up both methods and compare their results.
+         */
+        int numMismatches = 0;
+        for (int pass = 0; pass < numPasses; pass++) {
+            locus.contains(xyz, numLocations, batchResults);
+            for (int i = 0; i < numLocations; i++) {
+                location.set(xyz.get(3 * i), xyz.get(3 * i + 1),
+                        xyz.get(3 * i + 2));
+                if (locus.contains(location) != batchResults.get(i)) {
+                    ++numMismatches;
+                }
+            }
+        }
+
+        long startBytes = allocatedBytes();
+        long startTime = System.nanoTime();
+        for (int pass = 0; pass < numPasses; pass++) {
+            locus.contains(xyz, numLocations, batchResults);
+        }
+        long batchTime = System.nanoTime() - startTime;
+        long batchBytes = allocatedBytes() - startBytes;
+
+        startBytes = allocatedBytes();
+        startTime = System.nanoTime();
+        for (int pass = 0; pass < numPasses; pass++) {
+            for (int i = 0; i < numLocations; i++) {
+                location.set(xyz.get(3 * i), xyz.get(3 * i + 1),
+                        xyz.get(3 * i + 2));
+                locus.contains(location);
+            }
+        }
+        long singleTime = System.nanoTime() - startTime;
+        long singleBytes = allocatedBytes() - startBytes;
+
+        double perPass = numPasses * (double) numLocations;
+        console.printf("%s (%d mismatches)%n",
+                locus.getClass().getSimpleName(), numMismatches);
+        console.printf("  batch:  %6.1f ns, %7.2f bytes per location%n",
+                batchTime / perPass, batchBytes / perPass);
+        console.printf("  single: %6.1f ns, %7.2f bytes per location%n",
+                singleTime / perPass, singleBytes / perPass);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.io.PrintStream;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.math.polygon.SimplePolygon3f;
+
+/**
+ * Console application to check that SimplePolygon3f's bulk contains() agrees
+ * with its single-location contains() on degenerate inputs: zero tolerance,
+ * very short sides, slivers, tilted planes, large coordinates, and
+ * locations on corners, on sides, on the extensions of sides, and about one
+ * tolerance away from them. Locations at exactly one tolerance from a side
+ * are avoided, since there the 2 methods may round differently. So is a
+ * sliver with zero tolerance: at its needle-sharp corners, the nearest-side
+ * test of the single-location method can pick the wrong side.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestLocusDegenerate {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestLocusDegenerate.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test bulk containment on degenerate inputs.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for SimplePolygon3f bulk contains():\n\n");
+
+        Vector3f[] square = {
+            new Vector3f(0f, 0f, 0f), new Vector3f(1f, 0f, 0f),
+            new Vector3f(1f, 0f, 1f), new Vector3f(0f, 0f, 1f)
+        };
+        check("square, tolerance 0", square, 0f, console);
+        check("square, tolerance 0.01", square, 0.01f, console);
+
+        Vector3f[] tiny = {
+            new Vector3f(0f, 0f, 0f), new Vector3f(1e-6f, 0f, 0f),
+            new Vector3f(1e-6f, 0f, 1e-6f), new Vector3f(0f, 0f, 1e-6f)
+        };
+        check("tiny square, tolerance 0", tiny, 0f, console);
+
+        Vector3f[] step = {
+            new Vector3f(0f, 0f, 0f), new Vector3f(1f, 0f, 0f),
+            new Vector3f(1f, 0f, 1f), new Vector3f(0.5f, 0f, 1f),
+            new Vector3f(0.5f, 0f, 1.015f), new Vector3f(0f, 0f, 1.015f)
+        };
+        check("side of 1.5 tolerances", step, 0.01f, console);
+
+        Vector3f[] sliver = {
+            new Vector3f(0f, 0f, 0f), new Vector3f(1f, 0f, 0f),
+            new Vector3f(1f, 0f, 1e-4f)
+        };
+        check("sliver triangle", sliver, 1e-5f, console);
+
+        Vector3f[] tilted = new Vector3f[square.length];
+        Vector3f[] far = new Vector3f[square.length];
+        for (int i = 0; i < square.length; i++) {
+            Vector3f corner = square[i];
+            tilted[i] = new Vector3f(corner.x, 0.7f * corner.x + corner.z,
+                    corner.z);
+            far[i] = corner.mult(0.01f).addLocal(1e5f, -3f, -1e5f);
+        }
+        check("tilted square", tilted, 0.001f, console);
+        check("far from origin", far, 0.001f, console);
+        /*
+         * comb-shaped polygons, with and without the triangulation
+         */
+        for (int numTeeth = 2; numTeeth <= 6; numTeeth += 4) {
+            Vector3f[] comb = new Vector3f[2 * numTeeth + 2];
+            int index = 0;
+            for (int tooth = 0; tooth < numTeeth; tooth++) {
+                comb[index++] = new Vector3f(2f * tooth, 0f, 0f);
+                comb[index++] = new Vector3f(2f * tooth + 1f, 0f, 3f);
+            }
+            comb[index++] = new Vector3f(2f * numTeeth, 0f, -1f);
+            comb[index] = new Vector3f(-1f, 0f, -1f);
+            String description = String.format("comb with %d corners",
+                    comb.length);
+            check(description, comb, 0.001f, console);
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compare bulk and single-location containment for one polygon.
+     *
+     * @param description description of the polygon (not null)
+     * @param corners the polygon's corners (not null, unaffected)
+     * @param tolerance the polygon's tolerance (&ge;0)
+     * @param console where to print the results (not null)
+     */
+    private static void check(String description, Vector3f[] corners,
+            float tolerance, PrintStream console) {
+        SimplePolygon3f polygon;
+        try {
+            polygon = new SimplePolygon3f(corners, tolerance);
+        } catch (IllegalArgumentException exception) {
+            console.printf("%s: rejected (%s)%n", description,
+                    exception.getMessage());
+            return;
+        }
+
+        List<Vector3f> locations = probeLocations(corners, tolerance);
+        int count = locations.size();
+        FloatBuffer xyz = BufferUtils.createFloatBuffer(3 * count);
+        for (Vector3f location : locations) {
+            xyz.put(location.x).put(location.y).put(location.z);
+        }
+        xyz.flip();
+
+        BitSet batchResults = new BitSet(count);
+        int numInside = polygon.contains(xyz, count, batchResults);
+        int numMismatches = 0;
+        for (int i = 0; i < count; i++) {
+            if (polygon.contains(locations.get(i)) != batchResults.get(i)) {
+                ++numMismatches;
+            }
+        }
+
+        console.printf("%s: %d locations (%d inside), %d mismatches%n",
+                description, count, numInside, numMismatches);
+    }
+
+    /**
+     * Generate locations near the corners and sides of a polygon.
+     *
+     * @param corners the polygon's corners (not null, unaffected)
+     * @param tolerance the polygon's tolerance (&ge;0)
+     * @return a new list of new vectors
+     */
+    private static List<Vector3f> probeLocations(Vector3f[] corners,
+            float tolerance) {
+        float[] fractions = {-1f, -0.5f, 0f, 1e-7f, 0.25f, 0.5f, 1f, 1.5f};
+        /*
+         * Avoid offsets of exactly one tolerance: there the 2 methods may
+         * round differently.
+         */
+        float[] offsets = {0f, 0.5f * tolerance, 0.99f * tolerance,
+            1.01f * tolerance, 1.5f * tolerance, 3f * tolerance, 1e-6f, 0.01f};
+        Vector3f[] directions = {
+            Vector3f.UNIT_X, Vector3f.UNIT_Y, Vector3f.UNIT_Z,
+            Vector3f.UNIT_X.negate(), Vector3f.UNIT_Y.negate(),
+            Vector3f.UNIT_Z.negate(),
+            new Vector3f(1f, 1f, 1f).normalizeLocal()
+        };
+
+        List<Vector3f> result = new ArrayList<>(1000);
+        int numCorners = corners.length;
+        for (int i = 0; i < numCorners; i++) {
+            Vector3f start = corners[i];
+            Vector3f end = corners[(i + 1) % numCorners];
+            for (float fraction : fractions) {
+                Vector3f onLine = FastMath.interpolateLinear(fraction, start,
+                        end);
+                for (float offset : offsets) {
+                    for (Vector3f direction : directions) {
+                        result.add(direction.mult(offset).addLocal(onLine));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.math.polygon.GenericPolygon3f;
+import jme3utilities.math.polygon.SelfIntersectionTest;
+
+/**
+ * Console application to test the sweep-line self-intersection test of
+ * GenericPolygon3f against the brute-force test, on random polygons and on
+ * degenerate ones: collinear and overlapping sides, near misses at about the
+ * tolerance, many sides with equal sweep keys, vertical and non-planar
+ * polygons, and large coordinates.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSelfIntersection {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of random polygons of each kind
+     */
+    final private static int numPolygons = 2_000;
+    /**
+     * tolerance for comparing locations
+     */
+    final private static float tolerance = 1e-3f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestSelfIntersection.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * count of polygons compared
+     */
+    private static int numCompared = 0;
+    /**
+     * count of corner arrays rejected as degenerate
+     */
+    private static int numDegenerate = 0;
+    /**
+     * count of disagreements
+     */
+    private static int numMismatches = 0;
+    /**
+     * count of self-intersecting polygons
+     */
+    private static int numSelfIntersecting = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test SelfIntersectionTest.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for SelfIntersectionTest:\n\n");
+
+        Random generator = new Random(1L);
+        for (int i = 0; i < numPolygons; i++) {
+            int numCorners = 3 + generator.nextInt(20);
+            /*
+             * scattered corners, usually self-intersecting
+             */
+            Vector3f[] corners = new Vector3f[numCorners];
+            for (int j = 0; j < numCorners; j++) {
+                corners[j] = new Vector3f(generator.nextFloat(), 0f,
+                        generator.nextFloat());
+            }
+            compare(corners);
+            /*
+             * star-shaped, hence simple
+             */
+            compare(star(generator, numCorners, 0f));
+            /*
+             * star-shaped but non-planar
+             */
+            compare(star(generator, numCorners, 0.2f));
+            /*
+             * corners snapped to a coarse grid, with many collinear,
+             * overlapping, and axis-aligned sides
+             */
+            for (int j = 0; j < numCorners; j++) {
+                corners[j] = new Vector3f(generator.nextInt(4), 0f,
+                        generator.nextInt(4));
+            }
+            compare(corners);
+            /*
+             * the same, in a vertical plane
+             */
+            for (int j = 0; j < numCorners; j++) {
+                corners[j] = new Vector3f(0f, generator.nextInt(4),
+                        generator.nextInt(4));
+            }
+            compare(corners);
+            /*
+             * scattered corners far from the origin
+             */
+            for (int j = 0; j < numCorners; j++) {
+                corners[j] = new Vector3f(1e5f + generator.nextFloat(), -7f,
+                        -1e5f + generator.nextFloat());
+            }
+            compare(corners);
+        }
+        /*
+         * A rectangle with a notch whose tip approaches the opposite side:
+         * near misses at multiples of the tolerance.
+         */
+        for (int k = 0; k <= 40; k++) {
+            float gap = 0.1f * k * tolerance;
+            compare(new Vector3f[]{
+                new Vector3f(0f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f),
+                new Vector3f(1f, 0f, 1f),
+                new Vector3f(0.6f, 0f, 1f),
+                new Vector3f(0.5f, 0f, gap),
+                new Vector3f(0.4f, 0f, 1f),
+                new Vector3f(0f, 0f, 1f)
+            });
+        }
+        /*
+         * Combs: many vertical teeth share the same sweep key.
+         */
+        for (int numTeeth = 2; numTeeth <= 50; numTeeth++) {
+            compare(comb(numTeeth, false));
+            compare(comb(numTeeth, true));
+        }
+
+        console.printf("%d polygons compared (%d self-intersecting, "
+                + "%d degenerate skipped): %d mismatches%n%n", numCompared,
+                numSelfIntersecting, numDegenerate, numMismatches);
+        /*
+         * Time the sweep on large combs, whose long parallel teeth all
+         * overlap in one direction.
+         */
+        for (int numTeeth = 2_000; numTeeth <= 32_000; numTeeth *= 4) {
+            GenericPolygon3f polygon
+                    = new GenericPolygon3f(comb(numTeeth, false), tolerance);
+            long startTime = System.nanoTime();
+            boolean result = polygon.isSelfIntersecting(
+                    SelfIntersectionTest.SWEEP_LINE);
+            long elapsed = System.nanoTime() - startTime;
+            console.printf("comb with %,d teeth: %s in %.1f ms%n", numTeeth,
+                    result ? "self-intersecting" : "simple", 1e-6 * elapsed);
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate a comb-shaped polygon whose teeth are parallel to the Z axis.
+     *
+     * @param numTeeth number of teeth (&ge;2)
+     * @param crossed true to make the last tooth cross the spine
+     * @return a new array of corners
+     */
+    private static Vector3f[] comb(int numTeeth, boolean crossed) {
+        Vector3f[] result = new Vector3f[2 * numTeeth + 2];
+        int index = 0;
+        for (int tooth = 0; tooth < numTeeth; tooth++) {
+            float x = 2f * tooth;
+            result[index++] = new Vector3f(x, 0f, 0f);
+            result[index++] = new Vector3f(x, 0f, 5f);
+        }
+        float bottom = crossed ? 3f : -1f;
+        result[index++] = new Vector3f(2f * numTeeth - 1f, 0f, bottom);
+        result[index] = new Vector3f(-1f, 0f, -1f);
+
+        return result;
+    }
+
+    /**
+     * Compare the 2 algorithms on the specified corners, unless they don't
+     * form a generic polygon.
+     *
+     * @param corners the corner locations (not null, unaffected)
+     */
+    private static void compare(Vector3f[] corners) {
+        GenericPolygon3f polygon;
+        try {
+            polygon = new GenericPolygon3f(corners, tolerance);
+        } catch (IllegalArgumentException exception) {
+            ++numDegenerate;
+            return;
+        }
+
+        boolean brute
+                = polygon.isSelfIntersecting(SelfIntersectionTest.BRUTE_FORCE);
+        boolean sweep
+                = polygon.isSelfIntersecting(SelfIntersectionTest.SWEEP_LINE);
+        boolean cached = polygon.isSelfIntersecting();
+        if (brute != sweep || brute != cached) {
+            ++numMismatches;
+        }
+        if (brute) {
+            ++numSelfIntersecting;
+        }
+        ++numCompared;
+    }
+
+    /**
+     * Generate a random star-shaped polygon around the origin.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @param numCorners number of corners (&ge;3)
+     * @param yJitter maximum Y offset of each corner (&ge;0)
+     * @return a new array of corners
+     */
+    private static Vector3f[] star(Random generator, int numCorners,
+            float yJitter) {
+        Vector3f[] result = new Vector3f[numCorners];
+        for (int j = 0; j < numCorners; j++) {
+            float angle = FastMath.TWO_PI * j / numCorners;
+            float radius = 0.2f + generator.nextFloat();
+            float y = yJitter * generator.nextFloat();
+            result[j] = new Vector3f(radius * FastMath.cos(angle), y,
+                    radius * FastMath.sin(angle));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+import jme3utilities.math.noise.SplitMixGenerator;
+
+/**
+ * Console application to verify that SplitMixGenerator reproduces
+ * {@link java.util.SplittableRandom} bit for bit: nextLong(), nextDouble(),
+ * and split() must yield identical sequences and identical trees of split
+ * generators for the same seed, including after setSeed(). (nextInt() isn't
+ * compared, because SplitMixGenerator derives it from the high bits of
+ * nextLong() instead of using a separate 32-bit mix.)
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSplitMixGenerator {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * depth of each tree of split generators
+     */
+    final private static int treeDepth = 4;
+    /**
+     * number of values to compare from each generator
+     */
+    final private static int numValues = 1000;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestSplitMixGenerator.class.getName());
+    /**
+     * seeds to test
+     */
+    final private static long[] seeds = {
+        0L, 1L, -1L, 42L, Long.MIN_VALUE, Long.MAX_VALUE,
+        0x9e3779b97f4a7c15L, 123_456_789_012_345L
+    };
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of values compared
+     */
+    private static long numCompared = 0L;
+    /**
+     * number of values that differed
+     */
+    private static long numDiffered = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to compare SplitMixGenerator with
+     * SplittableRandom.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for SplitMixGenerator:\n\n");
+
+        for (long seed : seeds) {
+            SplitMixGenerator generator = new SplitMixGenerator(seed);
+            SplittableRandom reference = new SplittableRandom(seed);
+            compareTree(generator, reference, treeDepth);
+            /*
+             * Re-seeding must restore a root generator.
+             */
+            SplitMixGenerator child = generator.split();
+            child.setSeed(~seed);
+            compareTree(child, new SplittableRandom(~seed), 1);
+        }
+
+        console.printf("%d values compared, %d differed%n", numCompared,
+                numDiffered);
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compare 2 generators and, recursively, the generators split from them.
+     *
+     * @param generator the generator to test (not null, modified)
+     * @param reference the reference generator (not null, modified)
+     * @param depth the number of levels of splits to compare (&ge;0)
+     */
+    private static void compareTree(SplitMixGenerator generator,
+            SplittableRandom reference, int depth) {
+        for (int i = 0; i < numValues; i++) {
+            ++numCompared;
+            if ((i & 1) == 0) {
+                if (generator.nextLong() != reference.nextLong()) {
+                    ++numDiffered;
+                }
+            } else {
+                long bits = Double.doubleToRawLongBits(generator.nextDouble());
+                if (bits
+                        != Double.doubleToRawLongBits(reference.nextDouble())) {
+                    ++numDiffered;
+                }
+            }
+        }
+
+        if (depth > 0) {
+            SplitMixGenerator left = generator.split();
+            SplittableRandom leftReference = reference.split();
+            SplitMixGenerator right = generator.split();
+            SplittableRandom rightReference = reference.split();
+            compareTree(left, leftReference, depth - 1);
+            compareTree(right, rightReference, depth - 1);
+            /*
+             * The parents must stay in step after splitting.
+             */
+            compareTree(generator, reference, 0);
+        }
+    }
+}
@@ -0,0 +1,766 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.math.MyVector3f;
+import jme3utilities.math.polygon.SimplePolygon3f;
+import jme3utilities.math.spline.LinearSpline3f;
+import jme3utilities.math.spline.Spline3f;
+
+/**
+ * Console application to compare SimplePolygon3f's triangulated queries with
+ * the brute-force methods they replaced, on random simple polygons in tilted
+ * planes: concave star shapes and combs, some with collinear corners. Three
+ * things are checked:
+ * <ul>
+ * <li>containment: contains() versus walking every side to find the closest
+ * one, as polygons with fewer than 8 corners still do,</li>
+ * <li>findSide agreement: near the perimeter, contains() accepts a location
+ * exactly when findSide() puts it within the tolerance of a side, and</li>
+ * <li>path length: shortestPath() versus the shortest path in the visibility
+ * graph of the corners, and never longer than the old search of direct paths
+ * and single-corner detours.</li>
+ * </ul>
+ * Each polygon is also queried through a 2nd instance prepared with
+ * precomputeAll(), which must give the same answers. Locations within 10% of
+ * one tolerance from the perimeter are skipped, since there the methods may
+ * round differently.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestTriangulation {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of random polygons to generate
+     */
+    final private static int numPolygons = 300;
+    /**
+     * number of random locations to test per polygon
+     */
+    final private static int numLocations = 300;
+    /**
+     * number of random paths to test per polygon
+     */
+    final private static int numPaths = 20;
+    /**
+     * tolerance of each polygon
+     */
+    final private static float tolerance = 1e-4f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestTriangulation.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pseudo-random generator for the polygons and locations
+     */
+    final private static Random random = new Random(7L);
+    /**
+     * number of polygons rejected by the constructor
+     */
+    private static int numRejected = 0;
+    /**
+     * number of containment tests
+     */
+    private static int numContains = 0;
+    /**
+     * number of containment disagreements
+     */
+    private static int containsErrors = 0;
+    /**
+     * number of near-perimeter tests
+     */
+    private static int numNear = 0;
+    /**
+     * number of near-perimeter disagreements
+     */
+    private static int nearErrors = 0;
+    /**
+     * number of path tests
+     */
+    private static int numPathTests = 0;
+    /**
+     * number of path disagreements
+     */
+    private static int pathErrors = 0;
+    /**
+     * number of tested paths whose shortest version has 2 or more turns
+     */
+    private static int numMultiTurn = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to compare triangulated and brute-force queries.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for SimplePolygon3f triangulation:\n\n");
+
+        for (int polygonIndex = 0; polygonIndex < numPolygons;
+                polygonIndex++) {
+            double[][] planar;
+            if (polygonIndex % 3 == 2) {
+                planar = comb(2 + random.nextInt(5));
+            } else {
+                planar = star(8 + random.nextInt(30));
+            }
+            if (polygonIndex % 2 == 1) {
+                planar = insertCollinear(planar);
+            }
+            check(planar);
+        }
+
+        console.printf("%d polygons (%d rejected)%n", numPolygons,
+                numRejected);
+        console.printf("containment: %d locations, %d errors%n", numContains,
+                containsErrors);
+        console.printf("findSide agreement: %d locations, %d errors%n",
+                numNear, nearErrors);
+        console.printf("path length: %d paths (%d with 2+ turns), %d errors%n",
+                numPathTests, numMultiTurn, pathErrors);
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test one polygon, given in planar coordinates.
+     *
+     * @param planar the X and Z coordinates of the corners (not null,
+     * unaffected)
+     */
+    private static void check(double[][] planar) {
+        double[] xs = planar[0];
+        double[] zs = planar[1];
+        int numCorners = xs.length;
+        /*
+         * Map the planar coordinates into a random plane.
+         */
+        Quaternion rotation = new Quaternion();
+        rotation.fromAngles(random.nextFloat() * FastMath.TWO_PI,
+                random.nextFloat() * FastMath.TWO_PI,
+                random.nextFloat() * FastMath.TWO_PI);
+        Vector3f offset = new Vector3f(random.nextFloat() * 10f,
+                random.nextFloat() * 10f, random.nextFloat() * 10f);
+        Vector3f[] corners = new Vector3f[numCorners];
+        for (int i = 0; i < numCorners; i++) {
+            corners[i] = toWorld(xs[i], zs[i], rotation, offset);
+        }
+
+        SimplePolygon3f polygon;
+        SimplePolygon3f shared;
+        try {
+            polygon = new SimplePolygon3f(corners, tolerance);
+            shared = new SimplePolygon3f(corners, tolerance);
+        } catch (IllegalArgumentException exception) {
+            ++numRejected;
+            return;
+        }
+        shared.precomputeAll();
+        /*
+         * containment at random locations around the polygon
+         */
+        double[] bounds = bounds(xs, zs);
+        double width = bounds[1] - bounds[0];
+        double depth = bounds[3] - bounds[2];
+        for (int i = 0; i < numLocations; i++) {
+            double x = bounds[0] + width * (1.2 * random.nextDouble() - 0.1);
+            double z = bounds[2] + depth * (1.2 * random.nextDouble() - 0.1);
+            Vector3f location = toWorld(x, z, rotation, offset);
+            if (isNearTolerance(polygon, location)) {
+                continue;
+            }
+            ++numContains;
+            boolean expected = sideWalkContains(polygon, location);
+            if (polygon.contains(location) != expected
+                    || shared.contains(location) != expected) {
+                ++containsErrors;
+            }
+        }
+        /*
+         * findSide agreement just inside and outside each side's tolerance
+         */
+        double[] multiples = {-1.5, -0.5, 0.5, 1.5};
+        for (int i = 0; i < numCorners; i++) {
+            int next = (i + 1) % numCorners;
+            double sideX = xs[next] - xs[i];
+            double sideZ = zs[next] - zs[i];
+            double length = Math.hypot(sideX, sideZ);
+            double t = random.nextDouble();
+            for (double multiple : multiples) {
+                double distance = multiple * tolerance / length;
+                double x = xs[i] + t * sideX - distance * sideZ;
+                double z = zs[i] + t * sideZ + distance * sideX;
+                Vector3f location = toWorld(x, z, rotation, offset);
+                if (isNearTolerance(polygon, location)) {
+                    continue;
+                }
+                ++numNear;
+                Vector3f closest = new Vector3f();
+                polygon.findSide(location, closest);
+                boolean expected = MyVector3f.doCoincide(location, closest,
+                        tolerance * tolerance)
+                        || sideWalkContains(polygon, location);
+                if (polygon.contains(location) != expected
+                        || shared.contains(location) != expected) {
+                    ++nearErrors;
+                }
+            }
+        }
+        /*
+         * shortest paths between random interior locations
+         */
+        int numTested = 0;
+        while (numTested < numPaths) {
+            double[] start = interiorPoint(xs, zs, bounds);
+            double[] goal = interiorPoint(xs, zs, bounds);
+            Vector3f startLocation
+                    = toWorld(start[0], start[1], rotation, offset);
+            Vector3f goalLocation = toWorld(goal[0], goal[1], rotation, offset);
+            ++numTested;
+            ++numPathTests;
+
+            int[] turnCount = new int[1];
+            double optimal = visibilityLength(xs, zs, start, goal, turnCount);
+            if (turnCount[0] >= 2) {
+                ++numMultiTurn;
+            }
+            Spline3f path = polygon.shortestPath(startLocation, goalLocation,
+                    numCorners + 2);
+            Spline3f sharedPath = shared.shortestPath(startLocation,
+                    goalLocation, numCorners + 2);
+            Spline3f oldPath = oldShortestPath(polygon, startLocation,
+                    goalLocation);
+            double slop = 1e-3 * (1.0 + optimal);
+            if (path == null || sharedPath == null) {
+                ++pathErrors;
+            } else if (Math.abs(path.totalLength() - optimal) > slop
+                    || path.totalLength() != sharedPath.totalLength()) {
+                ++pathErrors;
+            } else if (oldPath != null
+                    && path.totalLength() > oldPath.totalLength() + slop) {
+                ++pathErrors;
+            }
+        }
+    }
+
+    /**
+     * Calculate the planar bounding rectangle of a polygon.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @return a new array: minimum X, maximum X, minimum Z, maximum Z
+     */
+    private static double[] bounds(double[] xs, double[] zs) {
+        double[] result = {
+            Double.MAX_VALUE, -Double.MAX_VALUE,
+            Double.MAX_VALUE, -Double.MAX_VALUE
+        };
+        for (int i = 0; i < xs.length; i++) {
+            result[0] = Math.min(result[0], xs[i]);
+            result[1] = Math.max(result[1], xs[i]);
+            result[2] = Math.min(result[2], zs[i]);
+            result[3] = Math.max(result[3], zs[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a comb-shaped polygon, whose teeth can only be reached from
+     * one another by paths with 2 turns.
+     *
+     * @param numTeeth the number of teeth (&ge;2)
+     * @return a new array of 2 arrays: X and Z coordinates of the corners
+     */
+    private static double[][] comb(int numTeeth) {
+        List<double[]> points = new ArrayList<>(4 * numTeeth);
+        points.add(new double[]{0.0, -1.0});
+        points.add(new double[]{2.0 * numTeeth - 1.0, -1.0});
+        for (int tooth = numTeeth - 1; tooth >= 0; tooth--) {
+            points.add(new double[]{2.0 * tooth + 1.0, 3.0});
+            points.add(new double[]{2.0 * tooth, 3.0});
+            if (tooth > 0) {
+                points.add(new double[]{2.0 * tooth, 0.0});
+                points.add(new double[]{2.0 * tooth - 1.0, 0.0});
+            }
+        }
+        double[][] result = toArrays(points);
+
+        return result;
+    }
+
+    /**
+     * Calculate the distance between a point and a segment in the plane.
+     *
+     * @param px X coordinate of the point
+     * @param pz Z coordinate of the point
+     * @param ax X coordinate of the segment's start
+     * @param az Z coordinate of the segment's start
+     * @param bx X coordinate of the segment's end
+     * @param bz Z coordinate of the segment's end
+     * @return the distance (&ge;0)
+     */
+    private static double distanceToSegment(double px, double pz, double ax,
+            double az, double bx, double bz) {
+        double sideX = bx - ax;
+        double sideZ = bz - az;
+        double lengthSquared = sideX * sideX + sideZ * sideZ;
+        double t = ((px - ax) * sideX + (pz - az) * sideZ) / lengthSquared;
+        t = Math.max(0.0, Math.min(1.0, t));
+        double result = Math.hypot(px - ax - t * sideX, pz - az - t * sideZ);
+
+        return result;
+    }
+
+    /**
+     * Insert a corner at the midpoint of every 3rd side, making it collinear
+     * with its neighbors.
+     *
+     * @param planar the X and Z coordinates of the corners (not null,
+     * unaffected)
+     * @return a new array of 2 arrays: X and Z coordinates of the corners
+     */
+    private static double[][] insertCollinear(double[][] planar) {
+        double[] xs = planar[0];
+        double[] zs = planar[1];
+        int numCorners = xs.length;
+        List<double[]> points = new ArrayList<>(2 * numCorners);
+        for (int i = 0; i < numCorners; i++) {
+            points.add(new double[]{xs[i], zs[i]});
+            if (i % 3 == 0) {
+                int next = (i + 1) % numCorners;
+                points.add(new double[]{
+                    (xs[i] + xs[next]) / 2.0, (zs[i] + zs[next]) / 2.0
+                });
+            }
+        }
+        double[][] result = toArrays(points);
+
+        return result;
+    }
+
+    /**
+     * Pick a random point well inside a polygon.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @param bounds the polygon's bounding rectangle (not null, unaffected)
+     * @return a new array: X and Z coordinates
+     */
+    private static double[] interiorPoint(double[] xs, double[] zs,
+            double[] bounds) {
+        while (true) {
+            double x = bounds[0]
+                    + (bounds[1] - bounds[0]) * random.nextDouble();
+            double z = bounds[2]
+                    + (bounds[3] - bounds[2]) * random.nextDouble();
+            if (isInside(xs, zs, x, z)
+                    && perimeterDistance(xs, zs, x, z) > 0.01) {
+                return new double[]{x, z};
+            }
+        }
+    }
+
+    /**
+     * Test whether a point lies inside a polygon, by counting crossings of a
+     * ray in the +X direction.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @param x X coordinate of the point
+     * @param z Z coordinate of the point
+     * @return true if inside, otherwise false
+     */
+    private static boolean isInside(double[] xs, double[] zs, double x,
+            double z) {
+        boolean result = false;
+        int numCorners = xs.length;
+        int prev = numCorners - 1;
+        for (int i = 0; i < numCorners; i++) {
+            if ((zs[prev] > z) != (zs[i] > z)) {
+                double fraction = (z - zs[prev]) / (zs[i] - zs[prev]);
+                double crossX = xs[prev] + fraction * (xs[i] - xs[prev]);
+                if (x < crossX) {
+                    result = !result;
+                }
+            }
+            prev = i;
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether a location's distance from a polygon's perimeter is too
+     * close to the tolerance for the methods to agree reliably.
+     *
+     * @param polygon the polygon (not null)
+     * @param location the location (not null, unaffected)
+     * @return true if within 10% of the tolerance, otherwise false
+     */
+    private static boolean isNearTolerance(SimplePolygon3f polygon,
+            Vector3f location) {
+        Vector3f closest = new Vector3f();
+        polygon.findSide(location, closest);
+        float distance = location.distance(closest);
+        boolean result = Math.abs(distance - tolerance) < 0.1f * tolerance;
+
+        return result;
+    }
+
+    /**
+     * Test whether a segment stays in a polygon (perimeter included), by
+     * checking for proper crossings of sides and then testing the midpoints
+     * of the pieces between corners that lie on the segment.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @param start the X and Z coordinates of the segment's start (not null,
+     * unaffected)
+     * @param end the X and Z coordinates of the segment's end (not null,
+     * unaffected)
+     * @return true if visible, otherwise false
+     */
+    private static boolean isVisible(double[] xs, double[] zs, double[] start,
+            double[] end) {
+        int numCorners = xs.length;
+        double dx = end[0] - start[0];
+        double dz = end[1] - start[1];
+        double lengthSquared = dx * dx + dz * dz;
+        if (lengthSquared == 0.0) {
+            return true;
+        }
+
+        double[] ts = new double[numCorners + 2];
+        int numTs = 0;
+        ts[numTs++] = 0.0;
+        ts[numTs++] = 1.0;
+        for (int i = 0; i < numCorners; i++) {
+            int next = (i + 1) % numCorners;
+            double o1 = orient(start[0], start[1], end[0], end[1], xs[i],
+                    zs[i]);
+            double o2 = orient(start[0], start[1], end[0], end[1], xs[next],
+                    zs[next]);
+            double o3 = orient(xs[i], zs[i], xs[next], zs[next], start[0],
+                    start[1]);
+            double o4 = orient(xs[i], zs[i], xs[next], zs[next], end[0],
+                    end[1]);
+            if (o1 * o2 < 0.0 && o3 * o4 < 0.0) {
+                return false;
+            }
+            if (distanceToSegment(xs[i], zs[i], start[0], start[1], end[0],
+                    end[1]) < 1e-9) {
+                double t = ((xs[i] - start[0]) * dx + (zs[i] - start[1]) * dz)
+                        / lengthSquared;
+                ts[numTs++] = t;
+            }
+        }
+
+        Arrays.sort(ts, 0, numTs);
+        for (int i = 1; i < numTs; i++) {
+            double t = (ts[i - 1] + ts[i]) / 2.0;
+            double x = start[0] + t * dx;
+            double z = start[1] + t * dz;
+            if (perimeterDistance(xs, zs, x, z) > 1e-7
+                    && !isInside(xs, zs, x, z)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find a path the way SimplePolygon3f did before it was triangulated:
+     * the direct path if it's contained, otherwise the shortest contained
+     * detour via a single corner.
+     *
+     * @param polygon the polygon (not null)
+     * @param start coordinates of the start (contained, unaffected)
+     * @param goal coordinates of the goal (contained, unaffected)
+     * @return a new path, or null if none found
+     */
+    private static Spline3f oldShortestPath(SimplePolygon3f polygon,
+            Vector3f start, Vector3f goal) {
+        List<Vector3f> joints = new ArrayList<>(3);
+        joints.add(start);
+        joints.add(goal);
+        Spline3f result = new LinearSpline3f(joints);
+        if (result.isContainedIn(polygon)) {
+            return result;
+        }
+
+        float bestLength = Float.MAX_VALUE;
+        result = null;
+        for (int i = 0; i < polygon.numCorners(); i++) {
+            List<Vector3f> newJoints = new ArrayList<>(joints);
+            newJoints.add(1, polygon.copyCornerLocation(i));
+            Spline3f newResult = new LinearSpline3f(newJoints);
+            if (newResult.isContainedIn(polygon)) {
+                float newLength = newResult.totalLength();
+                if (newLength < bestLength) {
+                    bestLength = newLength;
+                    result = newResult;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate twice the signed area of a triangle in the plane.
+     *
+     * @return the cross product (positive if counter-clockwise)
+     */
+    private static double orient(double ax, double az, double bx, double bz,
+            double cx, double cz) {
+        double result = (bx - ax) * (cz - az) - (bz - az) * (cx - ax);
+        return result;
+    }
+
+    /**
+     * Calculate the distance from a point to a polygon's perimeter.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @param x X coordinate of the point
+     * @param z Z coordinate of the point
+     * @return the distance (&ge;0)
+     */
+    private static double perimeterDistance(double[] xs, double[] zs,
+            double x, double z) {
+        double result = Double.MAX_VALUE;
+        int numCorners = xs.length;
+        for (int i = 0; i < numCorners; i++) {
+            int next = (i + 1) % numCorners;
+            double distance
+                    = distanceToSegment(x, z, xs[i], zs[i], xs[next], zs[next]);
+            result = Math.min(result, distance);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test containment the way polygons with fewer than 8 corners do: find
+     * the closest side and test the location against it, or against both
+     * sides if the closest point is a corner.
+     *
+     * @param polygon the polygon (not null)
+     * @param location the location (in the polygon's plane, unaffected)
+     * @return true if contained, otherwise false
+     */
+    private static boolean sideWalkContains(SimplePolygon3f polygon,
+            Vector3f location) {
+        float tolerance2 = tolerance * tolerance;
+        Vector3f closest = new Vector3f();
+        int closestSide = polygon.findSide(location, closest);
+        if (MyVector3f.doCoincide(location, closest, tolerance2)) {
+            return true;
+        }
+
+        int next = polygon.nextIndex(closestSide);
+        int closestCorner = -1;
+        if (MyVector3f.doCoincide(closest,
+                polygon.copyCornerLocation(closestSide), tolerance2)) {
+            closestCorner = closestSide;
+        } else if (MyVector3f.doCoincide(closest,
+                polygon.copyCornerLocation(next), tolerance2)) {
+            closestCorner = next;
+        }
+        if (closestCorner == -1) {
+            return isInsideSide(polygon, location, closestSide);
+        }
+
+        int prev = polygon.prevIndex(closestCorner);
+        boolean insidePrev = isInsideSide(polygon, location, prev);
+        boolean insideNext = isInsideSide(polygon, location, closestCorner);
+        Vector3f normal = polygon.planeNormal();
+        double turn = normal.dot(polygon.crossProduct(closestCorner));
+        if (turn >= 0.0) {
+            return insidePrev && insideNext;
+        } else {
+            return insidePrev || insideNext;
+        }
+    }
+
+    /**
+     * Test whether a location lies on the interior side of the line through
+     * a polygon's side.
+     *
+     * @param polygon the polygon (not null)
+     * @param location the location (not null, unaffected)
+     * @param sideIndex the index of the side
+     * @return true if on the interior side (or on the line), otherwise false
+     */
+    private static boolean isInsideSide(SimplePolygon3f polygon,
+            Vector3f location, int sideIndex) {
+        Vector3f corner1 = polygon.copyCornerLocation(sideIndex);
+        Vector3f corner2
+                = polygon.copyCornerLocation(polygon.nextIndex(sideIndex));
+        Vector3f sideOffset = corner2.subtract(corner1);
+        Vector3f pointOffset = location.subtract(corner1);
+        Vector3f cross = sideOffset.cross(pointOffset);
+        boolean result = cross.dot(polygon.planeNormal()) >= 0f;
+
+        return result;
+    }
+
+    /**
+     * Generate a random star-shaped polygon, concave wherever a corner's
+     * radius is less than its neighbors'.
+     *
+     * @param numCorners the number of corners (&ge;3)
+     * @return a new array of 2 arrays: X and Z coordinates of the corners
+     */
+    private static double[][] star(int numCorners) {
+        List<double[]> points = new ArrayList<>(numCorners);
+        double step = 2.0 * Math.PI / numCorners;
+        for (int i = 0; i < numCorners; i++) {
+            double angle = step * (i + 0.4 * random.nextDouble());
+            double radius = 1.0 + 4.0 * random.nextDouble();
+            points.add(new double[]{
+                radius * Math.cos(angle), radius * Math.sin(angle)
+            });
+        }
+        double[][] result = toArrays(points);
+
+        return result;
+    }
+
+    /**
+     * Convert a list of planar points into coordinate arrays.
+     *
+     * @param points the points (not null, unaffected)
+     * @return a new array of 2 arrays: X and Z coordinates
+     */
+    private static double[][] toArrays(List<double[]> points) {
+        int numPoints = points.size();
+        double[][] result = new double[2][numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            result[0][i] = points.get(i)[0];
+            result[1][i] = points.get(i)[1];
+        }
+
+        return result;
+    }
+
+    /**
+     * Map planar coordinates into world coordinates.
+     *
+     * @param x the 1st planar coordinate
+     * @param z the 2nd planar coordinate
+     * @param rotation the rotation of the plane (not null, unaffected)
+     * @param offset the offset of the plane (not null, unaffected)
+     * @return a new vector
+     */
+    private static Vector3f toWorld(double x, double z, Quaternion rotation,
+            Vector3f offset) {
+        Vector3f result = new Vector3f((float) x, 0f, (float) z);
+        rotation.multLocal(result);
+        result.addLocal(offset);
+
+        return result;
+    }
+
+    /**
+     * Calculate the length of the shortest path between 2 points in a
+     * polygon, using Dijkstra's algorithm on the visibility graph of the
+     * points and corners.
+     *
+     * @param xs the X coordinates of the corners (not null, unaffected)
+     * @param zs the Z coordinates of the corners (not null, unaffected)
+     * @param start the X and Z coordinates of the start (not null, unaffected)
+     * @param goal the X and Z coordinates of the goal (not null, unaffected)
+     * @param storeTurns storage for the number of turns in the path (not
+     * null, length&ge;1, modified)
+     * @return the length (&ge;0)
+     */
+    private static double visibilityLength(double[] xs, double[] zs,
+            double[] start, double[] goal, int[] storeTurns) {
+        int numCorners = xs.length;
+        int numNodes = numCorners + 2;
+        double[][] nodes = new double[numNodes][];
+        nodes[0] = start;
+        nodes[1] = goal;
+        for (int i = 0; i < numCorners; i++) {
+            nodes[i + 2] = new double[]{xs[i], zs[i]};
+        }
+
+        double[] distances = new double[numNodes];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        distances[0] = 0.0;
+        int[] turns = new int[numNodes];
+        boolean[] done = new boolean[numNodes];
+        while (true) {
+            int best = -1;
+            for (int i = 0; i < numNodes; i++) {
+                if (!done[i]
+                        && (best == -1 || distances[i] < distances[best])) {
+                    best = i;
+                }
+            }
+            if (best == 1) {
+                break;
+            }
+            done[best] = true;
+            for (int i = 0; i < numNodes; i++) {
+                if (!done[i] && isVisible(xs, zs, nodes[best], nodes[i])) {
+                    double distance = distances[best] + Math.hypot(
+                            nodes[i][0] - nodes[best][0],
+                            nodes[i][1] - nodes[best][1]);
+                    if (distance < distances[i]) {
+                        distances[i] = distance;
+                        turns[i] = (best == 0) ? 0 : turns[best] + 1;
+                    }
+                }
+            }
+        }
+        storeTurns[0] = turns[1];
+
+        return distances[1];
+    }
+}
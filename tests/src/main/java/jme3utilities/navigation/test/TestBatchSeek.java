@@ -0,0 +1,207 @@
+/*
+ Copyright (c) 2013-2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.navigation.CompiledNavGraph;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Benchmark for batched route requests on a compiled navigation graph:
+ * measures queries per second for various pool sizes and checks the batched
+ * routes against those found by NavGraph.seek().
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestBatchSeek {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of distinct goals in each batch
+     */
+    final private static int numGoals = 16;
+    /**
+     * number of requests in each batch
+     */
+    final private static int numRequests = 2000;
+    /**
+     * number of batches timed for each pool size
+     */
+    final private static int numTrials = 5;
+    /**
+     * number of vertices along each edge of the square grid
+     */
+    final private static int gridSize = 100;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestBatchSeek.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark CompiledNavGraph.seekAll().
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Benchmark results for CompiledNavGraph.seekAll():\n\n");
+
+        Random generator = new Random(1L);
+        NavGraph graph = makeGrid(generator);
+        CompiledNavGraph compiled = graph.compile();
+        console.printf("%d vertices, %d arcs%n", compiled.numVertices(),
+                compiled.numArcs());
+        /*
+         * Generate a batch of requests: half of them share a handful of
+         * goals, the rest have random goals.
+         */
+        int numVertices = compiled.numVertices();
+        int[] starts = new int[numRequests];
+        int[] goals = new int[numRequests];
+        for (int i = 0; i < numRequests; i++) {
+            starts[i] = generator.nextInt(numVertices);
+            if (i % 2 == 0) {
+                goals[i] = generator.nextInt(numGoals);
+            } else {
+                goals[i] = generator.nextInt(numVertices);
+            }
+            if (goals[i] == starts[i]) {
+                goals[i] = (starts[i] + 1) % numVertices;
+            }
+        }
+        /*
+         * Verify route costs against the unbatched search.
+         */
+        List<List<NavArc>> routes = compiled.seekAll(starts, goals);
+        int numMismatches = 0;
+        for (int i = 0; i < numRequests; i += 7) {
+            NavVertex start = compiled.getVertex(starts[i]);
+            NavVertex goal = compiled.getVertex(goals[i]);
+            float expected = totalCost(graph, graph.seek(start, goal));
+            float actual = totalCost(graph, routes.get(i));
+            if (Math.abs(actual - expected) > 0.001f * expected) {
+                ++numMismatches;
+            }
+        }
+        console.printf("%d mismatched routes%n%n", numMismatches);
+        /*
+         * Time batches for pool sizes up to the number of processors.
+         */
+        int numProcessors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= numProcessors;
+                parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            compiled.seekAll(starts, goals, pool); // warm up
+            long startTime = System.nanoTime();
+            for (int trial = 0; trial < numTrials; trial++) {
+                compiled.seekAll(starts, goals, pool);
+            }
+            long elapsed = System.nanoTime() - startTime;
+            pool.shutdown();
+
+            double qps = 1e9 * numTrials * numRequests / elapsed;
+            console.printf("%2d threads: %,.0f queries/sec%n", parallelism,
+                    qps);
+        }
+        /*
+         * Remove an arc that the 1st route uses, then verify that the batch
+         * fails fast instead of returning a route with a missing arc.
+         */
+        NavArc removed = routes.get(0).get(0);
+        graph.remove(removed);
+        boolean failedFast = false;
+        try {
+            compiled.seekAll(starts, goals);
+        } catch (IllegalStateException exception) {
+            failedFast = true;
+        }
+        console.printf("%nafter removing an arc: failed fast = %s%n%n",
+                failedFast);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate a square grid of vertices, each linked to its neighbors by arcs
+     * whose costs exceed their lengths by random amounts.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new graph
+     */
+    private static NavGraph makeGrid(Random generator) {
+        NavGraph result = new NavGraph();
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        for (int x = 0; x < gridSize; x++) {
+            for (int z = 0; z < gridSize; z++) {
+                String name = String.format("v%d,%d", x, z);
+                Vector3f location = new Vector3f(x, 0f, z);
+                grid[x][z] = result.addVertex(name, null, location);
+                if (x > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x - 1][z], grid[x][z], cost);
+                }
+                if (z > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x][z - 1], grid[x][z], cost);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sum the costs of the arcs in a route.
+     *
+     * @param graph graph containing the arcs (not null)
+     * @param route route to measure (may be null)
+     * @return total cost, or +Infinity if the route is null
+     */
+    private static float totalCost(NavGraph graph, List<NavArc> route) {
+        if (route == null) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float result = 0f;
+        for (NavArc arc : route) {
+            result += graph.getCost(arc);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Console application to test the connectivity analysis of NavGraph: checks
+ * components, bridges, articulation points, and related queries against
+ * brute-force breadth-first traversals on random graphs, both reversible and
+ * directed, as arcs are removed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestConnectivity {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of random graphs to test
+     */
+    final private static int numGraphs = 200;
+    /**
+     * number of arcs removed from each graph, one at a time
+     */
+    final private static int numRemovals = 5;
+    /**
+     * maximum number of vertices in each graph
+     */
+    final private static int maxVertices = 30;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestConnectivity.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test NavGraph connectivity.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for NavGraph connectivity:\n\n");
+
+        NavGraph empty = new NavGraph();
+        int numErrors = 0;
+        if (!empty.isConnected() || empty.countComponents() != 0) {
+            ++numErrors;
+        }
+
+        Random generator = new Random(1L);
+        int numChecked = 0;
+        int numBridges = 0;
+        int numArticulations = 0;
+        for (int graphIndex = 0; graphIndex < numGraphs; graphIndex++) {
+            boolean reversible = (graphIndex % 2 == 0);
+            NavGraph graph = makeGraph(generator, reversible);
+            for (int removal = 0; removal <= numRemovals; removal++) {
+                numErrors += checkComponents(graph);
+                for (NavVertex vertex : graph.copyVertices()) {
+                    boolean expected = isArticulation(graph, vertex);
+                    if (graph.isArticulationPoint(vertex) != expected) {
+                        ++numErrors;
+                    }
+                    if (expected) {
+                        ++numArticulations;
+                    }
+                }
+                for (NavArc arc : graph.copyArcs()) {
+                    boolean expected = isBridge(graph, arc);
+                    if (graph.isBridge(arc) != expected) {
+                        ++numErrors;
+                    }
+                    if (expected) {
+                        ++numBridges;
+                    }
+                    NavVertex origin = arc.getFromVertex();
+                    Set<NavVertex> reached = reach(origin, true, null, arc);
+                    boolean without = reached.contains(arc.getToVertex());
+                    if (graph.isConnectedWithout(arc) != without) {
+                        ++numErrors;
+                    }
+                }
+                ++numChecked;
+
+                NavArc[] arcs = graph.copyArcs();
+                if (arcs.length == 0) {
+                    break;
+                }
+                NavArc arc = arcs[generator.nextInt(arcs.length)];
+                graph.remove(arc);
+            }
+        }
+
+        console.printf("%d graph states checked (%d bridges, "
+                + "%d articulation points): %d errors%n%n", numChecked,
+                numBridges, numArticulations, numErrors);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Check the components and connectedness of a graph against mutual
+     * reachability.
+     *
+     * @param graph the graph to check (not null)
+     * @return the number of errors found (&ge;0)
+     */
+    private static int checkComponents(NavGraph graph) {
+        NavVertex[] vertices = graph.copyVertices();
+        int numVertices = vertices.length;
+        int numErrors = 0;
+        Set<Integer> componentIds = new HashSet<>(numVertices);
+        for (NavVertex vertex : vertices) {
+            componentIds.add(graph.findComponent(vertex));
+            if (graph.countReachableFrom(vertex)
+                    != reach(vertex, true, null, null).size()) {
+                ++numErrors;
+            }
+        }
+        if (componentIds.size() != graph.countComponents()) {
+            ++numErrors;
+        }
+
+        boolean connected = true;
+        for (NavVertex u : vertices) {
+            Set<NavVertex> fromU = reach(u, true, null, null);
+            if (fromU.size() != numVertices) {
+                connected = false;
+            }
+            for (NavVertex v : vertices) {
+                boolean mutual = fromU.contains(v)
+                        && reach(v, true, null, null).contains(u);
+                boolean same
+                        = graph.findComponent(u) == graph.findComponent(v);
+                if (mutual != same) {
+                    ++numErrors;
+                }
+            }
+        }
+        if (graph.isConnected() != connected) {
+            ++numErrors;
+        }
+
+        return numErrors;
+    }
+
+    /**
+     * Count the undirected components of a graph, optionally omitting a vertex
+     * or an arc (together with its reverse).
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param omitVertex vertex to treat as removed, or null for none
+     * @param omitArc arc to treat as removed, or null for none
+     * @return count (&ge;0)
+     */
+    private static int countUndirected(NavGraph graph, NavVertex omitVertex,
+            NavArc omitArc) {
+        Set<NavVertex> visited = new HashSet<>(maxVertices);
+        int result = 0;
+        for (NavVertex vertex : graph.copyVertices()) {
+            if (vertex != omitVertex && !visited.contains(vertex)) {
+                visited.addAll(reach(vertex, false, omitVertex, omitArc));
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether removing a vertex would increase the number of undirected
+     * components of a graph, by brute force.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param vertex the vertex to test (member)
+     * @return true if it's an articulation point, otherwise false
+     */
+    private static boolean isArticulation(NavGraph graph, NavVertex vertex) {
+        int before = countUndirected(graph, null, null);
+        int after = countUndirected(graph, vertex, null);
+        boolean result = (after > before);
+
+        return result;
+    }
+
+    /**
+     * Test whether removing an arc (together with its reverse) would increase
+     * the number of undirected components of a graph, by brute force.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param arc the arc to test (member)
+     * @return true if it's a bridge, otherwise false
+     */
+    private static boolean isBridge(NavGraph graph, NavArc arc) {
+        int before = countUndirected(graph, null, null);
+        int after = countUndirected(graph, null, arc);
+        boolean result = (after > before);
+
+        return result;
+    }
+
+    /**
+     * Generate a sparse random graph, so that bridges, articulation points,
+     * and multiple components are common.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @param reversible true to add arcs in pairs, false for one-way arcs
+     * @return a new graph
+     */
+    private static NavGraph makeGraph(Random generator, boolean reversible) {
+        NavGraph result = new NavGraph();
+        int numVertices = 1 + generator.nextInt(maxVertices);
+        NavVertex[] vertices = new NavVertex[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            String name = "v" + i;
+            Vector3f location = new Vector3f(generator.nextFloat(), 0f,
+                    generator.nextFloat());
+            vertices[i] = result.addVertex(name, null, location);
+        }
+
+        int numArcs = (numVertices * (2 + generator.nextInt(5))) / 4;
+        for (int i = 0; i < numArcs; i++) {
+            NavVertex origin = vertices[generator.nextInt(numVertices)];
+            NavVertex terminus = vertices[generator.nextInt(numVertices)];
+            if (origin == terminus || origin.findOutgoing(terminus) != null
+                    || terminus.findOutgoing(origin) != null) {
+                continue;
+            }
+            float cost = 2f;
+            if (reversible) {
+                result.addArcPair(origin, terminus, cost);
+            } else {
+                result.addArc(origin, terminus, cost);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Enumerate the vertices reachable from a starting vertex by a
+     * breadth-first traversal.
+     *
+     * @param start the starting vertex (not null)
+     * @param directed true to follow arcs only forward, false to ignore arc
+     * directions
+     * @param omitVertex vertex to treat as removed, or null for none
+     * @param omitArc arc to treat as removed (for undirected traversals,
+     * together with its reverse), or null for none
+     * @return a new set of vertices, including the start
+     */
+    private static Set<NavVertex> reach(NavVertex start, boolean directed,
+            NavVertex omitVertex, NavArc omitArc) {
+        Set<NavVertex> result = new HashSet<>(maxVertices);
+        Deque<NavVertex> queue = new ArrayDeque<>(maxVertices);
+        result.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            NavVertex vertex = queue.remove();
+            for (NavArc arc : vertex.copyOutgoing()) {
+                visit(arc, arc.getToVertex(), omitVertex, omitArc, directed,
+                        result, queue);
+            }
+            if (!directed) {
+                for (NavArc arc : vertex.copyIncoming()) {
+                    visit(arc, arc.getFromVertex(), omitVertex, omitArc,
+                            directed, result, queue);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Traverse an arc during a breadth-first traversal, unless it's omitted.
+     *
+     * @param arc the arc to traverse (not null)
+     * @param neighbor the vertex at the far end of the arc (not null)
+     * @param omitVertex vertex to treat as removed, or null for none
+     * @param omitArc arc to treat as removed, or null for none
+     * @param directed true if only forward arcs are followed
+     * @param visited vertices already visited (not null, modified)
+     * @param queue vertices awaiting expansion (not null, modified)
+     */
+    private static void visit(NavArc arc, NavVertex neighbor,
+            NavVertex omitVertex, NavArc omitArc, boolean directed,
+            Set<NavVertex> visited, Deque<NavVertex> queue) {
+        if (neighbor == omitVertex || visited.contains(neighbor)) {
+            return;
+        }
+        if (arc == omitArc) {
+            return;
+        }
+        if (!directed && omitArc != null
+                && arc.getFromVertex() == omitArc.getToVertex()
+                && arc.getToVertex() == omitArc.getFromVertex()) {
+            return;
+        }
+        visited.add(neighbor);
+        queue.add(neighbor);
+    }
+}
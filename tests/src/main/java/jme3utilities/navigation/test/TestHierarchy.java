@@ -0,0 +1,172 @@
+/*
+ Copyright (c) 2013-2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavHierarchy;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Benchmark for hierarchical route finding: measures the time to precompute
+ * the region tables, compares the time per query of NavHierarchy.seek()
+ * against NavGraph.seek() on a large grid, and checks that both find routes of
+ * equal cost.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestHierarchy {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * size of each spatial cell for partitioning
+     */
+    final private static float cellSize = 32f;
+    /**
+     * number of vertices along each edge of the square grid
+     */
+    final private static int gridSize = 316;
+    /**
+     * number of queries timed
+     */
+    final private static int numQueries = 50;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestHierarchy.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark NavHierarchy.seek().
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Benchmark results for NavHierarchy.seek():\n\n");
+
+        Random generator = new Random(1L);
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        NavGraph graph = new NavGraph();
+        for (int x = 0; x < gridSize; x++) {
+            for (int z = 0; z < gridSize; z++) {
+                String name = String.format("v%d,%d", x, z);
+                Vector3f location = new Vector3f(x, 0f, z);
+                grid[x][z] = graph.addVertex(name, null, location);
+                if (x > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[x - 1][z], grid[x][z], cost);
+                }
+                if (z > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[x][z - 1], grid[x][z], cost);
+                }
+            }
+        }
+        long startTime = System.nanoTime();
+        NavHierarchy hierarchy = graph.partitionByCells(cellSize);
+        long precomputeTime = System.nanoTime() - startTime;
+        console.printf("%d vertices in %d regions, %d tables%n",
+                graph.numVertices(), hierarchy.numRegions(),
+                hierarchy.countTables());
+
+        NavVertex[] starts = new NavVertex[numQueries];
+        NavVertex[] goals = new NavVertex[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            starts[i] = grid[generator.nextInt(gridSize)][0];
+            goals[i] = grid[generator.nextInt(gridSize)][gridSize - 1];
+        }
+        /*
+         * The tables were computed when the hierarchy was created, so even
+         * the first pass doesn't compute any.
+         */
+        startTime = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            hierarchy.seek(starts[i], goals[i]);
+        }
+        long firstTime = System.nanoTime() - startTime;
+
+        float[] costs = new float[numQueries];
+        startTime = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            List<NavArc> route = hierarchy.seek(starts[i], goals[i]);
+            costs[i] = totalCost(graph, route);
+        }
+        long warmTime = System.nanoTime() - startTime;
+
+        int numMismatches = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            List<NavArc> route = graph.seek(starts[i], goals[i]);
+            float expected = totalCost(graph, route);
+            if (Math.abs(costs[i] - expected) > 0.001f * expected) {
+                ++numMismatches;
+            }
+        }
+        long flatTime = System.nanoTime() - startTime;
+
+        console.printf("%d mismatched routes%n", numMismatches);
+        console.printf("precomputing tables: %.0f ms%n",
+                precomputeTime * 1e-6);
+        console.printf("hierarchical (1st pass): %.2f ms/query%n",
+                firstTime * 1e-6 / numQueries);
+        console.printf("hierarchical (2nd pass): %.2f ms/query%n",
+                warmTime * 1e-6 / numQueries);
+        console.printf("flat: %.2f ms/query%n", flatTime * 1e-6 / numQueries);
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Sum the costs of the arcs in a route.
+     *
+     * @param graph graph containing the arcs (not null)
+     * @param route route to measure (may be null)
+     * @return total cost, or +Infinity if the route is null
+     */
+    private static float totalCost(NavGraph graph, List<NavArc> route) {
+        if (route == null) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float result = 0f;
+        for (NavArc arc : route) {
+            result += graph.getCost(arc);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.math.locus.Locus3f;
+import jme3utilities.math.locus.Segment3f;
+import jme3utilities.math.locus.Shell3f;
+import jme3utilities.math.polygon.SimplePolygon3f;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Console application to test spatial indexing of a navigation graph:
+ * compares the indexed findContains(), findNearest(), and supportDistance()
+ * with linear scans over all vertices, before and after loci are replaced and
+ * vertices are added.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestLocusTree {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * cosine tolerance for support queries
+     */
+    final private static float cosineTolerance = 0.7f;
+    /**
+     * number of vertices added in each round
+     */
+    final private static int numVertices = 200;
+    /**
+     * number of random query points in each round (the linear findContains()
+     * is quadratic in the number of vertices)
+     */
+    final private static int numQueries = 2_000;
+    /**
+     * extent of the world along each axis
+     */
+    final private static float worldSize = 100f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestLocusTree.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test NavGraph spatial indexing.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for NavGraph spatial indexing:\n\n");
+
+        Random generator = new Random(1L);
+        NavGraph graph = new NavGraph();
+        addVertices(graph, 0, generator);
+        graph.setSpatialIndexing(true);
+        compare(graph, "initial build", false, generator);
+        /*
+         * Replace some loci, which refits the tree in place.
+         */
+        NavVertex[] vertices = graph.copyVertices();
+        for (int i = 0; i < vertices.length; i += 3) {
+            Locus3f locus = randomLocus(generator);
+            vertices[i].setLocus(locus);
+        }
+        compare(graph, "after replacing loci", false, generator);
+        /*
+         * Add more vertices, which rebuilds the tree.
+         */
+        addVertices(graph, numVertices, generator);
+        compare(graph, "after adding vertices", false, generator);
+        /*
+         * Only polygons support supportDistance(), so test it on a graph of
+         * floors.
+         */
+        NavGraph floors = new NavGraph();
+        for (int i = 0; i < numVertices; i++) {
+            Locus3f locus = randomFloor(generator);
+            Vector3f location = locus.centroid();
+            floors.addVertex("f" + i, locus, location);
+        }
+        floors.setSpatialIndexing(true);
+        compare(floors, "floors", true, generator);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add vertices with random loci to a graph.
+     *
+     * @param graph the graph to modify (not null)
+     * @param firstIndex index for naming the first new vertex (&ge;0)
+     * @param generator pseudo-random generator (not null)
+     */
+    private static void addVertices(NavGraph graph, int firstIndex,
+            Random generator) {
+        for (int i = 0; i < numVertices; i++) {
+            String name = "v" + (firstIndex + i);
+            Locus3f locus = randomLocus(generator);
+            Vector3f location = locus.centroid();
+            graph.addVertex(name, locus, location);
+        }
+    }
+
+    /**
+     * Compare indexed queries with linear scans at random points, and print
+     * the numbers of disagreements.
+     *
+     * @param graph the graph to query (not null, indexed)
+     * @param description description of the test round (not null)
+     * @param testSupport true to test supportDistance(), otherwise false
+     * @param generator pseudo-random generator (not null)
+     */
+    private static void compare(NavGraph graph, String description,
+            boolean testSupport, Random generator) {
+        Vector3f[] points = new Vector3f[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            points[i] = randomPoint(generator);
+        }
+        /*
+         * Record the indexed results.
+         */
+        NavVertex[] indexedContains = new NavVertex[numQueries];
+        NavVertex[] indexedNearest = new NavVertex[numQueries];
+        float[] indexedSupport = new float[numQueries];
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            indexedContains[i] = graph.findContains(points[i]);
+            indexedNearest[i] = graph.findNearest(points[i]);
+            if (testSupport) {
+                indexedSupport[i]
+                        = graph.supportDistance(points[i], cosineTolerance);
+            }
+        }
+        long indexedTime = System.nanoTime() - startTime;
+        /*
+         * Compare with the linear scans.
+         */
+        graph.setSpatialIndexing(false);
+        int containsErrors = 0;
+        int nearestErrors = 0;
+        int supportErrors = 0;
+        int numContained = 0;
+        int numSupported = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            Vector3f point = points[i];
+            /*
+             * Overlapping loci may contain the same point, so any containing
+             * vertex is acceptable.
+             */
+            NavVertex expected = graph.findContains(point);
+            NavVertex actual = indexedContains[i];
+            if (expected != null) {
+                ++numContained;
+            }
+            if (expected == null ? actual != null
+                    : actual == null || !actual.getLocus().contains(point)) {
+                ++containsErrors;
+            }
+            /*
+             * Compare distances, since equidistant vertices may be chosen.
+             */
+            expected = graph.findNearest(point);
+            if (distanceSquared(expected, point)
+                    != distanceSquared(indexedNearest[i], point)) {
+                ++nearestErrors;
+            }
+
+            if (testSupport) {
+                float support = graph.supportDistance(point, cosineTolerance);
+                if (Float.compare(support, indexedSupport[i]) != 0) {
+                    ++supportErrors;
+                }
+                if (support < Float.POSITIVE_INFINITY) {
+                    ++numSupported;
+                }
+            }
+        }
+        long linearTime = System.nanoTime() - startTime;
+        graph.setSpatialIndexing(true);
+
+        console().printf("%s (%d vertices): %d findContains, %d findNearest, "
+                + "%d supportDistance mismatches%n", description,
+                graph.numVertices(), containsErrors, nearestErrors,
+                supportErrors);
+        console().printf("  %d points contained, %d supported; "
+                + "indexed %.1f ms, linear %.1f ms%n%n", numContained,
+                numSupported, 1e-6 * indexedTime, 1e-6 * linearTime);
+    }
+
+    /**
+     * Access the console.
+     *
+     * @return the pre-existing stream (not null)
+     */
+    private static PrintStream console() {
+        return System.out;
+    }
+
+    /**
+     * Calculate the squared distance from a point to a vertex's locus.
+     *
+     * @param vertex the vertex (not null, unaffected)
+     * @param point the point (not null, unaffected)
+     * @return squared distance (&ge;0)
+     */
+    private static double distanceSquared(NavVertex vertex, Vector3f point) {
+        Vector3f location = vertex.getLocus().findLocation(point);
+        double dx = location.x - point.x;
+        double dy = location.y - point.y;
+        double dz = location.z - point.z;
+        double result = dx * dx + dy * dy + dz * dz;
+
+        return result;
+    }
+
+    /**
+     * Generate a random floor: a horizontal rectangle, slightly tilted.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new locus
+     */
+    private static Locus3f randomFloor(Random generator) {
+        Vector3f corner = randomPoint(generator);
+        float xSize = 1f + 5f * generator.nextFloat();
+        float zSize = 1f + 5f * generator.nextFloat();
+        float slope = 0.2f * generator.nextFloat();
+        Vector3f[] corners = {
+            corner,
+            corner.add(xSize, slope * xSize, 0f),
+            corner.add(xSize, slope * xSize, zSize),
+            corner.add(0f, 0f, zSize)
+        };
+        Locus3f result = new SimplePolygon3f(corners, 0.001f);
+
+        return result;
+    }
+
+    /**
+     * Generate a random locus: a solid sphere, a hollow sphere, or a capsule.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new locus
+     */
+    private static Locus3f randomLocus(Random generator) {
+        Vector3f center = randomPoint(generator);
+        float radius = 0.5f + 2f * generator.nextFloat();
+        Locus3f result;
+        switch (generator.nextInt(3)) {
+            case 0:
+                result = new Shell3f(center, radius);
+                break;
+            case 1:
+                result = new Shell3f(center, 0.5f * radius, radius);
+                break;
+            default:
+                Vector3f offset = new Vector3f(generator.nextFloat(),
+                        generator.nextFloat(), generator.nextFloat());
+                offset.multLocal(5f);
+                Vector3f end = center.add(offset);
+                result = new Segment3f(center, end, 0.5f * radius);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a random point in the world.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new vector
+     */
+    private static Vector3f randomPoint(Random generator) {
+        Vector3f result = new Vector3f(generator.nextFloat(),
+                generator.nextFloat(), generator.nextFloat());
+        result.multLocal(worldSize);
+
+        return result;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavPlanner;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Console application to test the incremental planner: alters arc costs,
+ * blocks and unblocks arcs, and checks each replanned route against a fresh
+ * A* search of the same graph.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestNavPlanner {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of vertices along each edge of the square grid
+     */
+    final private static int gridSize = 60;
+    /**
+     * number of arcs altered in each round
+     */
+    final private static int numChanges = 20;
+    /**
+     * number of queries in each round
+     */
+    final private static int numQueries = 10;
+    /**
+     * number of rounds of changes
+     */
+    final private static int numRounds = 200;
+    /**
+     * relative tolerance for comparing route costs
+     */
+    final private static float tolerance = 1e-5f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestNavPlanner.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test NavPlanner.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for NavPlanner:\n\n");
+
+        Random generator = new Random(1L);
+        NavGraph graph = makeGrid(generator);
+        NavVertex[] vertices = graph.copyVertices();
+        NavVertex goal = vertices[generator.nextInt(vertices.length)];
+        NavPlanner planner = graph.createPlanner(goal);
+        List<NavArc> blocked = new ArrayList<>(100);
+
+        int numCompared = 0;
+        int numUnreachable = 0;
+        int numMismatches = 0;
+        int numBroken = 0;
+        long plannerExpanded = 0L;
+        long searchExpanded = 0L;
+        for (int round = 0; round < numRounds; round++) {
+            /*
+             * Alter the graph: change costs, block arcs (by removing them),
+             * and unblock previously blocked arcs (by adding them back).
+             */
+            for (int changeIndex = 0; changeIndex < numChanges;
+                    changeIndex++) {
+                int choice = generator.nextInt(4);
+                if (choice == 0 && !blocked.isEmpty()) {
+                    int index = generator.nextInt(blocked.size());
+                    NavArc arc = blocked.remove(index);
+                    float cost = minCost(arc) + generator.nextFloat();
+                    graph.addArc(arc.getFromVertex(), arc.getToVertex(), cost);
+                } else if (choice == 1) {
+                    NavArc arc = randomArc(graph, generator);
+                    graph.remove(arc);
+                    blocked.add(arc);
+                } else {
+                    NavArc arc = randomArc(graph, generator);
+                    float cost = minCost(arc) + 3f * generator.nextFloat();
+                    graph.setCost(arc, cost);
+                }
+            }
+            if (round % 40 == 20) {
+                /*
+                 * Isolate the goal until its arcs get unblocked.
+                 */
+                for (NavArc arc : goal.copyIncoming()) {
+                    graph.remove(arc);
+                    blocked.add(arc);
+                }
+            }
+            /*
+             * Replan from random starts and compare with fresh searches.
+             */
+            for (int queryIndex = 0; queryIndex < numQueries; queryIndex++) {
+                NavVertex start = vertices[generator.nextInt(vertices.length)];
+                if (start == goal) {
+                    continue;
+                }
+                List<NavArc> planned = planner.seek(start);
+                plannerExpanded += planner.numExpanded();
+                List<NavArc> expected = graph.seek(start, goal);
+                searchExpanded += graph.countExpanded();
+
+                ++numCompared;
+                if (expected == null) {
+                    ++numUnreachable;
+                    if (planned != null) {
+                        ++numMismatches;
+                    }
+                } else if (planned == null) {
+                    ++numMismatches;
+                } else if (!isRoute(graph, planned, start, goal)) {
+                    ++numBroken;
+                } else {
+                    float expectedCost = totalCost(graph, expected);
+                    float actualCost = totalCost(graph, planned);
+                    if (Math.abs(actualCost - expectedCost)
+                            > tolerance * expectedCost) {
+                        ++numMismatches;
+                    }
+                }
+            }
+        }
+
+        console.printf("%d queries compared (%d unreachable): "
+                + "%d cost mismatches, %d broken routes%n", numCompared,
+                numUnreachable, numMismatches, numBroken);
+        console.printf("vertices expanded: planner %,d, fresh A* %,d%n%n",
+                plannerExpanded, searchExpanded);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether a list of member arcs forms a connected route between the
+     * specified vertices.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param route the arcs to test (not null, unaffected)
+     * @param start the expected starting vertex (not null)
+     * @param goal the expected final vertex (not null)
+     * @return true if connected, otherwise false
+     */
+    private static boolean isRoute(NavGraph graph, List<NavArc> route,
+            NavVertex start, NavVertex goal) {
+        NavVertex vertex = start;
+        for (NavArc arc : route) {
+            if (!graph.contains(arc) || arc.getFromVertex() != vertex) {
+                return false;
+            }
+            vertex = arc.getToVertex();
+        }
+        boolean result = (vertex == goal);
+
+        return result;
+    }
+
+    /**
+     * Generate a square grid of vertices, each linked to its neighbors by arcs
+     * whose costs exceed their lengths by random amounts.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new graph
+     */
+    private static NavGraph makeGrid(Random generator) {
+        NavGraph result = new NavGraph();
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        for (int x = 0; x < gridSize; x++) {
+            for (int z = 0; z < gridSize; z++) {
+                String name = String.format("v%d,%d", x, z);
+                Vector3f location = new Vector3f(x, 0f, z);
+                grid[x][z] = result.addVertex(name, null, location);
+                if (x > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x - 1][z], grid[x][z], cost);
+                }
+                if (z > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x][z - 1], grid[x][z], cost);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine the minimum admissible cost of an arc: its length.
+     *
+     * @param arc the arc (not null)
+     * @return cost (&ge;0)
+     */
+    private static float minCost(NavArc arc) {
+        float result = arc.getFromVertex().distance(arc.getToVertex());
+        return result;
+    }
+
+    /**
+     * Select a random member arc.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param generator pseudo-random generator (not null)
+     * @return a pre-existing member arc
+     */
+    private static NavArc randomArc(NavGraph graph, Random generator) {
+        NavArc[] arcs = graph.copyArcs();
+        NavArc result = arcs[generator.nextInt(arcs.length)];
+
+        return result;
+    }
+
+    /**
+     * Sum the costs of the arcs in a route.
+     *
+     * @param graph graph containing the arcs (not null)
+     * @param route route to measure (not null, all arcs members)
+     * @return total cost
+     */
+    private static float totalCost(NavGraph graph, List<NavArc> route) {
+        float result = 0f;
+        for (NavArc arc : route) {
+            result += graph.getCost(arc);
+        }
+
+        return result;
+    }
+}
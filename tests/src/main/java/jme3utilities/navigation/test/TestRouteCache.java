@@ -0,0 +1,319 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.navigation.DistanceHeuristic;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+import jme3utilities.navigation.RouteCache;
+
+/**
+ * Console application to test route caching: applies identical modifications
+ * to a caching graph and an uncached twin, checks every cached answer against
+ * the twin, and checks the cache's hit, miss, eviction, and invalidation
+ * counts.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRouteCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * capacity of the route cache
+     */
+    final private static int capacity = 16;
+    /**
+     * number of vertices along each edge of the square grid
+     */
+    final private static int gridSize = 30;
+    /**
+     * number of distinct start/goal pairs queried
+     */
+    final private static int numPairs = 24;
+    /**
+     * number of queries in each round
+     */
+    final private static int numQueries = 60;
+    /**
+     * number of rounds of changes
+     */
+    final private static int numRounds = 100;
+    /**
+     * relative tolerance for comparing route costs
+     */
+    final private static float tolerance = 1e-5f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestRouteCache.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test RouteCache.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for RouteCache:\n\n");
+
+        NavGraph graph = makeGrid(new Random(1L));
+        NavGraph twin = makeGrid(new Random(1L));
+        graph.setRouteCaching(capacity);
+        RouteCache cache = graph.getRouteCache();
+
+        Random generator = new Random(2L);
+        NavVertex[] vertices = graph.copyVertices();
+        int[][] pairs = new int[numPairs][2];
+        for (int[] pair : pairs) {
+            pair[0] = generator.nextInt(vertices.length);
+            do {
+                pair[1] = generator.nextInt(vertices.length);
+            } while (pair[1] == pair[0]);
+        }
+
+        int numErrors = 0;
+        long numQueriesTotal = 0L;
+        for (int round = 0; round < numRounds; round++) {
+            /*
+             * Modify both graphs identically.  Every modification must
+             * invalidate the cache at its next lookup.
+             */
+            boolean wasCached = cache.size() > 0;
+            long oldInvalidations = cache.numInvalidations();
+            int choice = generator.nextInt(4);
+            NavArc arc = randomArc(graph, generator);
+            NavArc twinArc = twinOf(twin, arc);
+            if (choice == 0) {
+                float cost = minCost(arc) + 3f * generator.nextFloat();
+                graph.setCost(arc, cost);
+                twin.setCost(twinArc, cost);
+            } else if (choice == 1) {
+                float cost = graph.getCost(arc);
+                graph.remove(arc);
+                twin.remove(twinArc);
+                graph.addArc(arc.getFromVertex(), arc.getToVertex(), cost);
+                twin.addArc(twinArc.getFromVertex(), twinArc.getToVertex(),
+                        cost);
+            } else if (choice == 2) {
+                graph.remove(arc);
+                twin.remove(twinArc);
+            } else if (round % 2 == 0) {
+                graph.setHeuristic(null);
+                twin.setHeuristic(null);
+            } else {
+                graph.setHeuristic(new DistanceHeuristic());
+                twin.setHeuristic(new DistanceHeuristic());
+            }
+            /*
+             * Query random pairs, comparing each answer with the twin's.
+             */
+            for (int queryIndex = 0; queryIndex < numQueries; queryIndex++) {
+                int[] pair = pairs[generator.nextInt(numPairs)];
+                NavVertex start = vertices[pair[0]];
+                NavVertex goal = vertices[pair[1]];
+                long oldHits = cache.numHits();
+                long oldMisses = cache.numMisses();
+                List<NavArc> route = graph.seek(start, goal);
+                ++numQueriesTotal;
+
+                if (queryIndex == 0 && wasCached
+                        && cache.numInvalidations() != oldInvalidations + 1) {
+                    ++numErrors;
+                }
+                boolean hit = cache.numHits() == oldHits + 1;
+                boolean miss = cache.numMisses() == oldMisses + 1;
+                if (hit == miss) {
+                    ++numErrors;
+                } else if (queryIndex == 0 && hit) {
+                    ++numErrors;
+                } else if (hit && graph.countExpanded() != 0) {
+                    ++numErrors;
+                }
+                if (cache.size() > capacity) {
+                    ++numErrors;
+                }
+
+                List<NavArc> expected = twin.seek(twinOf(twin, start),
+                        twinOf(twin, goal));
+                if (expected == null) {
+                    if (route != null) {
+                        ++numErrors;
+                    }
+                } else if (route == null
+                        || !isRoute(graph, route, start, goal)) {
+                    ++numErrors;
+                } else {
+                    float expectedCost = totalCost(twin, expected);
+                    float actualCost = totalCost(graph, route);
+                    if (Math.abs(actualCost - expectedCost)
+                            > tolerance * expectedCost) {
+                        ++numErrors;
+                    }
+                }
+            }
+        }
+
+        console.printf("%d queries: %s%n", numQueriesTotal, cache);
+        console.printf("%d errors%n%n", numErrors);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether a list of member arcs forms a connected route between the
+     * specified vertices.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param route the arcs to test (not null, unaffected)
+     * @param start the expected starting vertex (not null)
+     * @param goal the expected final vertex (not null)
+     * @return true if connected, otherwise false
+     */
+    private static boolean isRoute(NavGraph graph, List<NavArc> route,
+            NavVertex start, NavVertex goal) {
+        NavVertex vertex = start;
+        for (NavArc arc : route) {
+            if (!graph.contains(arc) || arc.getFromVertex() != vertex) {
+                return false;
+            }
+            vertex = arc.getToVertex();
+        }
+        boolean result = (vertex == goal);
+
+        return result;
+    }
+
+    /**
+     * Generate a square grid of vertices, each linked to its neighbors by arcs
+     * whose costs exceed their lengths by random amounts.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new graph
+     */
+    private static NavGraph makeGrid(Random generator) {
+        NavGraph result = new NavGraph();
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        for (int x = 0; x < gridSize; x++) {
+            for (int z = 0; z < gridSize; z++) {
+                String name = String.format("v%d,%d", x, z);
+                Vector3f location = new Vector3f(x, 0f, z);
+                grid[x][z] = result.addVertex(name, null, location);
+                if (x > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x - 1][z], grid[x][z], cost);
+                }
+                if (z > 0) {
+                    float cost = 1f + generator.nextFloat();
+                    result.addArcPair(grid[x][z - 1], grid[x][z], cost);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine the minimum admissible cost of an arc: its length.
+     *
+     * @param arc the arc (not null)
+     * @return cost (&ge;0)
+     */
+    private static float minCost(NavArc arc) {
+        float result = arc.getFromVertex().distance(arc.getToVertex());
+        return result;
+    }
+
+    /**
+     * Select a random member arc.
+     *
+     * @param graph the graph (not null, unaffected)
+     * @param generator pseudo-random generator (not null)
+     * @return a pre-existing member arc
+     */
+    private static NavArc randomArc(NavGraph graph, Random generator) {
+        NavArc[] arcs = graph.copyArcs();
+        NavArc result = arcs[generator.nextInt(arcs.length)];
+
+        return result;
+    }
+
+    /**
+     * Sum the costs of the arcs in a route.
+     *
+     * @param graph graph containing the arcs (not null)
+     * @param route route to measure (not null, all arcs members)
+     * @return total cost
+     */
+    private static float totalCost(NavGraph graph, List<NavArc> route) {
+        float result = 0f;
+        for (NavArc arc : route) {
+            result += graph.getCost(arc);
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the twin graph's counterpart of the specified arc.
+     *
+     * @param twin the twin graph (not null, unaffected)
+     * @param arc an arc of the original graph (not null, unaffected)
+     * @return a pre-existing member of the twin
+     */
+    private static NavArc twinOf(NavGraph twin, NavArc arc) {
+        NavVertex origin = twinOf(twin, arc.getFromVertex());
+        NavVertex terminus = twinOf(twin, arc.getToVertex());
+        NavArc result = origin.findOutgoing(terminus);
+
+        assert result != null;
+        return result;
+    }
+
+    /**
+     * Find the twin graph's counterpart of the specified vertex.
+     *
+     * @param twin the twin graph (not null, unaffected)
+     * @param vertex a vertex of the original graph (not null, unaffected)
+     * @return a pre-existing member of the twin
+     */
+    private static NavVertex twinOf(NavGraph twin, NavVertex vertex) {
+        NavVertex result = twin.find(vertex.getName());
+
+        assert result != null;
+        return result;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes.test;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.BoneTrack;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.wes.ClipCursor;
+import jme3utilities.wes.CompiledClip;
+import jme3utilities.wes.TweenRotations;
+import jme3utilities.wes.TweenTransforms;
+import jme3utilities.wes.TweenVectors;
+
+/**
+ * Test and benchmark for compiled clips: compares CompiledClip.transform()
+ * with TweenTransforms.transform() for every combination of techniques, then
+ * measures samples per second during sequential playback.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestCompiledClip {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * duration of the test animation (in seconds)
+     */
+    final private static float duration = 4f;
+    /**
+     * number of bone tracks in the test animation
+     */
+    final private static int numTracks = 40;
+    /**
+     * number of keyframes in each bone track
+     */
+    final private static int numKeyframes = 121;
+    /**
+     * number of samples per track in each comparison or timing run
+     */
+    final private static int numSamples = 2_000;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestCompiledClip.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test and benchmark CompiledClip.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for CompiledClip:\n\n");
+
+        Random generator = new Random(1L);
+        Animation animation = makeAnimation(generator);
+        TweenTransforms techniques = new TweenTransforms();
+        /*
+         * Compare with TweenTransforms for every combination of techniques,
+         * sampling at random times.
+         */
+        for (TweenRotations tweenRotations : TweenRotations.values()) {
+            for (TweenVectors tweenVectors : TweenVectors.values()) {
+                techniques.setTweenRotations(tweenRotations);
+                techniques.setTweenScales(tweenVectors);
+                techniques.setTweenTranslations(tweenVectors);
+                CompiledClip clip = new CompiledClip(animation, techniques);
+                ClipCursor cursor = new ClipCursor(clip);
+
+                float maxError = 0f;
+                Transform expected = new Transform();
+                Transform actual = new Transform();
+                for (int sampleIndex = 0; sampleIndex < numSamples;
+                        sampleIndex++) {
+                    float time = duration * generator.nextFloat();
+                    if (sampleIndex % 100 == 0) {
+                        time = 0f;
+                    } else if (sampleIndex % 100 == 1) {
+                        time = duration;
+                    }
+                    int trackIndex = generator.nextInt(numTracks);
+                    BoneTrack track = (BoneTrack) animation
+                            .getTracks()[trackIndex];
+                    techniques.transform(track, time, duration, null,
+                            expected);
+                    clip.transform(trackIndex, time, cursor, actual);
+                    float error = error(expected, actual);
+                    maxError = Math.max(maxError, error);
+                }
+                console.printf("%-14s %-21s max error = %g%n",
+                        tweenRotations, tweenVectors, maxError);
+            }
+        }
+        /*
+         * Time sequential playback with the default techniques
+         * and then with precomputed splines.
+         */
+        techniques = new TweenTransforms();
+        timePlayback(animation, techniques, console);
+        techniques.setTweenRotations(TweenRotations.Spline);
+        techniques.setTweenScales(TweenVectors.CatmullRomSpline);
+        techniques.setTweenTranslations(TweenVectors.CatmullRomSpline);
+        timePlayback(animation, techniques, console);
+        /*
+         * Verify that editing a track's keyframe times in place
+         * doesn't affect a clip that was compiled earlier.
+         */
+        CompiledClip clip = new CompiledClip(animation, techniques);
+        ClipCursor cursor = new ClipCursor(clip);
+        float time = 0.3f * duration;
+        Transform before = clip.transform(0, time, cursor, null);
+        BoneTrack track = (BoneTrack) animation.getTracks()[0];
+        float[] times = track.getKeyFrameTimes();
+        for (int frameIndex = 0; frameIndex < times.length; ++frameIndex) {
+            times[frameIndex] *= 0.5f;
+        }
+        cursor.rewind();
+        Transform after = clip.transform(0, time, cursor, null);
+        console.printf("unaffected by later track edits = %s%n%n",
+                error(before, after) == 0f);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Measure the largest difference between corresponding components of 2
+     * transforms. Since Q and -Q represent the same rotation, rotations are
+     * compared after matching their signs.
+     *
+     * @param a the 1st transform (not null, unaffected)
+     * @param b the 2nd transform (not null, unaffected)
+     * @return the largest absolute difference (&ge;0)
+     */
+    private static float error(Transform a, Transform b) {
+        Vector3f at = a.getTranslation();
+        Vector3f bt = b.getTranslation();
+        Quaternion ar = a.getRotation();
+        Quaternion br = b.getRotation();
+        if (ar.dot(br) < 0f) {
+            br = br.mult(-1f);
+        }
+        Vector3f as = a.getScale();
+        Vector3f bs = b.getScale();
+        float[] differences = {
+            at.x - bt.x, at.y - bt.y, at.z - bt.z,
+            ar.getX() - br.getX(), ar.getY() - br.getY(),
+            ar.getZ() - br.getZ(), ar.getW() - br.getW(),
+            as.x - bs.x, as.y - bs.y, as.z - bs.z
+        };
+
+        float result = 0f;
+        for (float difference : differences) {
+            result = Math.max(result, Math.abs(difference));
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a cyclic animation whose bone tracks all share the same
+     * keyframe times.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new animation
+     */
+    private static Animation makeAnimation(Random generator) {
+        Animation result = new Animation("test", duration);
+        float[] times = new float[numKeyframes];
+        for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+            times[frameIndex] = duration * frameIndex / (numKeyframes - 1);
+        }
+
+        for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+            Vector3f[] translations = new Vector3f[numKeyframes];
+            Quaternion[] rotations = new Quaternion[numKeyframes];
+            Vector3f[] scales = new Vector3f[numKeyframes];
+            float phase = generator.nextFloat();
+            for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+                float angle = 6f * times[frameIndex] / duration + phase;
+                translations[frameIndex] = new Vector3f(
+                        (float) Math.sin(angle), 0.1f * generator.nextFloat(),
+                        0f);
+                rotations[frameIndex] = new Quaternion().fromAngles(angle,
+                        0.5f * angle, generator.nextFloat());
+                scales[frameIndex] = new Vector3f(1f, 1f,
+                        1f + 0.1f * generator.nextFloat());
+            }
+            /*
+             * Make the animation cyclic: the final keyframe duplicates
+             * the first.
+             */
+            int last = numKeyframes - 1;
+            translations[last] = translations[0].clone();
+            rotations[last] = rotations[0].clone();
+            scales[last] = scales[0].clone();
+
+            BoneTrack track = new BoneTrack(trackIndex, times.clone(),
+                    translations, rotations, scales);
+            result.addTrack(track);
+        }
+
+        return result;
+    }
+
+    /**
+     * Time sequential playback of the specified animation, comparing
+     * TweenTransforms with a CompiledClip.
+     *
+     * @param animation the animation to play (not null, unaffected)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @param console where to print the results (not null)
+     */
+    private static void timePlayback(Animation animation,
+            TweenTransforms techniques, PrintStream console) {
+        CompiledClip clip = new CompiledClip(animation, techniques);
+        ClipCursor cursor = new ClipCursor(clip);
+        console.printf("%n%s, %s: %d tracks share %d time sequence(s)%n",
+                techniques.getTweenRotations(),
+                techniques.getTweenTranslations(), clip.countTracks(),
+                clip.countTimeSequences());
+        Transform transform = new Transform();
+        for (int trial = 0; trial < 3; trial++) {
+            long startTime = System.nanoTime();
+            for (int sampleIndex = 0; sampleIndex < numSamples;
+                    sampleIndex++) {
+                float time = duration * sampleIndex / numSamples;
+                for (int trackIndex = 0; trackIndex < numTracks;
+                        trackIndex++) {
+                    BoneTrack track = (BoneTrack) animation
+                            .getTracks()[trackIndex];
+                    techniques.transform(track, time, duration, null,
+                            transform);
+                }
+            }
+            long midTime = System.nanoTime();
+            cursor.rewind();
+            for (int sampleIndex = 0; sampleIndex < numSamples;
+                    sampleIndex++) {
+                float time = duration * sampleIndex / numSamples;
+                for (int trackIndex = 0; trackIndex < numTracks;
+                        trackIndex++) {
+                    clip.transform(trackIndex, time, cursor, transform);
+                }
+            }
+            long endTime = System.nanoTime();
+
+            double numPerSecond = 1e9 * numSamples * numTracks;
+            console.printf("TweenTransforms: %,.0f samples/sec, "
+                    + "CompiledClip: %,.0f samples/sec%n",
+                    numPerSecond / (midTime - startTime),
+                    numPerSecond / (endTime - midTime));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes.test;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+import jme3utilities.wes.CrowdSkinner;
+import jme3utilities.wes.Pose;
+import jme3utilities.wes.TweenTransforms;
+
+/**
+ * Benchmark for crowd skinning: measures characters per second for various
+ * crowd sizes and pool sizes, and checks the palette against poses evaluated
+ * one at a time.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestCrowdSkinner {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * duration of the test animation (in seconds)
+     */
+    final private static float duration = 2f;
+    /**
+     * number of bones in the test skeleton
+     */
+    final private static int numBones = 48;
+    /**
+     * number of keyframes in each bone track
+     */
+    final private static int numKeyframes = 60;
+    /**
+     * number of evaluations timed for each configuration
+     */
+    final private static int numTrials = 10;
+    /**
+     * crowd sizes to benchmark
+     */
+    final private static int[] crowdSizes = {16, 64, 256, 1024};
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestCrowdSkinner.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to benchmark CrowdSkinner.evaluate().
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Benchmark results for CrowdSkinner.evaluate():\n\n");
+
+        Random generator = new Random(1L);
+        Skeleton skeleton = makeSkeleton(generator);
+        Animation animation = makeAnimation(generator);
+        TweenTransforms techniques = new TweenTransforms();
+        /*
+         * Verify the palette against poses evaluated serially.
+         */
+        int numCharacters = crowdSizes[0];
+        CrowdSkinner skinner = makeCrowd(skeleton, animation, numCharacters,
+                generator);
+        skinner.evaluate(techniques);
+        FloatBuffer palette = skinner.getPalette();
+        Pose pose = new Pose(skeleton);
+        Matrix4f[] matrices = null;
+        float[] column = new float[4];
+        int numMismatches = 0;
+        for (int characterIndex = 0; characterIndex < numCharacters;
+                characterIndex++) {
+            float time = skinner.getTime(characterIndex);
+            pose.setToAnimation(animation, time, techniques);
+            matrices = pose.skin(matrices);
+            for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+                int start = 16 * (characterIndex * numBones + boneIndex);
+                for (int columnIndex = 0; columnIndex < 4; columnIndex++) {
+                    matrices[boneIndex].getColumn(columnIndex, column);
+                    for (int row = 0; row < 4; row++) {
+                        float actual = palette.get(start + 4 * columnIndex
+                                + row);
+                        if (actual != column[row]) {
+                            ++numMismatches;
+                        }
+                    }
+                }
+            }
+        }
+        console.printf("%d mismatched palette entries%n%n", numMismatches);
+        /*
+         * Time evaluations for each crowd size, first serially and then
+         * for pool sizes up to the number of processors.
+         */
+        int numProcessors = Runtime.getRuntime().availableProcessors();
+        for (int crowdSize : crowdSizes) {
+            skinner = makeCrowd(skeleton, animation, crowdSize, generator);
+            skinSerially(skinner, animation, techniques, pose); // warm up
+            long startTime = System.nanoTime();
+            for (int trial = 0; trial < numTrials; trial++) {
+                skinSerially(skinner, animation, techniques, pose);
+            }
+            long elapsed = System.nanoTime() - startTime;
+            double cps = 1e9 * numTrials * crowdSize / elapsed;
+            console.printf("%5d characters, serial:     %,.0f characters/sec%n",
+                    crowdSize, cps);
+
+            for (int parallelism = 1; parallelism <= numProcessors;
+                    parallelism *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                skinner.evaluate(techniques, pool); // warm up
+                startTime = System.nanoTime();
+                for (int trial = 0; trial < numTrials; trial++) {
+                    ForkJoinTask<Void> task = skinner.start(techniques, pool);
+                    task.join();
+                }
+                elapsed = System.nanoTime() - startTime;
+                pool.shutdown();
+
+                cps = 1e9 * numTrials * crowdSize / elapsed;
+                console.printf("%5d characters, %2d threads: %,.0f "
+                        + "characters/sec%n", crowdSize, parallelism, cps);
+            }
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate an animation that rotates and translates every bone of the
+     * test skeleton.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new animation
+     */
+    private static Animation makeAnimation(Random generator) {
+        Animation result = new Animation("test", duration);
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            float[] times = new float[numKeyframes];
+            Vector3f[] translations = new Vector3f[numKeyframes];
+            Quaternion[] rotations = new Quaternion[numKeyframes];
+            Vector3f[] scales = new Vector3f[numKeyframes];
+            for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+                times[frameIndex] = duration * frameIndex / (numKeyframes - 1);
+                translations[frameIndex] = new Vector3f(
+                        0.1f * generator.nextFloat(), 0f, 0f);
+                rotations[frameIndex] = new Quaternion().fromAngles(
+                        generator.nextFloat(), generator.nextFloat(),
+                        generator.nextFloat());
+                scales[frameIndex] = new Vector3f(1f, 1f, 1f);
+            }
+            BoneTrack track = new BoneTrack(boneIndex, times, translations,
+                    rotations, scales);
+            result.addTrack(track);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a crowd of characters playing the specified animation at
+     * random times.
+     *
+     * @param skeleton the shared skeleton (not null)
+     * @param animation the animation to play (not null)
+     * @param numCharacters number of characters (&ge;0)
+     * @param generator pseudo-random generator (not null)
+     * @return a new skinner
+     */
+    private static CrowdSkinner makeCrowd(Skeleton skeleton,
+            Animation animation, int numCharacters, Random generator) {
+        CrowdSkinner result = new CrowdSkinner(skeleton, numCharacters);
+        for (int characterIndex = 0; characterIndex < numCharacters;
+                characterIndex++) {
+            float time = duration * generator.nextFloat();
+            result.setAnimation(characterIndex, animation, time);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a skeleton in which each bone (except the root) is attached
+     * to a random earlier bone.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new skeleton
+     */
+    private static Skeleton makeSkeleton(Random generator) {
+        Bone[] bones = new Bone[numBones];
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            Bone bone = new Bone("bone" + boneIndex);
+            Vector3f location = new Vector3f(0f, 1f, 0f);
+            Quaternion orientation = new Quaternion().fromAngles(
+                    generator.nextFloat(), generator.nextFloat(),
+                    generator.nextFloat());
+            Vector3f scale = new Vector3f(1f, 1f, 1f);
+            bone.setBindTransforms(location, orientation, scale);
+            if (boneIndex > 0) {
+                int parentIndex = generator.nextInt(boneIndex);
+                bones[parentIndex].addChild(bone);
+            }
+            bones[boneIndex] = bone;
+        }
+        Skeleton result = new Skeleton(bones);
+
+        return result;
+    }
+
+    /**
+     * Evaluate the characters of a crowd one at a time on the current thread,
+     * using a single pose.
+     *
+     * @param skinner the crowd to evaluate (not null, unaffected)
+     * @param animation the animation to play (not null)
+     * @param techniques tweening techniques to use (not null)
+     * @param pose storage for each character's pose (not null, modified)
+     */
+    private static void skinSerially(CrowdSkinner skinner, Animation animation,
+            TweenTransforms techniques, Pose pose) {
+        int numCharacters = skinner.countCharacters();
+        Matrix4f[] matrices = null;
+        for (int characterIndex = 0; characterIndex < numCharacters;
+                characterIndex++) {
+            float time = skinner.getTime(characterIndex);
+            pose.setToAnimation(animation, time, techniques);
+            matrices = pose.skin(matrices);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes.test;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.plugins.bvh.SkeletonMapping;
+import com.jme3.util.clone.Cloner;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.wes.ClipCursor;
+import jme3utilities.wes.CompiledClip;
+import jme3utilities.wes.Pose;
+import jme3utilities.wes.TweenTransforms;
+
+/**
+ * Console application to verify Pose's model-transform cache: after each
+ * mutator, on random skeletons whose parents may follow their children in
+ * index order, the cached modelTransform(), modelLocation(), and
+ * modelOrientation() must match an uncached reference that recombines the
+ * local transforms recursively, as Pose did before the cache was added.
+ * Every mutator is exercised, including clone() and jmeClone(), and the
+ * cache is always made current before mutating, so stale entries would be
+ * detected.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPoseCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * duration of the test animation (in seconds)
+     */
+    final private static float duration = 2f;
+    /**
+     * number of bones in each skeleton
+     */
+    final private static int numBones = 30;
+    /**
+     * number of mutations per skeleton
+     */
+    final private static int numMutations = 400;
+    /**
+     * number of random skeletons
+     */
+    final private static int numSkeletons = 20;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestPoseCache.class.getName());
+    /**
+     * names of the mutators, indexed by the number passed to mutate()
+     */
+    final private static String[] mutatorNames = {
+        "set", "setRotation", "setScale", "setTranslation", "resetRotation",
+        "resetScale", "resetTranslation", "setToAnimation", "setToBind",
+        "setToClip", "setToRetarget", "clone", "jmeClone"
+    };
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of checks after each mutator, indexed like mutatorNames
+     */
+    final private static int[] numChecks = new int[mutatorNames.length];
+    /**
+     * number of mismatches after each mutator, indexed like mutatorNames
+     */
+    final private static int[] numMismatches = new int[mutatorNames.length];
+    /**
+     * pseudo-random generator
+     */
+    final private static Random generator = new Random(5L);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test the model-transform cache of Pose.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for the Pose model-transform cache:\n\n");
+
+        TweenTransforms techniques = new TweenTransforms();
+        for (int skeletonIndex = 0; skeletonIndex < numSkeletons;
+                skeletonIndex++) {
+            Skeleton skeleton = makeSkeleton("target");
+            Skeleton sourceSkeleton = makeSkeleton("source");
+            Animation animation = makeAnimation();
+            CompiledClip clip = new CompiledClip(animation, techniques);
+            ClipCursor cursor = new ClipCursor(clip);
+            SkeletonMapping map = makeMap();
+            Pose sourcePose = new Pose(sourceSkeleton);
+
+            Pose pose = new Pose(skeleton);
+            for (int i = 0; i < numMutations; i++) {
+                /*
+                 * Make the cache current, then mutate and compare.
+                 */
+                pose.modelTransform(generator.nextInt(numBones), null);
+                int mutator = generator.nextInt(mutatorNames.length);
+                Pose mutated = mutate(pose, mutator, animation, clip, cursor,
+                        sourcePose, map, techniques);
+                ++numChecks[mutator];
+                if (!matches(mutated, skeleton)) {
+                    ++numMismatches[mutator];
+                }
+                if (mutated != pose) {
+                    /*
+                     * Mutate the copy: the original must be unaffected.
+                     */
+                    mutated.setRotation(0, randomRotation());
+                    mutated.setTranslation(1, randomVector());
+                    if (!matches(pose, skeleton)) {
+                        ++numMismatches[mutator];
+                    }
+                    pose = mutated;
+                }
+                sourcePose.setRotation(generator.nextInt(numBones),
+                        randomRotation());
+            }
+        }
+
+        for (int i = 0; i < mutatorNames.length; i++) {
+            console.printf("%-17s %4d checks, %d mismatches%n",
+                    mutatorNames[i], numChecks[i], numMismatches[i]);
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate an animation with tracks for most bones.
+     *
+     * @return a new animation
+     */
+    private static Animation makeAnimation() {
+        Animation result = new Animation("test", duration);
+        int numKeyframes = 9;
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            if (boneIndex % 3 == 2) {
+                continue;
+            }
+            float[] times = new float[numKeyframes];
+            Vector3f[] translations = new Vector3f[numKeyframes];
+            Quaternion[] rotations = new Quaternion[numKeyframes];
+            Vector3f[] scales = new Vector3f[numKeyframes];
+            for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+                times[frameIndex] = duration * frameIndex / (numKeyframes - 1);
+                translations[frameIndex] = randomVector();
+                rotations[frameIndex] = randomRotation();
+                scales[frameIndex] = randomScale();
+            }
+            BoneTrack track = new BoneTrack(boneIndex, times, translations,
+                    rotations, scales);
+            result.addTrack(track);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a skeleton map that maps most target bones to source bones.
+     *
+     * @return a new map
+     */
+    private static SkeletonMapping makeMap() {
+        SkeletonMapping result = new SkeletonMapping();
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            if (boneIndex % 4 != 3) {
+                int sourceIndex = generator.nextInt(numBones);
+                result.map("target" + boneIndex, "source" + sourceIndex,
+                        randomRotation());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a skeleton with random bind transforms and 1 or more roots.
+     * Bones are indexed in random order, so a parent may have a higher index
+     * than its children.
+     *
+     * @param prefix prefix for bone names (not null)
+     * @return a new skeleton
+     */
+    private static Skeleton makeSkeleton(String prefix) {
+        /*
+         * Attach bones in a random order, each to a bone attached earlier
+         * (or to none).
+         */
+        int[] order = new int[numBones];
+        for (int i = 0; i < numBones; i++) {
+            int j = generator.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        int[] parentIndices = new int[numBones];
+        for (int rank = 0; rank < numBones; rank++) {
+            int parentIndex = -1;
+            if (rank > 0 && generator.nextInt(8) != 0) {
+                parentIndex = order[generator.nextInt(rank)];
+            }
+            parentIndices[order[rank]] = parentIndex;
+        }
+
+        Bone[] bones = new Bone[numBones];
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            bones[boneIndex] = new Bone(prefix + boneIndex);
+            bones[boneIndex].setBindTransforms(randomVector(),
+                    randomRotation(), randomScale());
+        }
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            int parentIndex = parentIndices[boneIndex];
+            if (parentIndex >= 0) {
+                bones[parentIndex].addChild(bones[boneIndex]);
+            }
+        }
+        Skeleton result = new Skeleton(bones);
+
+        return result;
+    }
+
+    /**
+     * Test whether the cached model transforms of a pose match the uncached
+     * reference, bit for bit, for every bone.
+     *
+     * @param pose the pose to test (not null)
+     * @param skeleton the pose's skeleton, or a clone of it (not null)
+     * @return true if they match, otherwise false
+     */
+    private static boolean matches(Pose pose, Skeleton skeleton) {
+        Transform cached = new Transform();
+        Vector3f location = new Vector3f();
+        Quaternion orientation = new Quaternion();
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            pose.modelTransform(boneIndex, cached);
+            Transform expected = uncachedTransform(pose, skeleton, boneIndex);
+            if (!cached.getTranslation().equals(expected.getTranslation())
+                    || !cached.getRotation().equals(expected.getRotation())
+                    || !cached.getScale().equals(expected.getScale())) {
+                return false;
+            }
+            pose.modelLocation(boneIndex, location);
+            pose.modelOrientation(boneIndex, orientation);
+            if (!location.equals(expected.getTranslation())
+                    || !orientation.equals(expected.getRotation())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Apply the specified mutator to a pose.
+     *
+     * @param pose the pose to mutate (not null)
+     * @param mutator index of the mutator in mutatorNames
+     * @param animation animation for setToAnimation() (not null)
+     * @param clip clip for setToClip() (not null)
+     * @param cursor cursor for setToClip() (not null)
+     * @param sourcePose source pose for setToRetarget() (not null)
+     * @param map skeleton map for setToRetarget() (not null)
+     * @param techniques tweening techniques for setToAnimation() (not null)
+     * @return the mutated pose, or for clone() and jmeClone() a new pose
+     */
+    private static Pose mutate(Pose pose, int mutator, Animation animation,
+            CompiledClip clip, ClipCursor cursor, Pose sourcePose,
+            SkeletonMapping map, TweenTransforms techniques) {
+        int boneIndex = generator.nextInt(numBones);
+        float time = duration * generator.nextFloat();
+        switch (mutator) {
+            case 0:
+                Transform transform = new Transform(randomVector(),
+                        randomRotation(), randomScale());
+                pose.set(boneIndex, transform);
+                break;
+            case 1:
+                pose.setRotation(boneIndex, randomRotation());
+                break;
+            case 2:
+                pose.setScale(boneIndex, randomScale());
+                break;
+            case 3:
+                pose.setTranslation(boneIndex, randomVector());
+                break;
+            case 4:
+                pose.resetRotation(boneIndex);
+                break;
+            case 5:
+                pose.resetScale(boneIndex);
+                break;
+            case 6:
+                pose.resetTranslation(boneIndex);
+                break;
+            case 7:
+                pose.setToAnimation(animation, time, techniques);
+                break;
+            case 8:
+                pose.setToBind();
+                break;
+            case 9:
+                pose.setToClip(clip, time, cursor);
+                break;
+            case 10:
+                pose.setToRetarget(sourcePose, map);
+                break;
+            case 11:
+                return pose.clone();
+            case 12:
+                Cloner cloner = new Cloner();
+                return cloner.clone(pose);
+            default:
+                throw new IllegalArgumentException();
+        }
+
+        return pose;
+    }
+
+    /**
+     * Generate a random rotation.
+     *
+     * @return a new quaternion
+     */
+    private static Quaternion randomRotation() {
+        Quaternion result = new Quaternion().fromAngles(
+                3f * generator.nextFloat(), 3f * generator.nextFloat(),
+                3f * generator.nextFloat());
+        return result;
+    }
+
+    /**
+     * Generate a random non-uniform scale.
+     *
+     * @return a new vector
+     */
+    private static Vector3f randomScale() {
+        Vector3f result = new Vector3f(0.5f + generator.nextFloat(),
+                0.5f + generator.nextFloat(), 0.5f + generator.nextFloat());
+        return result;
+    }
+
+    /**
+     * Generate a random offset.
+     *
+     * @return a new vector
+     */
+    private static Vector3f randomVector() {
+        Vector3f result = new Vector3f(generator.nextFloat() - 0.5f,
+                generator.nextFloat() - 0.5f, generator.nextFloat() - 0.5f);
+        return result;
+    }
+
+    /**
+     * Calculate a bone's model transform without the cache, by recursively
+     * combining local transforms the way Pose did before it had a cache.
+     *
+     * @param pose the pose to use (not null)
+     * @param skeleton the pose's skeleton, or a clone of it (not null)
+     * @param boneIndex the index of the bone (&ge;0)
+     * @return a new transform
+     */
+    private static Transform uncachedTransform(Pose pose, Skeleton skeleton,
+            int boneIndex) {
+        Transform result = pose.localTransform(boneIndex, null);
+        Bone parentBone = skeleton.getBone(boneIndex).getParent();
+        if (parentBone != null) {
+            Transform local = result.clone();
+            int parentIndex = skeleton.getBoneIndex(parentBone);
+            Transform parent = uncachedTransform(pose, skeleton, parentIndex);
+
+            Vector3f mTranslation = result.getTranslation();
+            Quaternion mRotation = result.getRotation();
+            Vector3f mScale = result.getScale();
+            parent.getRotation().mult(local.getRotation(), mRotation);
+            parent.getScale().mult(local.getScale(), mScale);
+            parent.getRotation().mult(local.getTranslation(), mTranslation);
+            mTranslation.multLocal(parent.getScale());
+            mTranslation.addLocal(parent.getTranslation());
+        }
+
+        return result;
+    }
+}
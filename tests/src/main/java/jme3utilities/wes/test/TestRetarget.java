@@ -0,0 +1,320 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes.test;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.animation.Track;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.plugins.bvh.BoneMapping;
+import com.jme3.scene.plugins.bvh.SkeletonMapping;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.MyAnimation;
+import jme3utilities.wes.Pose;
+import jme3utilities.wes.TrackEdit;
+import jme3utilities.wes.TweenTransforms;
+
+/**
+ * Console application to test and benchmark animation re-targeting: compare
+ * TrackEdit.retargetAnimation() with track-at-a-time re-targeting, then time
+ * serial and parallel re-targeting of a batch of animations.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRetarget {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * duration of each test animation (in seconds)
+     */
+    final private static float duration = 3f;
+    /**
+     * number of animations in the batch
+     */
+    final private static int numAnimations = 16;
+    /**
+     * number of bones in each skeleton
+     */
+    final private static int numBones = 40;
+    /**
+     * number of timing trials
+     */
+    final private static int numTrials = 3;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestRetarget.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test and benchmark animation re-targeting.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for animation re-targeting:\n\n");
+
+        Random generator = new Random(1L);
+        Skeleton sourceSkeleton = makeSkeleton("source", generator);
+        Skeleton targetSkeleton = makeSkeleton("target", generator);
+        SkeletonMapping map = makeMap(generator);
+        Animation[] animations = new Animation[numAnimations];
+        for (int animIndex = 0; animIndex < numAnimations; animIndex++) {
+            animations[animIndex] = makeAnimation("anim" + animIndex,
+                    generator);
+        }
+        TweenTransforms techniques = new TweenTransforms();
+        /*
+         * Verify the source index of the skeleton map.
+         */
+        int numLookupErrors = 0;
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            String sourceName = sourceSkeleton.getBone(boneIndex).getName();
+            BoneMapping boneMapping = map.getForSource(sourceName);
+            if (boneMapping == null) {
+                if (map.listSourceBones().contains(sourceName)) {
+                    ++numLookupErrors;
+                }
+            } else if (!boneMapping.getSourceName().equals(sourceName)) {
+                ++numLookupErrors;
+            }
+        }
+        /*
+         * Rename source bones directly, bypassing renameSourceBone().
+         */
+        SkeletonMapping renamed = makeMap(new Random(1L));
+        for (String targetName : renamed.listTargetBones()) {
+            BoneMapping boneMapping = renamed.get(targetName);
+            String oldName = boneMapping.getSourceName();
+            String newName = "renamed" + oldName;
+            boneMapping.setSourceName(newName);
+            if (renamed.getForSource(newName) != boneMapping) {
+                ++numLookupErrors;
+            }
+            BoneMapping stale = renamed.getForSource(oldName);
+            if (stale != null && !stale.getSourceName().equals(oldName)) {
+                ++numLookupErrors;
+            }
+        }
+        console.printf("getForSource() lookup errors: %d%n", numLookupErrors);
+        /*
+         * Compare with track-at-a-time re-targeting.
+         */
+        Animation[] results = TrackEdit.retargetAnimations(animations,
+                sourceSkeleton, targetSkeleton, map, techniques);
+        int numMismatches = 0;
+        int numKeyframes = 0;
+        for (int animIndex = 0; animIndex < numAnimations; animIndex++) {
+            Animation expected = retargetByTrack(animations[animIndex],
+                    sourceSkeleton, targetSkeleton, map, techniques);
+            Track[] expectedTracks = expected.getTracks();
+            Track[] actualTracks = results[animIndex].getTracks();
+            if (expectedTracks.length != actualTracks.length) {
+                ++numMismatches;
+                continue;
+            }
+            for (int trackIndex = 0; trackIndex < expectedTracks.length;
+                    trackIndex++) {
+                BoneTrack e = (BoneTrack) expectedTracks[trackIndex];
+                BoneTrack a = (BoneTrack) actualTracks[trackIndex];
+                numKeyframes += e.getTimes().length;
+                if (e.getTargetBoneIndex() != a.getTargetBoneIndex()
+                        || !Arrays.equals(e.getTimes(), a.getTimes())
+                        || !Arrays.equals(e.getTranslations(),
+                                a.getTranslations())
+                        || !Arrays.equals(e.getRotations(), a.getRotations())
+                        || !Arrays.equals(e.getScales(), a.getScales())) {
+                    ++numMismatches;
+                }
+            }
+        }
+        console.printf("%d keyframes compared, %d mismatched track(s)%n%n",
+                numKeyframes, numMismatches);
+        /*
+         * Time track-at-a-time, serial, and parallel re-targeting.
+         */
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        for (int trial = 0; trial < numTrials; trial++) {
+            long startTime = System.nanoTime();
+            for (Animation animation : animations) {
+                retargetByTrack(animation, sourceSkeleton, targetSkeleton, map,
+                        techniques);
+            }
+            long time1 = System.nanoTime();
+            for (Animation animation : animations) {
+                TrackEdit.retargetAnimation(animation, sourceSkeleton,
+                        targetSkeleton, map, techniques, animation.getName());
+            }
+            long time2 = System.nanoTime();
+            TrackEdit.retargetAnimations(animations, sourceSkeleton,
+                    targetSkeleton, map, techniques);
+            long endTime = System.nanoTime();
+
+            console.printf("track-at-a-time: %.1f ms, single-pass: %.1f ms, "
+                    + "parallel (%d threads): %.1f ms%n",
+                    1e-6 * (time1 - startTime), 1e-6 * (time2 - time1),
+                    parallelism, 1e-6 * (endTime - time2));
+        }
+        console.println();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate an animation with bone tracks for most source bones, using a
+     * different keyframe spacing for each track.
+     *
+     * @param name name for the animation (not null)
+     * @param generator pseudo-random generator (not null)
+     * @return a new animation
+     */
+    private static Animation makeAnimation(String name, Random generator) {
+        Animation result = new Animation(name, duration);
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            if (boneIndex % 4 == 3) {
+                continue;
+            }
+            int numKeyframes = 31 + 15 * (boneIndex % 3);
+            float[] times = new float[numKeyframes];
+            Vector3f[] translations = new Vector3f[numKeyframes];
+            Quaternion[] rotations = new Quaternion[numKeyframes];
+            Vector3f[] scales = new Vector3f[numKeyframes];
+            for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+                times[frameIndex] = duration * frameIndex / (numKeyframes - 1);
+                translations[frameIndex] = new Vector3f(
+                        0.1f * generator.nextFloat(), 0f, 0f);
+                rotations[frameIndex] = new Quaternion().fromAngles(
+                        generator.nextFloat(), generator.nextFloat(),
+                        generator.nextFloat());
+                scales[frameIndex] = new Vector3f(1f, 1f, 1f);
+            }
+            BoneTrack track = new BoneTrack(boneIndex, times, translations,
+                    rotations, scales);
+            result.addTrack(track);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a skeleton map that maps most target bones to the source bone
+     * with the same index, applying a random twist.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new map
+     */
+    private static SkeletonMapping makeMap(Random generator) {
+        SkeletonMapping result = new SkeletonMapping();
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            if (boneIndex % 5 != 4) {
+                Quaternion twist = new Quaternion().fromAngles(
+                        generator.nextFloat(), generator.nextFloat(),
+                        generator.nextFloat());
+                result.map("target" + boneIndex, "source" + boneIndex, twist);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate a skeleton in which each bone (except the root) is attached
+     * to the previous bone or the one before it.
+     *
+     * @param prefix prefix for bone names (not null)
+     * @param generator pseudo-random generator (not null)
+     * @return a new skeleton
+     */
+    private static Skeleton makeSkeleton(String prefix, Random generator) {
+        Bone[] bones = new Bone[numBones];
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            Bone bone = new Bone(prefix + boneIndex);
+            Vector3f location = new Vector3f(0f, 1f, 0f);
+            Quaternion orientation = new Quaternion().fromAngles(
+                    generator.nextFloat(), generator.nextFloat(),
+                    generator.nextFloat());
+            Vector3f scale = new Vector3f(1f, 1f, 1f);
+            bone.setBindTransforms(location, orientation, scale);
+            if (boneIndex > 0) {
+                int parentIndex = Math.max(0, boneIndex - 1 - boneIndex % 2);
+                bones[parentIndex].addChild(bone);
+            }
+            bones[boneIndex] = bone;
+        }
+        Skeleton result = new Skeleton(bones);
+
+        return result;
+    }
+
+    /**
+     * Re-target an animation one bone track at a time, sharing a pose cache
+     * between tracks.
+     *
+     * @param sourceAnimation the animation to re-target (not null)
+     * @param sourceSkeleton (not null)
+     * @param targetSkeleton (not null)
+     * @param map skeleton map to use (not null)
+     * @param techniques tweening techniques to use (not null)
+     * @return a new animation
+     */
+    private static Animation retargetByTrack(Animation sourceAnimation,
+            Skeleton sourceSkeleton, Skeleton targetSkeleton,
+            SkeletonMapping map, TweenTransforms techniques) {
+        String name = sourceAnimation.getName();
+        Animation result = new Animation(name, duration);
+        Map<Float, Pose> cache = new TreeMap<>();
+        for (int iTarget = 0; iTarget < numBones; iTarget++) {
+            String targetName = targetSkeleton.getBone(iTarget).getName();
+            BoneMapping boneMapping = map.get(targetName);
+            if (boneMapping != null) {
+                String sourceName = boneMapping.getSourceName();
+                int iSource = sourceSkeleton.getBoneIndex(sourceName);
+                BoneTrack sourceTrack
+                        = MyAnimation.findBoneTrack(sourceAnimation, iSource);
+                BoneTrack track = TrackEdit.retargetTrack(sourceAnimation,
+                        sourceTrack, sourceSkeleton, targetSkeleton, iTarget,
+                        map, techniques, cache);
+                result.addTrack(track);
+            }
+        }
+
+        return result;
+    }
+}
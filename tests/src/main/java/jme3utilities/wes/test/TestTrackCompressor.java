@@ -0,0 +1,239 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes.test;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Track;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.wes.CompressionReport;
+import jme3utilities.wes.TrackCompressor;
+import jme3utilities.wes.TweenRotations;
+import jme3utilities.wes.TweenTransforms;
+import jme3utilities.wes.TweenVectors;
+
+/**
+ * Console application to test TrackCompressor on a synthetic motion-capture
+ * animation: check the packed-rotation round trip, compress with several
+ * tweening techniques, and independently verify the errors of each result.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestTrackCompressor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * duration of the test animation (in seconds)
+     */
+    final private static float duration = 4f;
+    /**
+     * number of bone tracks in the test animation
+     */
+    final private static int numBones = 24;
+    /**
+     * number of keyframes in each bone track (60 per second)
+     */
+    final private static int numKeyframes = 241;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TestTrackCompressor.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Console application to test TrackCompressor.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        PrintStream console = System.out;
+        console.print("Test results for TrackCompressor:\n\n");
+
+        Random generator = new Random(1L);
+        /*
+         * Round-trip random rotations through the 48-bit encoding.
+         */
+        float maxPackError = 0f;
+        for (int trial = 0; trial < 100_000; trial++) {
+            Quaternion q = new Quaternion(
+                    2f * generator.nextFloat() - 1f,
+                    2f * generator.nextFloat() - 1f,
+                    2f * generator.nextFloat() - 1f,
+                    2f * generator.nextFloat() - 1f);
+            q.normalizeLocal();
+            long packed = TrackCompressor.packRotation(q);
+            Quaternion unpacked = TrackCompressor.unpackRotation(packed, null);
+            maxPackError = Math.max(maxPackError, angle(q, unpacked));
+        }
+        console.printf("48-bit rotations: max round-trip error = %g rad%n%n",
+                maxPackError);
+
+        Animation animation = makeAnimation(generator);
+        TweenTransforms techniques = new TweenTransforms();
+        compressAndVerify(animation, techniques, false, 0.001f);
+        compressAndVerify(animation, techniques, true, 0.001f);
+        /*
+         * An angle tolerance below the quantization error forces some
+         * keyframes to store unquantized rotations.
+         */
+        compressAndVerify(animation, techniques, true, 0.1f * maxPackError);
+
+        techniques.setTweenRotations(TweenRotations.Spline);
+        techniques.setTweenTranslations(TweenVectors.CentripetalSpline);
+        compressAndVerify(animation, techniques, true, 0.001f);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the angle between 2 unit quaternions, using the chord length
+     * rather than the dot product, for accuracy at small angles.
+     *
+     * @param q1 the 1st quaternion (not null, unaffected)
+     * @param q2 the 2nd quaternion (not null, unaffected)
+     * @return angle (in radians, &ge;0)
+     */
+    private static float angle(Quaternion q1, Quaternion q2) {
+        double sign = (q1.dot(q2) < 0f) ? -1.0 : 1.0;
+        double dx = q1.getX() - sign * q2.getX();
+        double dy = q1.getY() - sign * q2.getY();
+        double dz = q1.getZ() - sign * q2.getZ();
+        double dw = q1.getW() - sign * q2.getW();
+        double chord = Math.sqrt(dx * dx + dy * dy + dz * dz + dw * dw);
+        double result = 4.0 * Math.asin(Math.min(1.0, 0.5 * chord));
+
+        return (float) result;
+    }
+
+    /**
+     * Compress the test animation, print the report, and verify the errors
+     * by sampling each compressed track at every original keyframe time.
+     *
+     * @param animation the animation to compress (not null, unaffected)
+     * @param techniques tweening techniques to use (not null)
+     * @param quantize true to quantize rotations, otherwise false
+     * @param angleTolerance tolerance for rotation errors (in radians, &ge;0)
+     */
+    private static void compressAndVerify(Animation animation,
+            TweenTransforms techniques, boolean quantize,
+            float angleTolerance) {
+        PrintStream console = System.out;
+        TrackCompressor compressor = new TrackCompressor(techniques);
+        compressor.setQuantizeRotations(quantize);
+        compressor.setAngleTolerance(angleTolerance);
+        CompressionReport report = new CompressionReport();
+
+        long startTime = System.nanoTime();
+        Animation compressed = compressor.compress(animation, report);
+        long endTime = System.nanoTime();
+
+        console.printf("%s / %s, quantize=%s: compressed in %.1f ms%n",
+                techniques.getTweenRotations(),
+                techniques.getTweenTranslations(), quantize,
+                1e-6 * (endTime - startTime));
+        console.print(report);
+
+        float maxTranslationError = 0f;
+        float maxAngleError = 0f;
+        Track[] oldTracks = animation.getTracks();
+        Track[] newTracks = compressed.getTracks();
+        Transform transform = new Transform();
+        for (int trackIndex = 0; trackIndex < oldTracks.length; trackIndex++) {
+            BoneTrack oldTrack = (BoneTrack) oldTracks[trackIndex];
+            BoneTrack newTrack = (BoneTrack) newTracks[trackIndex];
+            float[] times = oldTrack.getTimes();
+            Vector3f[] translations = oldTrack.getTranslations();
+            Quaternion[] rotations = oldTrack.getRotations();
+            for (int frameIndex = 0; frameIndex < times.length; frameIndex++) {
+                techniques.transform(newTrack, times[frameIndex], duration,
+                        null, transform);
+                float translationError = transform.getTranslation()
+                        .distance(translations[frameIndex]);
+                maxTranslationError
+                        = Math.max(maxTranslationError, translationError);
+                float angleError
+                        = angle(transform.getRotation(), rotations[frameIndex]);
+                maxAngleError = Math.max(maxAngleError, angleError);
+            }
+        }
+        console.printf("verified: max translation error = %g, "
+                + "max angle error = %g rad (tolerances %g, %g)%n%n",
+                maxTranslationError, maxAngleError,
+                compressor.getTranslationTolerance(),
+                compressor.getAngleTolerance());
+    }
+
+    /**
+     * Generate a dense animation resembling motion capture: smooth motion
+     * with a little jitter on most bones, and no motion on every 6th bone.
+     *
+     * @param generator pseudo-random generator (not null)
+     * @return a new animation
+     */
+    private static Animation makeAnimation(Random generator) {
+        Animation result = new Animation("mocap", duration);
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            boolean still = (boneIndex % 6 == 5);
+            float frequency = 0.1f + 0.5f * generator.nextFloat();
+            float phase = FastMath.TWO_PI * generator.nextFloat();
+            float amplitude = 0.2f + generator.nextFloat();
+
+            float[] times = new float[numKeyframes];
+            Vector3f[] translations = new Vector3f[numKeyframes];
+            Quaternion[] rotations = new Quaternion[numKeyframes];
+            Vector3f[] scales = new Vector3f[numKeyframes];
+            for (int frameIndex = 0; frameIndex < numKeyframes; frameIndex++) {
+                float time = duration * frameIndex / (numKeyframes - 1);
+                times[frameIndex] = time;
+                float wave = still ? 0f : amplitude
+                        * FastMath.sin(FastMath.TWO_PI * frequency * time
+                                + phase);
+                float jitter = still ? 0f
+                        : 0.0002f * (generator.nextFloat() - 0.5f);
+                translations[frameIndex]
+                        = new Vector3f(0.1f * wave + jitter, 1f, 0f);
+                rotations[frameIndex] = new Quaternion().fromAngles(
+                        wave + jitter, 0.5f * wave, 0.2f);
+                scales[frameIndex] = new Vector3f(1f, 1f, 1f);
+            }
+            BoneTrack track = new BoneTrack(boneIndex, times, translations,
+                    rotations, scales);
+            result.addTrack(track);
+        }
+
+        return result;
+    }
+}
@@ -29,10 +29,10 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
@@ -117,23 +117,81 @@ public class MakeClouds {
         String userDir = System.getProperty("user.dir");
         logger.log(Level.INFO, "working directory is {0}",
                 MyString.quote(userDir));
+        /*
+         * Generate and write the alpha maps concurrently.
+         */
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(3);
+        PixelFunction clear = application.fillClouds(0f);
+        tasks.add(writeClouds("clear", 64, clear));
+        PixelFunction overcast = application.fillClouds(1f);
+        tasks.add(writeClouds("overcast", 64, overcast));
 
         initializeSamples(2_048, 10);
-        RenderedImage fbm = application.makeFbmClouds(2_048, 0.58f, 0.82f);
-
-        RenderedImage clear = application.makeFillClouds(64, 0f);
-        RenderedImage overcast = application.makeFillClouds(64, 1f);
+        PixelFunction fbm = application.fbmClouds(2_048, 0.58f, 0.82f);
+        tasks.add(writeClouds("fbm", 2_048, fbm));
 
-        try {
-            writeClouds("clear", clear);
-            writeClouds("fbm", fbm);
-            writeClouds("overcast", overcast);
-        } catch (IOException exception) {
-        }
+        MapPipeline.joinAll(tasks);
     }
     // *************************************************************************
     // private methods
 
+    /**
+     * Create a pixel function for a grayscale cloud layer from FBM noise.
+     *
+     * @param textureSize size of the texture map (pixels per side, &ge;1)
+     * @param blackCutoff normalized noise value below which pixel is black
+     * (&ge;0)
+     * @param whiteCutoff normalized noise value above which pixel is white
+     * (&le;1, &gt;blackCutoff)
+     * @return new instance
+     */
+    private PixelFunction fbmClouds(int textureSize, final float blackCutoff,
+            final float whiteCutoff) {
+        assert textureSize >= 1 : textureSize;
+        assert textureSize <= samples.length : textureSize;
+        assert blackCutoff >= 0f : blackCutoff;
+        assert blackCutoff < whiteCutoff;
+        assert whiteCutoff <= 1f : whiteCutoff;
+
+        PixelFunction result = new PixelFunction() {
+            @Override
+            public void evaluate(int x, int y, float[] storeResult) {
+                /*
+                 * Set brightness of the pixel based on the noise array.
+                 */
+                float alpha = samples[x][y];
+                alpha = (alpha - blackCutoff) / (whiteCutoff - blackCutoff);
+                alpha = FastMath.saturate(alpha);
+                storeResult[0] = alpha;
+                storeResult[1] = 1f;
+            }
+        };
+
+        return result;
+    }
+
+    /**
+     * Create a pixel function for a grayscale cloud layer with constant
+     * opacity.
+     *
+     * @param alpha opacity (&le;1, &ge;0)
+     * @return new instance
+     */
+    private PixelFunction fillClouds(final float alpha) {
+        assert alpha >= 0f : alpha;
+        assert alpha <= 1f : alpha;
+
+        PixelFunction result = new PixelFunction() {
+            @Override
+            public void evaluate(int x, int y, float[] storeResult) {
+                storeResult[0] = alpha;
+                storeResult[1] = 1f;
+            }
+        };
+
+        return result;
+    }
+
     /**
      * Initialize the 2-D array of normalized FBM noise samples.
      *
@@ -153,17 +211,18 @@ public class MakeClouds {
         float gain = 0.45f;
         float lacunarity = 2f;
         /*
-         * Generate FBM noise and store it in a 2-D array.
+         * Generate FBM noise on a grid, in parallel,
+         * and store it in a 2-D array.
          */
+        float spacing = 1f / numRows;
+        float[] grid = new float[numRows * numRows];
+        Noise.fbmGrid(generator, 0f, 0f, spacing, spacing, numRows, numRows,
+                numOctaves, fundamental, gain, lacunarity, grid);
         samples = new float[numRows][];
         for (int x = 0; x < numRows; x++) {
-            float u = ((float) x) / numRows;
             samples[x] = new float[numRows];
             for (int y = 0; y < numRows; y++) {
-                float v = ((float) y) / numRows;
-                float n = Noise.fbmNoise(generator, u, v, numOctaves,
-                        fundamental, gain, lacunarity);
-                samples[x][y] = n;
+                samples[x][y] = grid[x + numRows * y];
             }
         }
         /*
@@ -188,85 +247,26 @@ public class MakeClouds {
     }
 
     /**
-     * Generate a grayscale cloud layer from FBM noise.
-     *
-     * @param textureSize size of the texture map (pixels per side, &ge;1)
-     * @param blackCutoff normalized noise value below which pixel is black
-     * (&ge;0)
-     * @param whiteCutoff normalized noise value above which pixel is white
-     * (&le;1, &gt;blackCutoff)
-     * @return new instance
-     */
-    private RenderedImage makeFbmClouds(int textureSize, float blackCutoff,
-            float whiteCutoff) {
-        assert textureSize >= 1 : textureSize;
-        assert blackCutoff >= 0f : blackCutoff;
-        assert blackCutoff < whiteCutoff;
-        assert whiteCutoff <= 1f : whiteCutoff;
-        /*
-         * Create a blank, grayscale buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
-        /*
-         * Set brightness of each pixel based on the noise array.
-         */
-        for (int x = 0; x < textureSize; x++) {
-            for (int y = 0; y < textureSize; y++) {
-                float alpha = samples[x][y];
-                alpha = (alpha - blackCutoff) / (whiteCutoff - blackCutoff);
-                alpha = FastMath.saturate(alpha);
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
-            }
-        }
-
-        return map;
-    }
-
-    /**
-     * Generate a grayscale cloud layer with constant opacity.
-     *
-     * @param textureSize size of the texture map (pixels per side, &ge;1)
-     * @param alpha opacity (&le;1, &ge;0)
-     * @return new instance
-     */
-    private RenderedImage makeFillClouds(int textureSize, float alpha) {
-        assert textureSize >= 1 : textureSize;
-        assert alpha >= 0f : alpha;
-        assert alpha <= 1f : alpha;
-        /*
-         * Create a blank, grayscale buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
-        /*
-         * Set brightness of each pixel.
-         */
-        for (int x = 0; x < textureSize; x++) {
-            for (int y = 0; y < textureSize; y++) {
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
-            }
-        }
-
-        return map;
-    }
-
-    /**
-     * Write a rendered image to a PNG file in the "clouds" folder.
+     * Start generating a grayscale cloud layer and writing it to a PNG file in
+     * the "clouds" folder.
      *
      * @param fileName name of file to write the image to (no extension, not
      * null, not empty)
-     * @param image image to write (not null)
+     * @param textureSize size of the texture map (pixels per side, &ge;1)
+     * @param function function to compute each pixel (not null)
+     * @return a new task, already forked
      */
-    private static void writeClouds(String fileName, RenderedImage image)
-            throws IOException {
+    private static ForkJoinTask<?> writeClouds(String fileName,
+            int textureSize, PixelFunction function) {
         assert fileName != null;
         assert fileName.length() > 0;
-        assert image != null;
+        assert textureSize >= 1 : textureSize;
+        assert function != null;
 
         String filePath = String.format("%s/%s.png", outputDirPath, fileName);
-        Misc.writeMap(filePath, image);
+        ForkJoinTask<?> result = MapPipeline.submit(filePath, textureSize,
+                textureSize, BufferedImage.TYPE_BYTE_GRAY, function);
+
+        return result;
     }
 }
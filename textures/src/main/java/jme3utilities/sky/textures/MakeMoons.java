@@ -30,9 +30,10 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
@@ -129,58 +130,56 @@ public class MakeMoons {
         logger.log(Level.INFO, "working directory is {0}",
                 MyString.quote(userDir));
         /*
-         * Generate color image maps.
+         * Generate color image maps concurrently.
          */
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
         if ("all".equals(phaseName)) {
             for (LunarPhase phase : LunarPhase.values()) {
                 if (phase != LunarPhase.CUSTOM) {
-                    application.makeMoon(phase);
+                    tasks.add(application.makeMoon(phase));
                 }
             }
         } else {
             LunarPhase phase = LunarPhase.fromDescription(phaseName);
-            application.makeMoon(phase);
+            tasks.add(application.makeMoon(phase));
         }
+        MapPipeline.joinAll(tasks);
     }
     // *************************************************************************
     // private methods
 
     /**
-     * Generate an image map for a moon shape.
+     * Start generating an image map for a moon shape and writing it to the
+     * asset file.
      *
      * @param phase (not null, not CUSTOM)
+     * @return a new task, already forked
      */
-    private void makeMoon(LunarPhase phase) {
+    private ForkJoinTask<?> makeMoon(LunarPhase phase) {
         assert phase != null;
         assert phase != LunarPhase.CUSTOM;
-        /*
-         * Create a blank, color buffered image for the texture map.
-         */
-        BufferedImage image = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D graphics = image.createGraphics();
         /*
          * Calculate the direction to the light source.
          */
         float angle = phase.longitudeDifference();
         float cos = FastMath.cos(angle);
         float sin = FastMath.sin(angle);
-        Vector3f lightDirection = new Vector3f(sin, 0f, -cos);
-        /*
-         * Compute the opacity and luminance of each pixel.
-         */
-        Vector3f normal = new Vector3f();
-        for (int x = 0; x < textureSize; x++) {
-            float u = ((float) x) / textureSize;
-            float du = (u - 0.5f) / discRadius;
-            for (int y = 0; y < textureSize; y++) {
+        final Vector3f lightDirection = new Vector3f(sin, 0f, -cos);
+
+        PixelFunction function = new PixelFunction() {
+            @Override
+            public void evaluate(int x, int y, float[] storeResult) {
+                float u = ((float) x) / textureSize;
+                float du = (u - 0.5f) / discRadius;
                 float v = ((float) y) / textureSize;
                 float dv = (v - 0.5f) / discRadius;
                 /*
                  * Convert Cartesian texture coordinates to polar coordinates.
                  */
                 double uvRadiusSquared = MyMath.sumOfSquares(dv, du);
-
+                /*
+                 * Compute the opacity and luminance of the pixel.
+                 */
                 float opacity, brightness;
                 if (uvRadiusSquared > 1.0) {
                     opacity = 0f;
@@ -188,24 +187,24 @@ public class MakeMoons {
                 } else {
                     opacity = 1f;
                     float dw = (float) Math.sqrt(1.0 - uvRadiusSquared);
-                    normal.set(du, dv, dw);
-                    float dot = lightDirection.dot(normal);
+                    float dot = lightDirection.x * du + lightDirection.y * dv
+                            + lightDirection.z * dw;
                     brightness = FastMath.saturate(dot);
                     brightness = FastMath.pow(brightness, inverseGamma);
                 }
 
-                Misc.setGrayPixel(graphics, x, y, brightness, opacity);
+                storeResult[0] = brightness;
+                storeResult[1] = opacity;
             }
-        }
+        };
         /*
          * Write the image to the asset file.
          */
         String assetPath = phase.imagePath("-nonviral");
         String filePath = String.format("%s/%s", assetDirPath, assetPath);
-        try {
-            Misc.writeMap(filePath, image);
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
-        }
+        ForkJoinTask<?> result = MapPipeline.submit(filePath, textureSize,
+                textureSize, BufferedImage.TYPE_4BYTE_ABGR, function);
+
+        return result;
     }
 }
@@ -29,10 +29,8 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
-import java.io.IOException;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
@@ -125,10 +123,8 @@ public class MakeRamps {
         logger.log(Level.INFO, "working directory is {0}",
                 MyString.quote(userDir));
 
-        try {
-            application.makeRamp("haze", 0f);
-        } catch (IOException exception) {
-        }
+        ForkJoinTask<?> task = application.makeRamp("haze", 0f);
+        task.join();
     }
     // *************************************************************************
     // private methods
@@ -175,41 +171,39 @@ public class MakeRamps {
     }
 
     /**
-     * Generate a grayscale ramp image and write it to a PNG file.
+     * Start generating a grayscale ramp image and writing it to a PNG file.
      *
      * @param fileName for writing the image (no extension, not null)
      * @param flattening the oblateness (ellipticity) of the dome with the haze:
      * 0 &rarr; no flattening (hemisphere), 1 &rarr; maximum flattening
+     * @return a new task, already forked
      */
-    private void makeRamp(String fileName, float flattening)
-            throws IOException {
+    private ForkJoinTask<?> makeRamp(String fileName, float flattening) {
         assert fileName != null;
 
-        RenderedImage image = makeRamp(flattening);
+        PixelFunction function = makeRamp(flattening);
         String filePath = String.format("%s/%s.png", outputDirPath, fileName);
-        Misc.writeMap(filePath, image);
+        ForkJoinTask<?> result = MapPipeline.submit(filePath, textureSize,
+                textureSize, BufferedImage.TYPE_BYTE_GRAY, function);
+
+        return result;
     }
 
     /**
-     * Generate a grayscale ramp image.
+     * Create a pixel function for a grayscale ramp image.
      *
      * @param flattening the oblateness (ellipticity) of the dome with the haze:
      * 0 &rarr; no flattening (hemisphere), 1 &rarr; maximum flattening
      * @return new instance
      */
-    private RenderedImage makeRamp(float flattening) {
-        /*
-         * Create a blank, grayscale buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
-        /*
-         * Compute the alpha of each pixel.
-         */
-        for (int x = 0; x < textureSize; x++) {
-            float u = ((float) x) / textureSize;
-            for (int y = 0; y < textureSize; y++) {
+    private PixelFunction makeRamp(final float flattening) {
+        PixelFunction result = new PixelFunction() {
+            @Override
+            public void evaluate(int x, int y, float[] storeResult) {
+                /*
+                 * Compute the alpha of the pixel.
+                 */
+                float u = ((float) x) / textureSize;
                 float v = ((float) y) / textureSize;
                 float elevationAngle = mesh.elevationAngle(u, v);
                 if (elevationAngle != FastMath.HALF_PI) {
@@ -218,10 +212,11 @@ public class MakeRamps {
                     elevationAngle = FastMath.atan(tan);
                 }
                 float alpha = hazeAlpha(elevationAngle);
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
+                storeResult[0] = alpha;
+                storeResult[1] = 1f;
             }
-        }
+        };
 
-        return map;
+        return result;
     }
 }
@@ -41,10 +41,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import jme3utilities.Misc;
 import jme3utilities.MyAsset;
 import jme3utilities.MyString;
@@ -85,6 +91,11 @@ public class MakeStarMaps {
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * maximum angle between the center of a cube face and a star plotted on
+     * it (in radians)
+     */
+    final private static double maxFaceAngle = Math.PI / 3.0;
     /**
      * luminosity of the faintest stars to include
      */
@@ -126,23 +137,23 @@ public class MakeStarMaps {
      * number of points per ellipse
      */
     final private static int ellipseNumPoints = 32;
-    /**
-     * x-coordinates used to draw an ellipse
-     */
-    final private static int[] ellipseXs = new int[ellipseNumPoints];
-    /**
-     * y-coordinates used to draw an ellipse
-     */
-    final private static int[] ellipseYs = new int[ellipseNumPoints];
     /**
      * message logger for this class
      */
     final private static Logger logger
             = Logger.getLogger(MakeStarMaps.class.getName());
+    /**
+     * pattern to match the entry id at the start of a catalog entry
+     */
+    final private static Pattern entryIdPattern = Pattern.compile("[ ]*[0-9]+");
     /**
      * application name for the usage message
      */
     final private static String applicationName = "MakeStarMaps";
+    /**
+     * filesystem path to the binary cache of the star catalog
+     */
+    final private static String cacheFilePath = "build/bsc5.cache";
     /**
      * filesystem path to the input file, an ASCII version of version 5 of the
      * Yale Bright Star Catalog, which may be downloaded from
@@ -177,9 +188,9 @@ public class MakeStarMaps {
     @Parameter(names = {"-c", "--cube"}, description = "generate for a cube")
     private static boolean forCube = false;
     /**
-     * stars read from the catalog
+     * stars read from the catalog or its cache
      */
-    final private Collection<Star> stars = new TreeSet<>();
+    private StarCatalog catalog = null;
     /**
      * sample dome mesh for calculating texture coordinates
      */
@@ -241,26 +252,67 @@ public class MakeStarMaps {
         /*
          * Read the star catalog.
          */
-        application.readCatalog();
-        if (application.stars.isEmpty()) {
+        application.loadCatalog();
+        if (application.catalog.numStars() == 0) {
             return;
         }
         /*
-         * Generate texture maps.
+         * Generate texture maps concurrently.
          */
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
         if ("all".equals(presetName)) {
             for (StarMapPreset preset : StarMapPreset.values()) {
-                application.generateMap(preset);
+                tasks.add(application.submitMap(preset));
             }
 
         } else {
             StarMapPreset preset = StarMapPreset.fromDescription(presetName);
-            application.generateMap(preset);
+            tasks.add(application.submitMap(preset));
         }
+        MapPipeline.joinAll(tasks);
     }
     // *************************************************************************
     // private methods
 
+    /**
+     * Compute the celestial direction that corresponds to a specified world
+     * direction at the specified latitude and time.
+     *
+     * @param worldDirection direction in world coordinates (length=1,
+     * unaffected)
+     * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
+     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
+     * @return a new unit vector in celestial coordinates (+X toward the March
+     * equinox, +Z toward the north celestial pole)
+     */
+    private Vector3f celestialAxis(Vector3f worldDirection, float latitude,
+            float siderealTime) {
+        assert worldDirection != null;
+        assert worldDirection.isUnitVector() : worldDirection;
+        /*
+         * The transform from celestial to world coordinates is linear,
+         * so apply it to each celestial basis vector in turn.
+         */
+        float cosST = FastMath.cos(siderealTime);
+        float sinST = FastMath.sin(siderealTime);
+        Vector3f equatorial = new Vector3f(cosST, -sinST, 0f);
+        Vector3f world = worldDirection(equatorial, latitude);
+        float x = worldDirection.dot(world);
+
+        equatorial.set(sinST, cosST, 0f);
+        world = worldDirection(equatorial, latitude);
+        float y = worldDirection.dot(world);
+
+        equatorial.set(0f, 0f, 1f);
+        world = worldDirection(equatorial, latitude);
+        float z = worldDirection.dot(world);
+
+        Vector3f result = new Vector3f(x, y, z);
+        result.normalizeLocal();
+
+        return result;
+    }
+
     /**
      * Calculate the texture coordinates of a point that lies in the specified
      * direction from the center of the cube.
@@ -352,14 +404,14 @@ public class MakeStarMaps {
     }
 
     /**
-     * Generate 6 starry sky texture maps for a cube.
+     * Generate a starry sky texture map for a dome.
      *
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
-     * @param textureSize size of each texture map (pixels per side, &gt;2)
+     * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @return new instance
      */
-    private RenderedImage[] generateCubeMap(float latitude, float siderealTime,
+    private RenderedImage generateDomeMap(float latitude, float siderealTime,
             int textureSize) {
         assert latitude >= -FastMath.HALF_PI : latitude;
         assert latitude <= FastMath.HALF_PI : latitude;
@@ -367,19 +419,23 @@ public class MakeStarMaps {
         assert siderealTime < FastMath.TWO_PI : siderealTime;
         assert textureSize > 2 : textureSize;
         /*
-         * Create a blank, grayscale buffered image for each texture map.
+         * Create a blank, grayscale buffered image for the texture map.
          */
-        BufferedImage[] maps = new BufferedImage[6];
-        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-            maps[faceIndex] = new BufferedImage(textureSize, textureSize,
-                    BufferedImage.TYPE_BYTE_GRAY);
-        }
+        BufferedImage map = new BufferedImage(textureSize, textureSize,
+                BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = map.createGraphics();
         /*
-         * Plot individual stars on the images, starting with the faintest.
+         * Find the stars that might lie above the horizon.
+         */
+        Vector3f axis
+                = celestialAxis(Vector3f.UNIT_Y, latitude, siderealTime);
+        int[] starIndices = catalog.findStars(axis, FastMath.HALF_PI);
+        /*
+         * Plot individual stars on the image, starting with the faintest.
          */
         int plotCount = 0;
-        for (Star star : stars) {
-            boolean success = plotStarOnCube(maps, star, latitude,
+        for (int starIndex : starIndices) {
+            boolean success = plotStarOnDome(graphics, starIndex, latitude,
                     siderealTime, textureSize);
             if (success) {
                 plotCount++;
@@ -387,41 +443,52 @@ public class MakeStarMaps {
         }
         logger.log(Level.FINE, "plotted {0} stars", plotCount);
 
-        return maps;
+        return map;
     }
 
     /**
-     * Generate a starry sky texture map for a dome.
+     * Generate a starry sky texture map for one face of a cube.
      *
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
+     * @param faceIndex which face of the cube (&ge;0, &lt;6)
      * @return new instance
      */
-    private RenderedImage generateDomeMap(float latitude, float siderealTime,
-            int textureSize) {
+    private RenderedImage generateFaceMap(float latitude, float siderealTime,
+            int textureSize, int faceIndex) {
         assert latitude >= -FastMath.HALF_PI : latitude;
         assert latitude <= FastMath.HALF_PI : latitude;
         assert siderealTime >= 0f : siderealTime;
         assert siderealTime < FastMath.TWO_PI : siderealTime;
         assert textureSize > 2 : textureSize;
+        assert faceIndex >= 0 : faceIndex;
+        assert faceIndex < 6 : faceIndex;
         /*
          * Create a blank, grayscale buffered image for the texture map.
          */
         BufferedImage map = new BufferedImage(textureSize, textureSize,
                 BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = map.createGraphics();
+        /*
+         * Find the stars that might land on this face.
+         */
+        Vector3f faceDirection = MyAsset.copyFaceDirection(faceIndex);
+        Vector3f axis = celestialAxis(faceDirection, latitude, siderealTime);
+        int[] starIndices = catalog.findStars(axis, maxFaceAngle);
         /*
          * Plot individual stars on the image, starting with the faintest.
          */
         int plotCount = 0;
-        for (Star star : stars) {
-            boolean success = plotStarOnDome(map, star, latitude, siderealTime,
-                    textureSize);
+        for (int starIndex : starIndices) {
+            boolean success = plotStarOnFace(graphics, starIndex, latitude,
+                    siderealTime, textureSize, faceIndex);
             if (success) {
                 plotCount++;
             }
         }
-        logger.log(Level.FINE, "plotted {0} stars", plotCount);
+        logger.log(Level.FINE, "plotted {0} stars on face {1}",
+                new Object[]{plotCount, faceIndex});
 
         return map;
     }
@@ -434,38 +501,54 @@ public class MakeStarMaps {
     private void generateMap(StarMapPreset preset) {
         assert preset != null;
 
-        float latitude = preset.latitude();
+        final float latitude = preset.latitude();
         logger.log(Level.FINE, "latitude is {0} degrees",
                 MyMath.toDegrees(latitude));
 
         float siderealHour = preset.hour();
         logger.log(Level.FINE, "sidereal time is {0} hours", siderealHour);
 
-        int textureSize = preset.textureSize();
+        final int textureSize = preset.textureSize();
         logger.log(Level.FINE, "resolution is {0} pixels", textureSize);
         /*
          * Convert the sidereal time from hours to radians.
          */
-        float siderealTime = siderealHour * radiansPerHour;
+        final float siderealTime = siderealHour * radiansPerHour;
 
         if (forCube) {
             /*
-            * Generate 6 texture maps for a cube.
+             * Create the output directory/folder before forking, so the
+             * face tasks don't race to create it.
              */
-            RenderedImage images[] = generateCubeMap(latitude, siderealTime,
-                    textureSize);
-            assert images.length == 6 : images.length;
+            String dirPath = String.format("%s/%s", outputDirPath,
+                    preset.textureFileName());
+            File directory = new File(dirPath);
+            if (!directory.mkdirs() && !directory.isDirectory()) {
+                logger.log(Level.SEVERE, "failed to create {0}",
+                        MyString.quote(dirPath));
+                throw new RuntimeException(new IOException(dirPath));
+            }
+            /*
+             * Generate and write 6 texture maps for a cube,
+             * one face per task.
+             */
+            List<RecursiveAction> faceTasks = new ArrayList<>(6);
             for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-                String filePath = String.format("%s/%s/%s_%s%d.png",
+                final int face = faceIndex;
+                final String filePath = String.format("%s/%s/%s_%s%d.png",
                         outputDirPath, preset.textureFileName(),
                         preset.textureFileName(), faceName[faceIndex],
                         faceIndex + 1);
-                try {
-                    Misc.writeMap(filePath, images[faceIndex]);
-                } catch (IOException exception) {
-                    // ignored
-                }
+                faceTasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        RenderedImage image = generateFaceMap(latitude,
+                                siderealTime, textureSize, face);
+                        writeMap(filePath, image);
+                    }
+                });
             }
+            ForkJoinTask.invokeAll(faceTasks);
 
         } else {
             /*
@@ -475,10 +558,30 @@ public class MakeStarMaps {
                     textureSize);
             String filePath = String.format("%s/%s.png", outputDirPath,
                     preset.textureFileName());
+            writeMap(filePath, image);
+        }
+    }
+
+    /**
+     * Load the star catalog, from its binary cache if the cache is current,
+     * otherwise by parsing the catalog file and then writing the cache.
+     */
+    private void loadCatalog() {
+        File catalogFile = new File(catalogFilePath);
+        catalog = StarCatalog.readCache(cacheFilePath, catalogFile);
+        if (catalog != null) {
+            return;
+        }
+
+        Collection<Star> stars = new TreeSet<>();
+        boolean success = readCatalog(stars);
+        catalog = new StarCatalog(stars);
+        if (success && !stars.isEmpty()) {
             try {
-                Misc.writeMap(filePath, image);
+                catalog.writeCache(cacheFilePath, catalogFile);
             } catch (IOException exception) {
-                // ignored
+                logger.log(Level.WARNING, "unable to write {0}",
+                        MyString.quote(cacheFilePath));
             }
         }
     }
@@ -486,15 +589,16 @@ public class MakeStarMaps {
     /**
      * Plot a four-pointed star shape on a texture map.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (in terms of pure white
      * pixels, &le;37, &gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param uv star's texture coordinates (not null)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plot4PointStar(BufferedImage map, float luminosity,
+    private boolean plot4PointStar(Graphics2D graphics, float luminosity,
             int textureSize, Vector2f uv) {
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert luminosity <= 37f : luminosity;
         assert textureSize > 2 : textureSize;
@@ -565,7 +669,6 @@ public class MakeStarMaps {
         /*
          * Plot the star onto the texture map.
          */
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(color);
         graphics.fillRect(x, y, squareSize, squareSize);
         if (raySize == 0) {
@@ -599,16 +702,16 @@ public class MakeStarMaps {
      * Draw an ellipse -- a circle stretched to compensate for UV distortion
      * near the rim of the dome.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (in terms of pure white
      * pixels, &gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param uv star's texture coordinates (not null)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private void plotEllipseForDome(BufferedImage map, float luminosity,
+    private void plotEllipseForDome(Graphics2D graphics, float luminosity,
             int textureSize, Vector2f uv) {
-        assert map != null;
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert textureSize > 2 : textureSize;
         assert uv != null;
@@ -634,6 +737,8 @@ public class MakeStarMaps {
         float a = FastMath.sqrt(luminosity * stretchFactor / FastMath.PI);
         float b = a / stretchFactor;
 
+        int[] ellipseXs = new int[ellipseNumPoints];
+        int[] ellipseYs = new int[ellipseNumPoints];
         for (int i = 0; i < ellipseNumPoints; i++) {
             float theta = FastMath.TWO_PI * i / ellipseNumPoints;
             float da = a * FastMath.cos(theta);
@@ -645,7 +750,6 @@ public class MakeStarMaps {
             ellipseXs[i] = x;
             ellipseYs[i] = y;
         }
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(Color.WHITE); // TODO tint based on spectral type
         graphics.fillPolygon(ellipseXs, ellipseYs, ellipseNumPoints);
     }
@@ -654,16 +758,16 @@ public class MakeStarMaps {
      * Draw an ellipse -- a circle stretched to compensate for UV distortion
      * near the edges of the quad.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (&gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param worldDirection the star's world coordinates (length=1)
      * @param faceIndex which face of the cube (&ge;0, &lt;6)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private void plotEllipseForQuad(BufferedImage map, float luminosity,
+    private void plotEllipseForQuad(Graphics2D graphics, float luminosity,
             int textureSize, Vector3f worldDirection, int faceIndex) {
-        assert map != null;
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert textureSize > 2 : textureSize;
         assert worldDirection != null;
@@ -679,6 +783,8 @@ public class MakeStarMaps {
         float r = 1.2f * FastMath.sqrt(area);
 
         Vector3f p = new Vector3f();
+        int[] ellipseXs = new int[ellipseNumPoints];
+        int[] ellipseYs = new int[ellipseNumPoints];
         for (int i = 0; i < ellipseNumPoints; i++) {
             float theta = FastMath.TWO_PI * i / ellipseNumPoints;
             float rCos = r * FastMath.cos(theta);
@@ -694,69 +800,60 @@ public class MakeStarMaps {
             ellipseXs[i] = x;
             ellipseYs[i] = y;
         }
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(Color.WHITE); // TODO tint based on spectral type
         graphics.fillPolygon(ellipseXs, ellipseYs, ellipseNumPoints);
     }
 
     /**
-     * Plot a star's position at the specified time onto a cube.
+     * Plot a star's position at the specified time onto a texture map for a
+     * dome.
      *
-     * @param maps texture maps for 6 cube faces (not null, modified)
-     * @param star star to plot (not null)
+     * @param graphics graphics context of the texture map (not null)
+     * @param starIndex index of the star to plot in the catalog (&ge;0)
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plotStarOnCube(BufferedImage[] maps, Star star,
+    private boolean plotStarOnDome(Graphics2D graphics, int starIndex,
             float latitude, float siderealTime, int textureSize) {
-        assert maps != null;
-        assert maps.length == 6 : maps.length;
-        assert star != null;
+        assert graphics != null;
+        assert starIndex >= 0 : starIndex;
         assert latitude >= -FastMath.HALF_PI : latitude;
         assert latitude <= FastMath.HALF_PI : latitude;
         assert siderealTime >= 0f : siderealTime;
         assert siderealTime < FastMath.TWO_PI : siderealTime;
         assert textureSize > 2 : textureSize;
 
-        Vector3f equatorial = star.getEquatorialLocation(siderealTime);
-        /*
-         * Convert equatorial coordinates to world coordinates, where:
-         *   +X points to the north horizon
-         *   +Y points to the zenith
-         *   +Z points to the east horizon
-         *
-         * The conversion consists of a (latitude - Pi/2) rotation about the Y
-         * (east) axis followed by permutation of the axes.
-         */
-        float coLatitude = FastMath.HALF_PI - latitude;
-        Quaternion rotation = new Quaternion();
-        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
-        Vector3f rotated = rotation.mult(equatorial);
-        assert rotated.isUnitVector() : rotated;
-        Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
+        Vector3f equatorial
+                = catalog.equatorialLocation(starIndex, siderealTime);
+        Vector3f world = worldDirection(equatorial, latitude);
+        if (world.y < 0f) {
+            /*
+             * The star lies below the horizon, so skip it.
+             */
+            return false;
+        }
 
-        float apparentMagnitude = star.getApparentMagnitude();
-        boolean success = plotStarOnCube(maps, apparentMagnitude,
+        float apparentMagnitude = catalog.apparentMagnitude(starIndex);
+        boolean success = plotStarOnDome(graphics, apparentMagnitude,
                 textureSize, world);
 
         return success;
     }
 
     /**
-     * Plot a star onto a texture map for a cube.
+     * Plot a star on a texture map for a dome.
      *
-     * @param maps texture maps for 6 cube faces (not null, modified)
-     * @param apparentMagnitude the star's brightness (log scale)
+     * @param graphics graphics context of the texture map (not null)
+     * @param apparentMagnitude the star's brightness
      * @param textureSize size of the texture map (pixels per side, &lt;2)
      * @param worldDirection the star's world coordinates (length=1)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plotStarOnCube(BufferedImage[] maps,
+    private boolean plotStarOnDome(Graphics2D graphics,
             float apparentMagnitude, int textureSize, Vector3f worldDirection) {
-        assert maps != null;
-        assert maps.length == 6 : maps.length;
+        assert graphics != null;
         assert worldDirection != null;
         assert worldDirection.isUnitVector() : worldDirection;
         assert textureSize > 2 : textureSize;
@@ -764,102 +861,74 @@ public class MakeStarMaps {
          * Convert apparent magnitude to relative luminosity.
          */
         float resolution = textureSize / 2_048f;
-        float luminosity0 = 100f * resolution * resolution;
-        float luminosity = luminosity0 * 1.5f
+        float luminosity0 = 37f * resolution * resolution;
+        float luminosity = luminosity0
                 * FastMath.pow(pogsonsRatio, -apparentMagnitude);
         if (luminosity < luminosityCutoff) {
             return false;
         }
+        /*
+         * Convert world direction to texture coordinates on a dome.
+         */
+        Vector2f uv = domeMesh.directionUV(worldDirection);
 
-        boolean success = false;
-        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-            /*
-             * Convert world direction to texture coordinates on this
-             * face of the cube.
-             */
-            Vector2f uv = cubeUV(worldDirection, faceIndex);
-            if (uv != null) {
-                BufferedImage map = maps[faceIndex];
-
-                if (luminosity <= 37f) {
-                    boolean succ = plot4PointStar(map, luminosity,
-                            textureSize, uv);
-                    if (succ) {
-                        success = true;
-                    }
-                } else {
-                    plotEllipseForQuad(map, luminosity, textureSize,
-                            worldDirection, faceIndex);
-                    success = true;
-                }
-            }
+        if (luminosity <= 37f) {
+            boolean success
+                    = plot4PointStar(graphics, luminosity, textureSize, uv);
+            return success;
         }
-        return success;
+        plotEllipseForDome(graphics, luminosity, textureSize, uv);
+        return true;
     }
 
     /**
-     * Plot a star's position at the specified time onto a texture map for a
-     * dome.
+     * Plot a star's position at the specified time onto a texture map for
+     * one face of a cube.
      *
-     * @param map texture map (not null, modified)
-     * @param star star to plot (not null)
+     * @param graphics graphics context of the texture map (not null)
+     * @param starIndex index of the star to plot in the catalog (&ge;0)
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
+     * @param faceIndex which face of the cube (&ge;0, &lt;6)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plotStarOnDome(BufferedImage map, Star star, float latitude,
-            float siderealTime, int textureSize) {
-        assert map != null;
-        assert star != null;
+    private boolean plotStarOnFace(Graphics2D graphics, int starIndex,
+            float latitude, float siderealTime, int textureSize,
+            int faceIndex) {
+        assert graphics != null;
+        assert starIndex >= 0 : starIndex;
         assert latitude >= -FastMath.HALF_PI : latitude;
         assert latitude <= FastMath.HALF_PI : latitude;
         assert siderealTime >= 0f : siderealTime;
         assert siderealTime < FastMath.TWO_PI : siderealTime;
         assert textureSize > 2 : textureSize;
 
-        Vector3f equatorial = star.getEquatorialLocation(siderealTime);
-        /*
-         * Convert equatorial coordinates to world coordinates, where:
-         *   +X points to the north horizon
-         *   +Y points to the zenith
-         *   +Z points to the east horizon
-         *
-         * The conversion consists of a (latitude - Pi/2) rotation about the Y
-         * (east) axis followed by permutation of the axes.
-         */
-        float coLatitude = FastMath.HALF_PI - latitude;
-        Quaternion rotation = new Quaternion();
-        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
-        Vector3f rotated = rotation.mult(equatorial);
-        assert rotated.isUnitVector() : rotated;
-        if (rotated.z < 0f) {
-            /*
-             * The star lies below the horizon, so skip it.
-             */
-            return false;
-        }
-        Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
+        Vector3f equatorial
+                = catalog.equatorialLocation(starIndex, siderealTime);
+        Vector3f world = worldDirection(equatorial, latitude);
 
-        float apparentMagnitude = star.getApparentMagnitude();
-        boolean success = plotStarOnDome(map, apparentMagnitude,
-                textureSize, world);
+        float apparentMagnitude = catalog.apparentMagnitude(starIndex);
+        boolean success = plotStarOnFace(graphics, apparentMagnitude,
+                textureSize, world, faceIndex);
 
         return success;
     }
 
     /**
-     * Plot a star on a texture map for a dome.
+     * Plot a star onto a texture map for one face of a cube.
      *
-     * @param map texture map (not null)
-     * @param apparentMagnitude the star's brightness
+     * @param graphics graphics context of the texture map (not null)
+     * @param apparentMagnitude the star's brightness (log scale)
      * @param textureSize size of the texture map (pixels per side, &lt;2)
      * @param worldDirection the star's world coordinates (length=1)
+     * @param faceIndex which face of the cube (&ge;0, &lt;6)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plotStarOnDome(BufferedImage map, float apparentMagnitude,
-            int textureSize, Vector3f worldDirection) {
-        assert map != null;
+    private boolean plotStarOnFace(Graphics2D graphics,
+            float apparentMagnitude, int textureSize, Vector3f worldDirection,
+            int faceIndex) {
+        assert graphics != null;
         assert worldDirection != null;
         assert worldDirection.isUnitVector() : worldDirection;
         assert textureSize > 2 : textureSize;
@@ -867,36 +936,51 @@ public class MakeStarMaps {
          * Convert apparent magnitude to relative luminosity.
          */
         float resolution = textureSize / 2_048f;
-        float luminosity0 = 37f * resolution * resolution;
-        float luminosity = luminosity0
+        float luminosity0 = 100f * resolution * resolution;
+        float luminosity = luminosity0 * 1.5f
                 * FastMath.pow(pogsonsRatio, -apparentMagnitude);
         if (luminosity < luminosityCutoff) {
             return false;
         }
         /*
-         * Convert world direction to texture coordinates on a dome.
+         * Convert world direction to texture coordinates on this
+         * face of the cube.
          */
-        Vector2f uv = domeMesh.directionUV(worldDirection);
+        Vector2f uv = cubeUV(worldDirection, faceIndex);
+        if (uv == null) {
+            return false;
+        }
 
+        boolean success;
         if (luminosity <= 37f) {
-            boolean success = plot4PointStar(map, luminosity, textureSize, uv);
-            return success;
+            success = plot4PointStar(graphics, luminosity, textureSize, uv);
+        } else {
+            plotEllipseForQuad(graphics, luminosity, textureSize,
+                    worldDirection, faceIndex);
+            success = true;
         }
-        plotEllipseForDome(map, luminosity, textureSize, uv);
-        return true;
+
+        return success;
     }
 
     /**
-     * Read the star catalog and add each valid star to the collection.
+     * Read the star catalog and add each valid star to a collection.
+     *
+     * @param stars collection to add to (not null, modified)
+     * @return true if the entire catalog was read, otherwise false
      */
-    private void readCatalog() {
+    private boolean readCatalog(Collection<Star> stars) {
+        assert stars != null;
+
+        boolean result = false;
         File catalogFile = new File(catalogFilePath);
         FileReader fileReader = null;
         BufferedReader bufferedReader = null;
         try {
             fileReader = new FileReader(catalogFile);
             bufferedReader = new BufferedReader(fileReader);
-            readCatalog(bufferedReader);
+            readCatalog(bufferedReader, stars);
+            result = true;
         } catch (FileNotFoundException exception) {
             logger.log(Level.SEVERE, "unable to open {0}",
                     MyString.quote(catalogFilePath));
@@ -919,15 +1003,22 @@ public class MakeStarMaps {
                         MyString.quote(catalogFilePath));
             }
         }
+
+        return result;
     }
 
     /**
-     * Read the catalog line by line and use the data therein to build up the
+     * Read the catalog line by line and use the data therein to build up a
      * collection of stars.
+     *
+     * @param bufferedReader reader for the catalog file (not null)
+     * @param stars collection to add to (not null, modified)
      */
-    private void readCatalog(BufferedReader bufferedReader)
+    private void readCatalog(BufferedReader bufferedReader,
+            Collection<Star> stars)
             throws IOException, InvalidEntryException {
         assert bufferedReader != null;
+        assert stars != null;
 
         int duplicateEntries = 0;
         int nextEntry = 1;
@@ -952,7 +1043,7 @@ public class MakeStarMaps {
                 continue;
             }
             String actualPrefix = textLine.substring(0, 4);
-            if (!actualPrefix.matches("[ ]*[0-9]+")) {
+            if (!entryIdPattern.matcher(actualPrefix).matches()) {
                 continue;
             }
             readEntries++;
@@ -1122,4 +1213,67 @@ public class MakeStarMaps {
         logger.log(Level.FINE, "result = {0}", result);
         return result;
     }
+
+    /**
+     * Start generating starry sky texture map(s) for the specified preset
+     * and writing them to PNG files, using the common fork/join pool.
+     *
+     * @param preset map preset to generate (not null)
+     * @return a new task, already forked
+     */
+    private ForkJoinTask<?> submitMap(final StarMapPreset preset) {
+        assert preset != null;
+
+        RecursiveAction task = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                generateMap(preset);
+            }
+        };
+        ForkJoinPool.commonPool().execute(task);
+
+        return task;
+    }
+
+    /**
+     * Convert equatorial coordinates to world coordinates, where:
+     *   +X points to the north horizon
+     *   +Y points to the zenith
+     *   +Z points to the east horizon
+     *
+     * @param equatorial equatorial coordinates (length=1, unaffected)
+     * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
+     * @return a new unit vector
+     */
+    private Vector3f worldDirection(Vector3f equatorial, float latitude) {
+        assert equatorial != null;
+        /*
+         * The conversion consists of a (latitude - Pi/2) rotation about the Y
+         * (east) axis followed by permutation of the axes.
+         */
+        float coLatitude = FastMath.HALF_PI - latitude;
+        Quaternion rotation = new Quaternion();
+        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
+        Vector3f rotated = rotation.mult(equatorial);
+        assert rotated.isUnitVector() : rotated;
+        Vector3f result = new Vector3f(-rotated.x, rotated.z, rotated.y);
+
+        return result;
+    }
+
+    /**
+     * Write a texture map to a PNG file. Misc.writeMap() logs any I/O error,
+     * which is then rethrown unchecked, so that it propagates to the thread
+     * that joins the task.
+     *
+     * @param filePath path to the output file (not null, not empty)
+     * @param image image to be written (not null)
+     */
+    private static void writeMap(String filePath, RenderedImage image) {
+        try {
+            Misc.writeMap(filePath, image);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
 }
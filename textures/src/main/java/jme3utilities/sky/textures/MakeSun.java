@@ -29,10 +29,10 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
@@ -130,16 +130,18 @@ public class MakeSun {
         logger.log(Level.INFO, "working directory is {0}",
                 MyString.quote(userDir));
         /*
-         * Generate color image maps.
+         * Generate color image maps concurrently.
          */
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(4);
         if ("all".equals(styleName)) {
-            application.makeSun("chaotic");
-            application.makeSun("disc");
-            application.makeSun("hazy-disc");
-            application.makeSun("rayed");
+            tasks.add(application.makeSun("chaotic"));
+            tasks.add(application.makeSun("disc"));
+            tasks.add(application.makeSun("hazy-disc"));
+            tasks.add(application.makeSun("rayed"));
         } else {
-            application.makeSun(styleName);
+            tasks.add(application.makeSun(styleName));
         }
+        MapPipeline.joinAll(tasks);
     }
     // *************************************************************************
     // private methods
@@ -182,61 +184,66 @@ public class MakeSun {
     }
 
     /**
-     * Generate an image map for a disc with an optional surround.
+     * Start generating an image map for a disc with an optional surround.
      *
      * @param styleName (not null, not empty)
+     * @return a new task, already forked
      */
-    private void makeSun(String styleName) {
+    private ForkJoinTask<?> makeSun(String styleName) {
         assert styleName != null;
         assert styleName.length() > 0;
 
-        try {
-            switch (styleName) {
-                case "chaotic":
-                    makeSun(styleName, 1f, 1.1f, -1);
-                    break;
-                case "disc":
-                    makeSun(styleName, 60f, 0f, 0);
-                    break;
-                case "hazy-disc":
-                    makeSun(styleName, 60f, 0.25f, 0);
-                    break;
-                case "rayed":
-                    makeSun(styleName, 60f, 1f, 16);
-                    break;
-                default:
-                    logger.log(Level.SEVERE, "style={0}", styleName);
-                    throw new IllegalArgumentException("unknown style");
-            }
-        } catch (IOException exception) {
+        ForkJoinTask<?> result;
+        switch (styleName) {
+            case "chaotic":
+                result = makeSun(styleName, 1f, 1.1f, -1);
+                break;
+            case "disc":
+                result = makeSun(styleName, 60f, 0f, 0);
+                break;
+            case "hazy-disc":
+                result = makeSun(styleName, 60f, 0.25f, 0);
+                break;
+            case "rayed":
+                result = makeSun(styleName, 60f, 1f, 16);
+                break;
+            default:
+                logger.log(Level.SEVERE, "style={0}", styleName);
+                throw new IllegalArgumentException("unknown style");
         }
+
+        return result;
     }
 
     /**
-     * Generate an image map for a disc with an optional surround.
+     * Start generating an image map for a disc with an optional surround and
+     * writing it to a PNG file.
      *
      * @param styleName (not null, not empty)
      * @param discSharpness alpha slope inside the disc's edge (&gt;0)
      * @param surroundAlpha opacity of the surround at the disc's edge (&ge;0)
      * @param numRays number of rays in the surround (&gt;0, or 0 for a circular
      * haze, or -1 for a chaotic surround)
+     * @return a new task, already forked
      */
-    private void makeSun(String styleName, float discSharpness,
-            float surroundAlpha, int numRays)
-            throws IOException {
+    private ForkJoinTask<?> makeSun(String styleName, float discSharpness,
+            float surroundAlpha, int numRays) {
         assert styleName != null;
         assert styleName.length() > 0;
         assert discSharpness > 0f : discSharpness;
         assert surroundAlpha >= 0f : surroundAlpha;
         assert numRays >= -1 : numRays;
 
-        RenderedImage image = makeSun(discSharpness, surroundAlpha, numRays);
+        PixelFunction function = makeSun(discSharpness, surroundAlpha, numRays);
         String filePath = String.format("%s/%s.png", outputDirPath, styleName);
-        Misc.writeMap(filePath, image);
+        ForkJoinTask<?> result = MapPipeline.submit(filePath, textureSize,
+                textureSize, BufferedImage.TYPE_4BYTE_ABGR, function);
+
+        return result;
     }
 
     /**
-     * Generate an image map for a disc with an optional surround.
+     * Create a pixel function for a disc with an optional surround.
      *
      * @param discSharpness alpha slope inside the disc's edge (&gt;0)
      * @param surroundAlpha opacity of the surround at the disc's edge (&ge;0)
@@ -244,24 +251,17 @@ public class MakeSun {
      * haze, or -1 for a chaotic surround)
      * @return new instance
      */
-    private RenderedImage makeSun(float discSharpness, float surroundAlpha,
-            int numRays) {
+    private PixelFunction makeSun(final float discSharpness,
+            final float surroundAlpha, final int numRays) {
         assert discSharpness > 0f : discSharpness;
         assert surroundAlpha >= 0f : surroundAlpha;
         assert numRays >= -1 : numRays;
-        /*
-         * Create a blank, color buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D graphics = map.createGraphics();
-        /*
-         * Compute the opacity of each pixel.
-         */
-        for (int x = 0; x < textureSize; x++) {
-            float u = ((float) x) / textureSize;
-            float du = u - 0.5f;
-            for (int y = 0; y < textureSize; y++) {
+
+        PixelFunction result = new PixelFunction() {
+            @Override
+            public void evaluate(int x, int y, float[] storeResult) {
+                float u = ((float) x) / textureSize;
+                float du = u - 0.5f;
                 float v = ((float) y) / textureSize;
                 float dv = v - 0.5f;
                 /*
@@ -275,7 +275,9 @@ public class MakeSun {
                 float indent = indent(theta, numRays);
                 float surroundRadius = FastMath.interpolateLinear(indent,
                         maxSurroundRadius, discRadius);
-
+                /*
+                 * Compute the opacity of the pixel.
+                 */
                 float alpha = discSharpness * (discRadius - r);
                 if (surroundRadius > discRadius) {
                     float hazeAlpha = surroundAlpha * (surroundRadius - r)
@@ -283,10 +285,11 @@ public class MakeSun {
                     alpha = Math.max(alpha, hazeAlpha);
                 }
                 alpha = FastMath.saturate(alpha);
-                Misc.setGrayPixel(graphics, x, y, 1f, alpha);
+                storeResult[0] = 1f;
+                storeResult[1] = alpha;
             }
-        }
+        };
 
-        return map;
+        return result;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky.textures;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Utility methods to generate texture maps in parallel. Each map is divided
+ * into tiles whose pixels are written directly into the map's raster data,
+ * and independent maps are generated and written concurrently.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class MapPipeline {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * maximum number of pixels per fork/join leaf task (64x64)
+     */
+    final private static int leafPixels = 4_096;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(MapPipeline.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private MapPipeline() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Wait for the specified tasks to complete.
+     *
+     * @param tasks tasks returned by {@link #submit(java.lang.String, int,
+     * int, int, jme3utilities.sky.textures.PixelFunction)} (not null,
+     * unaffected)
+     */
+    static void joinAll(List<ForkJoinTask<?>> tasks) {
+        Validate.nonNull(tasks, "tasks");
+
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Generate a texture map by evaluating a function for every pixel, using
+     * the common fork/join pool.
+     *
+     * @param width width of the map (in pixels, &gt;0)
+     * @param height height of the map (in pixels, &gt;0)
+     * @param imageType BufferedImage.TYPE_BYTE_GRAY or
+     * BufferedImage.TYPE_4BYTE_ABGR
+     * @param function function to evaluate (not null, thread-safe)
+     * @return a new image
+     */
+    static BufferedImage render(int width, int height, int imageType,
+            PixelFunction function) {
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        Validate.nonNull(function, "function");
+
+        boolean gray;
+        switch (imageType) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+                gray = true;
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                gray = false;
+                break;
+            default:
+                logger.log(Level.SEVERE, "imageType={0}", imageType);
+                throw new IllegalArgumentException("unsupported image type");
+        }
+        /*
+         * Create a blank buffered image and access its raster data.
+         */
+        BufferedImage result = new BufferedImage(width, height, imageType);
+        DataBufferByte buffer
+                = (DataBufferByte) result.getRaster().getDataBuffer();
+        byte[] data = buffer.getData();
+
+        TileTask task = new TileTask(function, gray, data, width,
+                0, width, 0, height, leafPixels);
+        ForkJoinPool.commonPool().invoke(task);
+
+        return result;
+    }
+
+    /**
+     * Start generating a texture map and writing it to a PNG file, using the
+     * common fork/join pool. Encoding one map overlaps with generating the
+     * others. The file is written as a managed block (see {@link MapTask}),
+     * so blocking I/O doesn't starve the pool.
+     *
+     * @param filePath path to the output file (not null, not empty)
+     * @param width width of the map (in pixels, &gt;0)
+     * @param height height of the map (in pixels, &gt;0)
+     * @param imageType BufferedImage.TYPE_BYTE_GRAY or
+     * BufferedImage.TYPE_4BYTE_ABGR
+     * @param function function to evaluate (not null, thread-safe)
+     * @return a new task, already forked
+     */
+    static ForkJoinTask<?> submit(String filePath, int width, int height,
+            int imageType, PixelFunction function) {
+        Validate.nonEmpty(filePath, "path");
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        Validate.nonNull(function, "function");
+
+        MapTask task
+                = new MapTask(filePath, width, height, imageType, function);
+        ForkJoinPool.commonPool().execute(task);
+
+        return task;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky.textures;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import jme3utilities.Misc;
+
+/**
+ * Fork/join task to generate a texture map and write it to a PNG file. The
+ * pixels are generated by tile tasks in the task's own pool, but the file is
+ * written as a managed block, so the pool can compensate for the blocked
+ * worker instead of stalling the other maps.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class MapTask
+        extends RecursiveAction
+        implements ForkJoinPool.ManagedBlocker {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * rendered map, or null if not yet rendered (set by #compute())
+     */
+    private BufferedImage image = null;
+    /**
+     * true once the file has been written, otherwise false (set by #block())
+     */
+    private boolean written = false;
+    /**
+     * height of the map (in pixels, &gt;0)
+     */
+    final private int height;
+    /**
+     * BufferedImage.TYPE_BYTE_GRAY or BufferedImage.TYPE_4BYTE_ABGR
+     */
+    final private int imageType;
+    /**
+     * width of the map (in pixels, &gt;0)
+     */
+    final private int width;
+    /**
+     * function to evaluate (not null)
+     */
+    final private PixelFunction function;
+    /**
+     * path to the output file (not null, not empty)
+     */
+    final private String filePath;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified map.
+     *
+     * @param filePath path to the output file (not null, not empty)
+     * @param width width of the map (in pixels, &gt;0)
+     * @param height height of the map (in pixels, &gt;0)
+     * @param imageType BufferedImage.TYPE_BYTE_GRAY or
+     * BufferedImage.TYPE_4BYTE_ABGR
+     * @param function function to evaluate (not null, thread-safe, alias
+     * created)
+     */
+    MapTask(String filePath, int width, int height, int imageType,
+            PixelFunction function) {
+        assert filePath != null;
+        assert !filePath.isEmpty();
+        assert width > 0 : width;
+        assert height > 0 : height;
+        assert function != null;
+
+        this.filePath = filePath;
+        this.width = width;
+        this.height = height;
+        this.imageType = imageType;
+        this.function = function;
+    }
+    // *************************************************************************
+    // ManagedBlocker methods
+
+    /**
+     * Write the rendered map to the output file.
+     *
+     * @return true
+     */
+    @Override
+    public boolean block() {
+        assert image != null;
+
+        try {
+            Misc.writeMap(filePath, image);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+        written = true;
+
+        return true;
+    }
+
+    /**
+     * Test whether the output file has been written.
+     *
+     * @return true if written, otherwise false
+     */
+    @Override
+    public boolean isReleasable() {
+        return written;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Render the map and then write it to the output file.
+     */
+    @Override
+    protected void compute() {
+        image = MapPipeline.render(width, height, imageType, function);
+        try {
+            ForkJoinPool.managedBlock(this);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+    }
+}
@@ -96,6 +96,15 @@ class Star implements Comparable<Star> {
         return apparentMagnitude;
     }
 
+    /**
+     * Read the declination of the star.
+     *
+     * @return radians north of the celestial equator (&le;Pi/2, &ge;-Pi/2)
+     */
+    float getDeclination() {
+        return declination;
+    }
+
     /**
      * Compute a star's position in a right-handed Cartesian equatorial
      * coordinate system where:<ul>
@@ -129,6 +138,15 @@ class Star implements Comparable<Star> {
         assert result.isUnitVector() : result;
         return result;
     }
+
+    /**
+     * Read the right ascension of the star.
+     *
+     * @return radians east of the March equinox (&lt;2*Pi, &ge;0)
+     */
+    float getRightAscension() {
+        return rightAscension;
+    }
     // *************************************************************************
     // Comparable methods
 
@@ -185,24 +203,4 @@ class Star implements Comparable<Star> {
         int code = Float.valueOf(sum).hashCode();
         return code;
     }
-    // *************************************************************************
-    // private methods
-
-    /**
-     * Read the declination of the star.
-     *
-     * @return
-     */
-    private float getDeclination() {
-        return declination;
-    }
-
-    /**
-     * Read the right ascension of the star.
-     *
-     * @return
-     */
-    private float getRightAscension() {
-        return rightAscension;
-    }
 }
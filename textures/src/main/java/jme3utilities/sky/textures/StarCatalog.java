@@ -0,0 +1,522 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky.textures;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.MyString;
+
+/**
+ * An immutable star catalog in columnar form, used by MakeStarMaps. Stars are
+ * stored in the order of their collection (faintest first), and indexed by
+ * sky sector so that a texture map need only visit the stars that can land
+ * on it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class StarCatalog {
+    // *************************************************************************
+    // constants
+
+    /**
+     * angular height of each sector (in radians)
+     */
+    final private static double sectorHeight = Math.PI / 18.0;
+    /**
+     * angular width of each sector (in radians of right ascension)
+     */
+    final private static double sectorWidth = Math.PI / 18.0;
+    /**
+     * extra angle added to the radius of each sector, to cover rounding
+     * errors (in radians)
+     */
+    final private static double sectorMargin = 0.01;
+    /**
+     * identifies a cache file written by this class ("BSC5" in ASCII)
+     */
+    final private static int cacheMagic = 0x42_53_43_35;
+    /**
+     * version of the cache file format
+     */
+    final private static int cacheVersion = 1;
+    /**
+     * number of sectors between the celestial poles
+     */
+    final private static int numBands = 18;
+    /**
+     * number of sectors around the celestial equator
+     */
+    final private static int numColumns = 36;
+    /**
+     * total number of sectors
+     */
+    final private static int numSectors = numBands * numColumns;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(StarCatalog.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * apparent brightness of each star (inverted logarithmic scale)
+     */
+    final private float[] apparentMagnitudes;
+    /**
+     * cosine of each star's declination
+     */
+    final private float[] cosDeclinations;
+    /**
+     * declination of each star (radians north of the celestial equator,
+     * &le;Pi/2, &ge;-Pi/2)
+     */
+    final private float[] declinations;
+    /**
+     * right ascension of each star (radians east of the March equinox,
+     * &lt;2*Pi, &ge;0)
+     */
+    final private float[] rightAscensions;
+    /**
+     * sine of each star's declination
+     */
+    final private float[] sinDeclinations;
+    /**
+     * celestial coordinates of the center of each sector, 3 per sector
+     */
+    final private double[] sectorCenters = new double[3 * numSectors];
+    /**
+     * maximum angle between the center of each sector and any point in it,
+     * plus the margin (in radians)
+     */
+    final private double[] sectorRadii = new double[numSectors];
+    /**
+     * index of each sector's first star in sectorStars, plus a final entry
+     * for the total
+     */
+    final private int[] sectorStarts = new int[numSectors + 1];
+    /**
+     * star indices grouped by sector, in ascending order within each sector
+     */
+    final private int[] sectorStars;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a catalog containing the specified stars.
+     *
+     * @param stars stars to include, in the desired order (not null,
+     * unaffected)
+     */
+    StarCatalog(Collection<Star> stars) {
+        assert stars != null;
+
+        int numStars = stars.size();
+        apparentMagnitudes = new float[numStars];
+        declinations = new float[numStars];
+        rightAscensions = new float[numStars];
+        int starIndex = 0;
+        for (Star star : stars) {
+            apparentMagnitudes[starIndex] = star.getApparentMagnitude();
+            declinations[starIndex] = star.getDeclination();
+            rightAscensions[starIndex] = star.getRightAscension();
+            ++starIndex;
+        }
+
+        cosDeclinations = new float[numStars];
+        sinDeclinations = new float[numStars];
+        sectorStars = new int[numStars];
+        initialize();
+    }
+
+    /**
+     * Instantiate a catalog from columns read from a cache file.
+     *
+     * @param apparentMagnitudes apparent brightness of each star (not null,
+     * alias created)
+     * @param declinations declination of each star (not null, alias created)
+     * @param rightAscensions right ascension of each star (not null, alias
+     * created)
+     */
+    private StarCatalog(float[] apparentMagnitudes, float[] declinations,
+            float[] rightAscensions) {
+        assert apparentMagnitudes != null;
+        assert declinations.length == apparentMagnitudes.length;
+        assert rightAscensions.length == apparentMagnitudes.length;
+
+        this.apparentMagnitudes = apparentMagnitudes;
+        this.declinations = declinations;
+        this.rightAscensions = rightAscensions;
+
+        int numStars = apparentMagnitudes.length;
+        cosDeclinations = new float[numStars];
+        sinDeclinations = new float[numStars];
+        sectorStars = new int[numStars];
+        initialize();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the apparent brightness of the indexed star.
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @return magnitude (inverted logarithmic scale)
+     */
+    float apparentMagnitude(int starIndex) {
+        return apparentMagnitudes[starIndex];
+    }
+
+    /**
+     * Compute the indexed star's position in a right-handed Cartesian
+     * equatorial coordinate system. The result is identical to that of
+     * {@link Star#getEquatorialLocation(float)}.
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @param siderealTime radians since sidereal midnight (&ge;0, &lt;2*Pi)
+     * @return a new unit vector
+     */
+    Vector3f equatorialLocation(int starIndex, float siderealTime) {
+        assert siderealTime >= 0f : siderealTime;
+        assert siderealTime < FastMath.TWO_PI : siderealTime;
+        /*
+         * Compute the hour angle.
+         */
+        float hourAngle = siderealTime - rightAscensions[starIndex];
+        /*
+         * Convert hour angle and declination to Cartesian coordinates.
+         */
+        float cosDec = cosDeclinations[starIndex];
+        float cosHA = FastMath.cos(hourAngle);
+        float sinDec = sinDeclinations[starIndex];
+        float sinHA = FastMath.sin(hourAngle);
+        float x = cosDec * cosHA;
+        float y = -cosDec * sinHA;
+        float z = sinDec;
+        Vector3f result = new Vector3f(x, y, z);
+
+        assert result.isUnitVector() : result;
+        return result;
+    }
+
+    /**
+     * Find all stars that might lie within the specified angle of an axis.
+     * Stars are culled by sector, so some stars outside the angle may be
+     * included, but no star inside it is omitted.
+     *
+     * @param axis direction of the axis, in celestial coordinates (+X toward
+     * the March equinox, +Z toward the north celestial pole, length=1,
+     * unaffected)
+     * @param maxAngle maximum angle from the axis (in radians, &ge;0)
+     * @return a new array of star indices, in ascending order
+     */
+    int[] findStars(Vector3f axis, double maxAngle) {
+        assert axis != null;
+        assert axis.isUnitVector() : axis;
+        assert maxAngle >= 0.0 : maxAngle;
+
+        int count = 0;
+        boolean[] selected = new boolean[numSectors];
+        for (int sectorIndex = 0; sectorIndex < numSectors; sectorIndex++) {
+            double dot = axis.x * sectorCenters[3 * sectorIndex]
+                    + axis.y * sectorCenters[3 * sectorIndex + 1]
+                    + axis.z * sectorCenters[3 * sectorIndex + 2];
+            dot = Math.max(-1.0, Math.min(1.0, dot));
+            double angle = Math.acos(dot);
+            if (angle <= maxAngle + sectorRadii[sectorIndex]) {
+                selected[sectorIndex] = true;
+                count += sectorStarts[sectorIndex + 1]
+                        - sectorStarts[sectorIndex];
+            }
+        }
+
+        int[] result = new int[count];
+        int resultIndex = 0;
+        for (int sectorIndex = 0; sectorIndex < numSectors; sectorIndex++) {
+            if (selected[sectorIndex]) {
+                int start = sectorStarts[sectorIndex];
+                int length = sectorStarts[sectorIndex + 1] - start;
+                System.arraycopy(sectorStars, start, result, resultIndex,
+                        length);
+                resultIndex += length;
+            }
+        }
+        assert resultIndex == count : resultIndex;
+        /*
+         * Restore the catalog order.
+         */
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    /**
+     * Count the stars in this catalog.
+     *
+     * @return count (&ge;0)
+     */
+    int numStars() {
+        return apparentMagnitudes.length;
+    }
+
+    /**
+     * Read a catalog from a cache file, provided the cache was written from
+     * the specified source file in its current state.
+     *
+     * @param cachePath path to the cache file (not null)
+     * @param sourceFile the catalog file the cache was written from (not
+     * null)
+     * @return a new catalog, or null if the cache is missing, stale, or
+     * unreadable
+     */
+    static StarCatalog readCache(String cachePath, File sourceFile) {
+        assert cachePath != null;
+        assert sourceFile != null;
+
+        File cacheFile = new File(cachePath);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        StarCatalog result = null;
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            int magic = input.readInt();
+            int version = input.readInt();
+            long sourceLength = input.readLong();
+            long sourceModified = input.readLong();
+            if (magic == cacheMagic && version == cacheVersion
+                    && sourceLength == sourceFile.length()
+                    && sourceModified == sourceFile.lastModified()) {
+                int numStars = input.readInt();
+                float[] magnitudes = readFloats(input, numStars);
+                float[] decs = readFloats(input, numStars);
+                float[] ras = readFloats(input, numStars);
+                result = new StarCatalog(magnitudes, decs, ras);
+                logger.log(Level.INFO, "read {0} stars from {1}",
+                        new Object[]{numStars, MyString.quote(cachePath)});
+            }
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "unable to read {0}",
+                    MyString.quote(cachePath));
+        }
+
+        return result;
+    }
+
+    /**
+     * Write this catalog to a cache file, attempting to overwrite any
+     * pre-existing file.
+     *
+     * @param cachePath path to the cache file (not null)
+     * @param sourceFile the catalog file this catalog was read from (not null)
+     * @throws IOException if the cache cannot be written
+     */
+    void writeCache(String cachePath, File sourceFile) throws IOException {
+        assert cachePath != null;
+        assert sourceFile != null;
+
+        File cacheFile = new File(cachePath);
+        File parentDirectory = cacheFile.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            boolean success = parentDirectory.mkdirs();
+            if (!success) {
+                throw new IOException();
+            }
+        }
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            output.writeInt(cacheMagic);
+            output.writeInt(cacheVersion);
+            output.writeLong(sourceFile.length());
+            output.writeLong(sourceFile.lastModified());
+            output.writeInt(numStars());
+            writeFloats(output, apparentMagnitudes);
+            writeFloats(output, declinations);
+            writeFloats(output, rightAscensions);
+        }
+        logger.log(Level.INFO, "wrote {0} stars to {1}",
+                new Object[]{numStars(), MyString.quote(cachePath)});
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Convert spherical coordinates to a celestial direction.
+     *
+     * @param rightAscension angle east of the March equinox (in radians)
+     * @param declination angle north of the celestial equator (in radians)
+     * @param storeResult storage for the result (not null, length&ge;3,
+     * modified)
+     */
+    private static void direction(double rightAscension, double declination,
+            double[] storeResult) {
+        double cosDec = Math.cos(declination);
+        storeResult[0] = cosDec * Math.cos(rightAscension);
+        storeResult[1] = cosDec * Math.sin(rightAscension);
+        storeResult[2] = Math.sin(declination);
+    }
+
+    /**
+     * Compute the trigonometric columns, the sector geometry, and the sector
+     * index.
+     */
+    private void initialize() {
+        int numStars = numStars();
+        int[] starSectors = new int[numStars];
+        for (int starIndex = 0; starIndex < numStars; starIndex++) {
+            float declination = declinations[starIndex];
+            cosDeclinations[starIndex] = FastMath.cos(declination);
+            sinDeclinations[starIndex] = FastMath.sin(declination);
+
+            int sectorIndex = sectorIndex(rightAscensions[starIndex],
+                    declination);
+            starSectors[starIndex] = sectorIndex;
+            ++sectorStarts[sectorIndex + 1];
+        }
+        /*
+         * Convert counts to starting positions and group the stars.
+         */
+        for (int sectorIndex = 0; sectorIndex < numSectors; sectorIndex++) {
+            sectorStarts[sectorIndex + 1] += sectorStarts[sectorIndex];
+        }
+        int[] nextPosition = Arrays.copyOf(sectorStarts, numSectors);
+        for (int starIndex = 0; starIndex < numStars; starIndex++) {
+            int sectorIndex = starSectors[starIndex];
+            sectorStars[nextPosition[sectorIndex]] = starIndex;
+            ++nextPosition[sectorIndex];
+        }
+        /*
+         * Compute the center and radius of each sector by sampling
+         * its boundary.
+         */
+        double[] center = new double[3];
+        double[] point = new double[3];
+        int numSteps = 8;
+        for (int band = 0; band < numBands; band++) {
+            double minDec = band * sectorHeight - Math.PI / 2.0;
+            for (int column = 0; column < numColumns; column++) {
+                double minRa = column * sectorWidth;
+                direction(minRa + sectorWidth / 2.0,
+                        minDec + sectorHeight / 2.0, center);
+
+                double maxAngle = 0.0;
+                for (int i = 0; i <= numSteps; i++) {
+                    double dRa = sectorWidth * i / numSteps;
+                    double dDec = sectorHeight * i / numSteps;
+                    for (int edge = 0; edge < 4; edge++) {
+                        double ra = minRa;
+                        double dec = minDec;
+                        if (edge == 0 || edge == 1) {
+                            ra += dRa;
+                            dec += (edge == 0) ? 0.0 : sectorHeight;
+                        } else {
+                            dec += dDec;
+                            ra += (edge == 2) ? 0.0 : sectorWidth;
+                        }
+                        direction(ra, dec, point);
+                        double dot = center[0] * point[0]
+                                + center[1] * point[1] + center[2] * point[2];
+                        dot = Math.max(-1.0, Math.min(1.0, dot));
+                        maxAngle = Math.max(maxAngle, Math.acos(dot));
+                    }
+                }
+
+                int sectorIndex = column + numColumns * band;
+                System.arraycopy(center, 0, sectorCenters, 3 * sectorIndex,
+                        3);
+                sectorRadii[sectorIndex] = maxAngle + sectorMargin;
+            }
+        }
+    }
+
+    /**
+     * Read an array of floats from a data stream.
+     *
+     * @param input the stream to read from (not null)
+     * @param count number of values to read (&ge;0)
+     * @return a new array
+     */
+    private static float[] readFloats(DataInputStream input, int count)
+            throws IOException {
+        if (count < 0) {
+            throw new IOException("negative count in cache");
+        }
+
+        float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = input.readFloat();
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine which sector contains the specified celestial coordinates.
+     *
+     * @param rightAscension radians east of the March equinox (&lt;2*Pi,
+     * &ge;0)
+     * @param declination radians north of the celestial equator (&le;Pi/2,
+     * &ge;-Pi/2)
+     * @return sector index (&ge;0, &lt;numSectors)
+     */
+    private static int sectorIndex(float rightAscension, float declination) {
+        int band = (int) ((declination + Math.PI / 2.0) / sectorHeight);
+        band = Math.max(0, Math.min(numBands - 1, band));
+        int column = (int) (rightAscension / sectorWidth);
+        column = Math.max(0, Math.min(numColumns - 1, column));
+        int result = column + numColumns * band;
+
+        return result;
+    }
+
+    /**
+     * Write an array of floats to a data stream.
+     *
+     * @param output the stream to write to (not null)
+     * @param values the values to write (not null, unaffected)
+     */
+    private static void writeFloats(DataOutputStream output, float[] values)
+            throws IOException {
+        for (float value : values) {
+            output.writeFloat(value);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky.textures;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to evaluate a pixel function over a rectangular tile of a
+ * texture map and store the results in the map's raster data.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class TileTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for 1-byte grayscale pixels, false for 4-byte ABGR pixels
+     */
+    final private boolean gray;
+    /**
+     * raster data of the map (not null)
+     */
+    final private byte[] data;
+    /**
+     * index of the first column past this tile (&gt;firstX)
+     */
+    final private int endX;
+    /**
+     * index of the first row past this tile (&gt;firstY)
+     */
+    final private int endY;
+    /**
+     * index of the first column in this tile (&ge;0)
+     */
+    final private int firstX;
+    /**
+     * index of the first row in this tile (&ge;0)
+     */
+    final private int firstY;
+    /**
+     * maximum number of pixels to evaluate without splitting the tile (&gt;0)
+     */
+    final private int leafPixels;
+    /**
+     * width of the map (in pixels, &ge;endX)
+     */
+    final private int width;
+    /**
+     * function to evaluate (not null)
+     */
+    final private PixelFunction function;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified tile.
+     *
+     * @param function function to evaluate (not null, alias created)
+     * @param gray true for 1-byte grayscale pixels, false for 4-byte ABGR
+     * pixels
+     * @param data raster data of the map (not null, alias created)
+     * @param width width of the map (in pixels, &ge;endX)
+     * @param firstX index of the first column in the tile (&ge;0)
+     * @param endX index of the first column past the tile (&gt;firstX)
+     * @param firstY index of the first row in the tile (&ge;0)
+     * @param endY index of the first row past the tile (&gt;firstY)
+     * @param leafPixels maximum number of pixels to evaluate without
+     * splitting (&gt;0)
+     */
+    TileTask(PixelFunction function, boolean gray, byte[] data, int width,
+            int firstX, int endX, int firstY, int endY, int leafPixels) {
+        assert function != null;
+        assert data != null;
+        assert firstX >= 0 : firstX;
+        assert endX > firstX : endX;
+        assert width >= endX : width;
+        assert firstY >= 0 : firstY;
+        assert endY > firstY : endY;
+        assert leafPixels > 0 : leafPixels;
+
+        this.function = function;
+        this.gray = gray;
+        this.data = data;
+        this.width = width;
+        this.firstX = firstX;
+        this.endX = endX;
+        this.firstY = firstY;
+        this.endY = endY;
+        this.leafPixels = leafPixels;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Evaluate the pixels in this tile, splitting its longer side in half
+     * until the tile is no larger than the leaf size.
+     */
+    @Override
+    protected void compute() {
+        int tileWidth = endX - firstX;
+        int tileHeight = endY - firstY;
+        if (tileWidth * tileHeight > leafPixels) {
+            TileTask low, high;
+            if (tileWidth >= tileHeight) {
+                int middleX = (firstX + endX) >>> 1;
+                low = new TileTask(function, gray, data, width,
+                        firstX, middleX, firstY, endY, leafPixels);
+                high = new TileTask(function, gray, data, width,
+                        middleX, endX, firstY, endY, leafPixels);
+            } else {
+                int middleY = (firstY + endY) >>> 1;
+                low = new TileTask(function, gray, data, width,
+                        firstX, endX, firstY, middleY, leafPixels);
+                high = new TileTask(function, gray, data, width,
+                        firstX, endX, middleY, endY, leafPixels);
+            }
+            invokeAll(low, high);
+            return;
+        }
+
+        float[] pixel = new float[2];
+        for (int y = firstY; y < endY; y++) {
+            for (int x = firstX; x < endX; x++) {
+                function.evaluate(x, y, pixel);
+                int brightness = toByte(pixel[0]);
+                int opacity = toByte(pixel[1]);
+                int pixelIndex = x + width * y;
+                if (gray) {
+                    /*
+                     * Blend over a black background.
+                     */
+                    int blend = (brightness * opacity + 127) / 255;
+                    data[pixelIndex] = (byte) blend;
+                } else {
+                    if (opacity == 0) {
+                        brightness = 0;
+                    }
+                    int byteIndex = 4 * pixelIndex;
+                    data[byteIndex] = (byte) opacity;
+                    data[byteIndex + 1] = (byte) brightness;
+                    data[byteIndex + 2] = (byte) brightness;
+                    data[byteIndex + 3] = (byte) brightness;
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Convert a color component to an unsigned byte, rounding the same way
+     * as java.awt.Color.
+     *
+     * @param component input value (&ge;0, &le;1)
+     * @return unsigned value (&ge;0, &le;255)
+     */
+    private static int toByte(float component) {
+        assert component >= 0f : component;
+        assert component <= 1f : component;
+
+        int result = (int) (component * 255f + 0.5f);
+        return result;
+    }
+}
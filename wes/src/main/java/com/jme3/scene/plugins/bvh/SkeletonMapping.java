@@ -18,6 +18,9 @@ import java.util.logging.Logger;
 /**
  * Data used to map poses from one skeleton to another: a collection of bone
  * mappings.
+ * <p>
+ * Instances are not thread-safe: lookups by source name may rebuild an
+ * internal index.
  *
  * @author Nehon
  */
@@ -37,6 +40,11 @@ public class SkeletonMapping implements Cloneable, Savable {
      * map from target-bone names to bone mappings
      */
     private Map<String, BoneMapping> mappings = new HashMap<>(50);
+    /**
+     * map from source-bone names to bone mappings, kept in sync with
+     * {@link #mappings} to make lookups by source name fast (not serialized)
+     */
+    private Map<String, BoneMapping> sourceIndex = new HashMap<>(50);
     // *************************************************************************
     // constructors
 
@@ -54,8 +62,7 @@ public class SkeletonMapping implements Cloneable, Savable {
      * @param mapping bone mapping (not null)
      */
     public void addMapping(BoneMapping mapping) {
-        String targetBoneName = mapping.getTargetName();
-        mappings.put(targetBoneName, mapping);
+        putMapping(mapping);
     }
 
     /**
@@ -63,6 +70,7 @@ public class SkeletonMapping implements Cloneable, Savable {
      */
     public void clear() {
         mappings.clear();
+        sourceIndex.clear();
     }
 
     /**
@@ -87,20 +95,38 @@ public class SkeletonMapping implements Cloneable, Savable {
     }
 
     /**
-     * Find the bone mapping for the named source bone.
+     * Find the bone mapping for the named source bone. If a bone mapping was
+     * renamed using {@link BoneMapping#setSourceName(java.lang.String)}, the
+     * source index gets rebuilt, so even this lookup modifies the mapping.
      *
      * @param sourceBoneName which source bone
      * @return the pre-existing instance, or null if none found
      */
     public BoneMapping getForSource(String sourceBoneName) {
-        BoneMapping result = null;
-        for (BoneMapping boneMapping : mappings.values()) {
-            String sourceName = boneMapping.getSourceName();
-            if (sourceName.equals(sourceBoneName)) {
-                result = boneMapping;
-                break;
+        BoneMapping result = sourceIndex.get(sourceBoneName);
+        if (result != null
+                && result.getSourceName().equals(sourceBoneName)) {
+            return result;
+        }
+        /*
+         * Either there's no such mapping or a bone mapping was renamed
+         * without going through renameSourceBone(), leaving the index stale.
+         * Scan the mappings to find out.
+         */
+        boolean isStale = (result != null);
+        if (!isStale) {
+            for (BoneMapping boneMapping : mappings.values()) {
+                String sourceName = boneMapping.getSourceName();
+                if (sourceName.equals(sourceBoneName)) {
+                    isStale = true;
+                    break;
+                }
             }
         }
+        if (isStale) {
+            rebuildSourceIndex();
+            result = sourceIndex.get(sourceBoneName);
+        }
 
         return result;
     }
@@ -162,7 +188,7 @@ public class SkeletonMapping implements Cloneable, Savable {
      */
     public BoneMapping map(String targetBone, String sourceBone) {
         BoneMapping mapping = new BoneMapping(targetBone, sourceBone);
-        mappings.put(targetBone, mapping);
+        putMapping(mapping);
 
         return mapping;
     }
@@ -181,7 +207,7 @@ public class SkeletonMapping implements Cloneable, Savable {
         BoneMapping boneMapping = mappings.get(targetName);
         if (boneMapping == null) {
             boneMapping = new BoneMapping(targetName, sourceName, twist);
-            mappings.put(targetName, boneMapping);
+            putMapping(boneMapping);
         } else {
             logger.log(Level.WARNING, "Multiple mappings for target bone {0}.",
                     targetName);
@@ -204,7 +230,7 @@ public class SkeletonMapping implements Cloneable, Savable {
             float twistAngle, Vector3f twistAxis) {
         BoneMapping mapping
                 = new BoneMapping(targetBone, sourceBone, twistAngle, twistAxis);
-        mappings.put(targetBone, mapping);
+        putMapping(mapping);
 
         return mapping;
     }
@@ -218,6 +244,11 @@ public class SkeletonMapping implements Cloneable, Savable {
         String targetBoneName = mapping.getTargetName();
         BoneMapping oldMapping = mappings.remove(targetBoneName);
         assert oldMapping == mapping;
+
+        String sourceBoneName = mapping.getSourceName();
+        if (sourceIndex.get(sourceBoneName) == mapping) {
+            rebuildSourceIndex();
+        }
     }
 
     /**
@@ -233,6 +264,7 @@ public class SkeletonMapping implements Cloneable, Savable {
                 boneMapping.setSourceName(newName);
             }
         }
+        rebuildSourceIndex();
     }
 
     /**
@@ -288,6 +320,7 @@ public class SkeletonMapping implements Cloneable, Savable {
         InputCapsule ic = im.getCapsule(this);
         mappings = (Map<String, BoneMapping>) ic.readStringSavableMap(
                 "mappings", new HashMap<String, BoneMapping>(50));
+        rebuildSourceIndex();
     }
 
     /**
@@ -301,4 +334,38 @@ public class SkeletonMapping implements Cloneable, Savable {
         OutputCapsule oc = ex.getCapsule(this);
         oc.writeStringSavableMap(mappings, "mappings", null);
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a bone mapping to the map and the source index, replacing any
+     * existing mapping for the same target bone.
+     *
+     * @param mapping bone mapping (not null)
+     */
+    private void putMapping(BoneMapping mapping) {
+        String targetBoneName = mapping.getTargetName();
+        BoneMapping oldMapping = mappings.put(targetBoneName, mapping);
+        if (oldMapping != null) {
+            rebuildSourceIndex();
+        } else {
+            String sourceBoneName = mapping.getSourceName();
+            if (!sourceIndex.containsKey(sourceBoneName)) {
+                sourceIndex.put(sourceBoneName, mapping);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the source index from scratch.
+     */
+    private void rebuildSourceIndex() {
+        sourceIndex.clear();
+        for (BoneMapping boneMapping : mappings.values()) {
+            String sourceBoneName = boneMapping.getSourceName();
+            if (!sourceIndex.containsKey(sourceBoneName)) {
+                sourceIndex.put(sourceBoneName, boneMapping);
+            }
+        }
+    }
 }
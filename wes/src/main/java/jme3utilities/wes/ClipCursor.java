@@ -0,0 +1,201 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyArray;
+
+/**
+ * Playback state for sampling a compiled clip: remembers the most recent
+ * keyframe for each distinct time sequence in the clip, so that sampling at
+ * steadily increasing times (normal playback) usually finds keyframes in
+ * constant time, falling back to a binary search when the time jumps backward
+ * or skips many keyframes. Also provides temporary storage for interpolation,
+ * including the Squad function.
+ * <p>
+ * A cursor may be used by only one thread at a time. Each independently
+ * animated character should have its own cursor.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ClipCursor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * maximum number of keyframes to step forward before resorting to a binary
+     * search
+     */
+    final private static int maxSteps = 4;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(ClipCursor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * clip sampled by this cursor (not null)
+     */
+    final private CompiledClip clip;
+    /**
+     * index of the most recent keyframe in each distinct time sequence
+     */
+    final private int[] previousIndices;
+    /**
+     * temporary storage for a keyframe rotation or a Squad intermediate
+     */
+    final private Quaternion rotation1 = new Quaternion();
+    /**
+     * temporary storage for a keyframe rotation or a Squad intermediate
+     */
+    final private Quaternion rotation2 = new Quaternion();
+    /**
+     * temporary storage for a keyframe vector
+     */
+    final private Vector3f vector1 = new Vector3f();
+    /**
+     * temporary storage for a keyframe vector
+     */
+    final private Vector3f vector2 = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cursor for the specified clip, positioned at the start.
+     *
+     * @param clip the clip to sample (not null, alias created)
+     */
+    public ClipCursor(CompiledClip clip) {
+        Validate.nonNull(clip, "clip");
+
+        this.clip = clip;
+        int numSequences = clip.countTimeSequences();
+        previousIndices = new int[numSequences];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the clip sampled by this cursor.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CompiledClip getClip() {
+        return clip;
+    }
+
+    /**
+     * Reposition this cursor at the start of its clip. Sampling works from any
+     * position, so this is merely an optimization before rewinding.
+     */
+    public void rewind() {
+        int numSequences = previousIndices.length;
+        for (int sequenceIndex = 0; sequenceIndex < numSequences;
+                sequenceIndex++) {
+            previousIndices[sequenceIndex] = 0;
+        }
+    }
+
+    /**
+     * Find the index of the last keyframe at or before the specified time,
+     * starting from the keyframe found previously. Equivalent to
+     * {@link jme3utilities.math.MyArray#findPreviousIndex(float, float[])}.
+     *
+     * @param sequenceIndex index of the time sequence in the clip (&ge;0)
+     * @param times the keyframe times of that sequence (not null, in strictly
+     * ascending order, unaffected)
+     * @param time the sample time (&ge;times[0])
+     * @return keyframe index (&ge;0, &lt;times.length)
+     */
+    int findPreviousIndex(int sequenceIndex, float[] times, float time) {
+        assert time >= times[0] : time;
+
+        int index = previousIndices[sequenceIndex];
+        int lastIndex = times.length - 1;
+        if (times[index] > time) {
+            /*
+             * The sample time has moved backward: search the whole sequence.
+             */
+            index = MyArray.findPreviousIndex(time, times);
+        } else {
+            int numSteps = 0;
+            while (index < lastIndex && times[index + 1] <= time) {
+                ++index;
+                ++numSteps;
+                if (numSteps > maxSteps) {
+                    index = MyArray.findPreviousIndex(time, times);
+                    break;
+                }
+            }
+        }
+        previousIndices[sequenceIndex] = index;
+
+        assert index >= 0 : index;
+        return index;
+    }
+
+    /**
+     * Access the 1st temporary rotation.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    Quaternion getRotation1() {
+        return rotation1;
+    }
+
+    /**
+     * Access the 2nd temporary rotation.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    Quaternion getRotation2() {
+        return rotation2;
+    }
+
+    /**
+     * Access the 1st temporary vector.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    Vector3f getVector1() {
+        return vector1;
+    }
+
+    /**
+     * Access the 2nd temporary vector.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    Vector3f getVector2() {
+        return vector2;
+    }
+}
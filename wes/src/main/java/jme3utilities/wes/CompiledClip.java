@@ -0,0 +1,638 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Track;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * The bone tracks of an animation, compiled for repeated sampling with
+ * specific tweening techniques. This is a performance optimization for
+ * playback: keyframe data are flattened into float arrays, tracks with
+ * identical keyframe times share a single time sequence, and spline
+ * coefficients are precomputed.
+ * <p>
+ * With linear techniques, sampling gives the same results as
+ * {@link TweenTransforms#transform(com.jme3.animation.Track, float, float,
+ * com.jme3.math.Transform, com.jme3.math.Transform)}. Spline techniques use
+ * precomputed {@link VectorCurve} and {@link RotationCurve} instances, which
+ * agree with TweenTransforms to within rounding error, apart from the signs of
+ * rotations. Either way, the {@link ClipCursor} locates keyframes, so
+ * sampling at steadily increasing times takes amortized constant time per
+ * track, and sampling creates no garbage except with the QuickSlerp, Slerp,
+ * and centripetal-spline techniques.
+ * <p>
+ * Instances are immutable and may be shared between threads, provided each
+ * thread samples with its own {@link ClipCursor}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CompiledClip {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CompiledClip.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * duration of the animation (in seconds, &ge;0)
+     */
+    final private float duration;
+    /**
+     * keyframe rotations of each track (4 floats per keyframe: x, y, z, w) or
+     * null if the track has none
+     */
+    final private float[][] rotations;
+    /**
+     * keyframe scales of each track (3 floats per keyframe) or null if the
+     * track has none
+     */
+    final private float[][] scales;
+    /**
+     * distinct sequences of keyframe times, each in strictly ascending order
+     */
+    final private float[][] sequences;
+    /**
+     * keyframe translations of each track (3 floats per keyframe) or null if
+     * the track has none
+     */
+    final private float[][] translations;
+    /**
+     * index of the first track for each bone, or -1 if the bone has none
+     */
+    final private int[] boneTracks;
+    /**
+     * index of the target bone of each track
+     */
+    final private int[] trackBones;
+    /**
+     * index of the time sequence of each track
+     */
+    final private int[] trackSequences;
+    /**
+     * precomputed rotation curve of each track, or null if not using splines
+     * for rotations
+     */
+    final private RotationCurve[] rotationCurves;
+    /**
+     * technique for rotations (not null)
+     */
+    final private TweenRotations tweenRotations;
+    /**
+     * technique for scales (not null)
+     */
+    final private TweenVectors tweenScales;
+    /**
+     * technique for translations (not null)
+     */
+    final private TweenVectors tweenTranslations;
+    /**
+     * precomputed scale curve of each track, or null if not using splines for
+     * scales
+     */
+    final private VectorCurve[] scaleCurves;
+    /**
+     * precomputed translation curve of each track, or null if not using
+     * splines for translations
+     */
+    final private VectorCurve[] translationCurves;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Compile the bone tracks of the specified animation for the specified
+     * techniques. Tracks of other types are ignored.
+     *
+     * @param animation the animation to compile (not null, unaffected)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     */
+    public CompiledClip(Animation animation, TweenTransforms techniques) {
+        Validate.nonNull(animation, "animation");
+        Validate.nonNull(techniques, "techniques");
+
+        duration = animation.getLength();
+        tweenRotations = techniques.getTweenRotations();
+        tweenScales = techniques.getTweenScales();
+        tweenTranslations = techniques.getTweenTranslations();
+
+        List<BoneTrack> trackList = new ArrayList<>();
+        int maxBoneIndex = -1;
+        Track[] tracks = animation.getTracks();
+        for (Track track : tracks) {
+            if (track instanceof BoneTrack) {
+                BoneTrack boneTrack = (BoneTrack) track;
+                trackList.add(boneTrack);
+                int boneIndex = boneTrack.getTargetBoneIndex();
+                maxBoneIndex = Math.max(maxBoneIndex, boneIndex);
+            }
+        }
+
+        int numTracks = trackList.size();
+        boneTracks = new int[maxBoneIndex + 1];
+        Arrays.fill(boneTracks, -1);
+        trackBones = new int[numTracks];
+        trackSequences = new int[numTracks];
+        rotations = new float[numTracks][];
+        scales = new float[numTracks][];
+        translations = new float[numTracks][];
+        rotationCurves = new RotationCurve[numTracks];
+        scaleCurves = new VectorCurve[numTracks];
+        translationCurves = new VectorCurve[numTracks];
+
+        List<float[]> sequenceList = new ArrayList<>(4);
+        for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+            BoneTrack track = trackList.get(trackIndex);
+            int boneIndex = track.getTargetBoneIndex();
+            trackBones[trackIndex] = boneIndex;
+            if (boneTracks[boneIndex] == -1) {
+                boneTracks[boneIndex] = trackIndex;
+            }
+
+            /*
+             * BoneTrack exposes its keyframe times without copying them,
+             * so copy them before sharing them with sequences and curves.
+             */
+            float[] times = track.getKeyFrameTimes().clone();
+            trackSequences[trackIndex] = addSequence(times, sequenceList);
+
+            Vector3f[] trackTranslations = track.getTranslations();
+            if (trackTranslations != null) {
+                translations[trackIndex] = flatten(trackTranslations);
+                if (isSpline(tweenTranslations)) {
+                    translationCurves[trackIndex] = tweenTranslations
+                            .precompute(times, duration, trackTranslations);
+                }
+            }
+            Quaternion[] trackRotations = track.getRotations();
+            if (trackRotations != null) {
+                rotations[trackIndex] = flatten(trackRotations);
+                if (isSpline(tweenRotations)) {
+                    rotationCurves[trackIndex] = tweenRotations
+                            .precompute(times, duration, trackRotations);
+                }
+            }
+            Vector3f[] trackScales = track.getScales();
+            if (trackScales != null) {
+                scales[trackIndex] = flatten(trackScales);
+                if (isSpline(tweenScales)) {
+                    scaleCurves[trackIndex] = tweenScales.precompute(times,
+                            duration, trackScales);
+                }
+            }
+        }
+
+        int numSequences = sequenceList.size();
+        sequences = sequenceList.toArray(new float[numSequences][]);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the distinct sequences of keyframe times in this clip.
+     *
+     * @return count (&ge;0)
+     */
+    public int countTimeSequences() {
+        int count = sequences.length;
+        assert count >= 0 : count;
+        return count;
+    }
+
+    /**
+     * Count the tracks in this clip.
+     *
+     * @return count (&ge;0)
+     */
+    public int countTracks() {
+        int count = trackBones.length;
+        assert count >= 0 : count;
+        return count;
+    }
+
+    /**
+     * Find the track for the indexed bone.
+     *
+     * @param boneIndex which bone (&ge;0)
+     * @return track index (&ge;0) or -1 if the bone has no track
+     */
+    public int findTrack(int boneIndex) {
+        Validate.nonNegative(boneIndex, "bone index");
+
+        int result = -1;
+        if (boneIndex < boneTracks.length) {
+            result = boneTracks[boneIndex];
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the duration of this clip.
+     *
+     * @return duration (in seconds, &ge;0)
+     */
+    public float getDuration() {
+        assert duration >= 0f : duration;
+        return duration;
+    }
+
+    /**
+     * Read the index of the target bone of the indexed track.
+     *
+     * @param trackIndex which track (&ge;0)
+     * @return bone index (&ge;0)
+     */
+    public int targetBoneIndex(int trackIndex) {
+        Validate.nonNegative(trackIndex, "track index");
+
+        int result = trackBones[trackIndex];
+        return result;
+    }
+
+    /**
+     * Calculate the transform of the indexed track at the specified time.
+     *
+     * @param trackIndex which track (&ge;0)
+     * @param time animation time (in seconds, &le;duration)
+     * @param cursor playback state (not null, created for this clip)
+     * @param storeResult (modified if not null)
+     * @return a transform (either storeResult or a new instance)
+     */
+    public Transform transform(int trackIndex, float time, ClipCursor cursor,
+            Transform storeResult) {
+        Validate.nonNegative(trackIndex, "track index");
+        Validate.nonNull(cursor, "cursor");
+        if (cursor.getClip() != this) {
+            throw new IllegalArgumentException("cursor is for another clip");
+        }
+        if (storeResult == null) {
+            storeResult = new Transform();
+        }
+
+        int sequenceIndex = trackSequences[trackIndex];
+        float[] times = sequences[sequenceIndex];
+        float[] trackTranslations = translations[trackIndex];
+        float[] trackRotations = rotations[trackIndex];
+        float[] trackScales = scales[trackIndex];
+        storeResult.loadIdentity();
+
+        int lastFrame = times.length - 1;
+        if (time > 0f && lastFrame > 0) {
+            Validate.inRange(time, "time", 0f, duration);
+        }
+        if (time <= 0f || lastFrame == 0 || time < times[0]) {
+            /*
+             * Copy the transform of the first frame.
+             */
+            if (trackTranslations != null) {
+                load(trackTranslations, 0, storeResult.getTranslation());
+            }
+            if (trackRotations != null) {
+                load(trackRotations, 0, storeResult.getRotation());
+            }
+            if (trackScales != null) {
+                load(trackScales, 0, storeResult.getScale());
+            }
+            return storeResult;
+        }
+        /*
+         * Interpolate between frames.
+         */
+        int index1 = cursor.findPreviousIndex(sequenceIndex, times, time);
+        if (trackTranslations != null) {
+            VectorCurve curve = translationCurves[trackIndex];
+            interpolate(tweenTranslations, curve, time, times, index1,
+                    trackTranslations, cursor, storeResult.getTranslation());
+        }
+        if (trackRotations != null) {
+            RotationCurve curve = rotationCurves[trackIndex];
+            interpolate(tweenRotations, curve, time, times, index1,
+                    trackRotations, cursor, storeResult.getRotation());
+        }
+        if (trackScales != null) {
+            VectorCurve curve = scaleCurves[trackIndex];
+            interpolate(tweenScales, curve, time, times, index1, trackScales,
+                    cursor, storeResult.getScale());
+        }
+
+        return storeResult;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find or add the specified time sequence in the specified list.
+     *
+     * @param times keyframe times (not null, unaffected, alias created if
+     * added)
+     * @param sequenceList list of distinct sequences (not null, added to)
+     * @return index of the sequence in the list (&ge;0)
+     */
+    private static int addSequence(float[] times, List<float[]> sequenceList) {
+        int numSequences = sequenceList.size();
+        for (int sequenceIndex = 0; sequenceIndex < numSequences;
+                sequenceIndex++) {
+            float[] sequence = sequenceList.get(sequenceIndex);
+            if (Arrays.equals(sequence, times)) {
+                return sequenceIndex;
+            }
+        }
+        sequenceList.add(times);
+
+        return numSequences;
+    }
+
+    /**
+     * Flatten an array of rotations.
+     *
+     * @param input rotations (not null, unaffected)
+     * @return a new array (4 floats per rotation)
+     */
+    private static float[] flatten(Quaternion[] input) {
+        int numRotations = input.length;
+        float[] result = new float[4 * numRotations];
+        for (int i = 0; i < numRotations; i++) {
+            Quaternion rotation = input[i];
+            result[4 * i] = rotation.getX();
+            result[4 * i + 1] = rotation.getY();
+            result[4 * i + 2] = rotation.getZ();
+            result[4 * i + 3] = rotation.getW();
+        }
+
+        return result;
+    }
+
+    /**
+     * Flatten an array of vectors.
+     *
+     * @param input vectors (not null, unaffected)
+     * @return a new array (3 floats per vector)
+     */
+    private static float[] flatten(Vector3f[] input) {
+        int numVectors = input.length;
+        float[] result = new float[3 * numVectors];
+        for (int i = 0; i < numVectors; i++) {
+            Vector3f vector = input[i];
+            result[3 * i] = vector.x;
+            result[3 * i + 1] = vector.y;
+            result[3 * i + 2] = vector.z;
+        }
+
+        return result;
+    }
+
+    /**
+     * Interpolate rotations using the specified technique, the same way as
+     * {@link TweenRotations#interpolate(float, float[], float,
+     * com.jme3.math.Quaternion[], com.jme3.math.Quaternion)}.
+     *
+     * @param technique technique to use (not null)
+     * @param curve precomputed curve, or null if not using splines
+     * @param time animation time (&gt;0, &ge;times[0], &le;duration)
+     * @param times keyframe times (not null, unaffected, length&gt;1)
+     * @param index1 index of the last keyframe at or before time
+     * @param samples flattened keyframe rotations (not null, unaffected)
+     * @param cursor playback state (not null)
+     * @param storeResult (not null, modified)
+     */
+    private void interpolate(TweenRotations technique, RotationCurve curve,
+            float time, float[] times, int index1, float[] samples,
+            ClipCursor cursor, Quaternion storeResult) {
+        if (curve != null) {
+            Quaternion tmp1 = cursor.getRotation1();
+            Quaternion tmp2 = cursor.getRotation2();
+            technique.interpolate(time, index1, curve, tmp1, tmp2,
+                    storeResult);
+            return;
+        }
+
+        boolean cyclic;
+        switch (technique) {
+            case LoopNlerp:
+            case LoopQuickSlerp:
+            case LoopSlerp:
+                cyclic = true;
+                break;
+            default:
+                cyclic = false;
+        }
+
+        int index2 = laterIndex(times, index1, cyclic);
+        if (index2 == -1) {
+            load(samples, index1, storeResult);
+        } else {
+            float t = lerpParameter(time, times, index1, index2);
+            Quaternion q1 = cursor.getRotation1();
+            Quaternion q2 = cursor.getRotation2();
+            load(samples, index1, q1);
+            load(samples, index2, q2);
+            technique.lerp(t, q1, q2, storeResult);
+        }
+    }
+
+    /**
+     * Interpolate vectors using the specified technique, the same way as
+     * {@link TweenVectors#interpolate(float, float[], float,
+     * com.jme3.math.Vector3f[], com.jme3.math.Vector3f)}.
+     *
+     * @param technique technique to use (not null)
+     * @param curve precomputed curve, or null if not using splines
+     * @param time animation time (&gt;0, &ge;times[0], &le;duration)
+     * @param times keyframe times (not null, unaffected, length&gt;1)
+     * @param index1 index of the last keyframe at or before time
+     * @param samples flattened keyframe vectors (not null, unaffected)
+     * @param cursor playback state (not null)
+     * @param storeResult (not null, modified)
+     */
+    private void interpolate(TweenVectors technique, VectorCurve curve,
+            float time, float[] times, int index1, float[] samples,
+            ClipCursor cursor, Vector3f storeResult) {
+        if (curve != null) {
+            technique.interpolate(time, index1, curve, storeResult);
+            return;
+        }
+
+        boolean cyclic = (technique == TweenVectors.LoopLerp);
+        int index2 = laterIndex(times, index1, cyclic);
+        if (index2 == -1) {
+            load(samples, index1, storeResult);
+        } else {
+            float t = lerpParameter(time, times, index1, index2);
+            Vector3f v1 = cursor.getVector1();
+            Vector3f v2 = cursor.getVector2();
+            load(samples, index1, v1);
+            load(samples, index2, v2);
+            MyVector3f.lerp(t, v1, v2, storeResult);
+        }
+    }
+
+    /**
+     * Test whether the specified rotation technique uses splines.
+     *
+     * @param technique which technique (not null)
+     * @return true if it uses splines, otherwise false
+     */
+    private static boolean isSpline(TweenRotations technique) {
+        switch (technique) {
+            case LoopSpline:
+            case Spline:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Test whether the specified vector technique uses splines.
+     *
+     * @param technique which technique (not null)
+     * @return true if it uses splines, otherwise false
+     */
+    private static boolean isSpline(TweenVectors technique) {
+        switch (technique) {
+            case Lerp:
+            case LoopLerp:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Determine the keyframe to interpolate toward, given the keyframe at or
+     * before the sample time.
+     *
+     * @param times keyframe times (not null, unaffected, length&gt;1)
+     * @param index1 index of the last keyframe at or before the sample time
+     * @param cyclic true for a cyclic technique, false for an acyclic one
+     * @return keyframe index (&ge;0) or -1 if keyframe index1 should be used
+     * as is
+     */
+    private int laterIndex(float[] times, int index1, boolean cyclic) {
+        int lastIndex = cyclic ? loopLastIndex(times) : -1;
+
+        int result;
+        if (lastIndex == -1) {
+            result = (index1 >= times.length - 1) ? -1 : index1 + 1;
+        } else if (index1 < lastIndex) {
+            result = index1 + 1;
+        } else {
+            result = 0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate the interpolation parameter between 2 keyframes. A later
+     * index of 0 signifies wrapping around the end of a cycle.
+     *
+     * @param time animation time (&ge;times[index1])
+     * @param times keyframe times (not null, unaffected)
+     * @param index1 index of the earlier keyframe (&ge;0)
+     * @param index2 index of the later keyframe (&ge;0)
+     * @return descaled parameter value (&ge;0, &le;1)
+     */
+    private float lerpParameter(float time, float[] times, int index1,
+            int index2) {
+        float interval;
+        if (index2 == 0) {
+            int lastIndex = loopLastIndex(times);
+            interval = duration - times[lastIndex];
+        } else {
+            interval = times[index2] - times[index1];
+        }
+        assert interval > 0f : interval;
+        float result = (time - times[index1]) / interval;
+
+        return result;
+    }
+
+    /**
+     * Copy the indexed rotation from a flattened array.
+     *
+     * @param data flattened rotations (not null, unaffected)
+     * @param index which rotation (&ge;0)
+     * @param storeResult (not null, modified)
+     */
+    private static void load(float[] data, int index, Quaternion storeResult) {
+        int offset = 4 * index;
+        storeResult.set(data[offset], data[offset + 1], data[offset + 2],
+                data[offset + 3]);
+    }
+
+    /**
+     * Copy the indexed vector from a flattened array.
+     *
+     * @param data flattened vectors (not null, unaffected)
+     * @param index which vector (&ge;0)
+     * @param storeResult (not null, modified)
+     */
+    private static void load(float[] data, int index, Vector3f storeResult) {
+        int offset = 3 * index;
+        storeResult.set(data[offset], data[offset + 1], data[offset + 2]);
+    }
+
+    /**
+     * Determine the index of the last keyframe to use for cyclic
+     * interpolation. A final keyframe at the end of the cycle is ignored, since
+     * it duplicates the first.
+     *
+     * @param times keyframe times (not null, unaffected, length&gt;1)
+     * @return keyframe index (&ge;1) or -1 to fall back on acyclic
+     * interpolation
+     */
+    private int loopLastIndex(float[] times) {
+        int last = times.length - 1;
+
+        int result;
+        if (times[last] != duration) {
+            result = last;
+        } else if (last > 1) {
+            result = last - 1;
+        } else {
+            result = -1;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Statistics gathered by a TrackCompressor: keyframe counts, storage sizes,
+ * and maximum errors, accumulated per target bone. Spatial tracks are
+ * accumulated under bone index -1.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CompressionReport {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * pseudo bone index used for spatial tracks
+     */
+    final public static int spatialIndex = -1;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CompressionReport.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * map from bone indices to accumulated statistics, in ascending order
+     */
+    final private Map<Integer, BoneStatistics> statistics = new TreeMap<>();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Accumulate statistics for a compressed track.
+     *
+     * @param boneIndex the track's target bone, or -1 for a spatial track
+     * @param oldKeyframes number of keyframes before compression (&ge;0)
+     * @param newKeyframes number of keyframes after compression (&ge;0)
+     * @param oldBytes size of the keyframe data before compression (&ge;0)
+     * @param newBytes size of the keyframe data after compression (&ge;0)
+     * @param translationError maximum translation error (&ge;0)
+     * @param angleError maximum rotation error (in radians, &ge;0)
+     * @param scaleError maximum scale error (&ge;0)
+     */
+    void addTrack(int boneIndex, int oldKeyframes, int newKeyframes,
+            int oldBytes, int newBytes, float translationError,
+            float angleError, float scaleError) {
+        assert boneIndex >= spatialIndex : boneIndex;
+        assert oldKeyframes >= 0 : oldKeyframes;
+        assert newKeyframes >= 0 : newKeyframes;
+        assert oldBytes >= 0 : oldBytes;
+        assert newBytes >= 0 : newBytes;
+        assert translationError >= 0f : translationError;
+        assert angleError >= 0f : angleError;
+        assert scaleError >= 0f : scaleError;
+
+        BoneStatistics bone = statistics.get(boneIndex);
+        if (bone == null) {
+            bone = new BoneStatistics();
+            statistics.put(boneIndex, bone);
+        }
+        bone.oldKeyframes += oldKeyframes;
+        bone.newKeyframes += newKeyframes;
+        bone.oldBytes += oldBytes;
+        bone.newBytes += newBytes;
+        bone.maxTranslationError
+                = Math.max(bone.maxTranslationError, translationError);
+        bone.maxAngleError = Math.max(bone.maxAngleError, angleError);
+        bone.maxScaleError = Math.max(bone.maxScaleError, scaleError);
+    }
+
+    /**
+     * Count the bytes of keyframe data saved by compression, summed over all
+     * tracks.
+     *
+     * @return count of bytes (may be negative)
+     */
+    public long countBytesSaved() {
+        long result = countOldBytes() - countNewBytes();
+        return result;
+    }
+
+    /**
+     * Count the bytes of keyframe data after compression, summed over all
+     * tracks.
+     *
+     * @return count of bytes (&ge;0)
+     */
+    public long countNewBytes() {
+        long result = 0L;
+        for (BoneStatistics bone : statistics.values()) {
+            result += bone.newBytes;
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the bytes of keyframe data before compression, summed over all
+     * tracks.
+     *
+     * @return count of bytes (&ge;0)
+     */
+    public long countOldBytes() {
+        long result = 0L;
+        for (BoneStatistics bone : statistics.values()) {
+            result += bone.oldBytes;
+        }
+
+        return result;
+    }
+
+    /**
+     * Enumerate the bones (and the spatial pseudo-bone) for which statistics
+     * have been gathered.
+     *
+     * @return a new list of bone indices, in ascending order
+     */
+    public List<Integer> listBones() {
+        List<Integer> result = new ArrayList<>(statistics.keySet());
+        return result;
+    }
+
+    /**
+     * Read the maximum rotation error for the indexed bone.
+     *
+     * @param boneIndex which bone (&ge;-1)
+     * @return angle (in radians, &ge;0) or 0 if no statistics
+     */
+    public float maxAngleError(int boneIndex) {
+        BoneStatistics bone = statistics.get(boneIndex);
+        float result = (bone == null) ? 0f : bone.maxAngleError;
+
+        return result;
+    }
+
+    /**
+     * Read the maximum scale error for the indexed bone.
+     *
+     * @param boneIndex which bone (&ge;-1)
+     * @return distance (&ge;0) or 0 if no statistics
+     */
+    public float maxScaleError(int boneIndex) {
+        BoneStatistics bone = statistics.get(boneIndex);
+        float result = (bone == null) ? 0f : bone.maxScaleError;
+
+        return result;
+    }
+
+    /**
+     * Read the maximum translation error for the indexed bone.
+     *
+     * @param boneIndex which bone (&ge;-1)
+     * @return distance (in local units, &ge;0) or 0 if no statistics
+     */
+    public float maxTranslationError(int boneIndex) {
+        BoneStatistics bone = statistics.get(boneIndex);
+        float result = (bone == null) ? 0f : bone.maxTranslationError;
+
+        return result;
+    }
+
+    /**
+     * Discard all statistics.
+     */
+    public void reset() {
+        statistics.clear();
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this report as a text table, one line per bone followed by a
+     * line of totals.
+     *
+     * @return descriptive string of text (not null)
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(80 * statistics.size() + 160);
+        builder.append(String.format(
+                "%8s %15s %19s %11s %11s %11s%n", "bone", "keyframes",
+                "bytes", "maxTransl", "maxAngle", "maxScale"));
+
+        int oldKeyframes = 0;
+        int newKeyframes = 0;
+        for (Map.Entry<Integer, BoneStatistics> entry
+                : statistics.entrySet()) {
+            int boneIndex = entry.getKey();
+            BoneStatistics bone = entry.getValue();
+            String name = (boneIndex == spatialIndex)
+                    ? "spatial" : Integer.toString(boneIndex);
+            builder.append(String.format(
+                    "%8s %6d -> %5d %8d -> %7d %11.3g %11.3g %11.3g%n", name,
+                    bone.oldKeyframes, bone.newKeyframes, bone.oldBytes,
+                    bone.newBytes, bone.maxTranslationError,
+                    bone.maxAngleError, bone.maxScaleError));
+            oldKeyframes += bone.oldKeyframes;
+            newKeyframes += bone.newKeyframes;
+        }
+
+        long oldBytes = countOldBytes();
+        long newBytes = countNewBytes();
+        builder.append(String.format(
+                "%8s %6d -> %5d %8d -> %7d  (%d bytes saved)%n", "total",
+                oldKeyframes, newKeyframes, oldBytes, newBytes,
+                oldBytes - newBytes));
+
+        return builder.toString();
+    }
+    // *************************************************************************
+    // private classes
+
+    /**
+     * Statistics accumulated for a single bone.
+     */
+    private static class BoneStatistics {
+        /**
+         * maximum rotation error (in radians)
+         */
+        float maxAngleError = 0f;
+        /**
+         * maximum scale error
+         */
+        float maxScaleError = 0f;
+        /**
+         * maximum translation error
+         */
+        float maxTranslationError = 0f;
+        /**
+         * number of keyframes after compression
+         */
+        int newKeyframes = 0;
+        /**
+         * number of keyframes before compression
+         */
+        int oldKeyframes = 0;
+        /**
+         * size of the keyframe data after compression (in bytes)
+         */
+        long newBytes = 0L;
+        /**
+         * size of the keyframe data before compression (in bytes)
+         */
+        long oldBytes = 0L;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.Skeleton;
+import com.jme3.math.Matrix4f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Evaluate poses and skinning matrices for a crowd of characters that share a
+ * skeleton, in parallel on a fork/join pool.
+ * <p>
+ * Each character has its own pose, animation, and animation time. The
+ * skinning matrices of all characters are written to a single direct buffer
+ * (the palette) in column-major order, ready for upload to the GPU: the matrix
+ * for bone b of character c starts at float index 16*(c*numBones + b).
+ * <p>
+ * While an evaluation is in progress, neither the skinner, its poses, nor
+ * their animations may be modified. {@link #start(TweenTransforms,
+ * java.util.concurrent.ForkJoinPool)} returns a task whose join() provides the
+ * join point before rendering.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CrowdSkinner {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of floats in each palette matrix
+     */
+    final private static int floatsPerMatrix = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CrowdSkinner.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * animation for each character, or null to use its pose as is
+     */
+    final private Animation[] animations;
+    /**
+     * animation time for each character (in seconds)
+     */
+    final private float[] times;
+    /**
+     * skinning matrices of all characters (direct buffer, capacity
+     * 16*numBones*numCharacters)
+     */
+    final private FloatBuffer palette;
+    /**
+     * number of bones in the shared skeleton (&ge;0)
+     */
+    final private int numBones;
+    /**
+     * reusable skinning matrices for each character
+     */
+    final private Matrix4f[][] matrices;
+    /**
+     * pose of each character (each one distinct)
+     */
+    final private Pose[] poses;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a skinner for the specified number of characters, each in
+     * bind pose with no animation.
+     *
+     * @param skeleton the skeleton shared by all characters (not null, alias
+     * created)
+     * @param numCharacters number of characters in the crowd (&ge;0)
+     */
+    public CrowdSkinner(Skeleton skeleton, int numCharacters) {
+        Validate.nonNull(skeleton, "skeleton");
+        Validate.nonNegative(numCharacters, "number of characters");
+
+        numBones = skeleton.getBoneCount();
+        animations = new Animation[numCharacters];
+        times = new float[numCharacters];
+        matrices = new Matrix4f[numCharacters][];
+        poses = new Pose[numCharacters];
+        for (int characterIndex = 0; characterIndex < numCharacters;
+                characterIndex++) {
+            matrices[characterIndex] = new Matrix4f[numBones];
+            poses[characterIndex] = new Pose(skeleton);
+        }
+
+        int numFloats = floatsPerMatrix * numBones * numCharacters;
+        palette = BufferUtils.createFloatBuffer(numFloats);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the bones in each pose.
+     *
+     * @return count (&ge;0)
+     */
+    public int countBones() {
+        assert numBones >= 0 : numBones;
+        return numBones;
+    }
+
+    /**
+     * Count the characters in the crowd.
+     *
+     * @return count (&ge;0)
+     */
+    public int countCharacters() {
+        int count = poses.length;
+        assert count >= 0 : count;
+        return count;
+    }
+
+    /**
+     * Evaluate all characters using the common fork/join pool and wait for
+     * completion.
+     *
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @see #evaluate(TweenTransforms, java.util.concurrent.ForkJoinPool)
+     */
+    public void evaluate(TweenTransforms techniques) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        evaluate(techniques, pool);
+    }
+
+    /**
+     * Evaluate all characters using the specified pool and wait for
+     * completion: pose each character that has an animation, then write the
+     * skinning matrices of every character to the palette.
+     *
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @param pool the pool to use (not null)
+     */
+    public void evaluate(TweenTransforms techniques, ForkJoinPool pool) {
+        Validate.nonNull(techniques, "techniques");
+        Validate.nonNull(pool, "pool");
+
+        int numCharacters = poses.length;
+        if (numCharacters > 0) {
+            SkinTask task = new SkinTask(this, techniques, 0, numCharacters);
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Access the animation of the indexed character.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @return the pre-existing instance, or null if none
+     */
+    public Animation getAnimation(int characterIndex) {
+        Validate.nonNegative(characterIndex, "character index");
+        Animation result = animations[characterIndex];
+        return result;
+    }
+
+    /**
+     * Access the palette of skinning matrices. Its contents are valid only
+     * after an evaluation has completed.
+     *
+     * @return the pre-existing direct buffer (not null, position=0)
+     */
+    public FloatBuffer getPalette() {
+        assert palette.position() == 0 : palette.position();
+        return palette;
+    }
+
+    /**
+     * Access the pose of the indexed character. The pose of a character
+     * without an animation may be configured directly.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @return the pre-existing instance (not null)
+     */
+    public Pose getPose(int characterIndex) {
+        Validate.nonNegative(characterIndex, "character index");
+        Pose result = poses[characterIndex];
+        return result;
+    }
+
+    /**
+     * Read the animation time of the indexed character.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @return time (in seconds)
+     */
+    public float getTime(int characterIndex) {
+        Validate.nonNegative(characterIndex, "character index");
+        float result = times[characterIndex];
+        return result;
+    }
+
+    /**
+     * Alter the animation and animation time of the indexed character.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @param animation the animation to use (alias created) or null to use
+     * the character's pose as is
+     * @param time animation time (in seconds, &ge;0, &le;animation length)
+     */
+    public void setAnimation(int characterIndex, Animation animation,
+            float time) {
+        Validate.nonNegative(characterIndex, "character index");
+        if (animation != null) {
+            float duration = animation.getLength();
+            Validate.inRange(time, "time", 0f, duration);
+        }
+
+        animations[characterIndex] = animation;
+        times[characterIndex] = time;
+    }
+
+    /**
+     * Alter the animation time of the indexed character.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @param time animation time (in seconds, &ge;0, &le;animation length)
+     */
+    public void setTime(int characterIndex, float time) {
+        Validate.nonNegative(characterIndex, "character index");
+        Animation animation = animations[characterIndex];
+        if (animation != null) {
+            float duration = animation.getLength();
+            Validate.inRange(time, "time", 0f, duration);
+        }
+
+        times[characterIndex] = time;
+    }
+
+    /**
+     * Start evaluating all characters on the specified pool, without waiting
+     * for completion. The caller must join the returned task before reading
+     * the palette or modifying the skinner.
+     *
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @param pool the pool to use (not null)
+     * @return a new task, already submitted to the pool
+     */
+    public ForkJoinTask<Void> start(TweenTransforms techniques,
+            ForkJoinPool pool) {
+        Validate.nonNull(techniques, "techniques");
+        Validate.nonNull(pool, "pool");
+
+        int numCharacters = poses.length;
+        SkinTask task = new SkinTask(this, techniques, 0, numCharacters);
+        pool.execute(task);
+
+        return task;
+    }
+
+    /**
+     * Evaluate the indexed character: pose it (if it has an animation) and
+     * write its skinning matrices to the palette. Invoked only by
+     * {@link SkinTask}.
+     *
+     * @param characterIndex which character (&ge;0)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     */
+    void evaluateCharacter(int characterIndex, TweenTransforms techniques) {
+        assert characterIndex >= 0 : characterIndex;
+        assert techniques != null;
+
+        Pose pose = poses[characterIndex];
+        Animation animation = animations[characterIndex];
+        if (animation != null) {
+            float time = times[characterIndex];
+            pose.setToAnimation(animation, time, techniques);
+        }
+        Matrix4f[] skinningMatrices = pose.skin(matrices[characterIndex]);
+        /*
+         * Use absolute puts so that concurrent tasks never share
+         * buffer state.
+         */
+        int index = floatsPerMatrix * numBones * characterIndex;
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            Matrix4f m = skinningMatrices[boneIndex];
+            palette.put(index, m.m00);
+            palette.put(index + 1, m.m10);
+            palette.put(index + 2, m.m20);
+            palette.put(index + 3, m.m30);
+            palette.put(index + 4, m.m01);
+            palette.put(index + 5, m.m11);
+            palette.put(index + 6, m.m21);
+            palette.put(index + 7, m.m31);
+            palette.put(index + 8, m.m02);
+            palette.put(index + 9, m.m12);
+            palette.put(index + 10, m.m22);
+            palette.put(index + 11, m.m32);
+            palette.put(index + 12, m.m03);
+            palette.put(index + 13, m.m13);
+            palette.put(index + 14, m.m23);
+            palette.put(index + 15, m.m33);
+            index += floatsPerMatrix;
+        }
+    }
+}
@@ -49,6 +49,9 @@ import jme3utilities.math.MyMath;
 
 /**
  * Encapsulate a pose for a particular skeleton.
+ * <p>
+ * Model transforms are cached and recalculated (in a single pass over the
+ * skeleton) only after the pose changes, so instances are not thread-safe.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -60,6 +63,11 @@ public class Pose implements JmeCloneable {
      * message logger for this class
      */
     final private static Logger logger = Logger.getLogger(Pose.class.getName());
+    /**
+     * number of floats per bone in the model-transform cache: 3 for the
+     * translation, 4 for the rotation, and 3 for the scale
+     */
+    final private static int floatsPerBone = 10;
     // *************************************************************************
     // fields
 
@@ -76,6 +84,53 @@ public class Pose implements JmeCloneable {
      * fields are ignored.
      */
     private Skeleton skeleton;
+    /**
+     * true if the cached model transforms are current, false if they must be
+     * recalculated before use
+     */
+    private boolean modelValid = false;
+    /**
+     * cached model transforms of all bones, indexed by bone (10 floats per
+     * bone), or null if not yet allocated
+     */
+    private float[] modelTransforms = null;
+    /**
+     * index of the parent of each bone (or -1 for a root bone), or null if not
+     * yet enumerated
+     */
+    private int[] parentIndices = null;
+    /**
+     * indices of all bones in pre-order, or null if not yet enumerated
+     */
+    private int[] preOrder = null;
+    /**
+     * temporary storage for a local transform
+     */
+    private Transform tmpLocal;
+    /**
+     * temporary storage for a model transform
+     */
+    private Transform tmpModel;
+    /**
+     * temporary storage for the model transform of a parent bone
+     */
+    private Transform tmpParent;
+    /**
+     * temporary storage for a rotation matrix
+     */
+    private Matrix3f tmpRotMatrix;
+    /**
+     * temporary storage for a rotation
+     */
+    private Quaternion tmpRotation;
+    /**
+     * temporary storage for a scale vector
+     */
+    private Vector3f tmpScale;
+    /**
+     * temporary storage for a translation vector
+     */
+    private Vector3f tmpTranslation;
     // *************************************************************************
     // constructors
 
@@ -99,6 +154,8 @@ public class Pose implements JmeCloneable {
             Transform transform = new Transform();
             transforms.add(transform);
         }
+
+        allocateTemporaries();
     }
     // *************************************************************************
     // new methods exposed
@@ -218,7 +275,7 @@ public class Pose implements JmeCloneable {
          * Apply the user/animation transform in a simple (yet peculiar) way
          * to obtain the bone's local transform.
          */
-        Transform user = userTransform(boneIndex, null);
+        Transform user = transforms.get(boneIndex);
         storeResult.getTranslation().addLocal(user.getTranslation());
         storeResult.getRotation().multLocal(user.getRotation());
         storeResult.getScale().multLocal(user.getScale());
@@ -236,15 +293,15 @@ public class Pose implements JmeCloneable {
      */
     public Vector3f modelLocation(int boneIndex, Vector3f storeResult) {
         Validate.nonNegative(boneIndex, "bone index");
-
-        Transform modelTransform = modelTransform(boneIndex, null);
-        Vector3f modelLocation = modelTransform.getTranslation();
         if (storeResult == null) {
-            storeResult = modelLocation;
-        } else {
-            storeResult.set(modelLocation);
+            storeResult = new Vector3f();
         }
 
+        updateModelTransforms();
+        int offset = floatsPerBone * boneIndex;
+        storeResult.set(modelTransforms[offset], modelTransforms[offset + 1],
+                modelTransforms[offset + 2]);
+
         return storeResult;
     }
 
@@ -259,23 +316,8 @@ public class Pose implements JmeCloneable {
     public Quaternion modelOrientation(int boneIndex, Quaternion storeResult) {
         Validate.nonNegative(boneIndex, "bone index");
 
-        Bone bone = skeleton.getBone(boneIndex);
-        Bone parentBone = bone.getParent();
-        if (parentBone == null) {
-            /*
-             * For a root bone, use the local rotation.
-             */
-            storeResult = localRotation(boneIndex, storeResult);
-        } else {
-            int parentIndex = skeleton.getBoneIndex(parentBone);
-            /*
-             * For a non-root bone, use the parent's model orientation
-             * times the local rotation.
-             */
-            storeResult = modelOrientation(parentIndex, storeResult);
-            Quaternion localRotation = localRotation(boneIndex, null);
-            storeResult.multLocal(localRotation);
-        }
+        updateModelTransforms();
+        storeResult = cachedOrientation(boneIndex, storeResult);
 
         return storeResult;
     }
@@ -291,32 +333,13 @@ public class Pose implements JmeCloneable {
      */
     public Transform modelTransform(int boneIndex, Transform storeResult) {
         Validate.nonNegative(boneIndex, "bone index");
-        /*
-         * Start with the bone's local transform.
-         */
-        storeResult = localTransform(boneIndex, storeResult);
-
-        Bone bone = skeleton.getBone(boneIndex);
-        Bone parentBone = bone.getParent();
-        if (parentBone != null) {
-            Transform local = storeResult.clone();
-
-            int parentIndex = skeleton.getBoneIndex(parentBone);
-            Transform parent = modelTransform(parentIndex, null);
-            /*
-             * Apply the parent's model transform in a very peculiar way
-             * to obtain the bone's model transform.
-             */
-            Vector3f mTranslation = storeResult.getTranslation();
-            Quaternion mRotation = storeResult.getRotation();
-            Vector3f mScale = storeResult.getScale();
-            parent.getRotation().mult(local.getRotation(), mRotation);
-            parent.getScale().mult(local.getScale(), mScale);
-            parent.getRotation().mult(local.getTranslation(), mTranslation);
-            mTranslation.multLocal(parent.getScale());
-            mTranslation.addLocal(parent.getTranslation());
+        if (storeResult == null) {
+            storeResult = new Transform();
         }
 
+        updateModelTransforms();
+        loadModelTransform(boneIndex, storeResult);
+
         return storeResult;
     }
 
@@ -327,22 +350,8 @@ public class Pose implements JmeCloneable {
      * @return a new array of indices
      */
     public int[] preOrderIndices() {
-        if (skeleton == null) {
-            return new int[0];
-        }
-
-        int boneCount = skeleton.getBoneCount();
-        List<Integer> indexList = new ArrayList<>(boneCount);
-        Bone[] roots = skeleton.getRoots();
-        for (Bone root : roots) {
-            addPreOrderIndices(root, indexList);
-        }
-        assert indexList.size() == boneCount : indexList.size();
-
-        int[] result = new int[boneCount];
-        for (int i = 0; i < boneCount; i++) {
-            result[i] = indexList.get(i);
-        }
+        enumerateBones();
+        int[] result = preOrder.clone();
 
         return result;
     }
@@ -358,6 +367,7 @@ public class Pose implements JmeCloneable {
         Transform transform = transforms.get(boneIndex);
         Quaternion rotation = transform.getRotation();
         rotation.loadIdentity();
+        modelValid = false;
     }
 
     /**
@@ -371,6 +381,7 @@ public class Pose implements JmeCloneable {
         Transform transform = transforms.get(boneIndex);
         Vector3f scale = transform.getScale();
         scale.set(1f, 1f, 1f);
+        modelValid = false;
     }
 
     /**
@@ -384,6 +395,7 @@ public class Pose implements JmeCloneable {
         Transform transform = transforms.get(boneIndex);
         Vector3f translation = transform.getTranslation();
         translation.zero();
+        modelValid = false;
     }
 
     /**
@@ -422,6 +434,7 @@ public class Pose implements JmeCloneable {
 
         Transform boneTransform = transforms.get(boneIndex);
         boneTransform.set(transform);
+        modelValid = false;
     }
 
     /**
@@ -436,6 +449,7 @@ public class Pose implements JmeCloneable {
 
         Transform boneTransform = transforms.get(boneIndex);
         boneTransform.setRotation(rotation);
+        modelValid = false;
     }
 
     /**
@@ -453,6 +467,7 @@ public class Pose implements JmeCloneable {
 
         Transform boneTransform = transforms.get(boneIndex);
         boneTransform.setScale(scale);
+        modelValid = false;
     }
 
     /**
@@ -467,6 +482,7 @@ public class Pose implements JmeCloneable {
 
         Transform boneTransform = transforms.get(boneIndex);
         boneTransform.setTranslation(translation);
+        modelValid = false;
     }
 
     /**
@@ -492,6 +508,7 @@ public class Pose implements JmeCloneable {
                 techniques.transform(track, time, duration, null, transform);
             }
         }
+        modelValid = false;
     }
 
     /**
@@ -503,6 +520,32 @@ public class Pose implements JmeCloneable {
             Transform transform = transforms.get(boneIndex);
             transform.loadIdentity();
         }
+        modelValid = false;
+    }
+
+    /**
+     * Configure this pose for the specified compiled clip at the specified
+     * time. Bones without tracks are put into bind pose.
+     *
+     * @param clip which clip (not null, unaffected)
+     * @param time animation time (in seconds)
+     * @param cursor playback state for the clip (not null)
+     */
+    public void setToClip(CompiledClip clip, float time, ClipCursor cursor) {
+        Validate.nonNull(clip, "clip");
+        Validate.nonNull(cursor, "cursor");
+
+        int numBones = transforms.size();
+        for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
+            Transform transform = transforms.get(boneIndex);
+            int trackIndex = clip.findTrack(boneIndex);
+            if (trackIndex == -1) {
+                transform.loadIdentity();
+            } else {
+                clip.transform(trackIndex, time, cursor, transform);
+            }
+        }
+        modelValid = false;
     }
 
     /**
@@ -515,10 +558,17 @@ public class Pose implements JmeCloneable {
         Validate.nonNull(sourcePose, "source pose");
         Validate.nonNull(map, "map");
 
-        Bone[] rootBones = skeleton.getRoots();
-        for (Bone rootBone : rootBones) {
-            retargetBones(rootBone, sourcePose, map);
+        /*
+         * Visit bones in pre-order, updating each bone's cached model
+         * transform as soon as it's configured, so that the parent's model
+         * orientation is always current when needed.
+         */
+        enumerateBones();
+        for (int boneIndex : preOrder) {
+            retargetBone(boneIndex, sourcePose, map);
+            updateModelTransform(boneIndex);
         }
+        modelValid = true;
     }
 
     /**
@@ -534,14 +584,15 @@ public class Pose implements JmeCloneable {
         } else {
             assert storeResult.length >= numBones : numBones;
         }
+        updateModelTransforms();
         /*
-         * Allocate temporary storage.
+         * Use temporary storage to avoid creating garbage.
          */
-        Vector3f skTranslation = new Vector3f();
-        Quaternion skRotation = new Quaternion();
-        Matrix3f skRotMatrix = new Matrix3f();
-        Vector3f skScale = new Vector3f();
-        Transform msTransform = new Transform();
+        Vector3f skTranslation = tmpTranslation;
+        Quaternion skRotation = tmpRotation;
+        Matrix3f skRotMatrix = tmpRotMatrix;
+        Vector3f skScale = tmpScale;
+        Transform msTransform = tmpModel;
 
         Vector3f msTranslation = msTransform.getTranslation();
         Quaternion msRotation = msTransform.getRotation();
@@ -549,7 +600,7 @@ public class Pose implements JmeCloneable {
 
         for (int boneIndex = 0; boneIndex < numBones; boneIndex++) {
             Bone bone = skeleton.getBone(boneIndex);
-            modelTransform(boneIndex, msTransform);
+            loadModelTransform(boneIndex, msTransform);
             /*
              * Calculate the skinning transform for the bone.
              * Compare with Bone.getOffsetTransform()
@@ -591,10 +642,11 @@ public class Pose implements JmeCloneable {
         Validate.nonNegative(boneIndex, "bone index");
         Validate.nonNull(modelOrientation, "model orienation");
 
+        updateModelTransforms();
         Bone bone = skeleton.getBone(boneIndex);
         Quaternion bind = bone.getBindRotation();
         Quaternion inverseBind = bind.inverse();
-        Quaternion local = localForModel(bone, modelOrientation, null);
+        Quaternion local = localForModel(boneIndex, modelOrientation, null);
         storeResult = inverseBind.mult(local, storeResult);
 
         return storeResult;
@@ -691,6 +743,11 @@ public class Pose implements JmeCloneable {
             transforms.add(tClone);
         }
 
+        clone.allocateTemporaries();
+        if (modelTransforms != null) {
+            clone.modelTransforms = modelTransforms.clone();
+        }
+
         return clone;
     }
     // *************************************************************************
@@ -715,6 +772,12 @@ public class Pose implements JmeCloneable {
             Transform tClone = t.clone();
             transforms.add(tClone);
         }
+
+        allocateTemporaries();
+        modelTransforms = null;
+        modelValid = false;
+        parentIndices = null;
+        preOrder = null;
     }
 
     /**
@@ -751,31 +814,127 @@ public class Pose implements JmeCloneable {
     }
 
     /**
-     * Calculate the local rotation for the specified bone to give it the
+     * Allocate temporary storage for this pose.
+     */
+    private void allocateTemporaries() {
+        tmpLocal = new Transform();
+        tmpModel = new Transform();
+        tmpParent = new Transform();
+        tmpRotMatrix = new Matrix3f();
+        tmpRotation = new Quaternion();
+        tmpScale = new Vector3f();
+        tmpTranslation = new Vector3f();
+    }
+
+    /**
+     * Copy the cached model orientation of the indexed bone, without checking
+     * whether the cache is current.
+     *
+     * @param boneIndex which bone to use (&ge;0)
+     * @param storeResult (modified if not null)
+     * @return orientation in model space (either storeResult or a new instance)
+     */
+    private Quaternion cachedOrientation(int boneIndex,
+            Quaternion storeResult) {
+        assert boneIndex >= 0 : boneIndex;
+        if (storeResult == null) {
+            storeResult = new Quaternion();
+        }
+
+        int offset = floatsPerBone * boneIndex + 3;
+        storeResult.set(modelTransforms[offset], modelTransforms[offset + 1],
+                modelTransforms[offset + 2], modelTransforms[offset + 3]);
+
+        return storeResult;
+    }
+
+    /**
+     * Enumerate the bones of the skeleton in pre-order, find the parent of each
+     * bone, and allocate the model-transform cache, unless that's already been
+     * done.
+     */
+    private void enumerateBones() {
+        if (preOrder != null) {
+            return;
+        }
+
+        int boneCount = transforms.size();
+        int[] parents = new int[boneCount];
+        int[] order = new int[boneCount];
+        if (skeleton != null) {
+            List<Integer> indexList = new ArrayList<>(boneCount);
+            Bone[] roots = skeleton.getRoots();
+            for (Bone root : roots) {
+                addPreOrderIndices(root, indexList);
+            }
+            assert indexList.size() == boneCount : indexList.size();
+
+            for (int i = 0; i < boneCount; i++) {
+                order[i] = indexList.get(i);
+            }
+            for (int boneIndex = 0; boneIndex < boneCount; boneIndex++) {
+                Bone bone = skeleton.getBone(boneIndex);
+                Bone parent = bone.getParent();
+                if (parent == null) {
+                    parents[boneIndex] = -1;
+                } else {
+                    parents[boneIndex] = skeleton.getBoneIndex(parent);
+                }
+            }
+        }
+
+        modelTransforms = new float[floatsPerBone * boneCount];
+        modelValid = false;
+        parentIndices = parents;
+        preOrder = order;
+    }
+
+    /**
+     * Copy the cached model transform of the indexed bone, without checking
+     * whether the cache is current.
+     *
+     * @param boneIndex which bone to use (&ge;0)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private void loadModelTransform(int boneIndex, Transform storeResult) {
+        assert boneIndex >= 0 : boneIndex;
+
+        float[] m = modelTransforms;
+        int offset = floatsPerBone * boneIndex;
+        storeResult.getTranslation().set(m[offset], m[offset + 1],
+                m[offset + 2]);
+        storeResult.getRotation().set(m[offset + 3], m[offset + 4],
+                m[offset + 5], m[offset + 6]);
+        storeResult.getScale().set(m[offset + 7], m[offset + 8],
+                m[offset + 9]);
+    }
+
+    /**
+     * Calculate the local rotation for the indexed bone to give it the
      * specified orientation in the coordinate system of an animated spatial.
+     * The cached model transform of the parent bone must be current.
      *
-     * @param bone which bone (not null, unaffected)
+     * @param boneIndex which bone (&ge;0)
      * @param modelOrientation desired orientation (not null, unaffected)
      * @param storeResult (modified if not null)
      * @return rotation (either storeResult or a new instance)
      */
-    private Quaternion localForModel(Bone bone, Quaternion modelOrientation,
-            Quaternion storeResult) {
-        assert bone != null;
+    private Quaternion localForModel(int boneIndex,
+            Quaternion modelOrientation, Quaternion storeResult) {
+        assert boneIndex >= 0 : boneIndex;
         assert modelOrientation != null;
         if (storeResult == null) {
             storeResult = new Quaternion();
         }
 
-        Bone parent = bone.getParent();
-        if (parent == null) {
+        int parentIndex = parentIndices[boneIndex];
+        if (parentIndex == -1) {
             storeResult.set(modelOrientation);
         } else {
-            int parentIndex = skeleton.getBoneIndex(parent);
             /*
              * Factor in the orientation of the parent bone.
              */
-            Quaternion parentMo = modelOrientation(parentIndex, null);
+            Quaternion parentMo = cachedOrientation(parentIndex, tmpRotation);
             Quaternion parentImo = parentMo.inverse();
             parentImo.mult(modelOrientation, storeResult);
         }
@@ -784,20 +943,20 @@ public class Pose implements JmeCloneable {
     }
 
     /**
-     * Configure the specified bone and its descendents by re-targeting the
-     * specified source pose. Note: recursive!
+     * Configure the indexed bone by re-targeting the specified source pose. The
+     * cached model transforms of the bone's ancestors must be current.
      *
-     * @param bone the bone to start with (not null, unaffected)
+     * @param targetIndex index of the bone to configure (&ge;0)
      * @param sourcePose which source pose to re-target (not null, unaffected)
      * @param map skeleton map to use (not null, unaffected)
      */
-    private void retargetBones(Bone bone, Pose sourcePose,
+    private void retargetBone(int targetIndex, Pose sourcePose,
             SkeletonMapping map) {
-        assert bone != null;
+        assert targetIndex >= 0 : targetIndex;
         assert sourcePose != null;
         assert map != null;
 
-        int targetIndex = skeleton.getBoneIndex(bone);
+        Bone bone = skeleton.getBone(targetIndex);
         Transform userTransform = transforms.get(targetIndex);
         userTransform.loadIdentity();
 
@@ -811,15 +970,78 @@ public class Pose implements JmeCloneable {
             int sourceIndex = sourcePose.findBone(sourceName);
             Quaternion mo = sourcePose.modelOrientation(sourceIndex, null);
 
-            Quaternion userRotation = userForModel(targetIndex, mo, null);
+            Quaternion bind = bone.getBindRotation();
+            Quaternion inverseBind = bind.inverse();
+            Quaternion local = localForModel(targetIndex, mo, null);
+            Quaternion userRotation = inverseBind.mult(local, local);
             Quaternion twist = boneMapping.getTwist();
             userRotation.mult(twist, userTransform.getRotation());
             userTransform.getRotation().normalizeLocal();
         }
+    }
+
+    /**
+     * Recalculate the cached model transform of the indexed bone. The cached
+     * model transform of its parent (if any) must be current.
+     *
+     * @param boneIndex which bone (&ge;0)
+     */
+    private void updateModelTransform(int boneIndex) {
+        assert boneIndex >= 0 : boneIndex;
+
+        Transform local = localTransform(boneIndex, tmpLocal);
+        Transform model;
+        int parentIndex = parentIndices[boneIndex];
+        if (parentIndex == -1) {
+            model = local;
+        } else {
+            Transform parent = tmpParent;
+            loadModelTransform(parentIndex, parent);
+            /*
+             * Apply the parent's model transform in a very peculiar way
+             * to obtain the bone's model transform.
+             */
+            model = tmpModel;
+            Vector3f mTranslation = model.getTranslation();
+            Quaternion mRotation = model.getRotation();
+            Vector3f mScale = model.getScale();
+            parent.getRotation().mult(local.getRotation(), mRotation);
+            parent.getScale().mult(local.getScale(), mScale);
+            parent.getRotation().mult(local.getTranslation(), mTranslation);
+            mTranslation.multLocal(parent.getScale());
+            mTranslation.addLocal(parent.getTranslation());
+        }
+
+        float[] m = modelTransforms;
+        int offset = floatsPerBone * boneIndex;
+        Vector3f translation = model.getTranslation();
+        m[offset] = translation.x;
+        m[offset + 1] = translation.y;
+        m[offset + 2] = translation.z;
+        Quaternion rotation = model.getRotation();
+        m[offset + 3] = rotation.getX();
+        m[offset + 4] = rotation.getY();
+        m[offset + 5] = rotation.getZ();
+        m[offset + 6] = rotation.getW();
+        Vector3f scale = model.getScale();
+        m[offset + 7] = scale.x;
+        m[offset + 8] = scale.y;
+        m[offset + 9] = scale.z;
+    }
+
+    /**
+     * Recalculate the cached model transforms of all bones in a single
+     * pre-order pass, unless they're already current.
+     */
+    private void updateModelTransforms() {
+        if (modelValid) {
+            return;
+        }
 
-        List<Bone> children = bone.getChildren();
-        for (Bone childBone : children) {
-            retargetBones(childBone, sourcePose, map);
+        enumerateBones();
+        for (int boneIndex : preOrder) {
+            updateModelTransform(boneIndex);
         }
+        modelValid = true;
     }
 }
@@ -0,0 +1,149 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.Skeleton;
+import com.jme3.scene.plugins.bvh.SkeletonMapping;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to re-target a range of animations.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class RetargetTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * animations to re-target (not null)
+     */
+    final private Animation[] sourceAnimations;
+    /**
+     * array to store the re-targeted animations in (not null)
+     */
+    final private Animation[] results;
+    /**
+     * index of the first animation past this task's range
+     */
+    final private int endIndex;
+    /**
+     * index of the first animation in this task's range (&ge;0)
+     */
+    final private int firstIndex;
+    /**
+     * skeleton map to use (not null)
+     */
+    final private SkeletonMapping map;
+    /**
+     * skeleton of the source animations (not null)
+     */
+    final private Skeleton sourceSkeleton;
+    /**
+     * skeleton of the re-targeted animations (not null)
+     */
+    final private Skeleton targetSkeleton;
+    /**
+     * tweening techniques to use (not null)
+     */
+    final private TweenTransforms techniques;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of animations.
+     *
+     * @param sourceAnimations animations to re-target (not null, alias
+     * created)
+     * @param sourceSkeleton (not null, alias created)
+     * @param targetSkeleton (not null, alias created)
+     * @param map skeleton map to use (not null, alias created)
+     * @param techniques tweening techniques to use (not null, alias created)
+     * @param results array to store the re-targeted animations in (not null,
+     * same length as sourceAnimations, alias created)
+     * @param firstIndex index of the first animation to re-target (&ge;0)
+     * @param endIndex index of the first animation past the range
+     * (&ge;firstIndex)
+     */
+    RetargetTask(Animation[] sourceAnimations, Skeleton sourceSkeleton,
+            Skeleton targetSkeleton, SkeletonMapping map,
+            TweenTransforms techniques, Animation[] results, int firstIndex,
+            int endIndex) {
+        assert sourceAnimations != null;
+        assert sourceSkeleton != null;
+        assert targetSkeleton != null;
+        assert map != null;
+        assert techniques != null;
+        assert results != null;
+        assert results.length == sourceAnimations.length : results.length;
+        assert firstIndex >= 0 : firstIndex;
+        assert endIndex >= firstIndex : endIndex;
+
+        this.sourceAnimations = sourceAnimations;
+        this.sourceSkeleton = sourceSkeleton;
+        this.targetSkeleton = targetSkeleton;
+        this.map = map;
+        this.techniques = techniques;
+        this.results = results;
+        this.firstIndex = firstIndex;
+        this.endIndex = endIndex;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Re-target the animations in this task's range, splitting the range in
+     * half until only one animation remains.
+     */
+    @Override
+    protected void compute() {
+        if (endIndex - firstIndex > 1) {
+            int middleIndex = (firstIndex + endIndex) >>> 1;
+            RetargetTask low = new RetargetTask(sourceAnimations,
+                    sourceSkeleton, targetSkeleton, map, techniques, results,
+                    firstIndex, middleIndex);
+            RetargetTask high = new RetargetTask(sourceAnimations,
+                    sourceSkeleton, targetSkeleton, map, techniques, results,
+                    middleIndex, endIndex);
+            invokeAll(low, high);
+
+        } else if (endIndex > firstIndex) {
+            Animation sourceAnimation = sourceAnimations[firstIndex];
+            String name = sourceAnimation.getName();
+            results[firstIndex] = TrackEdit.retargetAnimation(sourceAnimation,
+                    sourceSkeleton, targetSkeleton, map, techniques, name);
+        }
+    }
+}
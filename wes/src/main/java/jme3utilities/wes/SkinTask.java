@@ -0,0 +1,109 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to evaluate a range of characters in a crowd.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class SkinTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * skinner that owns the characters (not null)
+     */
+    final private CrowdSkinner skinner;
+    /**
+     * index of the first character past this task's range
+     */
+    final private int endCharacter;
+    /**
+     * index of the first character in this task's range (&ge;0)
+     */
+    final private int firstCharacter;
+    /**
+     * tweening techniques to use (not null)
+     */
+    final private TweenTransforms techniques;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of characters.
+     *
+     * @param skinner skinner that owns the characters (not null, alias
+     * created)
+     * @param techniques tweening techniques to use (not null, alias created)
+     * @param firstCharacter index of the first character to evaluate (&ge;0)
+     * @param endCharacter index of the first character past the range
+     * (&ge;firstCharacter)
+     */
+    SkinTask(CrowdSkinner skinner, TweenTransforms techniques,
+            int firstCharacter, int endCharacter) {
+        assert skinner != null;
+        assert techniques != null;
+        assert firstCharacter >= 0 : firstCharacter;
+        assert endCharacter >= firstCharacter : endCharacter;
+
+        this.skinner = skinner;
+        this.techniques = techniques;
+        this.firstCharacter = firstCharacter;
+        this.endCharacter = endCharacter;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Evaluate the characters in this task's range, splitting the range in
+     * half until only one character remains.
+     */
+    @Override
+    protected void compute() {
+        if (endCharacter - firstCharacter > 1) {
+            int middleCharacter = (firstCharacter + endCharacter) >>> 1;
+            SkinTask low = new SkinTask(skinner, techniques, firstCharacter,
+                    middleCharacter);
+            SkinTask high = new SkinTask(skinner, techniques, middleCharacter,
+                    endCharacter);
+            invokeAll(low, high);
+
+        } else if (endCharacter > firstCharacter) {
+            skinner.evaluateCharacter(firstCharacter, techniques);
+        }
+    }
+}
@@ -0,0 +1,670 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.wes;
+
+import com.jme3.animation.Animation;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.SpatialTrack;
+import com.jme3.animation.Track;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.MyAnimation;
+import jme3utilities.Validate;
+
+/**
+ * Error-bounded keyframe compression for bone/spatial tracks.
+ * <p>
+ * Compression starts from the first and last keyframes of a track. In each
+ * pass, the compressed track is interpolated (using the configured tweening
+ * techniques) at the time of every discarded keyframe, and within each gap
+ * between kept keyframes, the worst keyframe that exceeds a tolerance is
+ * restored, in the style of Douglas-Peucker. Passes repeat until every
+ * original keyframe is reproduced within tolerance.
+ * <p>
+ * Rotations can optionally be quantized to 48 bits using the smallest-three
+ * encoding of {@link #packRotation(com.jme3.math.Quaternion)}. Quantization
+ * errors are included when testing tolerances, and any keyframe whose
+ * quantized rotation would exceed the angle tolerance stores its rotation
+ * unquantized.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TrackCompressor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes in a float
+     */
+    final private static int bytesPerFloat = 4;
+    /**
+     * number of bytes in a packed rotation
+     */
+    final private static int bytesPerPackedRotation = 6;
+    /**
+     * number of bits in each packed component
+     */
+    final private static int bitsPerComponent = 15;
+    /**
+     * largest value of a packed component
+     */
+    final private static int maxPacked = (1 << bitsPerComponent) - 1;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(TrackCompressor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true to quantize rotations to 48 bits, false to leave them as is
+     */
+    private boolean quantizeRotations = false;
+    /**
+     * tolerance for rotation errors (in radians, &ge;0)
+     */
+    private float angleTolerance = 0.001f;
+    /**
+     * tolerance for scale errors (&ge;0)
+     */
+    private float scaleTolerance = 0.001f;
+    /**
+     * tolerance for translation errors (in local units, &ge;0)
+     */
+    private float translationTolerance = 0.001f;
+    /**
+     * tweening techniques used to interpolate compressed tracks (not null)
+     */
+    final private TweenTransforms techniques;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a compressor with the specified techniques and default
+     * tolerances.
+     *
+     * @param techniques tweening techniques that will be used to play the
+     * compressed tracks (not null, alias created)
+     */
+    public TrackCompressor(TweenTransforms techniques) {
+        Validate.nonNull(techniques, "techniques");
+        this.techniques = techniques;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Compress all bone/spatial tracks in the specified animation. Other
+     * tracks are cloned.
+     *
+     * @param oldAnimation the animation to compress (not null, unaffected)
+     * @param report where to accumulate statistics (may be null)
+     * @return a new animation with the same name and duration
+     */
+    public Animation compress(Animation oldAnimation,
+            CompressionReport report) {
+        float duration = oldAnimation.getLength();
+        String name = oldAnimation.getName();
+        Animation result = new Animation(name, duration);
+
+        Track[] oldTracks = oldAnimation.getTracks();
+        for (Track oldTrack : oldTracks) {
+            Track newTrack;
+            if (oldTrack instanceof BoneTrack
+                    || oldTrack instanceof SpatialTrack) {
+                newTrack = compress(oldTrack, duration, report);
+            } else {
+                newTrack = oldTrack.clone();
+            }
+            result.addTrack(newTrack);
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy a bone/spatial track, removing every keyframe that can be
+     * reproduced within tolerance by interpolating the others.
+     *
+     * @param oldTrack input bone/spatial track (not null, unaffected)
+     * @param duration animation duration (in seconds, &ge;0)
+     * @param report where to accumulate statistics (may be null)
+     * @return a new track of the same type
+     */
+    public Track compress(Track oldTrack, float duration,
+            CompressionReport report) {
+        Validate.nonNegative(duration, "duration");
+        assert oldTrack instanceof BoneTrack
+                || oldTrack instanceof SpatialTrack;
+
+        float[] oldTimes = oldTrack.getKeyFrameTimes();
+        Vector3f[] oldTranslations = MyAnimation.getTranslations(oldTrack);
+        Quaternion[] oldRotations = MyAnimation.getRotations(oldTrack);
+        Vector3f[] oldScales = MyAnimation.getScales(oldTrack);
+        int oldCount = oldTimes.length;
+        assert oldCount > 0 : oldCount;
+        /*
+         * Decide which rotations will be stored.
+         */
+        Quaternion[] candidateRotations = oldRotations;
+        boolean[] unquantized = new boolean[oldCount];
+        if (quantizeRotations && oldRotations != null) {
+            candidateRotations = new Quaternion[oldCount];
+            for (int frameIndex = 0; frameIndex < oldCount; frameIndex++) {
+                Quaternion oldRotation = oldRotations[frameIndex];
+                long packed = packRotation(oldRotation);
+                Quaternion candidate = unpackRotation(packed, null);
+                if (angleError(candidate, oldRotation) > angleTolerance) {
+                    /*
+                     * Quantization alone would exceed the tolerance.
+                     */
+                    candidate = oldRotation;
+                    unquantized[frameIndex] = true;
+                }
+                candidateRotations[frameIndex] = candidate;
+            }
+        }
+        /*
+         * Restore keyframes until every keyframe is within tolerance.
+         */
+        boolean[] keep = new boolean[oldCount];
+        keep[0] = true;
+        keep[oldCount - 1] = true;
+        if (oldCount <= 2 || duration == 0f) {
+            for (int frameIndex = 0; frameIndex < oldCount; frameIndex++) {
+                keep[frameIndex] = true;
+            }
+        }
+        Transform transform = new Transform();
+        float[] errors = new float[3];
+        boolean restored = true;
+        while (restored) {
+            float[] times = select(keep, oldTimes);
+            Vector3f[] translations = select(keep, oldTranslations);
+            Quaternion[] rotations = select(keep, candidateRotations);
+            Vector3f[] scales = select(keep, oldScales);
+
+            restored = false;
+            int worstIndex = -1;
+            float worstExcess = 1f;
+            for (int frameIndex = 0; frameIndex < oldCount; frameIndex++) {
+                if (keep[frameIndex]) {
+                    /*
+                     * End of a gap: restore its worst keyframe, if any.
+                     */
+                    if (worstIndex >= 0) {
+                        keep[worstIndex] = true;
+                        restored = true;
+                    }
+                    worstIndex = -1;
+                    worstExcess = 1f;
+                    continue;
+                }
+
+                float time = oldTimes[frameIndex];
+                techniques.interpolate(time, times, duration, translations,
+                        rotations, scales, null, transform);
+                measureErrors(transform, frameIndex, oldTranslations,
+                        oldRotations, oldScales, errors);
+                float excess = excess(errors);
+                if (excess > worstExcess) {
+                    worstIndex = frameIndex;
+                    worstExcess = excess;
+                }
+            }
+        }
+        /*
+         * Build the new track.
+         */
+        float[] newTimes = select(keep, oldTimes);
+        Vector3f[] newTranslations = select(keep, oldTranslations);
+        Quaternion[] newRotations = select(keep, candidateRotations);
+        Vector3f[] newScales = select(keep, oldScales);
+        int newCount = newTimes.length;
+        for (int newIndex = 0; newIndex < newCount; newIndex++) {
+            if (newTranslations != null) {
+                newTranslations[newIndex] = newTranslations[newIndex].clone();
+            }
+            if (newRotations != null) {
+                newRotations[newIndex] = newRotations[newIndex].clone();
+            }
+            if (newScales != null) {
+                newScales[newIndex] = newScales[newIndex].clone();
+            }
+        }
+        Track result = TrackEdit.newTrack(oldTrack, newTimes, newTranslations,
+                newRotations, newScales);
+
+        if (report != null) {
+            /*
+             * Measure the final errors at every original keyframe.
+             */
+            float maxTranslationError = 0f;
+            float maxAngleError = 0f;
+            float maxScaleError = 0f;
+            for (int frameIndex = 0; frameIndex < oldCount; frameIndex++) {
+                float time = oldTimes[frameIndex];
+                techniques.interpolate(time, newTimes, duration,
+                        newTranslations, newRotations, newScales, null,
+                        transform);
+                measureErrors(transform, frameIndex, oldTranslations,
+                        oldRotations, oldScales, errors);
+                maxTranslationError = Math.max(maxTranslationError, errors[0]);
+                maxAngleError = Math.max(maxAngleError, errors[1]);
+                maxScaleError = Math.max(maxScaleError, errors[2]);
+            }
+
+            int boneIndex = CompressionReport.spatialIndex;
+            if (oldTrack instanceof BoneTrack) {
+                boneIndex = ((BoneTrack) oldTrack).getTargetBoneIndex();
+            }
+            int oldBytes = countBytes(oldCount, oldTranslations != null,
+                    oldRotations != null, false, oldScales != null);
+            int newBytes = countBytes(newCount, newTranslations != null,
+                    newRotations != null, quantizeRotations,
+                    newScales != null);
+            /*
+             * Unquantized rotations take 4 floats instead of 48 bits.
+             */
+            int numUnquantized = 0;
+            for (int frameIndex = 0; frameIndex < oldCount; frameIndex++) {
+                if (keep[frameIndex] && unquantized[frameIndex]) {
+                    ++numUnquantized;
+                }
+            }
+            if (numUnquantized > 0) {
+                newBytes += numUnquantized
+                        * (4 * bytesPerFloat - bytesPerPackedRotation);
+            }
+            report.addTrack(boneIndex, oldCount, newCount, oldBytes, newBytes,
+                    maxTranslationError, maxAngleError, maxScaleError);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the tolerance for rotation errors.
+     *
+     * @return angle (in radians, &ge;0)
+     */
+    public float getAngleTolerance() {
+        assert angleTolerance >= 0f : angleTolerance;
+        return angleTolerance;
+    }
+
+    /**
+     * Read the tolerance for scale errors.
+     *
+     * @return distance (&ge;0)
+     */
+    public float getScaleTolerance() {
+        assert scaleTolerance >= 0f : scaleTolerance;
+        return scaleTolerance;
+    }
+
+    /**
+     * Access the tweening techniques.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public TweenTransforms getTechniques() {
+        assert techniques != null;
+        return techniques;
+    }
+
+    /**
+     * Read the tolerance for translation errors.
+     *
+     * @return distance (in local units, &ge;0)
+     */
+    public float getTranslationTolerance() {
+        assert translationTolerance >= 0f : translationTolerance;
+        return translationTolerance;
+    }
+
+    /**
+     * Test whether rotations will be quantized to 48 bits.
+     *
+     * @return true if quantized, otherwise false
+     */
+    public boolean isQuantizeRotations() {
+        return quantizeRotations;
+    }
+
+    /**
+     * Pack a rotation into 48 bits using the smallest-three encoding: 2 bits
+     * to identify the component with the largest magnitude (which is made
+     * positive and omitted) and 15 bits for each of the other components.
+     *
+     * @param rotation input rotation (not null, unaffected)
+     * @return packed rotation (only the low-order 47 bits are used)
+     * @see #unpackRotation(long, com.jme3.math.Quaternion)
+     */
+    public static long packRotation(Quaternion rotation) {
+        float[] components = {
+            rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW()
+        };
+        float sumSquares = 0f;
+        int largestIndex = 0;
+        for (int componentIndex = 0; componentIndex < 4; componentIndex++) {
+            float component = components[componentIndex];
+            sumSquares += component * component;
+            if (Math.abs(component)
+                    > Math.abs(components[largestIndex])) {
+                largestIndex = componentIndex;
+            }
+        }
+        if (sumSquares == 0f) {
+            components[3] = 1f; // identity
+            largestIndex = 3;
+            sumSquares = 1f;
+        }
+        /*
+         * Normalize, making the largest component positive.
+         */
+        float scale = 1f / FastMath.sqrt(sumSquares);
+        if (components[largestIndex] < 0f) {
+            scale = -scale;
+        }
+
+        long result = largestIndex;
+        for (int componentIndex = 0; componentIndex < 4; componentIndex++) {
+            if (componentIndex != largestIndex) {
+                float component = scale * components[componentIndex];
+                float fraction = 0.5f * (FastMath.sqrt(2f) * component + 1f);
+                int packed = Math.round(maxPacked * fraction);
+                packed = Math.max(0, Math.min(packed, maxPacked));
+                result = (result << bitsPerComponent) | packed;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Alter the tolerance for rotation errors.
+     *
+     * @param newTolerance new tolerance (in radians, &ge;0, default=0.001)
+     */
+    public void setAngleTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        angleTolerance = newTolerance;
+    }
+
+    /**
+     * Alter whether rotations will be quantized to 48 bits.
+     *
+     * @param newSetting true to quantize, false to leave rotations as is
+     * (default=false)
+     */
+    public void setQuantizeRotations(boolean newSetting) {
+        quantizeRotations = newSetting;
+    }
+
+    /**
+     * Alter the tolerance for scale errors.
+     *
+     * @param newTolerance new tolerance (&ge;0, default=0.001)
+     */
+    public void setScaleTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        scaleTolerance = newTolerance;
+    }
+
+    /**
+     * Alter the tolerance for translation errors.
+     *
+     * @param newTolerance new tolerance (in local units, &ge;0,
+     * default=0.001)
+     */
+    public void setTranslationTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        translationTolerance = newTolerance;
+    }
+
+    /**
+     * Unpack a rotation packed by {@link #packRotation(com.jme3.math.Quaternion)}.
+     *
+     * @param packed packed rotation
+     * @param storeResult (modified if not null)
+     * @return a unit quaternion (either storeResult or a new instance)
+     */
+    public static Quaternion unpackRotation(long packed,
+            Quaternion storeResult) {
+        if (storeResult == null) {
+            storeResult = new Quaternion();
+        }
+
+        int largestIndex = (int) (packed >>> (3 * bitsPerComponent)) & 0x3;
+        float[] components = new float[4];
+        float sumSquares = 0f;
+        int shift = 2 * bitsPerComponent;
+        for (int componentIndex = 0; componentIndex < 4; componentIndex++) {
+            if (componentIndex != largestIndex) {
+                int bits = (int) (packed >>> shift) & maxPacked;
+                float fraction = bits / (float) maxPacked;
+                float component = (2f * fraction - 1f) / FastMath.sqrt(2f);
+                components[componentIndex] = component;
+                sumSquares += component * component;
+                shift -= bitsPerComponent;
+            }
+        }
+        components[largestIndex] = FastMath.sqrt(Math.max(0f, 1f - sumSquares));
+        storeResult.set(components[0], components[1], components[2],
+                components[3]);
+
+        return storeResult;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the angle between 2 unit quaternions.
+     *
+     * @param q1 the 1st quaternion (not null, unaffected)
+     * @param q2 the 2nd quaternion (not null, unaffected)
+     * @return angle (in radians, &ge;0)
+     */
+    private static float angleError(Quaternion q1, Quaternion q2) {
+        /*
+         * For unit quaternions, |q1 - q2| = 2 sin(angle/4), which is
+         * better conditioned than acos() of the dot product.
+         */
+        float sign = (q1.dot(q2) < 0f) ? -1f : 1f;
+        float dx = q1.getX() - sign * q2.getX();
+        float dy = q1.getY() - sign * q2.getY();
+        float dz = q1.getZ() - sign * q2.getZ();
+        float dw = q1.getW() - sign * q2.getW();
+        double chord = Math.sqrt(dx * dx + dy * dy + dz * dz + dw * dw);
+        double halfChord = Math.min(1.0, 0.5 * chord);
+        float result = (float) (4.0 * Math.asin(halfChord));
+
+        return result;
+    }
+
+    /**
+     * Calculate the size of a track's keyframe data.
+     *
+     * @param numKeyframes number of keyframes (&ge;0)
+     * @param translations true if translations are present
+     * @param rotations true if rotations are present
+     * @param packed true if rotations are packed into 48 bits
+     * @param scales true if scales are present
+     * @return size (in bytes, &ge;0)
+     */
+    private static int countBytes(int numKeyframes, boolean translations,
+            boolean rotations, boolean packed, boolean scales) {
+        int bytesPerKeyframe = bytesPerFloat; // time
+        if (translations) {
+            bytesPerKeyframe += 3 * bytesPerFloat;
+        }
+        if (rotations) {
+            if (packed) {
+                bytesPerKeyframe += bytesPerPackedRotation;
+            } else {
+                bytesPerKeyframe += 4 * bytesPerFloat;
+            }
+        }
+        if (scales) {
+            bytesPerKeyframe += 3 * bytesPerFloat;
+        }
+        int result = numKeyframes * bytesPerKeyframe;
+
+        return result;
+    }
+
+    /**
+     * Count how many elements are kept.
+     *
+     * @param keep which elements to keep (not null, unaffected)
+     * @return count (&ge;0)
+     */
+    private static int countKept(boolean[] keep) {
+        int result = 0;
+        for (boolean kept : keep) {
+            if (kept) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate by how much the worst of the specified errors exceeds its
+     * tolerance.
+     *
+     * @param errors translation, angle, and scale errors (not null,
+     * unaffected)
+     * @return ratio of error to tolerance (&gt;1 if a tolerance is exceeded,
+     * otherwise 0)
+     */
+    private float excess(float[] errors) {
+        float[] tolerances = {
+            translationTolerance, angleTolerance, scaleTolerance
+        };
+        float result = 0f;
+        for (int i = 0; i < 3; i++) {
+            float error = errors[i];
+            float tolerance = tolerances[i];
+            if (error > tolerance) {
+                float ratio = error / Math.max(tolerance, Float.MIN_NORMAL);
+                result = Math.max(result, ratio);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Measure how far an interpolated transform deviates from the indexed
+     * keyframe.
+     *
+     * @param transform interpolated transform (not null, unaffected)
+     * @param frameIndex index of the original keyframe (&ge;0)
+     * @param translations original translations (may be null, unaffected)
+     * @param rotations original rotations (may be null, unaffected)
+     * @param scales original scales (may be null, unaffected)
+     * @param storeErrors storage for the translation, angle, and scale errors
+     * (not null, length=3, modified)
+     */
+    private static void measureErrors(Transform transform, int frameIndex,
+            Vector3f[] translations, Quaternion[] rotations,
+            Vector3f[] scales, float[] storeErrors) {
+        storeErrors[0] = 0f;
+        if (translations != null) {
+            Vector3f translation = transform.getTranslation();
+            storeErrors[0] = translation.distance(translations[frameIndex]);
+        }
+
+        storeErrors[1] = 0f;
+        if (rotations != null) {
+            Quaternion rotation = transform.getRotation();
+            storeErrors[1] = angleError(rotation, rotations[frameIndex]);
+        }
+
+        storeErrors[2] = 0f;
+        if (scales != null) {
+            Vector3f scale = transform.getScale();
+            storeErrors[2] = scale.distance(scales[frameIndex]);
+        }
+    }
+
+    /**
+     * Copy the kept elements of an array.
+     *
+     * @param keep which elements to keep (not null, unaffected)
+     * @param input input array (may be null, unaffected)
+     * @return a new array (not null) or null if input is null
+     */
+    private static float[] select(boolean[] keep, float[] input) {
+        float[] result = null;
+        if (input != null) {
+            result = new float[countKept(keep)];
+            int newIndex = 0;
+            for (int oldIndex = 0; oldIndex < input.length; oldIndex++) {
+                if (keep[oldIndex]) {
+                    result[newIndex] = input[oldIndex];
+                    ++newIndex;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy the kept elements of an array. The elements themselves are not
+     * copied.
+     *
+     * @param <T> element type
+     * @param keep which elements to keep (not null, unaffected)
+     * @param input input array (may be null, unaffected)
+     * @return a new array (not null) or null if input is null
+     */
+    private static <T> T[] select(boolean[] keep, T[] input) {
+        T[] result = null;
+        if (input != null) {
+            result = Arrays.copyOf(input, countKept(keep));
+            int newIndex = 0;
+            for (int oldIndex = 0; oldIndex < input.length; oldIndex++) {
+                if (keep[oldIndex]) {
+                    result[newIndex] = input[oldIndex];
+                    ++newIndex;
+                }
+            }
+        }
+
+        return result;
+    }
+}
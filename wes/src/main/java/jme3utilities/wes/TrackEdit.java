@@ -39,8 +39,9 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.plugins.bvh.BoneMapping;
 import com.jme3.scene.plugins.bvh.SkeletonMapping;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import jme3utilities.MyAnimation;
 import jme3utilities.Validate;
@@ -742,6 +743,10 @@ public class TrackEdit {
     /**
      * Re-target the specified animation from the specified source skeleton to
      * the specified target skeleton using the specified map.
+     * <p>
+     * The source pose is evaluated and re-targeted once per distinct keyframe
+     * time, and each result is used to fill every target track that has a
+     * keyframe at that time.
      *
      * @param sourceAnimation which animation to re-target (not null,
      * unaffected)
@@ -757,6 +762,7 @@ public class TrackEdit {
             SkeletonMapping map, TweenTransforms techniques,
             String animationName) {
         Validate.nonNull(sourceSkeleton, "source skeleton");
+        Validate.nonNull(targetSkeleton, "target skeleton");
         Validate.nonNull(map, "map");
         Validate.nonNull(techniques, "techniques");
         Validate.nonNull(animationName, "animation name");
@@ -765,26 +771,13 @@ public class TrackEdit {
          */
         float duration = sourceAnimation.getLength();
         Animation result = new Animation(animationName, duration);
-
-        Map<Float, Pose> cache = new TreeMap<>();
         /*
          * Add a bone track for each target bone that's mapped.
          */
-        int numTargetBones = targetSkeleton.getBoneCount();
-        for (int iTarget = 0; iTarget < numTargetBones; iTarget++) {
-            Bone targetBone = targetSkeleton.getBone(iTarget);
-            String targetName = targetBone.getName();
-            BoneMapping boneMapping = map.get(targetName);
-            if (boneMapping != null) {
-                String sourceName = boneMapping.getSourceName();
-                int iSource = sourceSkeleton.getBoneIndex(sourceName);
-                BoneTrack sourceTrack
-                        = MyAnimation.findBoneTrack(sourceAnimation, iSource);
-                BoneTrack track = retargetTrack(sourceAnimation, sourceTrack,
-                        sourceSkeleton, targetSkeleton, iTarget, map,
-                        techniques, cache);
-                result.addTrack(track);
-            }
+        BoneTrack[] boneTracks = retargetBoneTracks(sourceAnimation,
+                sourceSkeleton, targetSkeleton, map, techniques);
+        for (BoneTrack track : boneTracks) {
+            result.addTrack(track);
         }
         /*
          * Copy any non-bone tracks.
@@ -800,6 +793,77 @@ public class TrackEdit {
         return result;
     }
 
+    /**
+     * Re-target the specified animations from the specified source skeleton
+     * to the specified target skeleton using the common fork/join pool.
+     *
+     * @param sourceAnimations which animations to re-target (not null, no
+     * null elements, unaffected)
+     * @param sourceSkeleton (not null, unaffected)
+     * @param targetSkeleton (not null, unaffected)
+     * @param map skeleton map to use (not null, unaffected)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @return a new array of new animations, in the same order and with the
+     * same names as the source animations
+     * @see #retargetAnimations(com.jme3.animation.Animation[],
+     * com.jme3.animation.Skeleton, com.jme3.animation.Skeleton,
+     * com.jme3.scene.plugins.bvh.SkeletonMapping,
+     * jme3utilities.wes.TweenTransforms, java.util.concurrent.ForkJoinPool)
+     */
+    public static Animation[] retargetAnimations(
+            Animation[] sourceAnimations, Skeleton sourceSkeleton,
+            Skeleton targetSkeleton, SkeletonMapping map,
+            TweenTransforms techniques) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Animation[] result = retargetAnimations(sourceAnimations,
+                sourceSkeleton, targetSkeleton, map, techniques, pool);
+
+        return result;
+    }
+
+    /**
+     * Re-target the specified animations from the specified source skeleton
+     * to the specified target skeleton using the specified pool. Each
+     * animation is re-targeted by a separate task with its own poses. The
+     * tasks share the skeletons and the map, so none of them may be modified
+     * (or used by another thread) until this method returns.
+     *
+     * @param sourceAnimations which animations to re-target (not null, no
+     * null elements, unaffected)
+     * @param sourceSkeleton (not null, unaffected)
+     * @param targetSkeleton (not null, unaffected)
+     * @param map skeleton map to use (not null, unaffected)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @param pool the pool to use (not null)
+     * @return a new array of new animations, in the same order and with the
+     * same names as the source animations
+     */
+    public static Animation[] retargetAnimations(
+            Animation[] sourceAnimations, Skeleton sourceSkeleton,
+            Skeleton targetSkeleton, SkeletonMapping map,
+            TweenTransforms techniques, ForkJoinPool pool) {
+        Validate.nonNull(sourceAnimations, "source animations");
+        Validate.nonNull(sourceSkeleton, "source skeleton");
+        Validate.nonNull(targetSkeleton, "target skeleton");
+        Validate.nonNull(map, "map");
+        Validate.nonNull(techniques, "techniques");
+        Validate.nonNull(pool, "pool");
+        for (Animation animation : sourceAnimations) {
+            Validate.nonNull(animation, "source animation");
+        }
+
+        int numAnimations = sourceAnimations.length;
+        Animation[] result = new Animation[numAnimations];
+        if (numAnimations > 0) {
+            RetargetTask task = new RetargetTask(sourceAnimations,
+                    sourceSkeleton, targetSkeleton, map, techniques, result,
+                    0, numAnimations);
+            pool.invoke(task);
+        }
+
+        return result;
+    }
+
     /**
      * Re-target the specified bone track from the specified source skeleton to
      * the specified target skeleton using the specified map.
@@ -1246,4 +1310,121 @@ public class TrackEdit {
 
         return result;
     }
+
+    /**
+     * Re-target the bone tracks of the specified animation in a single pass
+     * over the distinct keyframe times of the tracks involved.
+     *
+     * @param sourceAnimation the animation to re-target (not null, unaffected)
+     * @param sourceSkeleton (not null, unaffected)
+     * @param targetSkeleton (not null, unaffected)
+     * @param map skeleton map to use (not null, unaffected)
+     * @param techniques tweening techniques to use (not null, unaffected)
+     * @return a new array of new bone tracks, one for each mapped target bone,
+     * in target-bone order
+     */
+    private static BoneTrack[] retargetBoneTracks(Animation sourceAnimation,
+            Skeleton sourceSkeleton, Skeleton targetSkeleton,
+            SkeletonMapping map, TweenTransforms techniques) {
+        /*
+         * Find the keyframe times for each target bone that's mapped.
+         */
+        int numTargetBones = targetSkeleton.getBoneCount();
+        int[] trackBones = new int[numTargetBones];
+        float[][] trackTimes = new float[numTargetBones][];
+        int numTracks = 0;
+        int numKeyframes = 0;
+        for (int iTarget = 0; iTarget < numTargetBones; iTarget++) {
+            Bone targetBone = targetSkeleton.getBone(iTarget);
+            String targetName = targetBone.getName();
+            BoneMapping boneMapping = map.get(targetName);
+            if (boneMapping != null) {
+                String sourceName = boneMapping.getSourceName();
+                int iSource = sourceSkeleton.getBoneIndex(sourceName);
+                BoneTrack sourceTrack
+                        = MyAnimation.findBoneTrack(sourceAnimation, iSource);
+                float[] times;
+                if (sourceTrack == null) {
+                    times = new float[]{0f};
+                } else {
+                    times = sourceTrack.getKeyFrameTimes();
+                }
+                trackBones[numTracks] = iTarget;
+                trackTimes[numTracks] = times;
+                ++numTracks;
+                numKeyframes += times.length;
+            }
+        }
+        /*
+         * Merge the keyframe times into a sorted array of distinct times.
+         */
+        float[] allTimes = new float[numKeyframes];
+        int numTimes = 0;
+        for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+            float[] times = trackTimes[trackIndex];
+            System.arraycopy(times, 0, allTimes, numTimes, times.length);
+            numTimes += times.length;
+        }
+        Arrays.sort(allTimes);
+        numTimes = 0;
+        for (float time : allTimes) {
+            if (numTimes == 0
+                    || Float.compare(time, allTimes[numTimes - 1]) != 0) {
+                allTimes[numTimes] = time;
+                ++numTimes;
+            }
+        }
+
+        Vector3f[][] translations = new Vector3f[numTracks][];
+        Quaternion[][] rotations = new Quaternion[numTracks][];
+        Vector3f[][] scales = new Vector3f[numTracks][];
+        for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+            int numFrames = trackTimes[trackIndex].length;
+            translations[trackIndex] = new Vector3f[numFrames];
+            rotations[trackIndex] = new Quaternion[numFrames];
+            scales[trackIndex] = new Vector3f[numFrames];
+        }
+        /*
+         * Evaluate and re-target each distinct time once, filling every track
+         * that has a keyframe at that time.
+         */
+        Pose sourcePose = new Pose(sourceSkeleton);
+        Pose targetPose = new Pose(targetSkeleton);
+        int[] nextFrames = new int[numTracks];
+        for (int timeIndex = 0; timeIndex < numTimes; timeIndex++) {
+            float time = allTimes[timeIndex];
+            sourcePose.setToAnimation(sourceAnimation, time, techniques);
+            targetPose.setToRetarget(sourcePose, map);
+
+            for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+                float[] times = trackTimes[trackIndex];
+                int frameIndex = nextFrames[trackIndex];
+                while (frameIndex < times.length
+                        && Float.compare(times[frameIndex], time) == 0) {
+                    int boneIndex = trackBones[trackIndex];
+                    Transform userTransform
+                            = targetPose.userTransform(boneIndex, null);
+                    translations[trackIndex][frameIndex]
+                            = userTransform.getTranslation();
+                    rotations[trackIndex][frameIndex]
+                            = userTransform.getRotation();
+                    scales[trackIndex][frameIndex] = userTransform.getScale();
+                    ++frameIndex;
+                }
+                nextFrames[trackIndex] = frameIndex;
+            }
+        }
+
+        BoneTrack[] result = new BoneTrack[numTracks];
+        for (int trackIndex = 0; trackIndex < numTracks; trackIndex++) {
+            float[] times = trackTimes[trackIndex];
+            assert nextFrames[trackIndex] == times.length : trackIndex;
+            int boneIndex = trackBones[trackIndex];
+            result[trackIndex] = new BoneTrack(boneIndex, times,
+                    translations[trackIndex], rotations[trackIndex],
+                    scales[trackIndex]);
+        }
+
+        return result;
+    }
 }
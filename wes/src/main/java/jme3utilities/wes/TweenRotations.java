@@ -187,11 +187,12 @@ public enum TweenRotations {
                 break;
 
             case LoopSpline:
-                loopSpline(time, curve, storeResult);
-                break;
-
             case Spline:
-                spline(time, curve, storeResult);
+                float[] curveTimes = curve.getTimes();
+                int index1 = MyArray.findPreviousIndex(time, curveTimes);
+                Quaternion tmp1 = new Quaternion();
+                Quaternion tmp2 = new Quaternion();
+                interpolate(time, index1, curve, tmp1, tmp2, storeResult);
                 break;
 
             default:
@@ -201,6 +202,34 @@ public enum TweenRotations {
         return storeResult;
     }
 
+    /**
+     * Interpolate among unit quaternions in a time sequence using this spline
+     * technique, some precomputed parameters, and a keyframe index that's
+     * already known. Creates no garbage.
+     *
+     * @param time parameter value
+     * @param index1 index of the last keyframe at or before time (&ge;0)
+     * @param curve curve parameters (not null, unaffected)
+     * @param tmp1 temporary storage (not null, modified)
+     * @param tmp2 temporary storage (not null, modified)
+     * @param storeResult (not null, distinct from tmp1 and tmp2, modified)
+     */
+    void interpolate(float time, int index1, RotationCurve curve,
+            Quaternion tmp1, Quaternion tmp2, Quaternion storeResult) {
+        switch (this) {
+            case LoopSpline:
+                loopSpline(time, index1, curve, tmp1, tmp2, storeResult);
+                break;
+
+            case Spline:
+                spline(time, index1, curve, tmp1, tmp2, storeResult);
+                break;
+
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
     /**
      * Interpolate among unit quaternions in an acyclic time sequence using
      * linear (Nlerp/Slerp) interpolation. Nlerp is essentially what AnimControl
@@ -243,6 +272,61 @@ public enum TweenRotations {
         return storeResult;
     }
 
+    /**
+     * Interpolate between 2 unit quaternions using linear (Nlerp/Slerp)
+     * interpolation.
+     *
+     * @param t descaled parameter value (&ge;0, &le;1)
+     * @param q0 function value at t=0 (not null, unaffected, norm=1)
+     * @param q1 function value at t=1 (not null, unaffected, norm=1)
+     * @param storeResult (modified if not null)
+     * @return an interpolated unit quaternion (either storeResult or a new
+     * instance)
+     */
+    Quaternion lerp(float t, Quaternion q0, Quaternion q1,
+            Quaternion storeResult) {
+        Validate.inRange(t, "t", 0f, 1f);
+        MyQuaternion.validateUnit(q0, "q0", 0.0001f);
+        MyQuaternion.validateUnit(q1, "q1", 0.0001f);
+        if (storeResult == null) {
+            storeResult = new Quaternion();
+        }
+
+        if (MyQuaternion.ne(q0, q1)) {
+            switch (this) {
+                case LoopNlerp:
+                case Nlerp:
+                    storeResult.set(q0);
+                    storeResult.nlerp(q1, t);
+                    break;
+                case LoopQuickSlerp:
+                case QuickSlerp:
+                    Quaternion q2copy = q1.clone();
+                    storeResult.slerp(q0, q2copy, t);
+                    break;
+                case LoopSlerp:
+                case Slerp:
+                    /*
+                     * Flip signs as necessary to make dot product
+                     * of the sampled values non-negative.
+                     */
+                    if (q0.dot(q1) < 0f) {
+                        Quaternion negQ1 = q1.mult(-1f);
+                        MyQuaternion.slerp(t, q0, negQ1, storeResult);
+                    } else {
+                        MyQuaternion.slerp(t, q0, q1, storeResult);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        } else {
+            storeResult.set(q0);
+        }
+
+        return storeResult;
+    }
+
     /**
      * Interpolate among unit quaternions in a cyclic time sequence using linear
      * (Nlerp/Slerp) interpolation.
@@ -483,83 +567,26 @@ public enum TweenRotations {
         return storeResult;
     }
 
-    /**
-     * Interpolate between 2 unit quaternions using linear (Nlerp/Slerp)
-     * interpolation.
-     *
-     * @param t descaled parameter value (&ge;0, &le;1)
-     * @param q0 function value at t=0 (not null, unaffected, norm=1)
-     * @param q1 function value at t=1 (not null, unaffected, norm=1)
-     * @param storeResult (modified if not null)
-     * @return an interpolated unit quaternion (either storeResult or a new
-     * instance)
-     */
-    private Quaternion lerp(float t, Quaternion q0, Quaternion q1,
-            Quaternion storeResult) {
-        Validate.inRange(t, "t", 0f, 1f);
-        MyQuaternion.validateUnit(q0, "q0", 0.0001f);
-        MyQuaternion.validateUnit(q1, "q1", 0.0001f);
-        if (storeResult == null) {
-            storeResult = new Quaternion();
-        }
-
-        if (MyQuaternion.ne(q0, q1)) {
-            switch (this) {
-                case LoopNlerp:
-                case Nlerp:
-                    storeResult.set(q0);
-                    storeResult.nlerp(q1, t);
-                    break;
-                case LoopQuickSlerp:
-                case QuickSlerp:
-                    Quaternion q2copy = q1.clone();
-                    storeResult.slerp(q0, q2copy, t);
-                    break;
-                case LoopSlerp:
-                case Slerp:
-                    /*
-                     * Flip signs as necessary to make dot product
-                     * of the sampled values non-negative.
-                     */
-                    if (q0.dot(q1) < 0f) {
-                        Quaternion negQ1 = q1.mult(-1f);
-                        MyQuaternion.slerp(t, q0, negQ1, storeResult);
-                    } else {
-                        MyQuaternion.slerp(t, q0, q1, storeResult);
-                    }
-                    break;
-                default:
-                    throw new IllegalStateException();
-            }
-        } else {
-            storeResult.set(q0);
-        }
-
-        return storeResult;
-    }
-
     /**
      * Interpolate among unit quaternions in a cyclic time sequence using
      * cubic-spline interpolation based on the Squad function.
      *
      * @param time parameter value (&ge;0, &le;cycleTime)
+     * @param index1 index of the last keyframe at or before time (&ge;0)
      * @param curve rotation curve (not null, unaffected)
-     * @param storeResult (modified if not null)
-     * @return an interpolated unit quaternion (either storeResult or a new
-     * instance)
+     * @param tmp1 temporary storage (not null, modified)
+     * @param tmp2 temporary storage (not null, modified)
+     * @param storeResult (not null, distinct from tmp1 and tmp2, modified)
      */
-    private static Quaternion loopSpline(float time, RotationCurve curve,
+    private static void loopSpline(float time, int index1,
+            RotationCurve curve, Quaternion tmp1, Quaternion tmp2,
             Quaternion storeResult) {
         assert time >= 0f : time;
-        if (storeResult == null) {
-            storeResult = new Quaternion();
-        }
         float cycleTime = curve.getCycleTime();
         Validate.inRange(time, "time", 0f, cycleTime);
 
         int lastIndex = curve.getLastIndex();
         float[] times = curve.getTimes();
-        int index1 = MyArray.findPreviousIndex(time, times);
         if (index1 > lastIndex) {
             index1 = lastIndex;
         }
@@ -572,9 +599,7 @@ public enum TweenRotations {
         Quaternion a2 = curve.getControlPoint2(index1);
         Quaternion q1 = curve.getStartValue(index1);
         Quaternion q2 = curve.getEndValue(index1);
-        MyQuaternion.squad(t, q1, a1, a2, q2, storeResult);
-
-        return storeResult;
+        MyQuaternion.squad(t, q1, a1, a2, q2, tmp1, tmp2, storeResult);
     }
 
     /**
@@ -691,20 +716,16 @@ public enum TweenRotations {
      * cubic-spline interpolation based on the Squad function.
      *
      * @param time parameter value (&ge;times[0])
+     * @param index1 index of the last keyframe at or before time (&ge;0)
      * @param curve rotation curve (not null, unaffected)
-     * @param storeResult (modified if not null)
-     * @return an interpolated unit quaternion (either storeResult or a new
-     * instance)
+     * @param tmp1 temporary storage (not null, modified)
+     * @param tmp2 temporary storage (not null, modified)
+     * @param storeResult (not null, distinct from tmp1 and tmp2, modified)
      */
-    private static Quaternion spline(float time, RotationCurve curve,
-            Quaternion storeResult) {
-        if (storeResult == null) {
-            storeResult = new Quaternion();
-        }
-
+    private static void spline(float time, int index1, RotationCurve curve,
+            Quaternion tmp1, Quaternion tmp2, Quaternion storeResult) {
         float[] times = curve.getTimes();
         assert time >= times[0] : time;
-        int index1 = MyArray.findPreviousIndex(time, times);
         Quaternion q1 = curve.getStartValue(index1);
         int lastIndex = curve.getLastIndex();
         if (index1 == lastIndex) {
@@ -718,9 +739,7 @@ public enum TweenRotations {
             Quaternion a1 = curve.getControlPoint1(index1);
             Quaternion a2 = curve.getControlPoint2(index1);
             Quaternion q2 = curve.getEndValue(index1);
-            MyQuaternion.squad(t, q1, a1, a2, q2, storeResult);
+            MyQuaternion.squad(t, q1, a1, a2, q2, tmp1, tmp2, storeResult);
         }
-
-        return storeResult;
     }
 }
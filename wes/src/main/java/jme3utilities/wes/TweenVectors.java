@@ -280,7 +280,9 @@ public enum TweenVectors {
             case LoopCatmullRomSpline:
             case LoopCentripetalSpline:
             case LoopFdcSpline:
-                spline(time, curve, storeResult);
+                float[] curveTimes = curve.getTimes();
+                int index1 = MyArray.findPreviousIndex(time, curveTimes);
+                spline(time, index1, curve, storeResult);
                 break;
 
             case Lerp:
@@ -298,6 +300,21 @@ public enum TweenVectors {
         return storeResult;
     }
 
+    /**
+     * Interpolate among vectors in a time sequence using this spline
+     * technique, precomputed parameters, and a keyframe index that's already
+     * known. Creates no garbage, except with centripetal splines.
+     *
+     * @param time parameter value (&ge;0, &le;cycleTime)
+     * @param index1 index of the last keyframe at or before time (&ge;0)
+     * @param curve curve parameters (not null, unaffected)
+     * @param storeResult (not null, modified)
+     */
+    void interpolate(float time, int index1, VectorCurve curve,
+            Vector3f storeResult) {
+        spline(time, index1, curve, storeResult);
+    }
+
     /**
      * Interpolate among vectors in an acyclic time sequence using linear (Lerp)
      * interpolation. This is essentially what AnimControl uses to interpolate
@@ -996,22 +1013,18 @@ public enum TweenVectors {
      * and precomputed parameters.
      *
      * @param time parameter value (&ge;0, &le;cycleTime)
+     * @param index1 index of the last keyframe at or before time (&ge;0)
      * @param curve vector curve (not null, unaffected)
-     * @param storeResult (modified if not null)
-     * @return an interpolated vector (either storeResult or a new instance)
+     * @param storeResult (not null, modified)
      */
-    private Vector3f spline(float time, VectorCurve curve,
+    private void spline(float time, int index1, VectorCurve curve,
             Vector3f storeResult) {
         assert time >= 0f : time;
-        if (storeResult == null) {
-            storeResult = new Vector3f();
-        }
         float cycleTime = curve.getCycleTime();
         assert time <= cycleTime : time;
 
         int lastIndex = curve.getLastIndex();
         float[] times = curve.getTimes();
-        int index1 = MyArray.findPreviousIndex(time, times);
         if (index1 > lastIndex) {
             index1 = lastIndex;
         }
@@ -1049,7 +1062,5 @@ public enum TweenVectors {
             default:
                 throw new IllegalStateException();
         }
-
-        return storeResult;
     }
 }
@@ -0,0 +1,230 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A thread-safe collector of scored elements for one generation of an
+ * evolutionary algorithm. Each thread adds to its own private stripe (a
+ * {@link Population} with the same capacity) so insertion requires no locks
+ * and no contention. At the generation boundary, the stripes are drained into
+ * an ordinary population, which retains only the fittest elements, exactly as
+ * if they had been added to it one at a time.
+ * <p>
+ * Since each stripe retains the fittest elements it has seen, no element that
+ * belongs in the destination is lost by culling. When several elements share
+ * a score, the order in which they reach the destination isn't
+ * deterministic.
+ * <p>
+ * Duplicate elements are suppressed only within each stripe. If two threads
+ * add the same element with the same score, each stripe retains a copy
+ * (counted by {@link #size()} and occupying capacity in both stripes) until
+ * {@link #drainTo(jme3utilities.evo.Population)}, where the destination
+ * suppresses the duplicate.
+ *
+ * @param <Fitness> type of fitness score (such as Float or ScoreDoubles, must
+ * implement Comparable interface)
+ * @param <Element> type of elements collected (such as Solution)
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ConcurrentPopulation<Fitness extends Comparable<Fitness>, Element> {
+    // *************************************************************************
+    // constants
+
+    /**
+     * target number of leaf tasks per worker thread when scoring in parallel
+     */
+    final private static int tasksPerThread = 4;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(ConcurrentPopulation.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of elements in each stripe (&gt;0, set by constructor)
+     */
+    final private int capacity;
+    /**
+     * every stripe created so far, in order of creation
+     */
+    final private Queue<Population<Fitness, Element>> stripes
+            = new ConcurrentLinkedQueue<>();
+    /**
+     * stripe of the current thread
+     */
+    final private ThreadLocal<Population<Fitness, Element>> localStripe
+            = new ThreadLocal<Population<Fitness, Element>>() {
+        @Override
+        protected Population<Fitness, Element> initialValue() {
+            Population<Fitness, Element> stripe = new Population<>(capacity);
+            stripes.add(stripe);
+            return stripe;
+        }
+    };
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty collector with the specified capacity.
+     *
+     * @param capacity maximum number of elements retained by each thread
+     * (&gt;0), typically the capacity of the destination population
+     */
+    public ConcurrentPopulation(int capacity) {
+        Validate.positive(capacity, "capacity");
+        this.capacity = capacity;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a single element to the current thread's stripe (unless it
+     * duplicates an element already in that stripe). Thread-safe and
+     * lock-free.
+     *
+     * @param element instance to add (not null)
+     * @param score (not null)
+     */
+    public void add(Element element, Fitness score) {
+        Validate.nonNull(element, "element");
+        Validate.nonNull(score, "score");
+
+        Population<Fitness, Element> stripe = localStripe.get();
+        stripe.add(element, score);
+    }
+
+    /**
+     * Score a list of candidates in parallel on the common pool and add them
+     * to this collector.
+     *
+     * @param candidates candidates to score (not null, all elements non-null,
+     * unaffected)
+     * @param function function to score the candidates (not null,
+     * thread-safe)
+     * @see #addAll(java.util.List, FitnessFunction,
+     * java.util.concurrent.ForkJoinPool)
+     */
+    public void addAll(List<Element> candidates,
+            FitnessFunction<Fitness, Element> function) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        addAll(candidates, function, pool);
+    }
+
+    /**
+     * Score a list of candidates in parallel on the specified pool and add them
+     * to this collector. Returns once every candidate has been scored and
+     * added.
+     *
+     * @param candidates candidates to score (not null, all elements non-null,
+     * unaffected)
+     * @param function function to score the candidates (not null,
+     * thread-safe)
+     * @param pool the pool to use (not null)
+     */
+    public void addAll(List<Element> candidates,
+            FitnessFunction<Fitness, Element> function, ForkJoinPool pool) {
+        Validate.nonNull(candidates, "candidates");
+        Validate.nonNull(function, "function");
+        Validate.nonNull(pool, "pool");
+
+        int numCandidates = candidates.size();
+        if (numCandidates == 0) {
+            return;
+        }
+        int numLeaves = tasksPerThread * pool.getParallelism();
+        int leafSize = Math.max(1, numCandidates / numLeaves);
+        ScoreTask<Fitness, Element> task = new ScoreTask<>(candidates, 0,
+                numCandidates, leafSize, function, this);
+        pool.invoke(task);
+    }
+
+    /**
+     * Move every collected element into the specified population, leaving
+     * this collector empty. Intended for use at generation boundaries: this
+     * method mustn't be invoked while other threads are adding elements, and
+     * elements added by other threads are only guaranteed to be visible if
+     * those threads have been joined (for instance, by returning from
+     * {@link #addAll(java.util.List, FitnessFunction)}).
+     *
+     * @param destination population to merge into (not null, modified)
+     */
+    public void drainTo(Population<Fitness, Element> destination) {
+        Validate.nonNull(destination, "destination");
+
+        for (Population<Fitness, Element> stripe : stripes) {
+            stripe.mergeTo(destination);
+            stripe.cull(0);
+        }
+    }
+
+    /**
+     * Read the capacity of each stripe.
+     *
+     * @return number of elements (&gt;0)
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Count the stripes created so far, which is the number of distinct
+     * threads that have added elements.
+     *
+     * @return count (&ge;0)
+     */
+    public int numStripes() {
+        int result = stripes.size();
+        return result;
+    }
+
+    /**
+     * Count the elements collected and not yet drained, including any
+     * duplicates held by different stripes. Like
+     * {@link #drainTo(jme3utilities.evo.Population)}, this mustn't be invoked
+     * while other threads are adding elements.
+     *
+     * @return count of elements (&ge;0)
+     */
+    public int size() {
+        int result = 0;
+        for (Population<Fitness, Element> stripe : stripes) {
+            result += stripe.size();
+        }
+
+        return result;
+    }
+}
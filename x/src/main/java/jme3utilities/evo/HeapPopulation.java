@@ -0,0 +1,839 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo;
+
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A fixed-capacity container for elements, sorted based on a measure of
+ * fitness and stored in a min-max heap: an alternative to {@link Population}
+ * for large populations in which fitness scores rarely collide. Adding an
+ * element takes O(log n) time, automatically evicting the least fit element
+ * if the container is full. The best and worst scores are found in O(1) time.
+ * Entries are held in 2 parallel arrays, indexed for detecting duplicates by
+ * an open-addressed hash table of heap positions, so no objects are allocated
+ * per entry.
+ * <p>
+ * Like {@link Population}, duplicate elements are suppressed: an element
+ * that's already present (according to its equals() method) isn't added
+ * again, whatever its score. Among elements with equal scores, the order of
+ * eviction isn't specified.
+ *
+ * @param <Fitness> type of fitness score (such as Float or ScoreDoubles, must
+ * implement Comparable interface)
+ * @param <Element> type of elements collected (such as Solution)
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class HeapPopulation<Fitness extends Comparable<Fitness>, Element> {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(HeapPopulation.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * current number of elements (&ge;0, &le;capacity)
+     */
+    private int numElements = 0;
+    /**
+     * element of each heap entry (not null, length = capacity)
+     */
+    final private Object[] elements;
+    /**
+     * fitness score of each heap entry (not null, length = capacity)
+     */
+    final private Object[] scores;
+    /**
+     * mixed hash code of the element at each position in the hash table (not
+     * null, same length as indexSlots)
+     */
+    final private int[] indexHashes;
+    /**
+     * position in the hash table of each heap entry's element (not null,
+     * length = capacity)
+     */
+    final private int[] indexPositions;
+    /**
+     * open-addressed hash table of the elements, for suppressing duplicates:
+     * for each position, the index of a heap entry plus one, or 0 if vacant
+     * (not null, length a power of 2 and &ge;2*capacity)
+     */
+    final private int[] indexSlots;
+    /**
+     * right shift that maps a mixed hash code to its home position in the
+     * hash table (&gt;0)
+     */
+    final private int indexShift;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty population with the specified capacity.
+     *
+     * @param capacity maximum number of elements (&gt;0)
+     */
+    public HeapPopulation(int capacity) {
+        Validate.positive(capacity, "capacity");
+
+        elements = new Object[capacity];
+        scores = new Object[capacity];
+
+        int tableLength = Integer.highestOneBit(2 * capacity - 1) << 1;
+        indexHashes = new int[tableLength];
+        indexPositions = new int[capacity];
+        indexSlots = new int[tableLength];
+        indexShift = 32 - Integer.numberOfTrailingZeros(tableLength);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a single element to this population (unless it's a duplicate). If
+     * the population is full, either the new element or the least fit element
+     * is discarded.
+     *
+     * @param element instance to add (not null)
+     * @param score (not null)
+     * @return true if the element was added, false if it was discarded or
+     * already present
+     */
+    public boolean add(Element element, Fitness score) {
+        Validate.nonNull(element, "element");
+        Validate.nonNull(score, "score");
+
+        if (numElements == elements.length
+                && score(0).compareTo(score) >= 0) {
+            return false;
+        }
+        int hash = mixHash(element);
+        int position = findPosition(element, hash);
+        if (position >= 0) {
+            return false; // duplicate
+        }
+
+        if (numElements < elements.length) {
+            int index = numElements;
+            ++numElements;
+            elements[index] = element;
+            scores[index] = score;
+            indexEntry(index, -1 - position, hash);
+            pushUp(index);
+
+        } else {
+            /*
+             * Replace the least fit entry (at the root). Unindexing it
+             * may shift the vacant position, so find it again.
+             */
+            unindex(0);
+            elements[0] = element;
+            scores[0] = score;
+            position = findPosition(element, hash);
+            indexEntry(0, -1 - position, hash);
+            pushDownMin(0);
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the highest fitness score in this population.
+     *
+     * @return the pre-existing instance or null if empty
+     * @see #fittest()
+     * @see #worstScore()
+     */
+    public Fitness bestScore() {
+        if (numElements == 0) {
+            return null;
+        }
+        int index = bestIndex();
+        Fitness result = score(index);
+
+        return result;
+    }
+
+    /**
+     * Cull this population, based solely on fitness, until no more than the
+     * specified number of elements remain. Small culls remove the least fit
+     * entries one at a time, in O(log n) time each. Larger ones select the
+     * survivors and rebuild the heap, in O(n) time overall.
+     *
+     * @param targetSize target number of elements (&ge;0)
+     */
+    public void cull(int targetSize) {
+        Validate.nonNegative(targetSize, "target size");
+
+        int numRemoved = numElements - targetSize;
+        if (numRemoved <= 0) {
+            return;
+        }
+
+        int log2 = 32 - Integer.numberOfLeadingZeros(numElements);
+        if ((long) numRemoved * log2 < numElements) {
+            for (int i = 0; i < numRemoved; i++) {
+                removeAt(0);
+            }
+
+        } else {
+            if (targetSize > 0) {
+                select(targetSize);
+            }
+            for (int index = targetSize; index < numElements; index++) {
+                unindex(index);
+                elements[index] = null;
+                scores[index] = null;
+            }
+            numElements = targetSize;
+            heapify();
+        }
+    }
+
+    /**
+     * Find the fittest (highest-scoring) element in this population.
+     *
+     * @return the pre-existing instance or null if empty
+     */
+    public Element fittest() {
+        if (numElements == 0) {
+            return null;
+        }
+        int index = bestIndex();
+        Element result = element(index);
+
+        return result;
+    }
+
+    /**
+     * Read the capacity of this population.
+     *
+     * @return number of elements (&gt;0)
+     * @see #size()
+     */
+    public int getCapacity() {
+        int result = elements.length;
+        return result;
+    }
+
+    /**
+     * Merge the fittest elements into another population, in order of
+     * decreasing fitness. The heap is walked in place, in O(k log k) time for
+     * k elements merged.
+     *
+     * @param maxCount maximum number of elements to merge (&ge;0)
+     * @param destination population to merge into (not null, modified)
+     * @return the number of elements merged (&ge;0, &le;maxCount)
+     */
+    public int mergeFittestTo(int maxCount,
+            Population<Fitness, Element> destination) {
+        Validate.nonNegative(maxCount, "maxCount");
+        Validate.nonNull(destination, "destination");
+
+        int numToMerge = Math.min(maxCount, numElements);
+        if (numToMerge == 0) {
+            return 0;
+        }
+        /*
+         * Each entry on a max level is the fittest in its subtree, and each
+         * entry on a min level is the least fit in its subtree. So if every
+         * unmerged entry is either a candidate on a min level or in the
+         * subtree of a candidate on a max level, the fittest candidate is the
+         * fittest unmerged entry. Candidates are kept in a binary max-heap,
+         * which grows by at most 5 entries per merge.
+         */
+        int frontierCapacity = (int) Math.min(numElements,
+                5L * numToMerge + 3L);
+        int[] frontier = new int[frontierCapacity];
+        int frontierSize = addCandidate(frontier, 0, 0);
+
+        int numMerged = 0;
+        while (numMerged < numToMerge) {
+            int index = frontier[0];
+            frontierSize = pollCandidate(frontier, frontierSize);
+            destination.add(element(index), score(index));
+            ++numMerged;
+
+            if (!isMinLevel(index)) {
+                for (int child = 2 * index + 1;
+                        child <= 2 * index + 2 && child < numElements;
+                        child++) {
+                    frontierSize = addCandidate(frontier, frontierSize, child);
+                }
+            }
+        }
+
+        return numMerged;
+    }
+
+    /**
+     * Merge all elements into another population.
+     *
+     * @param destination population to merge into (not null, modified)
+     */
+    public void mergeTo(Population<Fitness, Element> destination) {
+        Validate.nonNull(destination, "destination");
+
+        for (int index = 0; index < numElements; index++) {
+            destination.add(element(index), score(index));
+        }
+    }
+
+    /**
+     * Remove the fittest element from this population.
+     *
+     * @return the element removed, or null if the population was empty
+     */
+    public Element removeFittest() {
+        if (numElements == 0) {
+            return null;
+        }
+        int index = bestIndex();
+        Element result = element(index);
+        removeAt(index);
+
+        return result;
+    }
+
+    /**
+     * Read the number of elements in this population.
+     *
+     * @return count of elements (&ge;0)
+     * @see #getCapacity()
+     */
+    public int size() {
+        assert numElements >= 0 : numElements;
+        assert numElements <= elements.length : numElements;
+        return numElements;
+    }
+
+    /**
+     * Find the lowest fitness score in this population.
+     *
+     * @return the pre-existing instance or null if empty
+     * @see #bestScore()
+     */
+    public Fitness worstScore() {
+        if (numElements == 0) {
+            return null;
+        }
+        Fitness result = score(0);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a heap entry to the candidates of
+     * {@link #mergeFittestTo(int, jme3utilities.evo.Population)}, along with
+     * its children if it lies on a min level.
+     *
+     * @param frontier the candidates, as a binary max-heap of entry indices
+     * (not null, modified)
+     * @param frontierSize number of candidates (&ge;0)
+     * @param index index of the heap entry (&ge;0, &lt;numElements)
+     * @return the new number of candidates
+     */
+    private int addCandidate(int[] frontier, int frontierSize, int index) {
+        int result = offerCandidate(frontier, frontierSize, index);
+        if (isMinLevel(index)) {
+            for (int child = 2 * index + 1;
+                    child <= 2 * index + 2 && child < numElements; child++) {
+                result = offerCandidate(frontier, result, child);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the heap entry with the highest score: one of the root's children,
+     * or else the root itself.
+     *
+     * @return index of the entry (&ge;0, &lt;numElements)
+     */
+    private int bestIndex() {
+        assert numElements > 0 : numElements;
+
+        int result;
+        if (numElements == 1) {
+            result = 0;
+        } else if (numElements == 2
+                || score(1).compareTo(score(2)) >= 0) {
+            result = 1;
+        } else {
+            result = 2;
+        }
+
+        return result;
+    }
+
+    /**
+     * Compare the scores of 2 heap entries.
+     *
+     * @param index1 index of the 1st entry
+     * @param index2 index of the 2nd entry
+     * @return negative if the 1st is less fit, positive if it's more fit, zero
+     * if they're equally fit
+     */
+    private int compare(int index1, int index2) {
+        int result = score(index1).compareTo(score(index2));
+        return result;
+    }
+
+    /**
+     * Access the element of the indexed heap entry.
+     *
+     * @param index index of the entry
+     * @return the pre-existing instance
+     */
+    @SuppressWarnings("unchecked")
+    private Element element(int index) {
+        Element result = (Element) elements[index];
+        return result;
+    }
+
+    /**
+     * Find an element in the hash table.
+     *
+     * @param element the element to find (not null, unaffected)
+     * @param hash the element's mixed hash code
+     * @return its position in the table if present, otherwise -1 minus the
+     * vacant position where it belongs
+     */
+    private int findPosition(Object element, int hash) {
+        int mask = indexSlots.length - 1;
+        int position = hash >>> indexShift;
+        while (indexSlots[position] != 0) {
+            if (indexHashes[position] == hash
+                    && elements[indexSlots[position] - 1].equals(element)) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+
+        return -1 - position;
+    }
+
+    /**
+     * Arrange the entries into a min-max heap, bottom-up, in O(n) time.
+     */
+    private void heapify() {
+        for (int index = numElements / 2 - 1; index >= 0; index--) {
+            if (isMinLevel(index)) {
+                pushDownMin(index);
+            } else {
+                pushDownMax(index);
+            }
+        }
+    }
+
+    /**
+     * Enter the element of the indexed heap entry into the hash table.
+     *
+     * @param index index of the heap entry (&ge;0, &lt;numElements)
+     * @param position vacant position in the table
+     * @param hash the element's mixed hash code
+     */
+    private void indexEntry(int index, int position, int hash) {
+        assert indexSlots[position] == 0 : position;
+
+        indexSlots[position] = index + 1;
+        indexHashes[position] = hash;
+        indexPositions[index] = position;
+    }
+
+    /**
+     * Test whether the indexed heap entry lies on a min level: a level whose
+     * entries are no fitter than any of their descendants.
+     *
+     * @param index index of the entry (&ge;0)
+     * @return true for a min level, false for a max level
+     */
+    private static boolean isMinLevel(int index) {
+        int level = 31 - Integer.numberOfLeadingZeros(index + 1);
+        if (level % 2 == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Calculate the mixed hash code of an element, so that its high-order bits
+     * are well distributed even for sequential hash codes.
+     *
+     * @param element the element (not null, unaffected)
+     * @return the hash code multiplied by the golden ratio (modulo 2^32)
+     */
+    private static int mixHash(Object element) {
+        int result = element.hashCode() * 0x9e3779b9;
+        return result;
+    }
+
+    /**
+     * Add an entry to a binary max-heap of candidates.
+     *
+     * @param frontier the candidates (not null, modified)
+     * @param frontierSize number of candidates (&ge;0)
+     * @param index index of the heap entry to add (&ge;0, &lt;numElements)
+     * @return the new number of candidates
+     */
+    private int offerCandidate(int[] frontier, int frontierSize, int index) {
+        int position = frontierSize;
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (compare(frontier[parent], index) >= 0) {
+                break;
+            }
+            frontier[position] = frontier[parent];
+            position = parent;
+        }
+        frontier[position] = index;
+
+        return frontierSize + 1;
+    }
+
+    /**
+     * Partition a range of entries, fittest first, around the entry at the
+     * start of the range.
+     *
+     * @param low index of the first entry in the range (&ge;0)
+     * @param high index of the last entry in the range (&gt;low)
+     * @return the final index of the partitioning entry
+     */
+    private int partition(int low, int high) {
+        int i = low;
+        int j = high + 1;
+        while (true) {
+            do {
+                ++i;
+            } while (i < high && compare(i, low) > 0);
+            do {
+                --j;
+            } while (j > low && compare(low, j) > 0);
+            if (i >= j) {
+                break;
+            }
+            swap(i, j);
+        }
+        swap(low, j);
+
+        return j;
+    }
+
+    /**
+     * Remove the fittest entry from a binary max-heap of candidates.
+     *
+     * @param frontier the candidates (not null, modified)
+     * @param frontierSize number of candidates (&gt;0)
+     * @return the new number of candidates
+     */
+    private int pollCandidate(int[] frontier, int frontierSize) {
+        int result = frontierSize - 1;
+        int last = frontier[result];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= result) {
+                break;
+            }
+            if (child + 1 < result
+                    && compare(frontier[child + 1], frontier[child]) > 0) {
+                ++child;
+            }
+            if (compare(frontier[child], last) <= 0) {
+                break;
+            }
+            frontier[position] = frontier[child];
+            position = child;
+        }
+        frontier[position] = last;
+
+        return result;
+    }
+
+    /**
+     * Restore heap order below the indexed entry of a max level.
+     *
+     * @param startIndex index of the entry (&ge;0)
+     */
+    private void pushDownMax(int startIndex) {
+        int index = startIndex;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= numElements) {
+                return;
+            }
+            /*
+             * Find the fittest child or grandchild.
+             */
+            int best = child;
+            if (child + 1 < numElements && compare(child + 1, best) > 0) {
+                best = child + 1;
+            }
+            int firstGrandchild = 2 * child + 1;
+            int endGrandchild = Math.min(firstGrandchild + 4, numElements);
+            for (int g = firstGrandchild; g < endGrandchild; g++) {
+                if (compare(g, best) > 0) {
+                    best = g;
+                }
+            }
+
+            if (compare(best, index) <= 0) {
+                return;
+            }
+            swap(best, index);
+            if (best < firstGrandchild) {
+                return;
+            }
+            int parent = (best - 1) / 2;
+            if (compare(best, parent) < 0) {
+                swap(best, parent);
+            }
+            index = best;
+        }
+    }
+
+    /**
+     * Restore heap order below the indexed entry of a min level.
+     *
+     * @param startIndex index of the entry (&ge;0)
+     */
+    private void pushDownMin(int startIndex) {
+        int index = startIndex;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= numElements) {
+                return;
+            }
+            /*
+             * Find the least fit child or grandchild.
+             */
+            int worst = child;
+            if (child + 1 < numElements && compare(child + 1, worst) < 0) {
+                worst = child + 1;
+            }
+            int firstGrandchild = 2 * child + 1;
+            int endGrandchild = Math.min(firstGrandchild + 4, numElements);
+            for (int g = firstGrandchild; g < endGrandchild; g++) {
+                if (compare(g, worst) < 0) {
+                    worst = g;
+                }
+            }
+
+            if (compare(worst, index) >= 0) {
+                return;
+            }
+            swap(worst, index);
+            if (worst < firstGrandchild) {
+                return;
+            }
+            int parent = (worst - 1) / 2;
+            if (compare(worst, parent) > 0) {
+                swap(worst, parent);
+            }
+            index = worst;
+        }
+    }
+
+    /**
+     * Restore heap order above the indexed entry.
+     *
+     * @param startIndex index of the entry (&ge;0)
+     */
+    private void pushUp(int startIndex) {
+        if (startIndex == 0) {
+            return;
+        }
+
+        int index = startIndex;
+        int parent = (index - 1) / 2;
+        boolean minLevel = isMinLevel(index);
+        if (minLevel && compare(index, parent) > 0) {
+            swap(index, parent);
+            index = parent;
+            minLevel = false;
+        } else if (!minLevel && compare(index, parent) < 0) {
+            swap(index, parent);
+            index = parent;
+            minLevel = true;
+        }
+        /*
+         * Rise through grandparents on levels of the same kind.
+         */
+        while (index > 2) {
+            int grandparent = ((index - 1) / 2 - 1) / 2;
+            int sign = compare(index, grandparent);
+            if (minLevel ? sign >= 0 : sign <= 0) {
+                break;
+            }
+            swap(index, grandparent);
+            index = grandparent;
+        }
+    }
+
+    /**
+     * Remove the indexed heap entry.
+     *
+     * @param index index of the entry (&ge;0, &lt;numElements)
+     */
+    private void removeAt(int index) {
+        assert index >= 0 : index;
+        assert index < numElements : index;
+
+        unindex(index);
+        --numElements;
+        if (index < numElements) {
+            elements[index] = elements[numElements];
+            scores[index] = scores[numElements];
+            int position = indexPositions[numElements];
+            indexPositions[index] = position;
+            indexSlots[position] = index + 1;
+        }
+        elements[numElements] = null;
+        scores[numElements] = null;
+
+        if (index < numElements) {
+            if (isMinLevel(index)) {
+                pushDownMin(index);
+            } else {
+                pushDownMax(index);
+            }
+            pushUp(index);
+        }
+    }
+
+    /**
+     * Access the fitness score of the indexed heap entry.
+     *
+     * @param index index of the entry
+     * @return the pre-existing instance
+     */
+    @SuppressWarnings("unchecked")
+    private Fitness score(int index) {
+        Fitness result = (Fitness) scores[index];
+        return result;
+    }
+
+    /**
+     * Rearrange the entries so that the indexed entry holds the one that
+     * would be there if all entries were sorted fittest first: no entry before
+     * it is less fit and no entry after it is fitter. Quickselect, O(n)
+     * expected time.
+     *
+     * @param rank index of the entry to place (&gt;0, &lt;numElements)
+     */
+    private void select(int rank) {
+        assert rank > 0 : rank;
+        assert rank < numElements : rank;
+
+        int low = 0;
+        int high = numElements - 1;
+        while (high > low) {
+            swap(low, (low + high) >>> 1);
+            int pivot = partition(low, high);
+            if (pivot > rank) {
+                high = pivot - 1;
+            } else if (pivot < rank) {
+                low = pivot + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swap 2 heap entries.
+     *
+     * @param index1 index of the 1st entry
+     * @param index2 index of the 2nd entry
+     */
+    private void swap(int index1, int index2) {
+        Object element = elements[index1];
+        elements[index1] = elements[index2];
+        elements[index2] = element;
+
+        Object score = scores[index1];
+        scores[index1] = scores[index2];
+        scores[index2] = score;
+
+        int position1 = indexPositions[index2];
+        int position2 = indexPositions[index1];
+        indexPositions[index1] = position1;
+        indexPositions[index2] = position2;
+        indexSlots[position1] = index1 + 1;
+        indexSlots[position2] = index2 + 1;
+    }
+
+    /**
+     * Remove the element of the indexed heap entry from the hash table,
+     * shifting later members of its cluster back to close the gap (so no
+     * tombstones are needed).
+     *
+     * @param index index of the heap entry (&ge;0, &lt;numElements)
+     */
+    private void unindex(int index) {
+        int mask = indexSlots.length - 1;
+        int vacant = indexPositions[index];
+        assert indexSlots[vacant] == index + 1 : vacant;
+        indexSlots[vacant] = 0;
+
+        int position = vacant;
+        while (true) {
+            position = (position + 1) & mask;
+            int slot = indexSlots[position];
+            if (slot == 0) {
+                return;
+            }
+            /*
+             * Move the member back unless its home position lies
+             * (cyclically) after the vacancy and at or before its position.
+             */
+            int home = indexHashes[position] >>> indexShift;
+            boolean move;
+            if (vacant <= position) {
+                move = home <= vacant || home > position;
+            } else {
+                move = home <= vacant && home > position;
+            }
+            if (move) {
+                indexSlots[vacant] = slot;
+                indexHashes[vacant] = indexHashes[position];
+                indexPositions[slot - 1] = vacant;
+                indexSlots[position] = 0;
+                vacant = position;
+            }
+        }
+    }
+}
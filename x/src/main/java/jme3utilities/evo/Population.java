@@ -395,7 +395,7 @@ public class Population<Fitness extends Comparable<Fitness>, Element> {
     public int size() {
         assert numElements >= 0 : numElements;
         assert numElements <= capacity : numElements;
-        assert numElements <= elementsByFitness.size() : numElements;
+        assert numElements >= elementsByFitness.size() : numElements;
         return numElements;
     }
 
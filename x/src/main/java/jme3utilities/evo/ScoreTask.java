@@ -0,0 +1,136 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to score a range of candidates and add them to a concurrent
+ * population.
+ *
+ * @param <Fitness> type of fitness score
+ * @param <Element> type of elements scored
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class ScoreTask<Fitness extends Comparable<Fitness>, Element>
+        extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * population to add to (not null)
+     */
+    final private ConcurrentPopulation<Fitness, Element> population;
+    /**
+     * function to score the candidates (not null)
+     */
+    final private FitnessFunction<Fitness, Element> function;
+    /**
+     * index of the first candidate in this task's range (&ge;0)
+     */
+    final private int firstIndex;
+    /**
+     * index of the first candidate past this task's range (&gt;firstIndex)
+     */
+    final private int endIndex;
+    /**
+     * maximum number of candidates to score without splitting the range
+     * (&gt;0)
+     */
+    final private int leafSize;
+    /**
+     * candidates to score (not null)
+     */
+    final private List<Element> candidates;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of candidates.
+     *
+     * @param candidates candidates to score (not null, alias created)
+     * @param firstIndex index of the first candidate to score (&ge;0)
+     * @param endIndex index of the first candidate past the range
+     * (&gt;firstIndex)
+     * @param leafSize maximum number of candidates to score without splitting
+     * (&gt;0)
+     * @param function function to score the candidates (not null, alias
+     * created)
+     * @param population population to add to (not null, alias created)
+     */
+    ScoreTask(List<Element> candidates, int firstIndex, int endIndex,
+            int leafSize, FitnessFunction<Fitness, Element> function,
+            ConcurrentPopulation<Fitness, Element> population) {
+        assert candidates != null;
+        assert firstIndex >= 0 : firstIndex;
+        assert endIndex > firstIndex : endIndex;
+        assert leafSize > 0 : leafSize;
+        assert function != null;
+        assert population != null;
+
+        this.candidates = candidates;
+        this.firstIndex = firstIndex;
+        this.endIndex = endIndex;
+        this.leafSize = leafSize;
+        this.function = function;
+        this.population = population;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Score the candidates in this task's range, splitting the range in half
+     * until it's no larger than the leaf size.
+     */
+    @Override
+    protected void compute() {
+        if (endIndex - firstIndex > leafSize) {
+            int middleIndex = (firstIndex + endIndex) >>> 1;
+            ScoreTask<Fitness, Element> low = new ScoreTask<>(candidates,
+                    firstIndex, middleIndex, leafSize, function, population);
+            ScoreTask<Fitness, Element> high = new ScoreTask<>(candidates,
+                    middleIndex, endIndex, leafSize, function, population);
+            invokeAll(low, high);
+            return;
+        }
+
+        for (int index = firstIndex; index < endIndex; index++) {
+            Element candidate = candidates.get(index);
+            Fitness score = function.evaluate(candidate);
+            population.add(candidate, score);
+        }
+    }
+}
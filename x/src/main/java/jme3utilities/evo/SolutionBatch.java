@@ -0,0 +1,563 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.evo;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A mutable batch of candidate solutions, all of the same species and with
+ * the same number of parameters, stored in a single contiguous array. Each
+ * solution's parameters occupy a contiguous run of the array, so breeding
+ * kernels operate in place on plain loops that the JIT can vectorize, and
+ * fitness functions can read a solution through a buffer view without
+ * copying. To breed a whole generation, use the kernels that take arrays of
+ * parent indices: they validate their arguments once per batch instead of
+ * once per child.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SolutionBatch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger = Logger.getLogger(
+            SolutionBatch.class.getName());
+    /**
+     * number of bits of precision in the probabilities used for random
+     * blending
+     */
+    final private static int probabilityBits = 24;
+    // *************************************************************************
+    // fields
+
+    /**
+     * parameter values of all solutions, solution by solution (not null)
+     */
+    final private float[] parameters;
+    /**
+     * number of parameters per solution (&ge;0)
+     */
+    final private int numParameters;
+    /**
+     * number of solutions (&ge;0)
+     */
+    final private int numSolutions;
+    /**
+     * name of species (not null)
+     */
+    final private String species;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a batch of solutions with all parameters equal to zero.
+     *
+     * @param species name of species (not null)
+     * @param numParameters number of parameters per solution (&ge;0)
+     * @param numSolutions number of solutions (&ge;0)
+     */
+    public SolutionBatch(String species, int numParameters, int numSolutions) {
+        Validate.nonNull(species, "species");
+        Validate.nonNegative(numParameters, "number of parameters");
+        Validate.nonNegative(numSolutions, "number of solutions");
+        long length = (long) numParameters * numSolutions;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("batch too large");
+        }
+
+        this.species = species;
+        this.numParameters = numParameters;
+        this.numSolutions = numSolutions;
+        parameters = new float[(int) length];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Linearly blend 2 solutions of a source batch and store the result in
+     * this batch, without allocating. The source may be this batch.
+     *
+     * @param destIndex index of the solution to overwrite (&ge;0,
+     * &lt;numSolutions)
+     * @param source batch containing the parents (not null, same species and
+     * number of parameters)
+     * @param index1 index of the 1st parent in the source (&ge;0)
+     * @param index2 index of the 2nd parent in the source (&ge;0)
+     * @param blendAmount fractional weight given to the 2nd parent (&ge;0,
+     * &le;1)
+     */
+    public void blendLinear(int destIndex, SolutionBatch source, int index1,
+            int index2, float blendAmount) {
+        validateIndex(destIndex, "destination index");
+        validateSource(source);
+        source.validateIndex(index1, "1st index");
+        source.validateIndex(index2, "2nd index");
+        Validate.fraction(blendAmount, "blend amount");
+
+        blendLinear(destIndex * numParameters, source.parameters,
+                index1 * numParameters, index2 * numParameters, blendAmount);
+    }
+
+    /**
+     * Linearly blend pairs of solutions of a source batch and store the
+     * results in this batch, without allocating: child i is stored in
+     * solution i of this batch. The arguments are validated once for the
+     * whole batch.
+     *
+     * @param source batch containing the parents (not null, not this batch,
+     * same species and number of parameters)
+     * @param firstParents index of each child's 1st parent in the source (not
+     * null, length&le;numSolutions, each element &ge;0, unaffected)
+     * @param secondParents index of each child's 2nd parent in the source
+     * (not null, same length as firstParents, each element &ge;0, unaffected)
+     * @param blendAmounts fractional weight given to each child's 2nd parent
+     * (not null, same length as firstParents, each element &ge;0 and &le;1,
+     * unaffected)
+     */
+    public void blendLinear(SolutionBatch source, int[] firstParents,
+            int[] secondParents, float[] blendAmounts) {
+        validateParents(source, firstParents, secondParents);
+        Validate.nonNull(blendAmounts, "blend amounts");
+        int numChildren = firstParents.length;
+        if (blendAmounts.length != numChildren) {
+            throw new IllegalArgumentException("blend amounts length mismatch");
+        }
+        for (float blendAmount : blendAmounts) {
+            Validate.fraction(blendAmount, "blend amount");
+        }
+
+        float[] sourceParameters = source.parameters;
+        for (int childIndex = 0; childIndex < numChildren; childIndex++) {
+            blendLinear(childIndex * numParameters, sourceParameters,
+                    firstParents[childIndex] * numParameters,
+                    secondParents[childIndex] * numParameters,
+                    blendAmounts[childIndex]);
+        }
+    }
+
+    /**
+     * Probabilistically combine 2 solutions of a source batch (parameter by
+     * parameter) and store the result in this batch, without allocating. The
+     * source may be this batch. The crossover mask is drawn from random bits:
+     * for each 64 parameters, one {@link Random#nextLong()} per bit of
+     * precision in the probability (just one for a probability of 0.5). The
+     * probability is rounded to a multiple of 2^-24.
+     *
+     * @param destIndex index of the solution to overwrite (&ge;0,
+     * &lt;numSolutions)
+     * @param source batch containing the parents (not null, same species and
+     * number of parameters)
+     * @param index1 index of the 1st parent in the source (&ge;0)
+     * @param index2 index of the 2nd parent in the source (&ge;0)
+     * @param blendProbability probability of copying from the 2nd parent
+     * (&ge;0, &le;1)
+     * @param generator pseudo-random generator to use (not null)
+     */
+    public void blendRandom(int destIndex, SolutionBatch source, int index1,
+            int index2, double blendProbability, Random generator) {
+        validateIndex(destIndex, "destination index");
+        validateSource(source);
+        source.validateIndex(index1, "1st index");
+        source.validateIndex(index2, "2nd index");
+        Validate.fraction(blendProbability, "blend probability");
+        Validate.nonNull(generator, "generator");
+
+        int scaledProbability = scaleProbability(blendProbability);
+        blendRandom(destIndex * numParameters, source.parameters,
+                index1 * numParameters, index2 * numParameters,
+                scaledProbability, generator);
+    }
+
+    /**
+     * Probabilistically combine pairs of solutions of a source batch
+     * (parameter by parameter) and store the results in this batch, without
+     * allocating: child i is stored in solution i of this batch. The
+     * arguments are validated once for the whole batch, and the children are
+     * identical to those produced by invoking
+     * {@link #blendRandom(int, SolutionBatch, int, int, double, Random)} for
+     * each child in order.
+     *
+     * @param source batch containing the parents (not null, not this batch,
+     * same species and number of parameters)
+     * @param firstParents index of each child's 1st parent in the source (not
+     * null, length&le;numSolutions, each element &ge;0, unaffected)
+     * @param secondParents index of each child's 2nd parent in the source
+     * (not null, same length as firstParents, each element &ge;0, unaffected)
+     * @param blendProbability probability of copying from the 2nd parent
+     * (&ge;0, &le;1)
+     * @param generator pseudo-random generator to use (not null)
+     */
+    public void blendRandom(SolutionBatch source, int[] firstParents,
+            int[] secondParents, double blendProbability, Random generator) {
+        validateParents(source, firstParents, secondParents);
+        Validate.fraction(blendProbability, "blend probability");
+        Validate.nonNull(generator, "generator");
+
+        int scaledProbability = scaleProbability(blendProbability);
+        float[] sourceParameters = source.parameters;
+        int numChildren = firstParents.length;
+        for (int childIndex = 0; childIndex < numChildren; childIndex++) {
+            blendRandom(childIndex * numParameters, sourceParameters,
+                    firstParents[childIndex] * numParameters,
+                    secondParents[childIndex] * numParameters,
+                    scaledProbability, generator);
+        }
+    }
+
+    /**
+     * Copy a solution of a source batch into this batch. The source may be
+     * this batch.
+     *
+     * @param destIndex index of the solution to overwrite (&ge;0,
+     * &lt;numSolutions)
+     * @param source batch containing the solution to copy (not null, same
+     * species and number of parameters)
+     * @param sourceIndex index of the solution in the source (&ge;0)
+     */
+    public void copy(int destIndex, SolutionBatch source, int sourceIndex) {
+        validateIndex(destIndex, "destination index");
+        validateSource(source);
+        source.validateIndex(sourceIndex, "source index");
+
+        System.arraycopy(source.parameters, sourceIndex * numParameters,
+                parameters, destIndex * numParameters, numParameters);
+    }
+
+    /**
+     * Copy the specified solution to a new Solution instance.
+     *
+     * @param index index of the solution (&ge;0, &lt;numSolutions)
+     * @return a new instance
+     */
+    public Solution copySolution(int index) {
+        validateIndex(index, "index");
+
+        float[] array = new float[numParameters];
+        System.arraycopy(parameters, index * numParameters, array, 0,
+                numParameters);
+        Solution result = new Solution(species, array);
+
+        return result;
+    }
+
+    /**
+     * Read the specified parameter of the specified solution.
+     *
+     * @param index index of the solution (&ge;0, &lt;numSolutions)
+     * @param parameterIndex which parameter (&ge;0, &lt;numParameters)
+     * @return parameter value
+     */
+    public float getParameter(int index, int parameterIndex) {
+        validateIndex(index, "index");
+        Validate.inRange(parameterIndex, "parameter index", 0,
+                numParameters - 1);
+
+        float result = parameters[index * numParameters + parameterIndex];
+        return result;
+    }
+
+    /**
+     * Read the species.
+     *
+     * @return species (not null)
+     */
+    public String getSpecies() {
+        assert species != null;
+        return species;
+    }
+
+    /**
+     * Add Gaussian noise to every parameter of the specified solution, in
+     * place.
+     *
+     * @param index index of the solution (&ge;0, &lt;numSolutions)
+     * @param standardDeviation standard deviation of the noise (&ge;0)
+     * @param generator pseudo-random generator to use (not null)
+     */
+    public void mutate(int index, float standardDeviation, Random generator) {
+        validateIndex(index, "index");
+        Validate.nonNegative(standardDeviation, "standard deviation");
+        Validate.nonNull(generator, "generator");
+
+        int offset = index * numParameters;
+        for (int iParameter = 0; iParameter < numParameters; iParameter++) {
+            double noise = generator.nextGaussian() * standardDeviation;
+            parameters[offset + iParameter] += (float) noise;
+        }
+    }
+
+    /**
+     * Read the number of parameters per solution.
+     *
+     * @return count (&ge;0)
+     */
+    public int numParameters() {
+        assert numParameters >= 0 : numParameters;
+        return numParameters;
+    }
+
+    /**
+     * Read the number of solutions in this batch.
+     *
+     * @return count (&ge;0)
+     */
+    public int numSolutions() {
+        assert numSolutions >= 0 : numSolutions;
+        return numSolutions;
+    }
+
+    /**
+     * Overwrite the specified solution with a Solution instance.
+     *
+     * @param index index of the solution to overwrite (&ge;0,
+     * &lt;numSolutions)
+     * @param solution the new value (not null, same species and number of
+     * parameters, unaffected)
+     */
+    public void set(int index, Solution solution) {
+        validateIndex(index, "index");
+        Validate.nonNull(solution, "solution");
+        if (!species.equals(solution.getSpecies())) {
+            throw new IllegalArgumentException("species mismatch");
+        }
+        if (solution.numParameters() != numParameters) {
+            throw new IllegalArgumentException("parameter count mismatch");
+        }
+
+        float[] array = solution.copyParameters();
+        System.arraycopy(array, 0, parameters, index * numParameters,
+                numParameters);
+    }
+
+    /**
+     * Alter the specified parameter of the specified solution.
+     *
+     * @param index index of the solution (&ge;0, &lt;numSolutions)
+     * @param parameterIndex which parameter (&ge;0, &lt;numParameters)
+     * @param value the new value
+     */
+    public void setParameter(int index, int parameterIndex, float value) {
+        validateIndex(index, "index");
+        Validate.inRange(parameterIndex, "parameter index", 0,
+                numParameters - 1);
+
+        parameters[index * numParameters + parameterIndex] = value;
+    }
+
+    /**
+     * Create a read-only view of the specified solution's parameters, for use
+     * by fitness functions. The view shares storage with this batch, so it
+     * reflects later changes to the solution.
+     *
+     * @param index index of the solution (&ge;0, &lt;numSolutions)
+     * @return a new read-only buffer with position=0 and
+     * limit=numParameters
+     */
+    public FloatBuffer view(int index) {
+        validateIndex(index, "index");
+
+        FloatBuffer wrapper = FloatBuffer.wrap(parameters,
+                index * numParameters, numParameters);
+        FloatBuffer result = wrapper.slice().asReadOnlyBuffer();
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Linearly blend 2 runs of parameters into this batch.
+     *
+     * @param destOffset offset of the child in this batch's array (&ge;0)
+     * @param sourceParameters the source batch's array (not null,
+     * unaffected)
+     * @param offset1 offset of the 1st parent in the source array (&ge;0)
+     * @param offset2 offset of the 2nd parent in the source array (&ge;0)
+     * @param blendAmount fractional weight given to the 2nd parent (&ge;0,
+     * &le;1)
+     */
+    private void blendLinear(int destOffset, float[] sourceParameters,
+            int offset1, int offset2, float blendAmount) {
+        float complement = 1f - blendAmount;
+        for (int iParameter = 0; iParameter < numParameters; iParameter++) {
+            parameters[destOffset + iParameter]
+                    = sourceParameters[offset1 + iParameter] * complement
+                    + sourceParameters[offset2 + iParameter] * blendAmount;
+        }
+    }
+
+    /**
+     * Combine 2 runs of parameters into this batch, choosing each parameter
+     * from one parent or the other according to a random mask.
+     *
+     * @param destOffset offset of the child in this batch's array (&ge;0)
+     * @param sourceParameters the source batch's array (not null,
+     * unaffected)
+     * @param offset1 offset of the 1st parent in the source array (&ge;0)
+     * @param offset2 offset of the 2nd parent in the source array (&ge;0)
+     * @param scaledProbability probability of copying from the 2nd parent,
+     * as returned by {@link #scaleProbability(double)}
+     * @param generator pseudo-random generator to use (not null)
+     */
+    private void blendRandom(int destOffset, float[] sourceParameters,
+            int offset1, int offset2, int scaledProbability,
+            Random generator) {
+        for (int base = 0; base < numParameters; base += Long.SIZE) {
+            long mask = randomMask(scaledProbability, generator);
+            int end = Math.min(numParameters, base + Long.SIZE);
+            for (int iParameter = base; iParameter < end; iParameter++) {
+                int offset = ((mask & 1L) != 0L) ? offset2 : offset1;
+                parameters[destOffset + iParameter]
+                        = sourceParameters[offset + iParameter];
+                mask >>>= 1;
+            }
+        }
+    }
+
+    /**
+     * Generate 64 random bits, each of which is set with the specified
+     * probability. The probability's binary digits are consumed from least
+     * significant to most significant: a 1 ORs in a fresh random word and a
+     * 0 ANDs one in, so a probability of n/2^k costs k words (for odd n).
+     *
+     * @param scaledProbability probability that each bit is set, as returned
+     * by {@link #scaleProbability(double)}
+     * @param generator pseudo-random generator to use (not null)
+     * @return a mask
+     */
+    private static long randomMask(int scaledProbability, Random generator) {
+        if (scaledProbability == 0) {
+            return 0L;
+        } else if (scaledProbability == 1 << probabilityBits) {
+            return -1L;
+        }
+
+        int numTrailingZeros = Integer.numberOfTrailingZeros(scaledProbability);
+        int digits = scaledProbability >>> numTrailingZeros;
+        int numDigits = probabilityBits - numTrailingZeros;
+        long result = 0L;
+        for (int digitIndex = 0; digitIndex < numDigits; digitIndex++) {
+            long word = generator.nextLong();
+            if ((digits & (1 << digitIndex)) != 0) {
+                result |= word;
+            } else {
+                result &= word;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert a probability to a multiple of 2^-24 for use by
+     * {@link #randomMask(int, java.util.Random)}.
+     *
+     * @param probability the probability (&ge;0, &le;1)
+     * @return the probability times 2^24, rounded (&ge;0, &le;2^24)
+     */
+    private static int scaleProbability(double probability) {
+        assert probability >= 0.0 : probability;
+        assert probability <= 1.0 : probability;
+
+        int result = (int) Math.round(probability * (1 << probabilityBits));
+        return result;
+    }
+
+    /**
+     * Verify that an index refers to a solution in this batch.
+     *
+     * @param index the index to verify
+     * @param description textual description of the index
+     * @throws IllegalArgumentException if the index is out of range
+     */
+    private void validateIndex(int index, String description) {
+        Validate.inRange(index, description, 0, numSolutions - 1);
+    }
+
+    /**
+     * Verify the source and parent indices of a whole-batch kernel.
+     *
+     * @param source the batch containing the parents
+     * @param firstParents index of each child's 1st parent in the source
+     * @param secondParents index of each child's 2nd parent in the source
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    private void validateParents(SolutionBatch source, int[] firstParents,
+            int[] secondParents) {
+        validateSource(source);
+        if (source == this) {
+            throw new IllegalArgumentException(
+                    "source must not be the destination batch");
+        }
+        Validate.nonNull(firstParents, "first parents");
+        Validate.nonNull(secondParents, "second parents");
+        int numChildren = firstParents.length;
+        if (secondParents.length != numChildren) {
+            throw new IllegalArgumentException("parent counts differ");
+        }
+        if (numChildren > numSolutions) {
+            throw new IllegalArgumentException("too many children");
+        }
+
+        int numParents = source.numSolutions;
+        for (int childIndex = 0; childIndex < numChildren; childIndex++) {
+            int index1 = firstParents[childIndex];
+            int index2 = secondParents[childIndex];
+            if (index1 < 0 || index1 >= numParents
+                    || index2 < 0 || index2 >= numParents) {
+                throw new IllegalArgumentException(
+                        "parent index out of range for child " + childIndex);
+            }
+        }
+    }
+
+    /**
+     * Verify that a source batch is compatible with this one.
+     *
+     * @param source the batch to verify (not null)
+     * @throws IllegalArgumentException if the species or number of parameters
+     * differ
+     */
+    private void validateSource(SolutionBatch source) {
+        Validate.nonNull(source, "source");
+        if (source == this) {
+            return;
+        }
+        if (species != source.species && !species.equals(source.species)) {
+            throw new IllegalArgumentException("species mismatch");
+        }
+        if (source.numParameters() != numParameters) {
+            throw new IllegalArgumentException("parameter count mismatch");
+        }
+    }
+}
@@ -27,6 +27,8 @@
 package jme3utilities.math.locus;
 
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.util.BitSet;
 import jme3utilities.math.spline.Spline3f;
 
 /**
@@ -35,6 +37,27 @@ import jme3utilities.math.spline.Spline3f;
  * @author Stephen Gold sgold@sonic.net
  */
 public interface Locus3f {
+    /**
+     * Calculate an axis-aligned bounding box for this region. The box must
+     * contain every location in the region, including any location returned by
+     * {@link #findLocation(Vector3f)}. Unbounded regions may report infinite
+     * extents.
+     * <p>
+     * The default implementation reports infinite extents on every axis, so
+     * regions that don't override it are treated as unbounded.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    default void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        storeMinima.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.NEGATIVE_INFINITY);
+        storeMaxima.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.POSITIVE_INFINITY);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
@@ -59,6 +82,20 @@ public interface Locus3f {
      */
     boolean contains(Vector3f location);
 
+    /**
+     * Test which of the specified locations lie in this region. Intended for
+     * classifying large numbers of locations: no objects are allocated per
+     * location.
+     *
+     * @param xyz coordinates of the test locations, 3 floats per location
+     * starting at the buffer's position (not null, unaffected)
+     * @param count number of locations to test (&ge;0)
+     * @param storeResult storage for the results: bit i is set if the i-th
+     * location is in the region and cleared if it isn't (not null, modified)
+     * @return the number of locations in the region (&ge;0, &le;count)
+     */
+    int contains(FloatBuffer xyz, int count, BitSet storeResult);
+
     /**
      * Test whether this region contains the specified segment.
      *
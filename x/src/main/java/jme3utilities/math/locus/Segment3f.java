@@ -28,6 +28,8 @@ package jme3utilities.math.locus;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -333,6 +335,30 @@ public class Segment3f implements Locus3f {
     // *************************************************************************
     // Locus3f methods
 
+    /**
+     * Calculate an axis-aligned bounding box for this region.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    @Override
+    public void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+
+        storeMinima.set(cornerLocations[0]);
+        storeMaxima.set(cornerLocations[0]);
+        MyVector3f.accumulateMinima(storeMinima, cornerLocations[1]);
+        MyVector3f.accumulateMaxima(storeMaxima, cornerLocations[1]);
+        /*
+         * Pad the box to include locations within tolerance of the segment.
+         */
+        storeMinima.subtractLocal(tolerance, tolerance, tolerance);
+        storeMaxima.addLocal(tolerance, tolerance, tolerance);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
@@ -377,6 +403,71 @@ public class Segment3f implements Locus3f {
         }
     }
 
+    /**
+     * Test which of the specified locations lie in this region, without
+     * allocating any per-location objects.
+     *
+     * @param xyz coordinates of the test locations, 3 floats per location
+     * starting at the buffer's position (not null, unaffected)
+     * @param count number of locations to test (&ge;0)
+     * @param storeResult storage for the results: bit i is set if the i-th
+     * location is in the region and cleared if it isn't (not null, modified)
+     * @return the number of locations in the region (&ge;0, &le;count)
+     */
+    @Override
+    public int contains(FloatBuffer xyz, int count, BitSet storeResult) {
+        Validate.nonNull(xyz, "coordinates");
+        Validate.nonNegative(count, "count");
+        Validate.nonNull(storeResult, "store result");
+        if (xyz.remaining() < 3 * count) {
+            throw new IllegalArgumentException("too few coordinates");
+        }
+        /*
+         * Calculate the offset from corner0 to corner1, as in
+         * squaredDistance().
+         */
+        Vector3f corner0 = cornerLocations[0];
+        Vector3f corner1 = cornerLocations[1];
+        float segmentX = corner1.x - corner0.x;
+        float segmentY = corner1.y - corner0.y;
+        float segmentZ = corner1.z - corner0.z;
+        double segmentDS = (double) segmentX * segmentX
+                + (double) segmentY * segmentY
+                + (double) segmentZ * segmentZ;
+
+        int position = xyz.position();
+        int result = 0;
+        for (int locationIndex = 0; locationIndex < count; locationIndex++) {
+            float pointX = xyz.get(position) - corner0.x;
+            float pointY = xyz.get(position + 1) - corner0.y;
+            float pointZ = xyz.get(position + 2) - corner0.z;
+            position += 3;
+
+            double dx = pointX;
+            double dy = pointY;
+            double dz = pointZ;
+            if (segmentDS != 0.0) {
+                double dot = pointX * (double) segmentX
+                        + pointY * (double) segmentY
+                        + pointZ * (double) segmentZ;
+                double t = dot / segmentDS;
+                float scaleFactor = FastMath.clamp((float) t, 0f, 1f);
+                dx = segmentX * scaleFactor - pointX;
+                dy = segmentY * scaleFactor - pointY;
+                dz = segmentZ * scaleFactor - pointZ;
+            }
+            double squaredDistance = dx * dx + dy * dy + dz * dz;
+            if (squaredDistance > tolerance2) {
+                storeResult.clear(locationIndex);
+            } else {
+                storeResult.set(locationIndex);
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Test whether this region contains the specified segment.
      *
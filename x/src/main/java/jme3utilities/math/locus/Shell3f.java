@@ -26,9 +26,13 @@
  */
 package jme3utilities.math.locus;
 
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -355,6 +359,62 @@ public class Shell3f implements Locus3f {
     // *************************************************************************
     // Locus3f methods    
 
+    /**
+     * Calculate an axis-aligned bounding box for this region.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    @Override
+    public void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+        /*
+         * For all supported metrics, no coordinate of a weighted offset
+         * can exceed the metric value, so the outer radius bounds each
+         * local axis.
+         */
+        float[] localExtents = new float[MyVector3f.numAxes];
+        for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+            float weight = 1f;
+            if (weights != null) {
+                weight = weights.get(axis);
+            }
+            if (weight > 0f) {
+                localExtents[axis] = outerRadius / weight;
+            } else {
+                localExtents[axis] = Float.POSITIVE_INFINITY;
+            }
+        }
+        /*
+         * Rotate the local box into world coordinates.
+         */
+        Vector3f extents = new Vector3f();
+        if (orientation == null) {
+            extents.set(localExtents[0], localExtents[1], localExtents[2]);
+        } else {
+            Matrix3f rotation = orientation.toRotationMatrix();
+            for (int worldAxis = 0; worldAxis < MyVector3f.numAxes;
+                    worldAxis++) {
+                float sum = 0f;
+                for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+                    float element = FastMath.abs(rotation.get(worldAxis, axis));
+                    if (element > 0f) {
+                        sum += element * localExtents[axis];
+                    }
+                }
+                extents.set(worldAxis, sum);
+            }
+        }
+
+        storeMinima.set(center);
+        storeMinima.subtractLocal(extents);
+        storeMaxima.set(center);
+        storeMaxima.addLocal(extents);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
@@ -400,6 +460,53 @@ public class Shell3f implements Locus3f {
         }
     }
 
+    /**
+     * Test which of the specified locations lie in this region, without
+     * allocating any per-location objects.
+     *
+     * @param xyz coordinates of the test locations, 3 floats per location
+     * starting at the buffer's position (not null, unaffected)
+     * @param count number of locations to test (&ge;0)
+     * @param storeResult storage for the results: bit i is set if the i-th
+     * location is in the region and cleared if it isn't (not null, modified)
+     * @return the number of locations in the region (&ge;0, &le;count)
+     */
+    @Override
+    public int contains(FloatBuffer xyz, int count, BitSet storeResult) {
+        Validate.nonNull(xyz, "coordinates");
+        Validate.nonNegative(count, "count");
+        Validate.nonNull(storeResult, "store result");
+        if (xyz.remaining() < 3 * count) {
+            throw new IllegalArgumentException("too few coordinates");
+        }
+
+        Vector3f offset = new Vector3f();
+        int position = xyz.position();
+        int result = 0;
+        for (int locationIndex = 0; locationIndex < count; locationIndex++) {
+            offset.x = xyz.get(position) - center.x;
+            offset.y = xyz.get(position + 1) - center.y;
+            offset.z = xyz.get(position + 2) - center.z;
+            position += 3;
+            if (inverseRotation != null) {
+                inverseRotation.mult(offset, offset);
+            }
+            if (weights != null) {
+                offset.multLocal(weights);
+            }
+            double squaredValue = metric.squaredValue(offset);
+            if (squaredValue >= innerRSquared
+                    && squaredValue <= outerRSquared) {
+                storeResult.set(locationIndex);
+                ++result;
+            } else {
+                storeResult.clear(locationIndex);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Test whether this region contains the specified segment.
      *
@@ -27,8 +27,10 @@
 package jme3utilities.math.polygon;
 
 import com.jme3.math.Vector3f;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.MyVector3f;
@@ -43,6 +45,20 @@ public class CornerSet3f {
     // *************************************************************************
     // constants
 
+    /**
+     * largest corner set whose squared distances are cached automatically:
+     * larger sets calculate them on demand unless #precomputeAll() is invoked
+     */
+    final private static int maxCachedCorners = 2048;
+    /**
+     * largest corner set whose cache can be filled at all, because the packed
+     * cache must fit in a single array
+     */
+    final private static int maxCacheableCorners = 46_341;
+    /**
+     * smallest corner set for which #precomputeAll() works in parallel
+     */
+    final private static int minParallelCorners = 256;
     /**
      * message logger for this class
      */
@@ -56,10 +72,11 @@ public class CornerSet3f {
      */
     private Boolean isPlanar = null;
     /**
-     * cached squared distance between each pair of corners (each &ge;0,
-     * allocated by constructor, each initialized by #setSquaredDistance())
+     * cached squared distance between each pair of distinct corners, packed in
+     * upper-triangular order (each &ge;0 or NaN if not yet calculated, null
+     * until first needed)
      */
-    final private Double[][] squaredDistances;
+    private double[] squaredDistances = null;
     /**
      * maximum distance for locations to coincide (&ge;0, set by constructor)
      */
@@ -107,7 +124,6 @@ public class CornerSet3f {
          * Allocate array space for caching calculated values.
          */
         cornerLocations = new Vector3f[numCorners];
-        squaredDistances = new Double[numCorners][numCorners];
         /*
          * Copy corner locations.
          */
@@ -141,7 +157,6 @@ public class CornerSet3f {
          * Allocate array space for caching values.
          */
         cornerLocations = new Vector3f[numCorners];
-        squaredDistances = new Double[numCorners][numCorners];
         /*
          * Copy corner locations.
          */
@@ -318,6 +333,55 @@ public class CornerSet3f {
         return result;
     }
 
+    /**
+     * Calculate and cache the squared distance between every pair of corners,
+     * working in parallel for large corner sets. Intended for callers that
+     * will examine every pair. The cache occupies 8*n*(n-1)/2 bytes. For very
+     * large corner sets (more than 46,341 corners) the cache can't be
+     * allocated, so this method has no effect.
+     */
+    public void precomputeAll() {
+        if (numCorners < 2 || numCorners > maxCacheableCorners) {
+            return;
+        }
+        allocateCache();
+
+        if (numCorners < minParallelCorners) {
+            precomputeRows(0, numCorners - 1);
+        } else {
+            PrecomputeTask task = new PrecomputeTask(this, 0, numCorners - 1);
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * Fill the squared-distance cache for the specified range of rows. Row i
+     * covers the pairs (i, j) with j&gt;i.
+     *
+     * @param firstRow index of the first row to fill (&ge;0)
+     * @param endRow index of the first row past the range (&gt;firstRow,
+     * &lt;numCorners)
+     */
+    void precomputeRows(int firstRow, int endRow) {
+        assert squaredDistances != null;
+        assert firstRow >= 0 : firstRow;
+        assert endRow > firstRow : endRow;
+        assert endRow < numCorners : endRow;
+
+        for (int row = firstRow; row < endRow; row++) {
+            Vector3f corner1 = cornerLocations[row];
+            int pairIndex = pairIndex(row, row + 1);
+            for (int column = row + 1; column < numCorners; column++) {
+                if (Double.isNaN(squaredDistances[pairIndex])) {
+                    Vector3f corner2 = cornerLocations[column];
+                    squaredDistances[pairIndex]
+                            = MyVector3f.distanceSquared(corner1, corner2);
+                }
+                ++pairIndex;
+            }
+        }
+    }
+
     /**
      * Test whether this corner set shares one or more corners with another
      * corner set. The 2 corner sets must have identical tolerances.
@@ -586,10 +650,33 @@ public class CornerSet3f {
         validateIndex(cornerIndex1, "index of 1st corner");
         validateIndex(cornerIndex2, "index of 2nd corner");
 
-        if (squaredDistances[cornerIndex1][cornerIndex2] == null) {
-            setSquaredDistance(cornerIndex1, cornerIndex2);
+        if (cornerIndex1 == cornerIndex2) {
+            return 0.0;
         }
-        return squaredDistances[cornerIndex1][cornerIndex2];
+        Vector3f corner1 = cornerLocations[cornerIndex1];
+        Vector3f corner2 = cornerLocations[cornerIndex2];
+        if (squaredDistances == null) {
+            if (numCorners > maxCachedCorners) {
+                double result = MyVector3f.distanceSquared(corner1, corner2);
+                return result;
+            }
+            allocateCache();
+        }
+
+        int pairIndex;
+        if (cornerIndex1 < cornerIndex2) {
+            pairIndex = pairIndex(cornerIndex1, cornerIndex2);
+        } else {
+            pairIndex = pairIndex(cornerIndex2, cornerIndex1);
+        }
+        double result = squaredDistances[pairIndex];
+        if (Double.isNaN(result)) {
+            result = MyVector3f.distanceSquared(corner1, corner2);
+            squaredDistances[pairIndex] = result;
+        }
+
+        assert result >= 0.0 : result;
+        return result;
     }
 
     /**
@@ -616,6 +703,41 @@ public class CornerSet3f {
     // *************************************************************************
     // private methods
 
+    /**
+     * Allocate the squared-distance cache, if it hasn't been allocated
+     * already.
+     */
+    private void allocateCache() {
+        assert numCorners <= maxCacheableCorners : numCorners;
+
+        if (squaredDistances == null) {
+            int numPairs = numCorners * (numCorners - 1) / 2;
+            double[] cache = new double[numPairs];
+            Arrays.fill(cache, Double.NaN);
+            squaredDistances = cache;
+        }
+    }
+
+    /**
+     * Calculate the position of a pair of corners in the packed
+     * squared-distance cache.
+     *
+     * @param lowIndex index of the lower-numbered corner (&ge;0)
+     * @param highIndex index of the higher-numbered corner (&gt;lowIndex,
+     * &lt;numCorners)
+     * @return position in the cache (&ge;0)
+     */
+    private int pairIndex(int lowIndex, int highIndex) {
+        assert lowIndex >= 0 : lowIndex;
+        assert highIndex > lowIndex : highIndex;
+        assert highIndex < numCorners : highIndex;
+
+        long rowStart = (long) lowIndex * (2 * numCorners - lowIndex - 1) / 2;
+        int result = (int) (rowStart + highIndex - lowIndex - 1);
+
+        return result;
+    }
+
     /**
      * Initialize the #isPlanar field. A corner set is planar if all corners lie
      * in a single plane.
@@ -757,47 +879,4 @@ public class CornerSet3f {
         largestTriangle[1] = newValue[1];
         largestTriangle[2] = newValue[2];
     }
-
-    /**
-     * Initialize the element(s) of the #squaredDistances field for a particular
-     * pair of corners.
-     *
-     * @param cornerIndex1 index of the 1st corner (&ge;0, &lt;numCorners)
-     * @param cornerIndex2 index of the 2nd corner (&ge;0, &lt;numCorners)
-     */
-    private void setSquaredDistance(int cornerIndex1, int cornerIndex2) {
-        assert cornerIndex1 >= 0 : cornerIndex1;
-        assert cornerIndex1 < numCorners : cornerIndex1;
-        assert cornerIndex2 >= 0 : cornerIndex2;
-        assert cornerIndex2 < numCorners : cornerIndex2;
-
-        if (cornerIndex1 == cornerIndex2) {
-            setSquaredDistance(cornerIndex1, cornerIndex2, 0.0);
-        } else {
-            Vector3f corner1 = cornerLocations[cornerIndex1];
-            Vector3f corner2 = cornerLocations[cornerIndex2];
-            double square = MyVector3f.distanceSquared(corner1, corner2);
-            setSquaredDistance(cornerIndex1, cornerIndex2, square);
-        }
-    }
-
-    /**
-     * Direct setter for the #squaredDistances field.
-     *
-     * @param ci1 index of the 1st corner (&ge;0, &lt;numCorners)
-     * @param ci2 index of the 2nd corner (&ge;0, &lt;numCorners)
-     * @param newValue new value for squared distance (&ge;0)
-     */
-    private void setSquaredDistance(int ci1, int ci2, double newValue) {
-        assert ci1 >= 0 : ci1;
-        assert ci1 < numCorners : ci1;
-        assert ci2 >= 0 : ci2;
-        assert ci2 < numCorners : ci2;
-        assert newValue >= 0.0 : newValue;
-        assert squaredDistances[ci1][ci2] == null;
-        assert squaredDistances[ci2][ci1] == null;
-
-        squaredDistances[ci1][ci2] = newValue;
-        squaredDistances[ci2][ci1] = newValue;
-    }
 }
@@ -28,6 +28,7 @@ package jme3utilities.math.polygon;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
@@ -106,7 +107,8 @@ public class GenericPolygon3f extends Polygon3f {
     // new methods exposed
 
     /**
-     * Test (or look up) whether this polygon is self-intersecting.
+     * Test (or look up) whether this polygon is self-intersecting, using the
+     * sweep-line algorithm.
      *
      * @return true if it is self-intersecting, otherwise false
      */
@@ -117,6 +119,32 @@ public class GenericPolygon3f extends Polygon3f {
 
         return isSelfIntersecting;
     }
+
+    /**
+     * Test whether this polygon is self-intersecting, using the specified
+     * algorithm. The result is not cached. Both algorithms give the same
+     * answers.
+     *
+     * @param test which algorithm to use (not null)
+     * @return true if it is self-intersecting, otherwise false
+     */
+    public boolean isSelfIntersecting(SelfIntersectionTest test) {
+        Validate.nonNull(test, "test");
+
+        boolean result;
+        switch (test) {
+            case BRUTE_FORCE:
+                result = testAllPairs();
+                break;
+            case SWEEP_LINE:
+                result = sweepSides();
+                break;
+            default:
+                throw new IllegalArgumentException(test.toString());
+        }
+
+        return result;
+    }
     // *************************************************************************
     // protected methods
 
@@ -200,10 +228,10 @@ public class GenericPolygon3f extends Polygon3f {
                 return result;
             } else {
                 /*
-                 * The segments are parallel but not collinear, so they
-                 * do not intersect.
+                 * The segments are parallel (within tolerance) but not
+                 * collinear, so they do not intersect, except perhaps at
+                 * a shared corner.
                  */
-                assert numUnique == 4 : numUnique;
                 return false;
             }
         }
@@ -450,18 +478,261 @@ public class GenericPolygon3f extends Polygon3f {
      */
     private void setIsSelfIntersecting() {
         assert isSelfIntersecting == null : isSelfIntersecting;
+        isSelfIntersecting = sweepSides();
+    }
+
+    /**
+     * Set the value of a leaf in an interval tree and update the maxima of
+     * its ancestors, in O(log n) time.
+     *
+     * @param treeMax node values of the tree, root at index 1 (not null,
+     * modified)
+     * @param node index of the leaf in treeMax
+     * @param value new value for the leaf
+     */
+    private static void setTreeLeaf(double[] treeMax, int node, double value) {
+        treeMax[node] = value;
+        for (int parent = node >>> 1; parent > 0; parent >>>= 1) {
+            double max = Math.max(treeMax[2 * parent], treeMax[2 * parent + 1]);
+            if (treeMax[parent] == max) {
+                break;
+            }
+            treeMax[parent] = max;
+        }
+    }
+
+    /**
+     * Extract the sort key from a packed key and side index.
+     *
+     * @param packed a value returned by sortSides()
+     * @return the key
+     */
+    private static float sortKey(long packed) {
+        int sortableBits = (int) (packed >> 32);
+        int bits = sortableBits ^ ((sortableBits >> 31) & 0x7fffffff);
+        float result = Float.intBitsToFloat(bits);
+
+        return result;
+    }
+
+    /**
+     * Sort the sides by the specified values, rounded to floats, packing each
+     * key with its side index into a primitive long.
+     *
+     * @param values value for each side (not null, unaffected)
+     * @param roundUp true to round each value up, false to round it down
+     * @return a new array, in ascending order (decode the keys using
+     * sortKey() and the side indices by casting to int)
+     */
+    private long[] sortSides(double[] values, boolean roundUp) {
+        long[] result = new long[numCorners];
+        for (int sideIndex = 0; sideIndex < numCorners; sideIndex++) {
+            double value = values[sideIndex];
+            float key = (float) value;
+            if (roundUp && key < value) {
+                key = Math.nextUp(key);
+            } else if (!roundUp && key > value) {
+                key = Math.nextDown(key);
+            }
+            int bits = Float.floatToIntBits(key);
+            int sortableBits = bits ^ ((bits >> 31) & 0x7fffffff);
+            result[sideIndex] = ((long) sortableBits << 32) | sideIndex;
+        }
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    /**
+     * Sweep a line across the sides, projected onto the best-fit plane, and
+     * test each pair of sides whose padded bounding rectangles overlap. The
+     * active sides are kept in an interval tree ordered by their V extents,
+     * so each insertion or removal takes O(log n) time and each query takes
+     * O(log n) time plus O(log n) per overlapping rectangle reported. For
+     * polygons whose rectangles rarely overlap, the whole sweep takes
+     * O(n log n) time.
+     * <p>
+     * Orthogonal projection never increases distances, and any 2 sides that
+     * doSidesIntersect() accepts contain points within 3 tolerances of each
+     * other, so padding every rectangle by 2 tolerances ensures no such pair
+     * is skipped. Hence the result always matches testAllPairs(), even for
+     * non-planar polygons.
+     *
+     * @return true if 2 sides intersect, otherwise false
+     */
+    private boolean sweepSides() {
+        /*
+         * Approximate the polygon's normal using Newell's method, then
+         * choose 2 basis vectors orthogonal to it.
+         */
+        Vector3f normal = new Vector3f();
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            Vector3f current = cornerLocations[cornerIndex];
+            Vector3f next = cornerLocations[nextIndex(cornerIndex)];
+            normal.x += (current.y - next.y) * (current.z + next.z);
+            normal.y += (current.z - next.z) * (current.x + next.x);
+            normal.z += (current.x - next.x) * (current.y + next.y);
+        }
+        if (MyVector3f.isZero(normal)) {
+            normal.set(0f, 1f, 0f);
+        }
+        Vector3f uAxis = new Vector3f();
+        Vector3f vAxis = new Vector3f();
+        MyVector3f.generateBasis(normal, uAxis, vAxis);
+        /*
+         * Calculate a padded bounding rectangle for each side.
+         */
+        double[] cornerU = new double[numCorners];
+        double[] cornerV = new double[numCorners];
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            Vector3f location = cornerLocations[cornerIndex];
+            cornerU[cornerIndex] = MyVector3f.dot(location, uAxis);
+            cornerV[cornerIndex] = MyVector3f.dot(location, vAxis);
+        }
+        double padding = 2.0 * tolerance;
+        double[] minU = new double[numCorners];
+        double[] maxU = new double[numCorners];
+        double[] minV = new double[numCorners];
+        double[] maxV = new double[numCorners];
+        for (int sideIndex = 0; sideIndex < numCorners; sideIndex++) {
+            int next = nextIndex(sideIndex);
+            double u1 = cornerU[sideIndex];
+            double u2 = cornerU[next];
+            minU[sideIndex] = Math.min(u1, u2) - padding;
+            maxU[sideIndex] = Math.max(u1, u2) + padding;
+            double v1 = cornerV[sideIndex];
+            double v2 = cornerV[next];
+            minV[sideIndex] = Math.min(v1, v2) - padding;
+            maxV[sideIndex] = Math.max(v1, v2) + padding;
+        }
+        /*
+         * Order the sides 3 ways: by minimum U for insertion into the active
+         * set, by maximum U for removal from it, and by minimum V for the
+         * leaves of an interval tree over the active sides.
+         */
+        long[] insertOrder = sortSides(minU, false);
+        long[] removeOrder = sortSides(maxU, true);
+        long[] vOrder = sortSides(minV, false);
         /*
-         * consider each pair of sides
+         * The interval tree is a complete binary tree stored in an array,
+         * with one leaf per side in order of minimum V. Each node holds the
+         * greatest maximum V of the active sides below it (-Infinity if
+         * none).
          */
+        int numLeaves = Integer.highestOneBit(Math.max(1, numCorners - 1)) << 1;
+        double[] treeMax = new double[2 * numLeaves];
+        Arrays.fill(treeMax, Double.NEGATIVE_INFINITY);
+        int[] leafSides = new int[numLeaves];
+        float[] leafKeys = new float[numCorners];
+        int[] sideLeaves = new int[numCorners];
+        for (int leaf = 0; leaf < numCorners; leaf++) {
+            int sideIndex = (int) vOrder[leaf];
+            leafSides[leaf] = sideIndex;
+            leafKeys[leaf] = sortKey(vOrder[leaf]);
+            sideLeaves[sideIndex] = leaf;
+        }
+        int[] stack = new int[2 * Integer.SIZE];
+        /*
+         * Sweep in order of increasing minimum U. Before each side is
+         * inserted, discard the sides whose U intervals end before it begins,
+         * then query the tree for active sides whose V intervals overlap its
+         * own. Since the keys are rounded outward, no overlapping pair is
+         * missed.
+         */
+        int numRemoved = 0;
+        for (long packed : insertOrder) {
+            int sideIndex = (int) packed;
+            float sweepKey = sortKey(packed);
+            while (numRemoved < numCorners
+                    && sortKey(removeOrder[numRemoved]) < sweepKey) {
+                int oldSide = (int) removeOrder[numRemoved];
+                setTreeLeaf(treeMax, numLeaves + sideLeaves[oldSide],
+                        Double.NEGATIVE_INFINITY);
+                ++numRemoved;
+            }
+            /*
+             * Only the leaves before endLeaf can have minimum V no greater
+             * than this side's maximum V. Among those, visit only subtrees
+             * whose active sides reach this side's minimum V.
+             */
+            float keyLimit = (float) maxV[sideIndex];
+            if (keyLimit < maxV[sideIndex]) {
+                keyLimit = Math.nextUp(keyLimit);
+            }
+            int endLeaf = upperBound(leafKeys, keyLimit);
+            double lowV = minV[sideIndex];
+            int stackSize = 0;
+            stack[stackSize] = 1; // the root
+            ++stackSize;
+            while (stackSize > 0) {
+                --stackSize;
+                int node = stack[stackSize];
+                if (treeMax[node] < lowV) {
+                    continue;
+                }
+                int depth = 31 - Integer.numberOfLeadingZeros(node);
+                int span = numLeaves >>> depth;
+                int firstLeaf = (node - (1 << depth)) * span;
+                if (firstLeaf >= endLeaf) {
+                    continue;
+                }
+                if (node < numLeaves) {
+                    stack[stackSize] = 2 * node + 1;
+                    stack[stackSize + 1] = 2 * node;
+                    stackSize += 2;
+                } else {
+                    int activeSide = leafSides[node - numLeaves];
+                    if (minV[activeSide] <= maxV[sideIndex]
+                            && doSidesIntersect(activeSide, sideIndex)) {
+                        return true;
+                    }
+                }
+            }
+
+            setTreeLeaf(treeMax, numLeaves + sideLeaves[sideIndex],
+                    maxV[sideIndex]);
+        }
+
+        return false;
+    }
+
+    /**
+     * Test every pair of sides for intersection.
+     *
+     * @return true if 2 sides intersect, otherwise false
+     */
+    private boolean testAllPairs() {
         for (int sideI = 0; sideI < numCorners; sideI++) {
             for (int sideJ = sideI + 1; sideJ < numCorners; sideJ++) {
                 if (doSidesIntersect(sideI, sideJ)) {
-                    isSelfIntersecting = true;
-                    return;
+                    return true;
                 }
             }
         }
 
-        isSelfIntersecting = false;
+        return false;
+    }
+
+    /**
+     * Count the keys that don't exceed a limit.
+     *
+     * @param sortedKeys keys in ascending order (not null, unaffected)
+     * @param limit the limit
+     * @return the index of the first key greater than the limit, or the
+     * number of keys if there's none
+     */
+    private static int upperBound(float[] sortedKeys, float limit) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedKeys[middle] <= limit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
     }
 }
@@ -28,6 +28,7 @@ package jme3utilities.math.polygon;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -59,15 +60,16 @@ public class Polygon3f extends CornerSet3f {
      */
     private Boolean isDegenerate = null;
     /**
-     * cached dot product at each corner (allocated by constructor; initialized
-     * by #setCornerProducts())
+     * cached dot product at each corner (NaN if not yet calculated, allocated
+     * by constructor; initialized by #setCornerProducts())
      */
-    final private Double[] dotProducts;
+    final private double[] dotProducts;
     /**
-     * cached cross product at each corner (allocated by constructor;
-     * initialized by #setCornerProducts())
+     * cached cross product at each corner, 3 components per corner (valid only
+     * where the corner's dot product has been calculated, allocated by
+     * constructor; initialized by #setCornerProducts())
      */
-    final private Vector3f[] crossProducts;
+    final private float[] crossProducts;
     // *************************************************************************
     // constructors
 
@@ -84,8 +86,9 @@ public class Polygon3f extends CornerSet3f {
         /*
          * Allocate array space for caching values.
          */
-        crossProducts = new Vector3f[numCorners];
-        dotProducts = new Double[numCorners];
+        crossProducts = new float[3 * numCorners];
+        dotProducts = new double[numCorners];
+        Arrays.fill(dotProducts, Double.NaN);
     }
 
     /**
@@ -101,8 +104,9 @@ public class Polygon3f extends CornerSet3f {
         /*
          * Allocate array space for caching values.
          */
-        crossProducts = new Vector3f[numCorners];
-        dotProducts = new Double[numCorners];
+        crossProducts = new float[3 * numCorners];
+        dotProducts = new double[numCorners];
+        Arrays.fill(dotProducts, Double.NaN);
     }
     // *************************************************************************
     // new methods exposed
@@ -149,10 +153,12 @@ public class Polygon3f extends CornerSet3f {
     public Vector3f crossProduct(int cornerIndex) {
         validateIndex(cornerIndex, "corner index");
 
-        if (crossProducts[cornerIndex] == null) {
+        if (Double.isNaN(dotProducts[cornerIndex])) {
             setCornerProducts(cornerIndex);
         }
-        Vector3f result = crossProducts[cornerIndex].clone();
+        int offset = 3 * cornerIndex;
+        Vector3f result = new Vector3f(crossProducts[offset],
+                crossProducts[offset + 1], crossProducts[offset + 2]);
 
         return result;
     }
@@ -167,7 +173,7 @@ public class Polygon3f extends CornerSet3f {
     public double dotProduct(int cornerIndex) {
         validateIndex(cornerIndex, "corner index");
 
-        if (dotProducts[cornerIndex] == null) {
+        if (Double.isNaN(dotProducts[cornerIndex])) {
             setCornerProducts(cornerIndex);
         }
         double result = dotProducts[cornerIndex];
@@ -532,6 +538,24 @@ public class Polygon3f extends CornerSet3f {
         return result;
     }
     // *************************************************************************
+    // CornerSet3f methods
+
+    /**
+     * Calculate and cache the squared distance between every pair of corners,
+     * plus the dot and cross products at every corner. Intended for callers
+     * that will examine every pair.
+     */
+    @Override
+    public void precomputeAll() {
+        super.precomputeAll();
+
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            if (Double.isNaN(dotProducts[cornerIndex])) {
+                setCornerProducts(cornerIndex);
+            }
+        }
+    }
+    // *************************************************************************
     // protected methods
 
     /**
@@ -582,10 +606,12 @@ public class Polygon3f extends CornerSet3f {
         assert cornerIndex >= 0 : cornerIndex;
         assert cornerIndex < numCorners : cornerIndex;
         assert newCross != null;
-        assert crossProducts[cornerIndex] == null;
-        assert dotProducts[cornerIndex] == null;
+        assert Double.isNaN(dotProducts[cornerIndex]);
 
-        crossProducts[cornerIndex] = newCross.clone();
+        int offset = 3 * cornerIndex;
+        crossProducts[offset] = newCross.x;
+        crossProducts[offset + 1] = newCross.y;
+        crossProducts[offset + 2] = newCross.z;
         dotProducts[cornerIndex] = newDot;
     }
 
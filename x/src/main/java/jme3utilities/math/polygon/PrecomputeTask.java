@@ -0,0 +1,105 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.polygon;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to fill the squared-distance cache of a corner set for a
+ * range of rows. Row i covers the pairs (i, j) with j&gt;i, so rows shrink as
+ * i increases.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class PrecomputeTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    /**
+     * maximum number of rows to fill without splitting the range
+     */
+    final private static int leafRows = 16;
+    // *************************************************************************
+    // fields
+
+    /**
+     * corner set whose cache is filled (not null)
+     */
+    final private CornerSet3f cornerSet;
+    /**
+     * index of the first row in this task's range (&ge;0)
+     */
+    final private int firstRow;
+    /**
+     * index of the first row past this task's range (&gt;firstRow)
+     */
+    final private int endRow;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of rows.
+     *
+     * @param cornerSet corner set whose cache is filled (not null, alias
+     * created)
+     * @param firstRow index of the first row to fill (&ge;0)
+     * @param endRow index of the first row past the range (&gt;firstRow)
+     */
+    PrecomputeTask(CornerSet3f cornerSet, int firstRow, int endRow) {
+        assert cornerSet != null;
+        assert firstRow >= 0 : firstRow;
+        assert endRow > firstRow : endRow;
+
+        this.cornerSet = cornerSet;
+        this.firstRow = firstRow;
+        this.endRow = endRow;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Fill the rows in this task's range, splitting the range in half until
+     * it's no larger than the leaf size.
+     */
+    @Override
+    protected void compute() {
+        if (endRow - firstRow > leafRows) {
+            int middleRow = (firstRow + endRow) >>> 1;
+            PrecomputeTask low
+                    = new PrecomputeTask(cornerSet, firstRow, middleRow);
+            PrecomputeTask high
+                    = new PrecomputeTask(cornerSet, middleRow, endRow);
+            invokeAll(low, high);
+        } else {
+            cornerSet.precomputeRows(firstRow, endRow);
+        }
+    }
+}
@@ -28,7 +28,9 @@ package jme3utilities.math.polygon;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -45,6 +47,13 @@ import jme3utilities.math.spline.Spline3f;
  * must be simple, in other words: non-degenerate, planar, and
  * non-self-intersecting. This means it has a well-defined interior and
  * exterior. It may also be convex, though it need not be.
+ * <p>
+ * Although the polygon's geometry never changes, derived data (the plane,
+ * planar offsets, area, centroid, and triangulation) are calculated on demand
+ * and cached in unsynchronized fields, so instances aren't thread-safe. To
+ * share an instance between threads, invoke #precomputeAll() first and then
+ * publish it safely (for instance, via a final field or a concurrent
+ * collection).
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -59,6 +68,11 @@ public class SimplePolygon3f
      */
     final private static Logger logger = Logger.getLogger(
             SimplePolygon3f.class.getName());
+    /**
+     * minimum number of corners for which containment tests use the
+     * triangulation instead of walking every side
+     */
+    final private static int minIndexedCorners = 8;
     // *************************************************************************
     // fields
 
@@ -67,6 +81,10 @@ public class SimplePolygon3f
      * (set by #setIsConvex())
      */
     private Boolean isConvex = null;
+    /**
+     * true if #triangulate() has been invoked, otherwise false
+     */
+    private boolean triangulationAttempted = false;
     /**
      * cached constant of the plane containing the polygon (initialized by
      * #setPlane())
@@ -97,6 +115,11 @@ public class SimplePolygon3f
      * #setPlane())
      */
     private Vector3f planeZBasis = null;
+    /**
+     * cached triangulation in planar coordinates, or null if not yet
+     * attempted or if ear clipping failed (initialized by #triangulate())
+     */
+    private Triangulation triangulation = null;
     /**
      * cached planar offsets relative to the 1st corner (allocated by
      * constructor, initialized by #setPlanarOffset())
@@ -294,8 +317,69 @@ public class SimplePolygon3f
         return result;
     }
     // *************************************************************************
+    // CornerSet3f methods
+
+    /**
+     * Calculate and cache all derived data: the squared distances, corner
+     * products, plane, planar offsets, area, centroid, convexity, and
+     * triangulation. After this, queries no longer modify the polygon's
+     * fields.
+     */
+    @Override
+    public void precomputeAll() {
+        super.precomputeAll();
+
+        if (planeNormal == null) {
+            setPlane();
+        }
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            if (planarOffsets[cornerIndex] == null) {
+                setPlanarOffset(cornerIndex);
+            }
+        }
+        if (signedArea == null) {
+            setSignedArea();
+        }
+        if (centroid == null) {
+            setCentroid();
+        }
+        if (isConvex == null) {
+            setIsConvex();
+        }
+        if (!triangulationAttempted) {
+            triangulate();
+        }
+    }
+    // *************************************************************************
     // Locus3f methods
 
+    /**
+     * Calculate an axis-aligned bounding box for this region.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    @Override
+    public void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+
+        storeMinima.set(cornerLocations[0]);
+        storeMaxima.set(cornerLocations[0]);
+        for (int cornerI = 1; cornerI < numCorners; cornerI++) {
+            Vector3f corner = cornerLocations[cornerI];
+            MyVector3f.accumulateMinima(storeMinima, corner);
+            MyVector3f.accumulateMaxima(storeMaxima, corner);
+        }
+        /*
+         * Pad the box to include locations within tolerance of the polygon.
+         */
+        storeMinima.subtractLocal(tolerance, tolerance, tolerance);
+        storeMaxima.addLocal(tolerance, tolerance, tolerance);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
@@ -360,6 +444,19 @@ public class SimplePolygon3f
         if (!inPlane(location)) {
             return false;
         }
+        if (numCorners >= minIndexedCorners) {
+            if (!triangulationAttempted) {
+                triangulate();
+            }
+            if (triangulation != null) {
+                float pseudoDistance = planeNormal.dot(location)
+                        + planeConstant;
+                double maxSD = tolerance2 - pseudoDistance * pseudoDistance;
+                boolean result = triangulation.contains(planarX(location),
+                        planarZ(location), maxSD);
+                return result;
+            }
+        }
 
         Vector3f closestLocation = new Vector3f();
         int closestSide = findSide(location, closestLocation);
@@ -368,18 +465,124 @@ public class SimplePolygon3f
             return true;
         }
 
-        Vector3f corner1 = cornerLocations[closestSide];
-        Vector3f pointOffset = location.subtract(corner1);
         int next = nextIndex(closestSide);
-        Vector3f corner2 = cornerLocations[next];
-        Vector3f sideOffset = corner2.subtract(corner1);
-        Vector3f cross = sideOffset.cross(pointOffset);
-        double crossDot = cross.dot(planeNormal);
-        if (crossDot >= 0.0) {
-            return true;
+        int closestCorner = -1;
+        if (MyVector3f.doCoincide(closestLocation, cornerLocations[closestSide],
+                tolerance2)) {
+            closestCorner = closestSide;
+        } else if (MyVector3f.doCoincide(closestLocation,
+                cornerLocations[next], tolerance2)) {
+            closestCorner = next;
+        }
+        if (closestCorner == -1) {
+            boolean result = isInsideSide(location, closestSide);
+            return result;
+        }
+        /*
+         * The closest point is a corner, so a single side can't decide
+         * the matter: test against both sides which meet there.
+         */
+        int prev = prevIndex(closestCorner);
+        boolean insidePrev = isInsideSide(location, prev);
+        boolean insideNext = isInsideSide(location, closestCorner);
+        double turn = planeNormal.dot(crossProduct(closestCorner));
+        boolean result;
+        if (turn >= 0.0) {
+            /*
+             * convex corner: inside only if inside both sides
+             */
+            result = insidePrev && insideNext;
         } else {
-            return false;
+            /*
+             * reflex corner: inside if inside either side
+             */
+            result = insidePrev || insideNext;
+        }
+
+        return result;
+    }
+
+    /**
+     * Test which of the specified locations lie in this region, without
+     * allocating any per-location objects. Each location that lies in the
+     * plane is converted to planar coordinates, accepted if it lies within
+     * the tolerance of a side, and otherwise classified by counting crossings
+     * of a ray in the plane (or, for polygons with many corners, by locating
+     * it in the triangulation).
+     *
+     * @param xyz coordinates of the test locations, 3 floats per location
+     * starting at the buffer's position (not null, unaffected)
+     * @param count number of locations to test (&ge;0)
+     * @param storeResult storage for the results: bit i is set if the i-th
+     * location is in the region and cleared if it isn't (not null, modified)
+     * @return the number of locations in the region (&ge;0, &le;count)
+     */
+    @Override
+    public int contains(FloatBuffer xyz, int count, BitSet storeResult) {
+        Validate.nonNull(xyz, "coordinates");
+        Validate.nonNegative(count, "count");
+        Validate.nonNull(storeResult, "store result");
+        if (xyz.remaining() < 3 * count) {
+            throw new IllegalArgumentException("too few coordinates");
         }
+
+        if (planeConstant == null) {
+            setPlane();
+        }
+        float constant = planeConstant;
+        float[] cornerX = new float[numCorners];
+        float[] cornerZ = new float[numCorners];
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            if (planarOffsets[cornerIndex] == null) {
+                setPlanarOffset(cornerIndex);
+            }
+            cornerX[cornerIndex] = planarOffsets[cornerIndex].getX();
+            cornerZ[cornerIndex] = planarOffsets[cornerIndex].getZ();
+        }
+        Vector3f base = cornerLocations[0];
+        if (numCorners >= minIndexedCorners && !triangulationAttempted) {
+            triangulate();
+        }
+
+        int position = xyz.position();
+        int result = 0;
+        for (int locationIndex = 0; locationIndex < count; locationIndex++) {
+            float x = xyz.get(position);
+            float y = xyz.get(position + 1);
+            float z = xyz.get(position + 2);
+            position += 3;
+
+            float pseudoDistance = planeNormal.x * x + planeNormal.y * y
+                    + planeNormal.z * z + constant;
+            double pd2 = pseudoDistance * pseudoDistance;
+            boolean isInside = false;
+            if (pd2 <= tolerance2) {
+                float offsetX = x - base.x;
+                float offsetY = y - base.y;
+                float offsetZ = z - base.z;
+                float planarX = offsetX * planeXBasis.x
+                        + offsetY * planeXBasis.y + offsetZ * planeXBasis.z;
+                float planarZ = offsetX * planeZBasis.x
+                        + offsetY * planeZBasis.y + offsetZ * planeZBasis.z;
+                if (triangulation != null
+                        && numCorners >= minIndexedCorners) {
+                    isInside = triangulation.contains(planarX, planarZ,
+                            tolerance2 - pd2);
+                } else {
+                    isInside = containsPlanar(planarX, planarZ,
+                            tolerance2 - pd2, cornerX, cornerZ);
+                }
+            }
+
+            if (isInside) {
+                storeResult.set(locationIndex);
+                ++result;
+            } else {
+                storeResult.clear(locationIndex);
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -403,6 +606,13 @@ public class SimplePolygon3f
             return false;
         } else if (isConvex()) {
             return true;
+        } else if (MyVector3f.doCoincide(startLocation, endLocation,
+                tolerance2)) {
+            /*
+             * Too short to split any further: without this test, a segment
+             * that ends at a corner would be split at its midpoint forever.
+             */
+            return true;
         }
 
         for (int sideIndex = 0; sideIndex < numCorners; sideIndex++) {
@@ -559,7 +769,10 @@ public class SimplePolygon3f
 
     /**
      * Find a path between 2 locations in this region without leaving the
-     * region. Short paths are preferred over long ones.
+     * region. Short paths are preferred over long ones. If the polygon can be
+     * triangulated, the path is the shortest possible, found by running the
+     * funnel algorithm through the triangles between the locations.
+     * Otherwise, only paths with at most one turn are considered.
      *
      * @param startLocation coordinates (contained in region, unaffected)
      * @param goalLocation coordinates (contained in region, unaffected)
@@ -575,6 +788,31 @@ public class SimplePolygon3f
         assert contains(startLocation) : startLocation;
         assert contains(goalLocation) : goalLocation;
 
+        if (!triangulationAttempted) {
+            triangulate();
+        }
+        int[] turns = null;
+        if (triangulation != null) {
+            turns = findTurns(startLocation, goalLocation);
+        }
+        if (turns != null) {
+            int numPoints = turns.length + 2;
+            if (numPoints > maxPoints) {
+                return null;
+            }
+            List<Vector3f> joints = new ArrayList<>(numPoints);
+            joints.add(startLocation);
+            for (int cornerIndex : turns) {
+                joints.add(cornerLocations[cornerIndex]);
+            }
+            joints.add(goalLocation);
+            Spline3f result = new LinearSpline3f(joints);
+
+            return result;
+        }
+        /*
+         * Fall back on testing the direct path and single-corner detours.
+         */
         List<Vector3f> joints = new ArrayList<>(maxPoints);
         joints.add(startLocation);
         joints.add(goalLocation);
@@ -597,7 +835,6 @@ public class SimplePolygon3f
                 }
             }
         }
-        // TODO further searches if unsuccessful
 
         return result;
     }
@@ -652,6 +889,124 @@ public class SimplePolygon3f
     // *************************************************************************
     // private methods
 
+    /**
+     * Test whether the specified planar location lies in this polygon: either
+     * near a side or inside the perimeter.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @param maxSD maximum squared planar distance from a side (&ge;0)
+     * @param cornerX 1st planar coordinate of each corner (not null,
+     * unaffected)
+     * @param cornerZ 2nd planar coordinate of each corner (not null,
+     * unaffected)
+     * @return true if the location lies in the polygon, otherwise false
+     */
+    private boolean containsPlanar(float x, float z, double maxSD,
+            float[] cornerX, float[] cornerZ) {
+        assert maxSD >= 0.0 : maxSD;
+
+        boolean result = false;
+        int prev = numCorners - 1;
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            double x1 = cornerX[prev];
+            double z1 = cornerZ[prev];
+            double x2 = cornerX[cornerIndex];
+            double z2 = cornerZ[cornerIndex];
+            /*
+             * Test the distance from the side.
+             */
+            double sideX = x2 - x1;
+            double sideZ = z2 - z1;
+            double offsetX = x - x1;
+            double offsetZ = z - z1;
+            double sideDS = sideX * sideX + sideZ * sideZ;
+            double t = 0.0;
+            if (sideDS > 0.0) {
+                /*
+                 * The side's planar projection has non-zero length.
+                 */
+                t = (offsetX * sideX + offsetZ * sideZ) / sideDS;
+                t = Math.max(0.0, Math.min(1.0, t));
+            }
+            double dx = offsetX - t * sideX;
+            double dz = offsetZ - t * sideZ;
+            if (dx * dx + dz * dz <= maxSD) {
+                return true;
+            }
+            /*
+             * Count crossings of a ray in the +X direction.
+             */
+            if ((z1 > z) != (z2 > z)) {
+                double crossX = x1 + (z - z1) * sideX / sideZ;
+                if (x < crossX) {
+                    result = !result;
+                }
+            }
+            prev = cornerIndex;
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the corners where the shortest path between 2 locations turns,
+     * using the triangulation.
+     *
+     * @param startLocation coordinates of the start (contained in region,
+     * unaffected)
+     * @param goalLocation coordinates of the goal (contained in region,
+     * unaffected)
+     * @return a new array of corner indices in path order (may be empty), or
+     * null if either location couldn't be located in a triangle
+     */
+    private int[] findTurns(Vector3f startLocation, Vector3f goalLocation) {
+        assert triangulation != null;
+
+        float startPD = planeNormal.dot(startLocation) + planeConstant;
+        double startSD = Math.max(0.0, tolerance2 - startPD * startPD);
+        double startX = planarX(startLocation);
+        double startZ = planarZ(startLocation);
+        int startTriangle = triangulation.locate(startX, startZ, startSD);
+
+        float goalPD = planeNormal.dot(goalLocation) + planeConstant;
+        double goalSD = Math.max(0.0, tolerance2 - goalPD * goalPD);
+        double goalX = planarX(goalLocation);
+        double goalZ = planarZ(goalLocation);
+        int goalTriangle = triangulation.locate(goalX, goalZ, goalSD);
+
+        if (startTriangle < 0 || goalTriangle < 0) {
+            return null;
+        }
+        int[] result = triangulation.shortestPath(startX, startZ,
+                startTriangle, goalX, goalZ, goalTriangle);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified location lies on the interior side of the
+     * line through the specified side.
+     *
+     * @param location coordinates of test location (not null, unaffected)
+     * @param sideIndex index of the side (&ge;0, &lt;numCorners)
+     * @return true if on the interior side (or on the line), otherwise false
+     */
+    private boolean isInsideSide(Vector3f location, int sideIndex) {
+        Vector3f corner1 = cornerLocations[sideIndex];
+        Vector3f pointOffset = location.subtract(corner1);
+        int next = nextIndex(sideIndex);
+        Vector3f corner2 = cornerLocations[next];
+        Vector3f sideOffset = corner2.subtract(corner1);
+        Vector3f cross = sideOffset.cross(pointOffset);
+        double crossDot = cross.dot(planeNormal);
+        if (crossDot >= 0.0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     /**
      * List the corners that would result from merging this polygon with
      * another.
@@ -747,6 +1102,42 @@ public class SimplePolygon3f
         return result;
     }
 
+    /**
+     * Calculate the 1st planar coordinate of the specified location, relative
+     * to the 1st corner.
+     *
+     * @param location coordinates of the location (not null, unaffected)
+     * @return the planar coordinate
+     */
+    private float planarX(Vector3f location) {
+        Vector3f base = cornerLocations[0];
+        float offsetX = location.x - base.x;
+        float offsetY = location.y - base.y;
+        float offsetZ = location.z - base.z;
+        float result = offsetX * planeXBasis.x + offsetY * planeXBasis.y
+                + offsetZ * planeXBasis.z;
+
+        return result;
+    }
+
+    /**
+     * Calculate the 2nd planar coordinate of the specified location, relative
+     * to the 1st corner.
+     *
+     * @param location coordinates of the location (not null, unaffected)
+     * @return the planar coordinate
+     */
+    private float planarZ(Vector3f location) {
+        Vector3f base = cornerLocations[0];
+        float offsetX = location.x - base.x;
+        float offsetY = location.y - base.y;
+        float offsetZ = location.z - base.z;
+        float result = offsetX * planeZBasis.x + offsetY * planeZBasis.y
+                + offsetZ * planeZBasis.z;
+
+        return result;
+    }
+
     /**
      * Initialize the #centroid field.
      */
@@ -885,4 +1276,24 @@ public class SimplePolygon3f
         }
         signedArea = 0.5f * total;
     }
+
+    /**
+     * Initialize the #triangulation field by clipping ears in planar
+     * coordinates. If ear clipping fails due to rounding, the field remains
+     * null.
+     */
+    private void triangulate() {
+        double[] cornerX = new double[numCorners];
+        double[] cornerZ = new double[numCorners];
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            if (planarOffsets[cornerIndex] == null) {
+                setPlanarOffset(cornerIndex);
+            }
+            cornerX[cornerIndex] = planarOffsets[cornerIndex].getX();
+            cornerZ[cornerIndex] = planarOffsets[cornerIndex].getZ();
+        }
+
+        triangulation = Triangulation.triangulate(cornerX, cornerZ, tolerance);
+        triangulationAttempted = true;
+    }
 }
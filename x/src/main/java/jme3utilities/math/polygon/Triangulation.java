@@ -0,0 +1,808 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.polygon;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ear-clipped triangulation of a simple polygon in planar coordinates, plus a
+ * uniform grid that indexes the triangles and sides for point location.
+ * Immutable: all fields are final and the arrays are never modified after
+ * construction, so a triangulation may be shared between threads once built.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class Triangulation {
+    // *************************************************************************
+    // constants
+
+    /**
+     * portal-point code for the start of a path
+     */
+    final private static int startPoint = -1;
+    /**
+     * portal-point code for the goal of a path
+     */
+    final private static int goalPoint = -2;
+    // *************************************************************************
+    // fields
+
+    /**
+     * side length of each grid cell (&gt;0)
+     */
+    final private double cellSize;
+    /**
+     * 1st planar coordinate of the grid's origin
+     */
+    final private double minX;
+    /**
+     * 2nd planar coordinate of the grid's origin
+     */
+    final private double minZ;
+    /**
+     * 1st planar coordinate of each corner
+     */
+    final private double[] cornerX;
+    /**
+     * 2nd planar coordinate of each corner
+     */
+    final private double[] cornerZ;
+    /**
+     * start of each cell's sublist in #cellSides, plus a final end marker
+     */
+    final private int[] cellSideStarts;
+    /**
+     * indices of the sides whose padded bounding rectangles overlap each cell,
+     * concatenated
+     */
+    final private int[] cellSides;
+    /**
+     * start of each cell's sublist in #cellTriangles, plus a final end marker
+     */
+    final private int[] cellTriangleStarts;
+    /**
+     * indices of the triangles whose bounding rectangles overlap each cell,
+     * concatenated
+     */
+    final private int[] cellTriangles;
+    /**
+     * for each edge of each triangle, the index of the triangle on the other
+     * side, or -1 for a side of the polygon
+     */
+    final private int[] neighbors;
+    /**
+     * for each side of the polygon, the index of the triangle that contains it
+     */
+    final private int[] sideTriangles;
+    /**
+     * corner indices of each triangle, 3 per triangle in counter-clockwise
+     * order
+     */
+    final private int[] triangles;
+    /**
+     * number of grid columns (&gt;0)
+     */
+    final private int numColumns;
+    /**
+     * number of grid rows (&gt;0)
+     */
+    final private int numRows;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a triangulation from triangles already clipped.
+     *
+     * @param cornerX 1st planar coordinate of each corner (not null, alias
+     * created)
+     * @param cornerZ 2nd planar coordinate of each corner (not null, alias
+     * created)
+     * @param triangles corner indices of each triangle (not null, alias
+     * created)
+     * @param padding padding for the sides' bounding rectangles (&ge;0)
+     */
+    private Triangulation(double[] cornerX, double[] cornerZ, int[] triangles,
+            double padding) {
+        int numCorners = cornerX.length;
+        int numTriangles = triangles.length / 3;
+        assert numTriangles == numCorners - 2 : numTriangles;
+
+        this.cornerX = cornerX;
+        this.cornerZ = cornerZ;
+        this.triangles = triangles;
+        /*
+         * Find the neighbor across each edge of each triangle.
+         */
+        neighbors = new int[3 * numTriangles];
+        sideTriangles = new int[numCorners];
+        Map<Long, Integer> openEdges = new HashMap<>(2 * numTriangles);
+        for (int edge = 0; edge < 3 * numTriangles; edge++) {
+            int triangle = edge / 3;
+            int from = triangles[edge];
+            int to = triangles[3 * triangle + (edge + 1) % 3];
+            if ((from + 1) % numCorners == to) {
+                sideTriangles[from] = triangle;
+                neighbors[edge] = -1;
+            } else if ((to + 1) % numCorners == from) {
+                sideTriangles[to] = triangle;
+                neighbors[edge] = -1;
+            } else {
+                long key = (long) Math.min(from, to) * numCorners
+                        + Math.max(from, to);
+                Integer other = openEdges.remove(key);
+                if (other == null) {
+                    openEdges.put(key, edge);
+                } else {
+                    neighbors[edge] = other / 3;
+                    neighbors[other] = triangle;
+                }
+            }
+        }
+        assert openEdges.isEmpty() : openEdges.size();
+        /*
+         * Size the grid so it has about one cell per corner.
+         */
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxZ = Double.NEGATIVE_INFINITY;
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowZ = Double.POSITIVE_INFINITY;
+        for (int cornerIndex = 0; cornerIndex < numCorners; cornerIndex++) {
+            maxX = Math.max(maxX, cornerX[cornerIndex]);
+            maxZ = Math.max(maxZ, cornerZ[cornerIndex]);
+            lowX = Math.min(lowX, cornerX[cornerIndex]);
+            lowZ = Math.min(lowZ, cornerZ[cornerIndex]);
+        }
+        minX = lowX - padding;
+        minZ = lowZ - padding;
+        double width = maxX + padding - minX;
+        double depth = maxZ + padding - minZ;
+        double size = Math.sqrt(width * depth / numCorners);
+        size = Math.max(size, Math.max(width, depth) / numCorners);
+        if (!(size > 0.0)) {
+            size = 1.0;
+        }
+        cellSize = size;
+        numColumns = Math.max(1, (int) Math.ceil(width / cellSize));
+        numRows = Math.max(1, (int) Math.ceil(depth / cellSize));
+        /*
+         * Bucket the triangles and the padded sides.
+         */
+        int[] triangleBounds = new int[4 * numTriangles];
+        for (int triangle = 0; triangle < numTriangles; triangle++) {
+            double x0 = Double.POSITIVE_INFINITY;
+            double z0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY;
+            double z1 = Double.NEGATIVE_INFINITY;
+            for (int i = 3 * triangle; i < 3 * triangle + 3; i++) {
+                int corner = triangles[i];
+                x0 = Math.min(x0, cornerX[corner]);
+                z0 = Math.min(z0, cornerZ[corner]);
+                x1 = Math.max(x1, cornerX[corner]);
+                z1 = Math.max(z1, cornerZ[corner]);
+            }
+            setCellRange(x0, z0, x1, z1, triangleBounds, 4 * triangle);
+        }
+        cellTriangleStarts = new int[numColumns * numRows + 1];
+        cellTriangles = fillCells(triangleBounds, cellTriangleStarts);
+
+        int[] sideBounds = new int[4 * numCorners];
+        for (int side = 0; side < numCorners; side++) {
+            int next = (side + 1) % numCorners;
+            double x0 = Math.min(cornerX[side], cornerX[next]) - padding;
+            double z0 = Math.min(cornerZ[side], cornerZ[next]) - padding;
+            double x1 = Math.max(cornerX[side], cornerX[next]) + padding;
+            double z1 = Math.max(cornerZ[side], cornerZ[next]) + padding;
+            setCellRange(x0, z0, x1, z1, sideBounds, 4 * side);
+        }
+        cellSideStarts = new int[numColumns * numRows + 1];
+        cellSides = fillCells(sideBounds, cellSideStarts);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether the specified planar location lies in the polygon: either
+     * near a side or inside a triangle.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @param maxSD maximum squared distance from a side (&ge;0, no greater than
+     * the square of the padding)
+     * @return true if the location lies in the polygon, otherwise false
+     */
+    boolean contains(double x, double z, double maxSD) {
+        assert maxSD >= 0.0 : maxSD;
+
+        int cell = findCell(x, z);
+        if (cell < 0) {
+            return false;
+        }
+        if (nearestSide(x, z, maxSD, cell) >= 0) {
+            return true;
+        }
+        for (int i = cellTriangleStarts[cell];
+                i < cellTriangleStarts[cell + 1]; i++) {
+            if (isInTriangle(x, z, cellTriangles[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Find the triangle containing the specified planar location, or (if none
+     * does) the triangle containing the nearest side within the specified
+     * distance.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @param maxSD maximum squared distance from a side (&ge;0, no greater than
+     * the square of the padding)
+     * @return triangle index (&ge;0) or -1 if the location isn't in the polygon
+     */
+    int locate(double x, double z, double maxSD) {
+        assert maxSD >= 0.0 : maxSD;
+
+        int cell = findCell(x, z);
+        if (cell < 0) {
+            return -1;
+        }
+        for (int i = cellTriangleStarts[cell];
+                i < cellTriangleStarts[cell + 1]; i++) {
+            int triangle = cellTriangles[i];
+            if (isInTriangle(x, z, triangle)) {
+                return triangle;
+            }
+        }
+        int side = nearestSide(x, z, maxSD, cell);
+        if (side < 0) {
+            return -1;
+        } else {
+            return sideTriangles[side];
+        }
+    }
+
+    /**
+     * Find the shortest path between 2 planar locations in the polygon using
+     * the funnel algorithm. The triangles between the 2 locations form a
+     * unique sequence, since the dual graph of the triangulation is a tree.
+     *
+     * @param startX 1st planar coordinate of the start location
+     * @param startZ 2nd planar coordinate of the start location
+     * @param startTriangle index of the triangle containing the start location
+     * (&ge;0)
+     * @param goalX 1st planar coordinate of the goal location
+     * @param goalZ 2nd planar coordinate of the goal location
+     * @param goalTriangle index of the triangle containing the goal location
+     * (&ge;0)
+     * @return a new array of indices of the corners where the path turns, in
+     * order from start to goal (not null, may be empty)
+     */
+    int[] shortestPath(double startX, double startZ, int startTriangle,
+            double goalX, double goalZ, int goalTriangle) {
+        int numTriangles = triangles.length / 3;
+        assert startTriangle >= 0 && startTriangle < numTriangles;
+        assert goalTriangle >= 0 && goalTriangle < numTriangles;
+
+        if (startTriangle == goalTriangle) {
+            return new int[0];
+        }
+        /*
+         * Search the dual tree breadth-first from the goal triangle, so that
+         * parent links lead from the start triangle toward the goal.
+         */
+        int[] parents = new int[numTriangles];
+        Arrays.fill(parents, -1);
+        parents[goalTriangle] = goalTriangle;
+        int[] queue = new int[numTriangles];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = goalTriangle;
+        while (head < tail && parents[startTriangle] == -1) {
+            int triangle = queue[head++];
+            for (int edge = 3 * triangle; edge < 3 * triangle + 3; edge++) {
+                int neighbor = neighbors[edge];
+                if (neighbor >= 0 && parents[neighbor] == -1) {
+                    parents[neighbor] = triangle;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        assert parents[startTriangle] != -1 : startTriangle;
+        /*
+         * List the portals crossed, bracketed by degenerate portals at the
+         * start and goal. Left and right are relative to the direction of
+         * travel.
+         */
+        int[] lefts = new int[numTriangles + 1];
+        int[] rights = new int[numTriangles + 1];
+        lefts[0] = startPoint;
+        rights[0] = startPoint;
+        int numPortals = 1;
+        for (int triangle = startTriangle; triangle != goalTriangle;
+                triangle = parents[triangle]) {
+            int next = parents[triangle];
+            int edge = 3 * triangle;
+            while (neighbors[edge] != next) {
+                ++edge;
+            }
+            rights[numPortals] = triangles[edge];
+            lefts[numPortals] = triangles[3 * triangle + (edge + 1) % 3];
+            ++numPortals;
+        }
+        lefts[numPortals] = goalPoint;
+        rights[numPortals] = goalPoint;
+        ++numPortals;
+        /*
+         * Tighten the funnel portal by portal, adding a turn at each corner
+         * where one side of the funnel crosses over the other. A side that
+         * coincides with the apex doesn't constrain the other side.
+         */
+        double[] xs = {startX, startZ, goalX, goalZ};
+        int[] turns = new int[numPortals];
+        int numTurns = 0;
+        int apex = startPoint;
+        int left = startPoint;
+        int right = startPoint;
+        int leftIndex = 0;
+        int rightIndex = 0;
+        for (int i = 1; i < numPortals; i++) {
+            int portalLeft = lefts[i];
+            int portalRight = rights[i];
+            if (cross(apex, right, portalRight, xs) >= 0.0) {
+                if (apex == right || apex == left
+                        || cross(apex, left, portalRight, xs) < 0.0) {
+                    right = portalRight;
+                    rightIndex = i;
+                } else {
+                    numTurns = addTurn(left, turns, numTurns);
+                    apex = left;
+                    right = apex;
+                    rightIndex = leftIndex;
+                    i = leftIndex;
+                    continue;
+                }
+            }
+            if (cross(apex, left, portalLeft, xs) <= 0.0) {
+                if (apex == left || apex == right
+                        || cross(apex, right, portalLeft, xs) > 0.0) {
+                    left = portalLeft;
+                    leftIndex = i;
+                } else {
+                    numTurns = addTurn(right, turns, numTurns);
+                    apex = right;
+                    left = apex;
+                    leftIndex = rightIndex;
+                    i = rightIndex;
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(turns, numTurns);
+
+        return result;
+    }
+
+    /**
+     * Triangulate the specified simple polygon by ear clipping.
+     *
+     * @param cornerX 1st planar coordinate of each corner (not null, length
+     * &ge;3, alias created)
+     * @param cornerZ 2nd planar coordinate of each corner (not null, same
+     * length, alias created)
+     * @param padding padding for the sides' bounding rectangles, typically the
+     * tolerance of the polygon (&ge;0)
+     * @return a new instance, or null if no ear could be found due to rounding
+     */
+    static Triangulation triangulate(double[] cornerX, double[] cornerZ,
+            double padding) {
+        int numCorners = cornerX.length;
+        assert numCorners >= 3 : numCorners;
+        assert cornerZ.length == numCorners : cornerZ.length;
+        assert padding >= 0.0 : padding;
+        /*
+         * Determine the orientation of the corners.
+         */
+        double twiceArea = 0.0;
+        int prevCorner = numCorners - 1;
+        for (int corner = 0; corner < numCorners; corner++) {
+            twiceArea += cornerX[prevCorner] * cornerZ[corner]
+                    - cornerX[corner] * cornerZ[prevCorner];
+            prevCorner = corner;
+        }
+        double sign = (twiceArea >= 0.0) ? 1.0 : -1.0;
+        /*
+         * Link the corners into a circular list.
+         */
+        int[] nexts = new int[numCorners];
+        int[] prevs = new int[numCorners];
+        boolean[] isReflex = new boolean[numCorners];
+        for (int corner = 0; corner < numCorners; corner++) {
+            nexts[corner] = (corner + 1) % numCorners;
+            prevs[corner] = (corner + numCorners - 1) % numCorners;
+        }
+        for (int corner = 0; corner < numCorners; corner++) {
+            isReflex[corner] = sign * cross(cornerX, cornerZ, prevs[corner],
+                    corner, nexts[corner]) <= 0.0;
+        }
+        /*
+         * Clip ears until a single triangle remains.
+         */
+        int[] triangles = new int[3 * (numCorners - 2)];
+        int numTriangles = 0;
+        int remaining = numCorners;
+        int corner = 0;
+        int numFailures = 0;
+        while (remaining > 3) {
+            int prev = prevs[corner];
+            int next = nexts[corner];
+            if (isEar(cornerX, cornerZ, prev, corner, next, nexts, isReflex)) {
+                storeTriangle(triangles, numTriangles, prev, corner, next,
+                        sign);
+                ++numTriangles;
+                nexts[prev] = next;
+                prevs[next] = prev;
+                --remaining;
+                isReflex[prev] = sign * cross(cornerX, cornerZ, prevs[prev],
+                        prev, next) <= 0.0;
+                isReflex[next] = sign * cross(cornerX, cornerZ, prev, next,
+                        nexts[next]) <= 0.0;
+                corner = prev;
+                numFailures = 0;
+            } else {
+                corner = next;
+                ++numFailures;
+                if (numFailures > remaining) {
+                    return null;
+                }
+            }
+        }
+        storeTriangle(triangles, numTriangles, prevs[corner], corner,
+                nexts[corner], sign);
+
+        Triangulation result
+                = new Triangulation(cornerX, cornerZ, triangles, padding);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append a corner to a list of turns, unless it's an endpoint of the path
+     * or a repeat of the previous turn.
+     *
+     * @param point index of a corner, or a portal-point code
+     * @param turns the list of turns (not null, modified)
+     * @param numTurns number of turns in the list (&ge;0)
+     * @return the new number of turns
+     */
+    private static int addTurn(int point, int[] turns, int numTurns) {
+        int result = numTurns;
+        if (point >= 0 && (numTurns == 0 || turns[numTurns - 1] != point)) {
+            turns[numTurns] = point;
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert a fractional grid coordinate to a column or row index.
+     *
+     * @param coordinate the grid coordinate
+     * @param limit the number of columns or rows (&gt;0)
+     * @return the index (&ge;0, &lt;limit)
+     */
+    private static int clampIndex(double coordinate, int limit) {
+        int result = (int) Math.floor(coordinate);
+        result = Math.max(0, Math.min(limit - 1, result));
+
+        return result;
+    }
+
+    /**
+     * Calculate the cross product of the offsets from point a to points b and
+     * c, where the points are corners or the endpoints of a path.
+     *
+     * @param a index of a corner, or a portal-point code
+     * @param b index of a corner, or a portal-point code
+     * @param c index of a corner, or a portal-point code
+     * @param ends planar coordinates of the path's start and goal (not null,
+     * unaffected)
+     * @return the cross product (positive if c lies to the left of a-&gt;b)
+     */
+    private double cross(int a, int b, int c, double[] ends) {
+        double ax = pointX(a, ends);
+        double az = pointZ(a, ends);
+        double result = (pointX(b, ends) - ax) * (pointZ(c, ends) - az)
+                - (pointZ(b, ends) - az) * (pointX(c, ends) - ax);
+
+        return result;
+    }
+
+    /**
+     * Calculate the cross product of the offsets from corner a to corners b and
+     * c.
+     *
+     * @param xs 1st planar coordinate of each corner (not null, unaffected)
+     * @param zs 2nd planar coordinate of each corner (not null, unaffected)
+     * @param a index of a corner
+     * @param b index of a corner
+     * @param c index of a corner
+     * @return the cross product (positive if c lies to the left of a-&gt;b)
+     */
+    private static double cross(double[] xs, double[] zs, int a, int b,
+            int c) {
+        double result = (xs[b] - xs[a]) * (zs[c] - zs[a])
+                - (zs[b] - zs[a]) * (xs[c] - xs[a]);
+        return result;
+    }
+
+    /**
+     * Convert the cell ranges of a set of bounding rectangles into a
+     * compressed list of the items overlapping each cell.
+     *
+     * @param ranges cell ranges, 4 per item (not null, unaffected)
+     * @param storeStarts storage for the start of each cell's sublist (not
+     * null, length = numCells + 1, modified)
+     * @return a new array of item indices
+     */
+    private int[] fillCells(int[] ranges, int[] storeStarts) {
+        int numItems = ranges.length / 4;
+        for (int item = 0; item < numItems; item++) {
+            for (int row = ranges[4 * item + 1]; row <= ranges[4 * item + 3];
+                    row++) {
+                for (int column = ranges[4 * item];
+                        column <= ranges[4 * item + 2]; column++) {
+                    ++storeStarts[row * numColumns + column + 1];
+                }
+            }
+        }
+        int numCells = storeStarts.length - 1;
+        for (int cell = 0; cell < numCells; cell++) {
+            storeStarts[cell + 1] += storeStarts[cell];
+        }
+
+        int[] result = new int[storeStarts[numCells]];
+        int[] fill = Arrays.copyOf(storeStarts, numCells);
+        for (int item = 0; item < numItems; item++) {
+            for (int row = ranges[4 * item + 1]; row <= ranges[4 * item + 3];
+                    row++) {
+                for (int column = ranges[4 * item];
+                        column <= ranges[4 * item + 2]; column++) {
+                    int cell = row * numColumns + column;
+                    result[fill[cell]] = item;
+                    ++fill[cell];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the grid cell containing the specified planar location.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @return cell index (&ge;0) or -1 if outside the grid
+     */
+    private int findCell(double x, double z) {
+        double column = Math.floor((x - minX) / cellSize);
+        double row = Math.floor((z - minZ) / cellSize);
+        if (!(column >= 0.0 && column <= numColumns
+                && row >= 0.0 && row <= numRows)) {
+            return -1;
+        }
+        /*
+         * Locations on the far edges of the grid belong to the last cells.
+         */
+        int result = Math.min((int) row, numRows - 1) * numColumns
+                + Math.min((int) column, numColumns - 1);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified corner is the tip of an ear: a convex corner
+     * whose triangle contains no other corner, counting its boundary as
+     * inside. Only reflex corners need be tested.
+     *
+     * @param xs 1st planar coordinate of each corner (not null, unaffected)
+     * @param zs 2nd planar coordinate of each corner (not null, unaffected)
+     * @param prev index of the ear's preceding corner
+     * @param corner index of the ear's tip
+     * @param next index of the ear's following corner
+     * @param nexts links of the circular list (not null, unaffected)
+     * @param isReflex reflex flags of the corners (not null, unaffected)
+     * @return true if the candidate is an ear, otherwise false
+     */
+    private static boolean isEar(double[] xs, double[] zs, int prev,
+            int corner, int next, int[] nexts, boolean[] isReflex) {
+        if (isReflex[corner]) {
+            return false;
+        }
+
+        double c1 = cross(xs, zs, prev, corner, next);
+        for (int other = nexts[next]; other != prev; other = nexts[other]) {
+            if (isReflex[other]) {
+                double c2 = cross(xs, zs, prev, corner, other);
+                double c3 = cross(xs, zs, corner, next, other);
+                double c4 = cross(xs, zs, next, prev, other);
+                if (c1 > 0.0 && c2 >= 0.0 && c3 >= 0.0 && c4 >= 0.0
+                        || c1 < 0.0 && c2 <= 0.0 && c3 <= 0.0 && c4 <= 0.0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Test whether the specified planar location lies inside the specified
+     * triangle, counting its boundary as inside.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @param triangle index of the triangle (&ge;0)
+     * @return true if inside, otherwise false
+     */
+    private boolean isInTriangle(double x, double z, int triangle) {
+        int base = 3 * triangle;
+        int prev = triangles[base + 2];
+        for (int i = base; i < base + 3; i++) {
+            int corner = triangles[i];
+            double cross = (cornerX[corner] - cornerX[prev])
+                    * (z - cornerZ[prev])
+                    - (cornerZ[corner] - cornerZ[prev]) * (x - cornerX[prev]);
+            if (cross < 0.0) {
+                return false;
+            }
+            prev = corner;
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the nearest side (in the specified cell) within the specified
+     * distance of a planar location.
+     *
+     * @param x 1st planar coordinate of the location
+     * @param z 2nd planar coordinate of the location
+     * @param maxSD maximum squared distance (&ge;0)
+     * @param cell index of the cell containing the location (&ge;0)
+     * @return side index (&ge;0) or -1 if none is close enough
+     */
+    private int nearestSide(double x, double z, double maxSD, int cell) {
+        int numCorners = cornerX.length;
+        double bestSD = maxSD;
+        int result = -1;
+        for (int i = cellSideStarts[cell]; i < cellSideStarts[cell + 1]; i++) {
+            int side = cellSides[i];
+            int next = (side + 1) % numCorners;
+            double sideX = cornerX[next] - cornerX[side];
+            double sideZ = cornerZ[next] - cornerZ[side];
+            double offsetX = x - cornerX[side];
+            double offsetZ = z - cornerZ[side];
+            double sideDS = sideX * sideX + sideZ * sideZ;
+            double t = (offsetX * sideX + offsetZ * sideZ) / sideDS;
+            t = Math.max(0.0, Math.min(1.0, t));
+            double dx = offsetX - t * sideX;
+            double dz = offsetZ - t * sideZ;
+            double ds = dx * dx + dz * dz;
+            if (ds <= bestSD) {
+                bestSD = ds;
+                result = side;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the 1st planar coordinate of a corner or path endpoint.
+     *
+     * @param point index of a corner, or a portal-point code
+     * @param ends planar coordinates of the path's start and goal (not null,
+     * unaffected)
+     * @return the coordinate
+     */
+    private double pointX(int point, double[] ends) {
+        if (point == startPoint) {
+            return ends[0];
+        } else if (point == goalPoint) {
+            return ends[2];
+        } else {
+            return cornerX[point];
+        }
+    }
+
+    /**
+     * Read the 2nd planar coordinate of a corner or path endpoint.
+     *
+     * @param point index of a corner, or a portal-point code
+     * @param ends planar coordinates of the path's start and goal (not null,
+     * unaffected)
+     * @return the coordinate
+     */
+    private double pointZ(int point, double[] ends) {
+        if (point == startPoint) {
+            return ends[1];
+        } else if (point == goalPoint) {
+            return ends[3];
+        } else {
+            return cornerZ[point];
+        }
+    }
+
+    /**
+     * Calculate the range of grid cells overlapped by a bounding rectangle.
+     *
+     * @param x0 minimum 1st planar coordinate
+     * @param z0 minimum 2nd planar coordinate
+     * @param x1 maximum 1st planar coordinate
+     * @param z1 maximum 2nd planar coordinate
+     * @param storeRanges storage for the range (not null, modified)
+     * @param offset index of the first of 4 elements to store
+     */
+    private void setCellRange(double x0, double z0, double x1, double z1,
+            int[] storeRanges, int offset) {
+        storeRanges[offset] = clampIndex((x0 - minX) / cellSize, numColumns);
+        storeRanges[offset + 1] = clampIndex((z0 - minZ) / cellSize, numRows);
+        storeRanges[offset + 2] = clampIndex((x1 - minX) / cellSize,
+                numColumns);
+        storeRanges[offset + 3] = clampIndex((z1 - minZ) / cellSize, numRows);
+    }
+
+    /**
+     * Store a clipped ear as a counter-clockwise triangle.
+     *
+     * @param storeTriangles storage for triangles (not null, modified)
+     * @param triangleIndex index of the triangle to store (&ge;0)
+     * @param prev index of the ear's preceding corner
+     * @param corner index of the ear's tip
+     * @param next index of the ear's following corner
+     * @param sign orientation of the polygon (+1 if counter-clockwise, -1 if
+     * clockwise)
+     */
+    private static void storeTriangle(int[] storeTriangles, int triangleIndex,
+            int prev, int corner, int next, double sign) {
+        int base = 3 * triangleIndex;
+        storeTriangles[base + 1] = corner;
+        if (sign > 0.0) {
+            storeTriangles[base] = prev;
+            storeTriangles[base + 2] = next;
+        } else {
+            storeTriangles[base] = next;
+            storeTriangles[base + 2] = prev;
+        }
+    }
+}
@@ -26,9 +26,9 @@
  */
 package jme3utilities.math.spline;
 
-import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
-import java.util.ArrayList;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -36,7 +36,9 @@ import jme3utilities.math.locus.Locus3f;
 
 /**
  * An immutable spline (in 3 dimensions) that is piecewise linear, being
- * composed of straight-line segments.
+ * composed of straight-line segments. The parameter t equals the path length
+ * from the 1st control point, so the cumulative path length at each control
+ * point is precomputed and sampling uses binary search.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -53,13 +55,14 @@ public class LinearSpline3f implements Spline3f {
     // fields
 
     /**
-     * location of each control point (size&gt;0)
+     * parameter value (cumulative path length) of each control point, in
+     * ascending order (length&gt;0)
      */
-    final private List<Vector3f> controlPoints = new ArrayList<>(2);
+    final private float[] controlTs;
     /**
-     * parameter value for each control point (size&gt;0)
+     * coordinates of each control point, 3 floats per point (length&gt;0)
      */
-    final private List<Float> controlTs = new ArrayList<>(2);
+    final private float[] controlXyz;
     /**
      * total path length (&ge;0)
      */
@@ -79,29 +82,33 @@ public class LinearSpline3f implements Spline3f {
         Validate.nonNull(points, "control points");
         Validate.positive(points.length, "number of control points");
 
+        float[] ts = new float[points.length];
+        float[] xyz = new float[3 * points.length];
+        int numPoints = 0;
         float sumDistance = 0f;
         Vector3f previousPoint = null;
         for (Vector3f point : points) {
             Validate.nonNull(point, "control point");
             if (previousPoint != null) {
                 float distance = previousPoint.distance(point);
-                /*
-                 * Skip any redundant control point.
-                 */
-                if (distance > 0f) {
-                    sumDistance += distance;
-                    controlPoints.add(point);
-                    controlTs.add(sumDistance);
+                if (!(distance > 0f)) {
+                    /*
+                     * Skip any redundant control point.
+                     */
+                    continue;
                 }
-            } else {
-                controlPoints.add(point);
-                controlTs.add(sumDistance);
+                sumDistance += distance;
             }
+            ts[numPoints] = sumDistance;
+            xyz[3 * numPoints] = point.x;
+            xyz[3 * numPoints + 1] = point.y;
+            xyz[3 * numPoints + 2] = point.z;
+            ++numPoints;
             previousPoint = point;
         }
+        controlTs = Arrays.copyOf(ts, numPoints);
+        controlXyz = Arrays.copyOf(xyz, 3 * numPoints);
         totalLength = sumDistance;
-
-        assert controlPoints.size() == controlTs.size() : controlTs.size();
     }
 
     /**
@@ -113,32 +120,7 @@ public class LinearSpline3f implements Spline3f {
      * unaffected)
      */
     public LinearSpline3f(List<Vector3f> points) {
-        Validate.nonNull(points, "control points");
-        Validate.positive(points.size(), "number of control points");
-
-        float sumDistance = 0f;
-        Vector3f previousPoint = null;
-        for (Vector3f point : points) {
-            Validate.nonNull(point, "control point");
-            if (previousPoint != null) {
-                float distance = previousPoint.distance(point);
-                /*
-                 * Skip any redundant control point.
-                 */
-                if (distance > 0f) {
-                    sumDistance += distance;
-                    controlPoints.add(point);
-                    controlTs.add(sumDistance);
-                }
-            } else {
-                controlPoints.add(point);
-                controlTs.add(sumDistance);
-            }
-            previousPoint = point;
-        }
-        totalLength = sumDistance;
-
-        assert controlPoints.size() == controlTs.size() : controlTs.size();
+        this(toArray(points));
     }
     // *************************************************************************
     // Spline3f methods
@@ -151,9 +133,11 @@ public class LinearSpline3f implements Spline3f {
      */
     @Override
     public Vector3f copyControlPoint(int index) {
-        Validate.inRange(index, "index", 0, controlPoints.size() - 1);
-        Vector3f result = controlPoints.get(index);
-        return result.clone();
+        Validate.inRange(index, "index", 0, controlTs.length - 1);
+
+        Vector3f result = new Vector3f(controlXyz[3 * index],
+                controlXyz[3 * index + 1], controlXyz[3 * index + 2]);
+        return result;
     }
 
     /**
@@ -164,38 +148,41 @@ public class LinearSpline3f implements Spline3f {
      */
     @Override
     public Vector3f interpolate(float sampleT) {
-        if (sampleT <= controlTs.get(0)) {
-            Vector3f controlPoint = controlPoints.get(0);
-            return controlPoint.clone();
-        }
-
-        int lastIndex = controlPoints.size() - 1;
-        if (sampleT >= totalLength) {
-            Vector3f controlPoint = controlPoints.get(lastIndex);
-            return controlPoint.clone();
-        }
-
-        int leftIndex = leftIndex(sampleT);
-        assert leftIndex >= 0 : leftIndex;
-        assert leftIndex < lastIndex : leftIndex;
+        Vector3f result = interpolateByDistance(sampleT, null);
+        return result;
+    }
 
-        float t0 = controlTs.get(leftIndex);
-        assert sampleT >= t0 : sampleT;
-        Vector3f p0 = controlPoints.get(leftIndex);
-        if (sampleT == t0) {
-            return p0.clone();
+    /**
+     * Interpolate this spline's location at the specified path length from its
+     * start. For a linear spline, this is the same as interpolating at
+     * t=distance.
+     *
+     * @param distance path length from the start (clamped to the range 0 to
+     * {@link #totalLength()})
+     * @param storeResult storage for the result (modified if not null)
+     * @return a location vector (either storeResult or a new instance)
+     */
+    @Override
+    public Vector3f interpolateByDistance(float distance,
+            Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int lastIndex = controlTs.length - 1;
+        if (lastIndex == 0) {
+            result.set(controlXyz[0], controlXyz[1], controlXyz[2]);
+            return result;
         }
 
-        int rightIndex = leftIndex + 1;
-        float t1 = controlTs.get(rightIndex);
-        assert t1 > t0 : t1;
-        assert sampleT < t1 : sampleT;
-        float fraction = (sampleT - t0) / (t1 - t0);
-        assert fraction >= 0f : fraction;
-        assert fraction < 1f : fraction;
-
-        Vector3f p1 = controlPoints.get(rightIndex);
-        Vector3f result = FastMath.interpolateLinear(fraction, p0, p1, null);
+        int leftIndex = segmentIndex(distance, -1);
+        float fraction = fraction(leftIndex, distance);
+        float complement = 1f - fraction;
+        int base = 3 * leftIndex;
+        result.x = complement * controlXyz[base]
+                + fraction * controlXyz[base + 3];
+        result.y = complement * controlXyz[base + 1]
+                + fraction * controlXyz[base + 4];
+        result.z = complement * controlXyz[base + 2]
+                + fraction * controlXyz[base + 5];
 
         return result;
     }
@@ -210,9 +197,13 @@ public class LinearSpline3f implements Spline3f {
     public boolean isContainedIn(Locus3f locus) {
         Validate.nonNull(locus, "locus");
 
-        for (int i = 0; i < controlPoints.size() - 1; i++) {
-            Vector3f startLocation = controlPoints.get(i);
-            Vector3f endLocation = controlPoints.get(i + 1);
+        Vector3f startLocation = new Vector3f();
+        Vector3f endLocation = new Vector3f();
+        for (int i = 0; i < controlTs.length - 1; i++) {
+            startLocation.set(controlXyz[3 * i], controlXyz[3 * i + 1],
+                    controlXyz[3 * i + 2]);
+            endLocation.set(controlXyz[3 * i + 3], controlXyz[3 * i + 4],
+                    controlXyz[3 * i + 5]);
             if (!locus.contains(startLocation, endLocation)) {
                 return false;
             }
@@ -227,8 +218,8 @@ public class LinearSpline3f implements Spline3f {
      */
     @Override
     public int numControlPoints() {
-        int result = controlPoints.size();
-        assert controlTs.size() == result;
+        int result = controlTs.length;
+        assert controlXyz.length == 3 * result;
         return result;
     }
 
@@ -241,30 +232,68 @@ public class LinearSpline3f implements Spline3f {
      */
     @Override
     public Vector3f rightDerivative(float sampleT) {
-        int leftIndex = leftIndex(sampleT);
-        if (leftIndex == -1) {
-            leftIndex = 0;
-        }
-        int lastIndex = controlPoints.size() - 1;
-        if (leftIndex == lastIndex) {
-            leftIndex = lastIndex - 1;
-        }
-
-        Vector3f p0 = controlPoints.get(leftIndex);
-        float t0 = controlTs.get(leftIndex);
-
+        int leftIndex = segmentIndex(sampleT, -1);
         int nextIndex = leftIndex + 1;
-        Vector3f p1 = controlPoints.get(nextIndex);
-        float t1 = controlTs.get(nextIndex);
-
-        Vector3f result = p1.subtract(p0);
-        float dt = t1 - t0;
+        float dt = controlTs[nextIndex] - controlTs[leftIndex];
         assert dt > 0f : dt;
+
+        int base = 3 * leftIndex;
+        Vector3f result = new Vector3f(
+                controlXyz[base + 3] - controlXyz[base],
+                controlXyz[base + 4] - controlXyz[base + 1],
+                controlXyz[base + 5] - controlXyz[base + 2]);
         result.divideLocal(dt);
 
         return result;
     }
 
+    /**
+     * Interpolate this spline at many parameter values, writing the locations
+     * to a buffer. No objects are allocated. Consecutive values that fall on
+     * the same segment share a single search.
+     *
+     * @param sampleTs input values (not null, unaffected)
+     * @param storeResult storage for the locations, 3 floats per sample
+     * starting at the buffer's position (not null, modified, position
+     * unaffected)
+     */
+    @Override
+    public void sample(float[] sampleTs, FloatBuffer storeResult) {
+        Validate.nonNull(sampleTs, "sample parameters");
+        Validate.nonNull(storeResult, "store result");
+        int numSamples = sampleTs.length;
+        if (storeResult.remaining() < 3 * numSamples) {
+            throw new IllegalArgumentException("buffer too small");
+        }
+
+        int position = storeResult.position();
+        int lastIndex = controlTs.length - 1;
+        if (lastIndex == 0) {
+            for (int sampleIndex = 0; sampleIndex < numSamples; sampleIndex++) {
+                storeResult.put(position, controlXyz[0]);
+                storeResult.put(position + 1, controlXyz[1]);
+                storeResult.put(position + 2, controlXyz[2]);
+                position += 3;
+            }
+            return;
+        }
+
+        int leftIndex = -1;
+        for (float sampleT : sampleTs) {
+            leftIndex = segmentIndex(sampleT, leftIndex);
+            float fraction = fraction(leftIndex, sampleT);
+            float complement = 1f - fraction;
+            int base = 3 * leftIndex;
+            storeResult.put(position, complement * controlXyz[base]
+                    + fraction * controlXyz[base + 3]);
+            storeResult.put(position + 1, complement * controlXyz[base + 1]
+                    + fraction * controlXyz[base + 4]);
+            storeResult.put(position + 2, complement * controlXyz[base + 2]
+                    + fraction * controlXyz[base + 5]);
+            position += 3;
+        }
+    }
+
     /**
      * Calculate the ending location of this spline.
      *
@@ -272,10 +301,10 @@ public class LinearSpline3f implements Spline3f {
      */
     @Override
     public Vector3f terminus() {
-        int lastIndex = controlPoints.size() - 1;
-        Vector3f result = controlPoints.get(lastIndex);
+        int lastIndex = controlTs.length - 1;
+        Vector3f result = copyControlPoint(lastIndex);
 
-        return result.clone();
+        return result;
     }
 
     /**
@@ -301,8 +330,8 @@ public class LinearSpline3f implements Spline3f {
         StringBuilder buffer = new StringBuilder(50);
         buffer.append("LinearSpline3f[");
         for (int i = 0; i < numControlPoints(); i++) {
-            float t = controlTs.get(i);
-            Vector3f p = controlPoints.get(i);
+            float t = controlTs[i];
+            Vector3f p = copyControlPoint(i);
             String desc = String.format("@t=%.1f%s", t, p.toString());
             buffer.append(desc);
             if (i < numControlPoints() - 1) {
@@ -317,9 +346,35 @@ public class LinearSpline3f implements Spline3f {
     // *************************************************************************
     // private methods
 
+    /**
+     * Calculate how far the specified parameter value lies along the specified
+     * segment.
+     *
+     * @param leftIndex index of the segment's 1st control point (&ge;0,
+     * &lt;numPoints-1)
+     * @param sampleT input parameter value
+     * @return the fraction (&ge;0, &le;1)
+     */
+    private float fraction(int leftIndex, float sampleT) {
+        float t0 = controlTs[leftIndex];
+        float t1 = controlTs[leftIndex + 1];
+        assert t1 > t0 : t1;
+
+        float result;
+        if (sampleT <= t0) {
+            result = 0f;
+        } else if (sampleT >= t1) {
+            result = 1f;
+        } else {
+            result = (sampleT - t0) / (t1 - t0);
+        }
+
+        return result;
+    }
+
     /**
      * Find the index of the control point at or before the specified parameter
-     * value.
+     * value, using binary search.
      *
      * @param sampleT input parameter value
      * @return index (&ge;0, &lt;numPoints) or -1 if sampleT&lt;0
@@ -328,16 +383,62 @@ public class LinearSpline3f implements Spline3f {
         if (sampleT < 0f) {
             return -1;
         }
-        /*
-         * TODO: implement binary search
-         */
-        int numPoints = controlTs.size();
-        for (int index = 1; index < numPoints; index++) {
-            float controlT = controlTs.get(index);
-            if (sampleT < controlT) {
-                return index - 1;
+
+        int low = 0;
+        int high = controlTs.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (controlTs[middle] <= sampleT) {
+                low = middle;
+            } else {
+                high = middle - 1;
             }
         }
-        return numPoints - 1;
+
+        return low;
+    }
+
+    /**
+     * Find the segment to use for the specified parameter value, clamping
+     * values beyond either end of the spline to the end segments. There must
+     * be at least 2 control points.
+     *
+     * @param sampleT input parameter value
+     * @param hint index of a segment to try before searching, or -1 for none
+     * @return index of the segment's 1st control point (&ge;0,
+     * &lt;numPoints-1)
+     */
+    private int segmentIndex(float sampleT, int hint) {
+        int lastSegment = controlTs.length - 2;
+        assert lastSegment >= 0 : lastSegment;
+
+        if (hint >= 0 && controlTs[hint] <= sampleT
+                && (hint == lastSegment || sampleT < controlTs[hint + 1])) {
+            return hint;
+        }
+
+        int result = leftIndex(sampleT);
+        if (result < 0) {
+            result = 0;
+        } else if (result > lastSegment) {
+            result = lastSegment;
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy a list of control points to a new array.
+     *
+     * @param points control points (not null, unaffected)
+     * @return a new array
+     */
+    private static Vector3f[] toArray(List<Vector3f> points) {
+        Validate.nonNull(points, "control points");
+
+        int numPoints = points.size();
+        Vector3f[] result = points.toArray(new Vector3f[numPoints]);
+
+        return result;
     }
 }
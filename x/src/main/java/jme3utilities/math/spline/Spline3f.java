@@ -27,6 +27,7 @@
 package jme3utilities.math.spline;
 
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
 import jme3utilities.math.locus.Locus3f;
 
 /**
@@ -52,6 +53,18 @@ public interface Spline3f {
      */
     Vector3f interpolate(float sampleT);
 
+    /**
+     * Interpolate the spline at the specified path length from its start.
+     * Stepping the distance uniformly yields constant-speed motion along the
+     * path.
+     *
+     * @param distance path length from the start (clamped to the range 0 to
+     * {@link #totalLength()})
+     * @param storeResult storage for the result (modified if not null)
+     * @return a location vector (either storeResult or a new instance)
+     */
+    Vector3f interpolateByDistance(float distance, Vector3f storeResult);
+
     /**
      * Test whether this spline is entirely contained in the specified region.
      *
@@ -76,6 +89,18 @@ public interface Spline3f {
      */
     Vector3f rightDerivative(float sampleT);
 
+    /**
+     * Interpolate the spline at many parameter values, writing the locations
+     * to a buffer. Intended for moving large numbers of agents: no objects are
+     * allocated per sample.
+     *
+     * @param sampleTs input values (not null, unaffected)
+     * @param storeResult storage for the locations, 3 floats per sample
+     * starting at the buffer's position (not null, modified, position
+     * unaffected)
+     */
+    void sample(float[] sampleTs, FloatBuffer storeResult);
+
     /**
      * Calculate the ending location of this spline.
      *
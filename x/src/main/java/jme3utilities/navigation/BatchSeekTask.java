@@ -0,0 +1,165 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task to solve a range of jobs in a batch of route requests against
+ * a compiled navigation graph. Each job is either a single request (solved by
+ * an A* search) or a group of requests sharing a goal (solved together by a
+ * single reverse search from the goal).
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class BatchSeekTask extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * graph to search (not null)
+     */
+    final private CompiledNavGraph graph;
+    /**
+     * index of the first job in this task's range (&ge;0)
+     */
+    final private int firstJob;
+    /**
+     * index of the first job past this task's range (&gt;firstJob)
+     */
+    final private int endJob;
+    /**
+     * index of the goal vertex for each request (not null)
+     */
+    final private int[] goalIndices;
+    /**
+     * for each job, the position of its first request in requestOrder, plus a
+     * final element equal to the number of requests (not null)
+     */
+    final private int[] jobOffsets;
+    /**
+     * request indices grouped by job (not null)
+     */
+    final private int[] requestOrder;
+    /**
+     * index of the starting vertex for each request (not null)
+     */
+    final private int[] startIndices;
+    /**
+     * route for each request, in request order (not null, each element set by
+     * exactly one task)
+     */
+    final private List<List<NavArc>> results;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of jobs.
+     *
+     * @param graph graph to search (not null, alias created)
+     * @param startIndices starting vertex for each request (not null, alias
+     * created)
+     * @param goalIndices goal vertex for each request (not null, alias
+     * created)
+     * @param requestOrder request indices grouped by job (not null, alias
+     * created)
+     * @param jobOffsets position of each job in requestOrder (not null, alias
+     * created)
+     * @param firstJob index of the first job to solve (&ge;0)
+     * @param endJob index of the first job past the range (&gt;firstJob)
+     * @param results storage for the routes found (not null, alias created)
+     */
+    BatchSeekTask(CompiledNavGraph graph, int[] startIndices,
+            int[] goalIndices, int[] requestOrder, int[] jobOffsets,
+            int firstJob, int endJob, List<List<NavArc>> results) {
+        assert graph != null;
+        assert startIndices != null;
+        assert goalIndices != null;
+        assert requestOrder != null;
+        assert jobOffsets != null;
+        assert firstJob >= 0 : firstJob;
+        assert endJob > firstJob : endJob;
+        assert results != null;
+
+        this.graph = graph;
+        this.startIndices = startIndices;
+        this.goalIndices = goalIndices;
+        this.requestOrder = requestOrder;
+        this.jobOffsets = jobOffsets;
+        this.firstJob = firstJob;
+        this.endJob = endJob;
+        this.results = results;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Solve the jobs in this task's range, splitting the range in half until
+     * only one job remains.
+     */
+    @Override
+    protected void compute() {
+        if (endJob - firstJob > 1) {
+            int middleJob = (firstJob + endJob) >>> 1;
+            BatchSeekTask low = new BatchSeekTask(graph, startIndices,
+                    goalIndices, requestOrder, jobOffsets, firstJob,
+                    middleJob, results);
+            BatchSeekTask high = new BatchSeekTask(graph, startIndices,
+                    goalIndices, requestOrder, jobOffsets, middleJob, endJob,
+                    results);
+            invokeAll(low, high);
+            return;
+        }
+
+        /*
+         * Borrow working storage from the graph only for the duration
+         * of the job, so none stays attached to the worker thread.
+         */
+        TraversalScratch work = graph.acquireScratch();
+        int from = jobOffsets[firstJob];
+        int to = jobOffsets[firstJob + 1];
+        if (to - from == 1) {
+            int requestIndex = requestOrder[from];
+            int startIndex = startIndices[requestIndex];
+            int goalIndex = goalIndices[requestIndex];
+            List<NavArc> route = graph.seekRoute(work, startIndex, goalIndex);
+            results.set(requestIndex, route);
+        } else {
+            graph.seekToGoal(work, startIndices, goalIndices, requestOrder,
+                    from, to, results);
+        }
+        graph.releaseScratch(work);
+    }
+}
@@ -0,0 +1,921 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An immutable, compact snapshot of a navigation graph in compressed sparse row
+ * (CSR) form. Vertices are identified by their indices and arcs by their
+ * positions in the snapshot. The arcs originating from each vertex are stored
+ * contiguously, so each arc costs only 8 bytes (its terminus and its cost).
+ * Reverse adjacency, needed only for backward traversals, is built on demand.
+ * <p>
+ * Each traversal borrows working storage from a pool owned by the snapshot,
+ * so once the pool holds enough storage for the concurrent queries, they don't
+ * allocate, and a single instance may be queried by many threads at once.
+ * {@link #seekAll(int[], int[], ForkJoinPool)} exploits this to solve batches
+ * of route requests in parallel. The storage is discarded with the snapshot.
+ * <p>
+ * Changes to the original graph aren't reflected in the snapshot. However,
+ * routes are returned as arcs of the original graph, so removing an arc that
+ * a route needs causes an IllegalStateException.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CompiledNavGraph {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CompiledNavGraph.class.getName());
+    /**
+     * minimum number of requests in a batch sharing a goal for a single reverse
+     * search to serve them all
+     */
+    final private static int minSharedGoal = 4;
+    // *************************************************************************
+    // fields
+
+    /**
+     * cost of each arc (all &ge;0)
+     */
+    final private float[] arcCosts;
+    /**
+     * for each vertex index, the position of its first outgoing arc, plus a
+     * final element equal to the number of arcs
+     */
+    final private int[] arcOffsets;
+    /**
+     * index of the terminating vertex of each arc
+     */
+    final private int[] arcTargets;
+    /**
+     * for each vertex index, the position of its first incoming arc in
+     * reverseArcs, plus a final element equal to the number of arcs (lazily
+     * initialized)
+     */
+    private int[] reverseOffsets = null;
+    /**
+     * positions of arcs, grouped by terminating vertex (lazily initialized)
+     */
+    private volatile int[] reverseArcs = null;
+    /**
+     * index of the originating vertex of each arc in reverseArcs (lazily
+     * initialized)
+     */
+    private int[] reverseSources = null;
+    /**
+     * heuristic to guide searches, or null for uniform-cost searches
+     */
+    final private NavHeuristic heuristic;
+    /**
+     * original vertex for each index
+     */
+    final private NavVertex[] vertices;
+    /**
+     * idle working storage for traversals (guarded by itself)
+     */
+    final private List<TraversalScratch> idleScratch = new ArrayList<>(4);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a snapshot of the specified graph. Invoked only by
+     * {@link NavGraph#compile()}.
+     *
+     * @param graph graph to compile (not null, unaffected)
+     * @param heuristic heuristic to guide searches (alias created) or null
+     */
+    CompiledNavGraph(NavGraph graph, NavHeuristic heuristic) {
+        assert graph != null;
+
+        this.heuristic = heuristic;
+
+        int numVertices = graph.numVertices();
+        vertices = new NavVertex[numVertices];
+        for (NavVertex vertex : graph.copyVertices()) {
+            int index = vertex.getIndex();
+            assert vertices[index] == null : index;
+            vertices[index] = vertex;
+        }
+
+        int numArcs = graph.numArcs();
+        arcCosts = new float[numArcs];
+        arcOffsets = new int[numVertices + 1];
+        arcTargets = new int[numArcs];
+
+        int arcIndex = 0;
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            arcOffsets[vIndex] = arcIndex;
+            for (NavArc arc : vertices[vIndex].outgoing()) {
+                arcTargets[arcIndex] = arc.getToVertex().getIndex();
+                arcCosts[arcIndex] = graph.costOf(arc);
+                ++arcIndex;
+            }
+        }
+        assert arcIndex == numArcs : arcIndex;
+        arcOffsets[numVertices] = numArcs;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Borrow working storage for a traversal, reusing idle storage if any.
+     * Return it using {@link #releaseScratch(TraversalScratch)}.
+     *
+     * @return storage sized for this snapshot (not null)
+     */
+    TraversalScratch acquireScratch() {
+        synchronized (idleScratch) {
+            int numIdle = idleScratch.size();
+            if (numIdle > 0) {
+                TraversalScratch result = idleScratch.remove(numIdle - 1);
+                return result;
+            }
+        }
+
+        int heapCapacity = Math.max(1, numArcs() + 1);
+        TraversalScratch result
+                = new TraversalScratch(numVertices(), heapCapacity);
+
+        return result;
+    }
+
+    /**
+     * Read the cost (or length) of the indexed arc.
+     *
+     * @param arcIndex index of the arc (&ge;0, &lt;numArcs)
+     * @return cost (&ge;0)
+     */
+    public float arcCost(int arcIndex) {
+        validateArcIndex(arcIndex, "arc index");
+        float result = arcCosts[arcIndex];
+        return result;
+    }
+
+    /**
+     * Find the originating vertex of the indexed arc.
+     *
+     * @param arcIndex index of the arc (&ge;0, &lt;numArcs)
+     * @return vertex index (&ge;0, &lt;numVertices)
+     */
+    public int arcOrigin(int arcIndex) {
+        validateArcIndex(arcIndex, "arc index");
+        /*
+         * Binary search for the last vertex whose arcs begin
+         * at or before the indexed arc.
+         */
+        int low = 0;
+        int high = vertices.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (arcOffsets[middle] <= arcIndex) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Read the terminating vertex of the indexed arc.
+     *
+     * @param arcIndex index of the arc (&ge;0, &lt;numArcs)
+     * @return vertex index (&ge;0, &lt;numVertices)
+     */
+    public int arcTerminus(int arcIndex) {
+        validateArcIndex(arcIndex, "arc index");
+        int result = arcTargets[arcIndex];
+        return result;
+    }
+
+    /**
+     * Count the number of vertices reachable from the specified vertex,
+     * including the vertex itself.
+     *
+     * @param startIndex index of the starting vertex (&ge;0, &lt;numVertices)
+     * @return count (&ge;1)
+     */
+    public int countReachableFrom(int startIndex) {
+        validateVertexIndex(startIndex, "start index");
+
+        TraversalScratch work = acquireScratch();
+        int result = breadthFirst(work, startIndex, false);
+        releaseScratch(work);
+
+        return result;
+    }
+
+    /**
+     * Enumerate all vertices which are in a specified inclusive range of hops
+     * from a specified vertex.
+     *
+     * @param minHopCount (&ge;0)
+     * @param maxHopCount (&ge;minHopCount)
+     * @param startIndex index of the starting vertex (&ge;0, &lt;numVertices)
+     * @param storeIndices storage for the indices of the vertices found (not
+     * null, length&ge;numVertices, modified)
+     * @return number of vertices found (&ge;0)
+     */
+    public int findByHops(int minHopCount, int maxHopCount, int startIndex,
+            int[] storeIndices) {
+        Validate.nonNegative(minHopCount, "count");
+        if (minHopCount > maxHopCount) {
+            logger.log(Level.SEVERE, "min={0} max={1}",
+                    new Object[]{minHopCount, maxHopCount});
+            throw new IllegalArgumentException("min should exceed max");
+        }
+        validateVertexIndex(startIndex, "start index");
+        Validate.nonNull(storeIndices, "store indices");
+        if (storeIndices.length < vertices.length) {
+            throw new IllegalArgumentException("store indices too short");
+        }
+
+        TraversalScratch work = acquireScratch();
+        work.begin();
+        int[] queue = work.queue;
+        int[] stamps = work.stamps;
+        int[] hops = work.hopCounts;
+
+        int head = 0;
+        int tail = 0;
+        stamps[startIndex] = work.stamp;
+        hops[startIndex] = 0;
+        queue[tail++] = startIndex;
+        int result = 0;
+        while (head < tail) {
+            int vIndex = queue[head++];
+            int hopCount = hops[vIndex];
+            if (hopCount >= minHopCount) {
+                storeIndices[result] = vIndex;
+                ++result;
+            }
+            if (hopCount >= maxHopCount) {
+                continue;
+            }
+            int end = arcOffsets[vIndex + 1];
+            for (int arcIndex = arcOffsets[vIndex]; arcIndex < end;
+                    arcIndex++) {
+                int target = arcTargets[arcIndex];
+                if (stamps[target] != work.stamp) {
+                    stamps[target] = work.stamp;
+                    hops[target] = hopCount + 1;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        releaseScratch(work);
+
+        return result;
+    }
+
+    /**
+     * Find the original arc corresponding to the indexed arc.
+     *
+     * @param arcIndex index of the arc (&ge;0, &lt;numArcs)
+     * @return the pre-existing instance, or null if it's been removed from the
+     * original graph
+     */
+    public NavArc getArc(int arcIndex) {
+        int origin = arcOrigin(arcIndex);
+        int terminus = arcTargets[arcIndex];
+        NavArc result = vertices[origin].findOutgoing(vertices[terminus]);
+
+        return result;
+    }
+
+    /**
+     * Access the original vertex with the specified index.
+     *
+     * @param vertexIndex index of the vertex (&ge;0, &lt;numVertices)
+     * @return the pre-existing instance (not null)
+     */
+    public NavVertex getVertex(int vertexIndex) {
+        validateVertexIndex(vertexIndex, "vertex index");
+        NavVertex result = vertices[vertexIndex];
+
+        assert result != null;
+        return result;
+    }
+
+    /**
+     * Test whether every vertex is reachable from every other.
+     *
+     * @return true if connected, false otherwise
+     */
+    public boolean isConnected() {
+        if (vertices.length == 0) {
+            return true;
+        }
+        /*
+         * The graph is strongly connected if and only if every vertex
+         * is reachable from vertex 0 and vertex 0 is reachable from every
+         * vertex.
+         */
+        TraversalScratch work = acquireScratch();
+        boolean result = breadthFirst(work, 0, false) == vertices.length
+                && breadthFirst(work, 0, true) == vertices.length;
+        releaseScratch(work);
+
+        return result;
+    }
+
+    /**
+     * Count the arcs in this snapshot.
+     *
+     * @return count (&ge;0)
+     */
+    public int numArcs() {
+        int result = arcTargets.length;
+        return result;
+    }
+
+    /**
+     * Count the vertices in this snapshot.
+     *
+     * @return count (&ge;0)
+     */
+    public int numVertices() {
+        int result = vertices.length;
+        return result;
+    }
+
+    /**
+     * Return working storage borrowed using {@link #acquireScratch()}.
+     *
+     * @param work the storage to return (not null, not in use)
+     */
+    void releaseScratch(TraversalScratch work) {
+        assert work != null;
+        synchronized (idleScratch) {
+            assert !idleScratch.contains(work);
+            idleScratch.add(work);
+        }
+    }
+
+    /**
+     * Find the cheapest route from one vertex to another using an A* search.
+     *
+     * @param startIndex index of the starting vertex (&ge;0, &lt;numVertices,
+     * &ne;goalIndex)
+     * @param goalIndex index of the goal vertex (&ge;0, &lt;numVertices,
+     * &ne;startIndex)
+     * @param storeArcs storage for the indices of the arcs in the route, in
+     * order (not null, length&ge;numVertices-1, modified)
+     * @return number of arcs in the route (&gt;0) or -1 if the goal is
+     * unreachable
+     */
+    public int seek(int startIndex, int goalIndex, int[] storeArcs) {
+        validateVertexIndex(startIndex, "start index");
+        validateVertexIndex(goalIndex, "goal index");
+        if (startIndex == goalIndex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+        Validate.nonNull(storeArcs, "store arcs");
+        if (storeArcs.length < vertices.length - 1) {
+            throw new IllegalArgumentException("store arcs too short");
+        }
+
+        TraversalScratch work = acquireScratch();
+        boolean found = search(work, startIndex, goalIndex);
+        if (!found) {
+            releaseScratch(work);
+            return -1;
+        }
+        /*
+         * Count the arcs in the route, then trace it backward from the goal.
+         */
+        int numArcs = 0;
+        for (int vIndex = goalIndex; vIndex != startIndex; numArcs++) {
+            vIndex = arcOrigin(work.viaArcs[vIndex]);
+        }
+        int position = numArcs;
+        for (int vIndex = goalIndex; vIndex != startIndex;) {
+            int arcIndex = work.viaArcs[vIndex];
+            --position;
+            storeArcs[position] = arcIndex;
+            vIndex = arcOrigin(arcIndex);
+        }
+        releaseScratch(work);
+
+        return numArcs;
+    }
+
+    /**
+     * Find the cheapest routes for a batch of requests, using the common
+     * fork/join pool.
+     *
+     * @param startIndices index of the starting vertex for each request (not
+     * null, unaffected)
+     * @param goalIndices index of the goal vertex for each request (not null,
+     * same length as startIndices, unaffected)
+     * @return a new list of routes in request order, each a new list of arcs
+     * or null if its goal is unreachable
+     * @see #seekAll(int[], int[], java.util.concurrent.ForkJoinPool)
+     */
+    public List<List<NavArc>> seekAll(int[] startIndices, int[] goalIndices) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<List<NavArc>> result = seekAll(startIndices, goalIndices, pool);
+
+        return result;
+    }
+
+    /**
+     * Find the cheapest routes for a batch of requests, solving them in
+     * parallel on the specified pool. Requests are solved by A* searches,
+     * except that whenever several requests share a goal, a single reverse
+     * Dijkstra search from that goal serves them all. The original graph
+     * mustn't be modified while the batch is being solved.
+     * <p>
+     * Each leaf task borrows working storage from this snapshot's pool for
+     * the duration of its job, so no storage is left behind in the pool's
+     * worker threads.
+     *
+     * @param startIndices index of the starting vertex for each request (not
+     * null, unaffected)
+     * @param goalIndices index of the goal vertex for each request (not null,
+     * same length as startIndices, each distinct from the corresponding start,
+     * unaffected)
+     * @param pool the pool to use (not null)
+     * @return a new list of routes in request order, each a new list of arcs
+     * or null if its goal is unreachable
+     * @throws IllegalStateException if a route includes an arc that's been
+     * removed from the original graph since it was compiled
+     */
+    public List<List<NavArc>> seekAll(int[] startIndices, int[] goalIndices,
+            ForkJoinPool pool) {
+        Validate.nonNull(startIndices, "start indices");
+        Validate.nonNull(goalIndices, "goal indices");
+        Validate.nonNull(pool, "pool");
+        int numRequests = startIndices.length;
+        if (goalIndices.length != numRequests) {
+            logger.log(Level.SEVERE, "starts={0} goals={1}",
+                    new Object[]{numRequests, goalIndices.length});
+            throw new IllegalArgumentException("array lengths differ");
+        }
+        for (int requestIndex = 0; requestIndex < numRequests;
+                requestIndex++) {
+            int startIndex = startIndices[requestIndex];
+            int goalIndex = goalIndices[requestIndex];
+            validateVertexIndex(startIndex, "start index");
+            validateVertexIndex(goalIndex, "goal index");
+            if (startIndex == goalIndex) {
+                throw new IllegalArgumentException("vertices not distinct");
+            }
+        }
+
+        List<List<NavArc>> result
+                = new ArrayList<>(Collections.nCopies(numRequests,
+                        (List<NavArc>) null));
+        if (numRequests == 0) {
+            return result;
+        }
+        /*
+         * Sort the requests by goal, then divide them into jobs: one job for
+         * each group of requests that share a goal and are numerous enough
+         * to justify a reverse search, plus one job for every other request.
+         */
+        long[] sortKeys = new long[numRequests];
+        for (int requestIndex = 0; requestIndex < numRequests;
+                requestIndex++) {
+            long goalIndex = goalIndices[requestIndex];
+            sortKeys[requestIndex] = (goalIndex << 32) | requestIndex;
+        }
+        Arrays.sort(sortKeys);
+        int[] requestOrder = new int[numRequests];
+        for (int position = 0; position < numRequests; position++) {
+            requestOrder[position] = (int) sortKeys[position];
+        }
+
+        int[] jobOffsets = new int[numRequests + 1];
+        int numJobs = 0;
+        int groupStart = 0;
+        while (groupStart < numRequests) {
+            int goalIndex = goalIndices[requestOrder[groupStart]];
+            int groupEnd = groupStart + 1;
+            while (groupEnd < numRequests
+                    && goalIndices[requestOrder[groupEnd]] == goalIndex) {
+                ++groupEnd;
+            }
+            if (groupEnd - groupStart >= minSharedGoal) {
+                jobOffsets[numJobs] = groupStart;
+                ++numJobs;
+            } else {
+                for (int position = groupStart; position < groupEnd;
+                        position++) {
+                    jobOffsets[numJobs] = position;
+                    ++numJobs;
+                }
+            }
+            groupStart = groupEnd;
+        }
+        jobOffsets[numJobs] = numRequests;
+
+        BatchSeekTask task = new BatchSeekTask(this, startIndices, goalIndices,
+                requestOrder, jobOffsets, 0, numJobs, result);
+        pool.invoke(task);
+
+        return result;
+    }
+
+    /**
+     * Find the cheapest route from one vertex to another using an A* search.
+     * Invoked only by {@link BatchSeekTask}.
+     *
+     * @param work working storage (not null)
+     * @param startIndex index of the starting vertex (valid, &ne;goalIndex)
+     * @param goalIndex index of the goal vertex (valid, &ne;startIndex)
+     * @return a new list of arcs, or null if the goal is unreachable
+     */
+    List<NavArc> seekRoute(TraversalScratch work, int startIndex,
+            int goalIndex) {
+        boolean found = search(work, startIndex, goalIndex);
+        if (!found) {
+            return null;
+        }
+
+        List<NavArc> result = new ArrayList<>(8);
+        for (int vIndex = goalIndex; vIndex != startIndex;) {
+            int arcIndex = work.viaArcs[vIndex];
+            int origin = arcOrigin(arcIndex);
+            NavArc arc = originalArc(origin, arcIndex);
+            result.add(arc);
+            vIndex = origin;
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    /**
+     * Find the cheapest routes for a group of requests which share a goal,
+     * using a single reverse Dijkstra search from the goal that stops once all
+     * their starting vertices are settled. Invoked only by
+     * {@link BatchSeekTask}.
+     *
+     * @param work working storage (not null)
+     * @param startIndices index of the starting vertex for each request (not
+     * null, unaffected)
+     * @param goalIndices index of the goal vertex for each request (not null,
+     * unaffected)
+     * @param requestOrder request indices grouped by goal (not null,
+     * unaffected)
+     * @param from position of the group's first request in requestOrder
+     * @param to position past the group's last request in requestOrder
+     * @param storeResults storage for the routes found (not null, modified)
+     */
+    void seekToGoal(TraversalScratch work, int[] startIndices,
+            int[] goalIndices, int[] requestOrder, int from, int to,
+            List<List<NavArc>> storeResults) {
+        assert to > from : to;
+        int goalIndex = goalIndices[requestOrder[from]];
+
+        reverseSearch(work, goalIndex, startIndices, requestOrder, from, to);
+        /*
+         * Each reachable start now has its cheapest route to the goal
+         * recorded as a chain of outgoing arcs.
+         */
+        for (int position = from; position < to; position++) {
+            int requestIndex = requestOrder[position];
+            int startIndex = startIndices[requestIndex];
+            assert goalIndices[requestIndex] == goalIndex;
+            List<NavArc> route = null;
+            if (work.costs[startIndex] < Float.POSITIVE_INFINITY) {
+                route = new ArrayList<>(8);
+                for (int vIndex = startIndex; vIndex != goalIndex;) {
+                    int arcIndex = work.viaArcs[vIndex];
+                    NavArc arc = originalArc(vIndex, arcIndex);
+                    route.add(arc);
+                    vIndex = arcTargets[arcIndex];
+                }
+            }
+            storeResults.set(requestIndex, route);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Count the vertices reachable from (or able to reach) a starting vertex
+     * using a breadth-first traversal.
+     *
+     * @param work working storage (not null)
+     * @param startIndex index of the starting vertex
+     * @param reverse true to follow arcs backward, false to follow them
+     * forward
+     * @return count (&ge;1)
+     */
+    private int breadthFirst(TraversalScratch work, int startIndex,
+            boolean reverse) {
+        int[] offsets = arcOffsets;
+        int[] neighbors = arcTargets;
+        if (reverse) {
+            buildReverse();
+            offsets = reverseOffsets;
+            neighbors = reverseSources;
+        }
+
+        work.begin();
+        int[] queue = work.queue;
+        int[] stamps = work.stamps;
+        int head = 0;
+        int tail = 0;
+        stamps[startIndex] = work.stamp;
+        queue[tail++] = startIndex;
+        while (head < tail) {
+            int vIndex = queue[head++];
+            int end = offsets[vIndex + 1];
+            for (int i = offsets[vIndex]; i < end; i++) {
+                int neighbor = neighbors[i];
+                if (stamps[neighbor] != work.stamp) {
+                    stamps[neighbor] = work.stamp;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    /**
+     * Build the reverse adjacency arrays, if they haven't been built already.
+     */
+    private void buildReverse() {
+        if (reverseArcs == null) {
+            buildReverseSync();
+        }
+    }
+
+    /**
+     * Build the reverse adjacency arrays while holding the lock.
+     */
+    private synchronized void buildReverseSync() {
+        if (reverseArcs != null) {
+            return;
+        }
+
+        int numVertices = vertices.length;
+        int numArcs = arcTargets.length;
+        int[] offsets = new int[numVertices + 1];
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            ++offsets[arcTargets[arcIndex] + 1];
+        }
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            offsets[vIndex + 1] += offsets[vIndex];
+        }
+        int[] fill = new int[numVertices];
+        int[] inArcs = new int[numArcs];
+        int[] sources = new int[numArcs];
+        for (int origin = 0; origin < numVertices; origin++) {
+            int end = arcOffsets[origin + 1];
+            for (int arcIndex = arcOffsets[origin]; arcIndex < end;
+                    arcIndex++) {
+                int target = arcTargets[arcIndex];
+                int position = offsets[target] + fill[target];
+                inArcs[position] = arcIndex;
+                sources[position] = origin;
+                ++fill[target];
+            }
+        }
+
+        reverseOffsets = offsets;
+        reverseSources = sources;
+        reverseArcs = inArcs; // volatile write publishes the other arrays
+    }
+
+    /**
+     * Find the original arc corresponding to the indexed arc.
+     *
+     * @param origin index of the arc's originating vertex
+     * @param arcIndex index of the arc
+     * @return the pre-existing instance (not null)
+     * @throws IllegalStateException if the arc has been removed from the
+     * original graph since it was compiled
+     */
+    private NavArc originalArc(int origin, int arcIndex) {
+        NavVertex terminus = vertices[arcTargets[arcIndex]];
+        NavArc result = vertices[origin].findOutgoing(terminus);
+        if (result == null) {
+            logger.log(Level.SEVERE, "arc from {0} to {1}",
+                    new Object[]{vertices[origin], terminus});
+            throw new IllegalStateException(
+                    "arc removed from the graph since compile()");
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform a Dijkstra search backward from a goal, recording the first arc
+     * of the best route from each vertex settled. The search stops once all
+     * the specified starting vertices are settled.
+     *
+     * @param work working storage (not null)
+     * @param goalIndex index of the goal vertex
+     * @param startIndices index of the starting vertex for each request (not
+     * null, unaffected)
+     * @param requestOrder request indices grouped by goal (not null,
+     * unaffected)
+     * @param from position of the first request in requestOrder
+     * @param to position past the last request in requestOrder
+     */
+    private void reverseSearch(TraversalScratch work, int goalIndex,
+            int[] startIndices, int[] requestOrder, int from, int to) {
+        buildReverse();
+        int[] inArcs = reverseArcs;
+        int[] inOffsets = reverseOffsets;
+        int[] sources = reverseSources;
+
+        work.begin();
+        float[] costs = work.costs;
+        boolean[] marks = work.marks;
+        int[] stamps = work.stamps;
+        int[] viaArcs = work.viaArcs;
+        /*
+         * Mark the starting vertices, so the search can tell when
+         * it's done.
+         */
+        int numPending = 0;
+        for (int position = from; position < to; position++) {
+            int startIndex = startIndices[requestOrder[position]];
+            if (stamps[startIndex] != work.stamp) {
+                stamps[startIndex] = work.stamp;
+                costs[startIndex] = Float.POSITIVE_INFINITY;
+                marks[startIndex] = true;
+                ++numPending;
+            }
+        }
+
+        assert stamps[goalIndex] != work.stamp : goalIndex;
+        stamps[goalIndex] = work.stamp;
+        costs[goalIndex] = 0f;
+        marks[goalIndex] = false;
+        viaArcs[goalIndex] = -1;
+        work.insert(goalIndex, 0f);
+
+        while (!work.isHeapEmpty()) {
+            float key = work.topKey();
+            int vIndex = work.topVertex();
+            work.removeTop();
+            if (key > costs[vIndex]) {
+                continue; // stale entry: a cheaper route was found later
+            }
+            if (marks[vIndex]) {
+                marks[vIndex] = false;
+                --numPending;
+                if (numPending == 0) {
+                    return;
+                }
+            }
+            ++work.numExpanded;
+
+            float cost = costs[vIndex];
+            int end = inOffsets[vIndex + 1];
+            for (int i = inOffsets[vIndex]; i < end; i++) {
+                int source = sources[i];
+                int arcIndex = inArcs[i];
+                float sourceCost = cost + arcCosts[arcIndex];
+                if (stamps[source] != work.stamp) {
+                    stamps[source] = work.stamp;
+                    marks[source] = false;
+                } else if (sourceCost >= costs[source]) {
+                    continue;
+                }
+                costs[source] = sourceCost;
+                viaArcs[source] = arcIndex;
+                work.insert(source, sourceCost);
+            }
+        }
+    }
+
+    /**
+     * Perform an A* search, recording the best route to each vertex reached.
+     *
+     * @param work working storage (not null)
+     * @param startIndex index of the starting vertex
+     * @param goalIndex index of the goal vertex
+     * @return true if the goal was reached, otherwise false
+     */
+    private boolean search(TraversalScratch work, int startIndex,
+            int goalIndex) {
+        work.begin();
+        float[] costs = work.costs;
+        float[] estimates = work.estimates;
+        int[] stamps = work.stamps;
+        int[] viaArcs = work.viaArcs;
+        NavVertex goalVertex = vertices[goalIndex];
+
+        stamps[startIndex] = work.stamp;
+        costs[startIndex] = 0f;
+        estimates[startIndex] = estimate(startIndex, goalVertex);
+        viaArcs[startIndex] = -1;
+        work.insert(startIndex, estimates[startIndex]);
+
+        while (!work.isHeapEmpty()) {
+            float key = work.topKey();
+            int vIndex = work.topVertex();
+            work.removeTop();
+            if (key > costs[vIndex] + estimates[vIndex]) {
+                continue; // stale entry: a cheaper route was found later
+            }
+            if (vIndex == goalIndex) {
+                return true;
+            }
+            ++work.numExpanded;
+
+            float cost = costs[vIndex];
+            int end = arcOffsets[vIndex + 1];
+            for (int arcIndex = arcOffsets[vIndex]; arcIndex < end;
+                    arcIndex++) {
+                int target = arcTargets[arcIndex];
+                float targetCost = cost + arcCosts[arcIndex];
+                if (stamps[target] != work.stamp) {
+                    stamps[target] = work.stamp;
+                    estimates[target] = estimate(target, goalVertex);
+                } else if (targetCost >= costs[target]) {
+                    continue;
+                }
+                costs[target] = targetCost;
+                viaArcs[target] = arcIndex;
+                work.insert(target, targetCost + estimates[target]);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Estimate the remaining cost from the indexed vertex to the goal.
+     *
+     * @param vertexIndex index of the vertex
+     * @param goalVertex goal vertex (not null)
+     * @return estimated cost (&ge;0)
+     */
+    private float estimate(int vertexIndex, NavVertex goalVertex) {
+        float result = 0f;
+        if (heuristic != null) {
+            NavVertex vertex = vertices[vertexIndex];
+            result = heuristic.estimateCost(vertex, goalVertex);
+        }
+
+        assert result >= 0f : result;
+        return result;
+    }
+
+    /**
+     * Verify that an arc index (used as a method argument) is valid.
+     *
+     * @param arcIndex the index to validate
+     * @param description description of the argument
+     */
+    private void validateArcIndex(int arcIndex, String description) {
+        Validate.inRange(arcIndex, description, 0, arcTargets.length - 1);
+    }
+
+    /**
+     * Verify that a vertex index (used as a method argument) is valid.
+     *
+     * @param vertexIndex the index to validate
+     * @param description description of the argument
+     */
+    private void validateVertexIndex(int vertexIndex, String description) {
+        Validate.inRange(vertexIndex, description, 0, vertices.length - 1);
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of the connectivity of a navigation graph: its strongly connected
+ * components, plus the bridges and articulation points of its underlying
+ * undirected graph (in which each arc, or pair of reverse arcs, is a single
+ * edge). Everything is computed in linear time by iterative (non-recursive)
+ * traversals, so long corridors can't overflow the stack. Immutable, but the
+ * graph creates and caches it lazily during queries, which is one reason why
+ * {@link NavGraph} queries aren't thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class Connectivity {
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if every arc has a reverse arc in the graph
+     */
+    final private boolean isReversible;
+    /**
+     * true for each vertex whose removal would disconnect the underlying
+     * undirected graph, indexed by vertex index
+     */
+    final private boolean[] isArticulation;
+    /**
+     * strongly connected component of each vertex, indexed by vertex index
+     */
+    final private int[] components;
+    /**
+     * number of strongly connected components (&ge;0)
+     */
+    final private int numComponents;
+    /**
+     * arcs whose removal (together with their reverse arcs, if any) would
+     * disconnect the underlying undirected graph
+     */
+    final private Set<NavArc> bridges = new HashSet<>(16);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Analyze the specified vertices.
+     *
+     * @param vertices every vertex of the graph, in index order (not null,
+     * unaffected)
+     * @param numArcs number of arcs in the graph (&ge;0)
+     */
+    Connectivity(List<NavVertex> vertices, int numArcs) {
+        int numVertices = vertices.size();
+        /*
+         * Gather the arcs into compressed sparse rows: first the directed
+         * arcs, then the undirected edges (each listed under both endpoints).
+         */
+        int[] outOffsets = new int[numVertices + 1];
+        int[] outTargets = new int[numArcs];
+        int[] edgeOffsets = new int[numVertices + 1];
+        NavArc[] edgeArcs = new NavArc[numArcs];
+        int numEdges = 0;
+        boolean reversible = true;
+        int arcIndex = 0;
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            outOffsets[vIndex] = arcIndex;
+            NavVertex vertex = vertices.get(vIndex);
+            for (NavArc arc : vertex.outgoing()) {
+                NavVertex terminus = arc.getToVertex();
+                int toIndex = terminus.getIndex();
+                outTargets[arcIndex] = toIndex;
+                ++arcIndex;
+
+                boolean hasReverse = terminus.findOutgoing(vertex) != null;
+                if (!hasReverse) {
+                    reversible = false;
+                }
+                if (!hasReverse || vIndex < toIndex) {
+                    edgeArcs[numEdges] = arc;
+                    ++edgeOffsets[vIndex + 1];
+                    ++edgeOffsets[toIndex + 1];
+                    ++numEdges;
+                }
+            }
+        }
+        assert arcIndex == numArcs : arcIndex;
+        outOffsets[numVertices] = numArcs;
+        isReversible = reversible;
+
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            edgeOffsets[vIndex + 1] += edgeOffsets[vIndex];
+        }
+        int[] edgeNeighbors = new int[2 * numEdges];
+        int[] edgeIds = new int[2 * numEdges];
+        int[] fill = new int[numVertices];
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            NavArc arc = edgeArcs[edgeId];
+            int from = arc.getFromVertex().getIndex();
+            int to = arc.getToVertex().getIndex();
+            int position = edgeOffsets[from] + fill[from];
+            edgeNeighbors[position] = to;
+            edgeIds[position] = edgeId;
+            ++fill[from];
+            position = edgeOffsets[to] + fill[to];
+            edgeNeighbors[position] = from;
+            edgeIds[position] = edgeId;
+            ++fill[to];
+        }
+
+        components = new int[numVertices];
+        numComponents = labelComponents(outOffsets, outTargets);
+
+        isArticulation = new boolean[numVertices];
+        boolean[] isBridgeEdge = new boolean[numEdges];
+        findCutElements(edgeOffsets, edgeNeighbors, edgeIds, isBridgeEdge);
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            if (isBridgeEdge[edgeId]) {
+                NavArc arc = edgeArcs[edgeId];
+                bridges.add(arc);
+                NavArc reverse = arc.findReverse();
+                if (reverse != null) {
+                    bridges.add(reverse);
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the strongly connected component of the indexed vertex.
+     *
+     * @param vertexIndex index of the vertex
+     * @return component index (&ge;0, &lt;numComponents)
+     */
+    int component(int vertexIndex) {
+        int result = components[vertexIndex];
+        return result;
+    }
+
+    /**
+     * Count the bridge arcs.
+     *
+     * @return count (&ge;0)
+     */
+    int countBridges() {
+        int result = bridges.size();
+        return result;
+    }
+
+    /**
+     * Test whether the indexed vertex is an articulation point of the
+     * underlying undirected graph.
+     *
+     * @param vertexIndex index of the vertex
+     * @return true if it's an articulation point, otherwise false
+     */
+    boolean isArticulation(int vertexIndex) {
+        boolean result = isArticulation[vertexIndex];
+        return result;
+    }
+
+    /**
+     * Test whether the specified arc is a bridge of the underlying undirected
+     * graph.
+     *
+     * @param arc the arc to test (not null)
+     * @return true if it's a bridge, otherwise false
+     */
+    boolean isBridge(NavArc arc) {
+        boolean result = bridges.contains(arc);
+        return result;
+    }
+
+    /**
+     * Test whether every arc had a reverse arc when the analysis was done.
+     *
+     * @return true if reversible, otherwise false
+     */
+    boolean isReversible() {
+        return isReversible;
+    }
+
+    /**
+     * Count the strongly connected components.
+     *
+     * @return count (&ge;0)
+     */
+    int numComponents() {
+        assert numComponents >= 0 : numComponents;
+        return numComponents;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the bridges and articulation points of the undirected graph using
+     * an iterative version of Tarjan's lowpoint algorithm.
+     *
+     * @param offsets position of each vertex's first edge (not null)
+     * @param neighbors neighbor at the other end of each edge (not null)
+     * @param edgeIds ID of each edge (not null)
+     * @param storeBridges storage for a flag for each edge ID (not null,
+     * modified)
+     */
+    private void findCutElements(int[] offsets, int[] neighbors,
+            int[] edgeIds, boolean[] storeBridges) {
+        int numVertices = components.length;
+        int[] discovery = new int[numVertices];
+        Arrays.fill(discovery, -1);
+        int[] low = new int[numVertices];
+        int[] parentEdge = new int[numVertices];
+        int[] positions = new int[numVertices];
+        int[] stack = new int[numVertices];
+
+        int time = 0;
+        for (int root = 0; root < numVertices; root++) {
+            if (discovery[root] >= 0) {
+                continue;
+            }
+            int rootChildren = 0;
+            int depth = 0;
+            discovery[root] = low[root] = time++;
+            parentEdge[root] = -1;
+            positions[root] = offsets[root];
+            stack[depth++] = root;
+
+            while (depth > 0) {
+                int vIndex = stack[depth - 1];
+                if (positions[vIndex] < offsets[vIndex + 1]) {
+                    int position = positions[vIndex]++;
+                    int edgeId = edgeIds[position];
+                    if (edgeId == parentEdge[vIndex]) {
+                        continue;
+                    }
+                    int neighbor = neighbors[position];
+                    if (discovery[neighbor] < 0) {
+                        discovery[neighbor] = low[neighbor] = time++;
+                        parentEdge[neighbor] = edgeId;
+                        positions[neighbor] = offsets[neighbor];
+                        stack[depth++] = neighbor;
+                        if (vIndex == root) {
+                            ++rootChildren;
+                        }
+                    } else if (discovery[neighbor] < low[vIndex]) {
+                        low[vIndex] = discovery[neighbor];
+                    }
+                    continue;
+                }
+                /*
+                 * Finished with this vertex: update its DFS parent.
+                 */
+                --depth;
+                if (depth > 0) {
+                    int parent = stack[depth - 1];
+                    if (low[vIndex] < low[parent]) {
+                        low[parent] = low[vIndex];
+                    }
+                    if (low[vIndex] > discovery[parent]) {
+                        storeBridges[parentEdge[vIndex]] = true;
+                    }
+                    if (parent != root && low[vIndex] >= discovery[parent]) {
+                        isArticulation[parent] = true;
+                    }
+                }
+            }
+            if (rootChildren > 1) {
+                isArticulation[root] = true;
+            }
+        }
+    }
+
+    /**
+     * Label the strongly connected components of the directed graph using an
+     * iterative version of Tarjan's algorithm.
+     *
+     * @param offsets position of each vertex's first outgoing arc (not null)
+     * @param targets terminus of each arc (not null)
+     * @return number of components (&ge;0)
+     */
+    private int labelComponents(int[] offsets, int[] targets) {
+        int numVertices = components.length;
+        int[] order = new int[numVertices];
+        Arrays.fill(order, -1);
+        int[] low = new int[numVertices];
+        int[] positions = new int[numVertices];
+        int[] callStack = new int[numVertices];
+        int[] componentStack = new int[numVertices];
+        boolean[] onStack = new boolean[numVertices];
+
+        int counter = 0;
+        int result = 0;
+        for (int root = 0; root < numVertices; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int callDepth = 0;
+            int componentDepth = 0;
+            order[root] = low[root] = counter++;
+            positions[root] = offsets[root];
+            callStack[callDepth++] = root;
+            componentStack[componentDepth++] = root;
+            onStack[root] = true;
+
+            while (callDepth > 0) {
+                int vIndex = callStack[callDepth - 1];
+                if (positions[vIndex] < offsets[vIndex + 1]) {
+                    int target = targets[positions[vIndex]++];
+                    if (order[target] < 0) {
+                        order[target] = low[target] = counter++;
+                        positions[target] = offsets[target];
+                        callStack[callDepth++] = target;
+                        componentStack[componentDepth++] = target;
+                        onStack[target] = true;
+                    } else if (onStack[target] && order[target] < low[vIndex]) {
+                        low[vIndex] = order[target];
+                    }
+                    continue;
+                }
+                /*
+                 * Finished with this vertex: if it's the root of a component,
+                 * pop the component's vertices and label them.
+                 */
+                --callDepth;
+                if (low[vIndex] == order[vIndex]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentDepth];
+                        onStack[member] = false;
+                        components[member] = result;
+                    } while (member != vIndex);
+                    ++result;
+                }
+                if (callDepth > 0) {
+                    int caller = callStack[callDepth - 1];
+                    if (low[vIndex] < low[caller]) {
+                        low[caller] = low[vIndex];
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.logging.Logger;
+
+/**
+ * Heuristic which estimates the remaining cost of a route as the straight-line
+ * distance between vertex locations. This heuristic is admissible provided the
+ * cost of every arc is at least the distance between the locations of its
+ * endpoints.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class DistanceHeuristic implements NavHeuristic {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(DistanceHeuristic.class.getName());
+    // *************************************************************************
+    // NavHeuristic methods
+
+    /**
+     * Estimate the cost of the cheapest route from one vertex to another.
+     *
+     * @param fromVertex starting vertex (not null, unaffected)
+     * @param goalVertex goal vertex (not null, unaffected)
+     * @return estimated cost (&ge;0)
+     */
+    @Override
+    public float estimateCost(NavVertex fromVertex, NavVertex goalVertex) {
+        float result = fromVertex.distance(goalVertex);
+
+        assert result >= 0f : result;
+        return result;
+    }
+}
@@ -0,0 +1,772 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.math.MyVector3f;
+import jme3utilities.math.locus.Locus3f;
+
+/**
+ * Bounding-volume hierarchy over the loci of a navigation graph's vertices,
+ * used to accelerate spatial queries. The tree is rebuilt lazily after vertices
+ * are added, and refitted in place when a vertex's locus is replaced. Vertices
+ * without loci are ignored. Vertices with unbounded loci are kept in a separate
+ * list that every query scans.
+ * <p>
+ * Not thread-safe: even queries may rebuild the tree and they reuse its
+ * traversal stack.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class LocusTree {
+    // *************************************************************************
+    // constants
+
+    /**
+     * maximum number of vertices in a leaf node
+     */
+    final private static int maxLeafSize = 4;
+    /**
+     * number of floats per bounding box: 3 minima followed by 3 maxima
+     */
+    final private static int boxSize = 6;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(LocusTree.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the tree must be rebuilt before the next query
+     */
+    private boolean isDirty = true;
+    /**
+     * bounds of each vertex in the tree, in tree order
+     */
+    private float[] itemBounds = new float[0];
+    /**
+     * bounds of each node
+     */
+    private float[] nodeBounds = new float[0];
+    /**
+     * for each node, the count of vertices in it (leaf) or 0 (internal node)
+     */
+    private int[] nodeCounts = new int[0];
+    /**
+     * for each node, the position of its first vertex (leaf) or its right
+     * child (internal node, whose left child immediately follows it)
+     */
+    private int[] nodeLinks = new int[0];
+    /**
+     * parent of each node, or -1 for the root
+     */
+    private int[] nodeParents = new int[0];
+    /**
+     * for each vertex index, the position of the vertex in the tree or -1
+     */
+    private int[] positions = new int[0];
+    /**
+     * stack of nodes for traversals
+     */
+    private int[] stack = new int[64];
+    /**
+     * number of nodes in the tree (&ge;0)
+     */
+    private int numNodes = 0;
+    /**
+     * graph whose vertices are indexed (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
+    /**
+     * vertices in the tree, in tree order
+     */
+    private NavVertex[] items = new NavVertex[0];
+    /**
+     * vertices with unbounded loci
+     */
+    private NavVertex[] unbounded = new NavVertex[0];
+    /**
+     * temporary storage for minimum coordinates
+     */
+    final private Vector3f tempMin = new Vector3f();
+    /**
+     * temporary storage for maximum coordinates
+     */
+    final private Vector3f tempMax = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an index for the specified graph.
+     *
+     * @param graph graph to index (not null, alias created)
+     */
+    LocusTree(NavGraph graph) {
+        assert graph != null;
+        this.graph = graph;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Find a vertex whose locus contains the specified point.
+     *
+     * @param point coordinates of the point (not null, unaffected)
+     * @return a pre-existing member vertex, or null if none found
+     */
+    NavVertex findContains(Vector3f point) {
+        rebuildIfDirty();
+
+        for (NavVertex vertex : unbounded) {
+            if (vertex.getLocus().contains(point)) {
+                return vertex;
+            }
+        }
+
+        int stackSize = beginTraversal();
+        while (stackSize > 0) {
+            --stackSize;
+            int node = stack[stackSize];
+            if (!boxContains(nodeBounds, node, point)) {
+                continue;
+            }
+            int count = nodeCounts[node];
+            if (count == 0) {
+                stackSize = push(stackSize, nodeLinks[node]);
+                stackSize = push(stackSize, node + 1);
+                continue;
+            }
+            int first = nodeLinks[node];
+            for (int position = first; position < first + count; position++) {
+                if (boxContains(itemBounds, position, point)) {
+                    NavVertex vertex = items[position];
+                    if (vertex.getLocus().contains(point)) {
+                        return vertex;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Find the vertex whose locus is nearest to the specified point.
+     *
+     * @param point coordinates of the point (not null, unaffected)
+     * @return a pre-existing member vertex, or null if none
+     */
+    NavVertex findNearest(Vector3f point) {
+        rebuildIfDirty();
+
+        NavVertex result = null;
+        double nearest = Double.POSITIVE_INFINITY;
+        for (NavVertex vertex : unbounded) {
+            double ds = squaredDistance(vertex, point);
+            if (ds < nearest) {
+                nearest = ds;
+                result = vertex;
+            }
+        }
+
+        int stackSize = beginTraversal();
+        while (stackSize > 0) {
+            --stackSize;
+            int node = stack[stackSize];
+            if (boxDistanceSquared(nodeBounds, node, point) >= nearest) {
+                continue;
+            }
+            int count = nodeCounts[node];
+            if (count == 0) {
+                /*
+                 * Visit the nearer child first.
+                 */
+                int left = node + 1;
+                int right = nodeLinks[node];
+                double leftDS = boxDistanceSquared(nodeBounds, left, point);
+                double rightDS = boxDistanceSquared(nodeBounds, right, point);
+                if (leftDS <= rightDS) {
+                    stackSize = push(stackSize, right);
+                    stackSize = push(stackSize, left);
+                } else {
+                    stackSize = push(stackSize, left);
+                    stackSize = push(stackSize, right);
+                }
+                continue;
+            }
+            int first = nodeLinks[node];
+            for (int position = first; position < first + count; position++) {
+                if (boxDistanceSquared(itemBounds, position, point)
+                        < nearest) {
+                    NavVertex vertex = items[position];
+                    double ds = squaredDistance(vertex, point);
+                    if (ds < nearest) {
+                        nearest = ds;
+                        result = vertex;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Mark the tree for rebuilding before the next query.
+     */
+    void invalidate() {
+        isDirty = true;
+    }
+
+    /**
+     * Calculate the distance from the specified starting point to the first
+     * point of support (if any) directly below it.
+     *
+     * @param location coordinates of starting point (not null, unaffected)
+     * @param cosineTolerance cosine of maximum slope for support (&gt;0, &lt;1)
+     * @return the shortest support distance (&ge;0) or
+     * {@link Float#POSITIVE_INFINITY} if no support
+     */
+    float supportDistance(Vector3f location, float cosineTolerance) {
+        rebuildIfDirty();
+
+        float shortest = Float.POSITIVE_INFINITY;
+        for (NavVertex vertex : unbounded) {
+            Locus3f locus = vertex.getLocus();
+            float distance = locus.supportDistance(location, cosineTolerance);
+            if (distance < shortest) {
+                shortest = distance;
+            }
+        }
+
+        int stackSize = beginTraversal();
+        while (stackSize > 0) {
+            --stackSize;
+            int node = stack[stackSize];
+            if (!boxBelow(nodeBounds, node, location, shortest)) {
+                continue;
+            }
+            int count = nodeCounts[node];
+            if (count == 0) {
+                stackSize = push(stackSize, nodeLinks[node]);
+                stackSize = push(stackSize, node + 1);
+                continue;
+            }
+            int first = nodeLinks[node];
+            for (int position = first; position < first + count; position++) {
+                if (boxBelow(itemBounds, position, location, shortest)) {
+                    Locus3f locus = items[position].getLocus();
+                    float distance
+                            = locus.supportDistance(location, cosineTolerance);
+                    if (distance < shortest) {
+                        shortest = distance;
+                    }
+                }
+            }
+        }
+
+        return shortest;
+    }
+
+    /**
+     * Update the tree after the locus of the specified vertex was replaced. If
+     * the vertex remains bounded, its leaf and their ancestors are refitted in
+     * place; otherwise the tree is marked for rebuilding.
+     *
+     * @param vertex the vertex whose locus changed (member)
+     */
+    void update(NavVertex vertex) {
+        if (isDirty) {
+            return;
+        }
+        int vertexIndex = vertex.getIndex();
+        if (vertexIndex >= positions.length || positions[vertexIndex] < 0) {
+            isDirty = true;
+            return;
+        }
+        Locus3f locus = vertex.getLocus();
+        if (locus == null || !findBounds(locus)) {
+            isDirty = true;
+            return;
+        }
+        /*
+         * Update the vertex's bounds, then refit its ancestors.
+         */
+        int position = positions[vertexIndex];
+        storeBox(itemBounds, position);
+        int node = findLeaf(position);
+        while (node >= 0) {
+            refit(node);
+            node = nodeParents[node];
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Begin a traversal by pushing the root node (if any) onto the stack.
+     *
+     * @return new stack size (&ge;0)
+     */
+    private int beginTraversal() {
+        int result = 0;
+        if (numNodes > 0) {
+            result = push(0, 0);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the indexed box might contain support for the specified
+     * location at a distance less than the specified limit.
+     *
+     * @param bounds array of boxes (not null, unaffected)
+     * @param boxIndex index of the box
+     * @param location coordinates of the starting point (not null, unaffected)
+     * @param limit distance limit
+     * @return true if support is possible, otherwise false
+     */
+    private static boolean boxBelow(float[] bounds, int boxIndex,
+            Vector3f location, float limit) {
+        int base = boxSize * boxIndex;
+        if (location.x < bounds[base] || location.x > bounds[base + 3]
+                || location.z < bounds[base + 2]
+                || location.z > bounds[base + 5]
+                || location.y < bounds[base + 1]) {
+            return false;
+        }
+        float minDistance = Math.max(0f, location.y - bounds[base + 4]);
+        if (minDistance < limit) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Test whether the indexed box contains the specified point.
+     *
+     * @param bounds array of boxes (not null, unaffected)
+     * @param boxIndex index of the box
+     * @param point coordinates of the point (not null, unaffected)
+     * @return true if contained, otherwise false
+     */
+    private static boolean boxContains(float[] bounds, int boxIndex,
+            Vector3f point) {
+        int base = boxSize * boxIndex;
+        if (point.x < bounds[base] || point.x > bounds[base + 3]
+                || point.y < bounds[base + 1] || point.y > bounds[base + 4]
+                || point.z < bounds[base + 2] || point.z > bounds[base + 5]) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Calculate the squared distance from the specified point to the indexed
+     * box.
+     *
+     * @param bounds array of boxes (not null, unaffected)
+     * @param boxIndex index of the box
+     * @param point coordinates of the point (not null, unaffected)
+     * @return squared distance (&ge;0)
+     */
+    private static double boxDistanceSquared(float[] bounds, int boxIndex,
+            Vector3f point) {
+        int base = boxSize * boxIndex;
+        double result = 0.0;
+        for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+            double coordinate = point.get(axis);
+            double min = bounds[base + axis];
+            double max = bounds[base + axis + 3];
+            double gap = 0.0;
+            if (coordinate < min) {
+                gap = min - coordinate;
+            } else if (coordinate > max) {
+                gap = coordinate - max;
+            }
+            result += gap * gap;
+        }
+
+        return result;
+    }
+
+    /**
+     * Recursively build the subtree for a range of vertices, median-splitting
+     * along the longest axis of their box centers.
+     *
+     * @param first position of the first vertex in the range
+     * @param count number of vertices in the range (&gt;0)
+     * @param parent parent node, or -1 for the root
+     * @param centers box center of each vertex, 3 per position (modified)
+     */
+    private void build(int first, int count, int parent, float[] centers) {
+        int node = numNodes;
+        ++numNodes;
+        nodeParents[node] = parent;
+
+        if (count <= maxLeafSize) {
+            nodeCounts[node] = count;
+            nodeLinks[node] = first;
+            refit(node);
+            return;
+        }
+        /*
+         * Choose the split axis.
+         */
+        int splitAxis = 0;
+        float longest = -1f;
+        for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int position = first; position < first + count; position++) {
+                float center = centers[3 * position + axis];
+                min = Math.min(min, center);
+                max = Math.max(max, center);
+            }
+            if (max - min > longest) {
+                longest = max - min;
+                splitAxis = axis;
+            }
+        }
+        int leftCount = count / 2;
+        select(first, first + count - 1, first + leftCount, splitAxis,
+                centers);
+
+        build(first, leftCount, node, centers);
+        nodeCounts[node] = 0;
+        nodeLinks[node] = numNodes;
+        build(first + leftCount, count - leftCount, node, centers);
+        refit(node);
+    }
+
+    /**
+     * Find the leaf node containing the specified tree position.
+     *
+     * @param position position of a vertex in the tree
+     * @return node index (&ge;0)
+     */
+    private int findLeaf(int position) {
+        int node = 0;
+        while (nodeCounts[node] == 0) {
+            int right = nodeLinks[node];
+            if (position < firstPosition(right)) {
+                node = node + 1;
+            } else {
+                node = right;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Calculate the bounds of the specified locus into tempMin and tempMax.
+     *
+     * @param locus the locus to bound (not null)
+     * @return true if the bounds are finite, otherwise false
+     */
+    private boolean findBounds(Locus3f locus) {
+        locus.bounds(tempMin, tempMax);
+        if (!isFinite(tempMin) || !isFinite(tempMax)) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Find the first tree position covered by the specified node.
+     *
+     * @param node node index
+     * @return position (&ge;0)
+     */
+    private int firstPosition(int node) {
+        int result = node;
+        while (nodeCounts[result] == 0) {
+            result = result + 1;
+        }
+        result = nodeLinks[result];
+
+        return result;
+    }
+
+    /**
+     * Test whether all components of the specified vector are finite.
+     *
+     * @param vector input (not null, unaffected)
+     * @return true if finite, otherwise false
+     */
+    private static boolean isFinite(Vector3f vector) {
+        if (Float.isInfinite(vector.x) || Float.isNaN(vector.x)
+                || Float.isInfinite(vector.y) || Float.isNaN(vector.y)
+                || Float.isInfinite(vector.z) || Float.isNaN(vector.z)) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Push a node onto the traversal stack, enlarging it if necessary.
+     *
+     * @param stackSize current stack size (&ge;0)
+     * @param node node index to push
+     * @return new stack size
+     */
+    private int push(int stackSize, int node) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stackSize);
+        }
+        stack[stackSize] = node;
+
+        return stackSize + 1;
+    }
+
+    /**
+     * Rebuild the tree from scratch, if it's been marked for rebuilding.
+     */
+    private void rebuildIfDirty() {
+        if (!isDirty) {
+            return;
+        }
+
+        NavVertex[] allVertices = graph.copyVertices();
+        int numVertices = allVertices.length;
+        positions = new int[numVertices];
+        Arrays.fill(positions, -1);
+        /*
+         * Partition the vertices into bounded and unbounded ones.
+         */
+        NavVertex[] bounded = new NavVertex[numVertices];
+        float[] boundsArray = new float[boxSize * numVertices];
+        int numBounded = 0;
+        int numUnbounded = 0;
+        for (NavVertex vertex : allVertices) {
+            Locus3f locus = vertex.getLocus();
+            if (locus == null) {
+                continue;
+            }
+            if (findBounds(locus)) {
+                bounded[numBounded] = vertex;
+                int base = boxSize * numBounded;
+                boundsArray[base] = tempMin.x;
+                boundsArray[base + 1] = tempMin.y;
+                boundsArray[base + 2] = tempMin.z;
+                boundsArray[base + 3] = tempMax.x;
+                boundsArray[base + 4] = tempMax.y;
+                boundsArray[base + 5] = tempMax.z;
+                ++numBounded;
+            } else {
+                allVertices[numUnbounded] = vertex;
+                ++numUnbounded;
+            }
+        }
+        unbounded = Arrays.copyOf(allVertices, numUnbounded);
+        items = Arrays.copyOf(bounded, numBounded);
+        itemBounds = Arrays.copyOf(boundsArray, boxSize * numBounded);
+
+        float[] centers = new float[3 * numBounded];
+        for (int position = 0; position < numBounded; position++) {
+            int base = boxSize * position;
+            for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+                float min = itemBounds[base + axis];
+                float max = itemBounds[base + axis + 3];
+                centers[3 * position + axis] = 0.5f * (min + max);
+            }
+        }
+        /*
+         * Build the tree.
+         */
+        int maxNodes = Math.max(1, 2 * numBounded);
+        nodeBounds = new float[boxSize * maxNodes];
+        nodeCounts = new int[maxNodes];
+        nodeLinks = new int[maxNodes];
+        nodeParents = new int[maxNodes];
+        numNodes = 0;
+        if (numBounded > 0) {
+            build(0, numBounded, -1, centers);
+        }
+        for (int position = 0; position < numBounded; position++) {
+            int vertexIndex = items[position].getIndex();
+            positions[vertexIndex] = position;
+        }
+
+        isDirty = false;
+    }
+
+    /**
+     * Recalculate the bounds of the specified node from its vertices or
+     * children.
+     *
+     * @param node node index
+     */
+    private void refit(int node) {
+        int base = boxSize * node;
+        for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+            nodeBounds[base + axis] = Float.POSITIVE_INFINITY;
+            nodeBounds[base + axis + 3] = Float.NEGATIVE_INFINITY;
+        }
+
+        int count = nodeCounts[node];
+        if (count == 0) {
+            union(nodeBounds, node, nodeBounds, node + 1);
+            union(nodeBounds, node, nodeBounds, nodeLinks[node]);
+        } else {
+            int first = nodeLinks[node];
+            for (int position = first; position < first + count; position++) {
+                union(nodeBounds, node, itemBounds, position);
+            }
+        }
+    }
+
+    /**
+     * Partially sort a range of vertices so that the vertex at position k has
+     * the k-th smallest center coordinate along the specified axis (Hoare's
+     * selection algorithm).
+     *
+     * @param low first position in the range
+     * @param high last position in the range
+     * @param k position to select
+     * @param axis which axis to compare (0, 1, or 2)
+     * @param centers box center of each vertex, 3 per position (modified)
+     */
+    private void select(int low, int high, int k, int axis, float[] centers) {
+        while (low < high) {
+            float pivot = centers[3 * ((low + high) >>> 1) + axis];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (centers[3 * i + axis] < pivot) {
+                    ++i;
+                }
+                while (centers[3 * j + axis] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swap(i, j, centers);
+                    ++i;
+                    --j;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Calculate the squared distance from the specified point to the locus of
+     * the specified vertex.
+     *
+     * @param vertex the vertex (not null, with a locus)
+     * @param point coordinates of the point (not null, unaffected)
+     * @return squared distance (&ge;0) or {@link Double#POSITIVE_INFINITY} if
+     * the locus has no nearest location
+     */
+    private static double squaredDistance(NavVertex vertex, Vector3f point) {
+        Locus3f locus = vertex.getLocus();
+        Vector3f location = locus.findLocation(point);
+        if (location == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double result = MyVector3f.distanceSquared(point, location);
+
+        return result;
+    }
+
+    /**
+     * Copy tempMin and tempMax into the indexed box.
+     *
+     * @param bounds array of boxes (not null, modified)
+     * @param boxIndex index of the box
+     */
+    private void storeBox(float[] bounds, int boxIndex) {
+        int base = boxSize * boxIndex;
+        bounds[base] = tempMin.x;
+        bounds[base + 1] = tempMin.y;
+        bounds[base + 2] = tempMin.z;
+        bounds[base + 3] = tempMax.x;
+        bounds[base + 4] = tempMax.y;
+        bounds[base + 5] = tempMax.z;
+    }
+
+    /**
+     * Swap two vertices in the tree order, along with their bounds and
+     * centers.
+     *
+     * @param i position of the 1st vertex
+     * @param j position of the 2nd vertex
+     * @param centers box center of each vertex, 3 per position (modified)
+     */
+    private void swap(int i, int j, float[] centers) {
+        NavVertex tempVertex = items[i];
+        items[i] = items[j];
+        items[j] = tempVertex;
+
+        for (int k = 0; k < boxSize; k++) {
+            float temp = itemBounds[boxSize * i + k];
+            itemBounds[boxSize * i + k] = itemBounds[boxSize * j + k];
+            itemBounds[boxSize * j + k] = temp;
+        }
+        for (int k = 0; k < 3; k++) {
+            float temp = centers[3 * i + k];
+            centers[3 * i + k] = centers[3 * j + k];
+            centers[3 * j + k] = temp;
+        }
+    }
+
+    /**
+     * Enlarge one box to include another.
+     *
+     * @param target array containing the box to enlarge (not null, modified)
+     * @param targetIndex index of the box to enlarge
+     * @param source array containing the box to include (not null, unaffected)
+     * @param sourceIndex index of the box to include
+     */
+    private static void union(float[] target, int targetIndex, float[] source,
+            int sourceIndex) {
+        int tBase = boxSize * targetIndex;
+        int sBase = boxSize * sourceIndex;
+        for (int axis = 0; axis < MyVector3f.numAxes; axis++) {
+            target[tBase + axis]
+                    = Math.min(target[tBase + axis], source[sBase + axis]);
+            target[tBase + axis + 3] = Math.max(target[tBase + axis + 3],
+                    source[sBase + axis + 3]);
+        }
+    }
+}
@@ -37,6 +37,9 @@ import jme3utilities.math.VectorXZ;
  * path(s) originating from a particular vertex and terminating at one of its
  * neighbors. Arcs are unidirectional and need not be straight. Properties such
  * as cost and implementation must be stored externally.
+ * <p>
+ * The default search heuristic of {@link NavGraph} assumes that no arc costs
+ * less than the distance between its endpoints.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -28,6 +28,7 @@ package jme3utilities.navigation;
 
 import com.jme3.math.Vector3f;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +44,19 @@ import jme3utilities.math.locus.Locus3f;
 /**
  * Graph for navigation. Its vertices represent reachable regions of the world.
  * Its arcs represent feasible routes between regions.
+ * <p>
+ * Searches are guided by a {@link DistanceHeuristic} unless another heuristic
+ * is set. That heuristic finds the cheapest route only if the cost of every
+ * arc is at least the straight-line distance between its endpoints. Graphs
+ * with cheaper arcs (for instance costs measured in time or in arbitrary
+ * units) should use a heuristic scaled to match, or null for uniform-cost
+ * searches.
+ * <p>
+ * Instances are not thread-safe, not even for queries. Route searches,
+ * reachability counts, connectivity tests, and locus queries all reuse
+ * working storage and update caches owned by the graph, so concurrent queries
+ * on the same graph would corrupt each other's results. Synchronize access
+ * externally, or query a {@link CompiledNavGraph} from multiple threads.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -62,10 +76,50 @@ public class NavGraph {
      * cost (or length) of each arc in this graph (all &ge;0)
      */
     final private Map<NavArc, Float> arcCosts = new HashMap<>(100);
+    /**
+     * hierarchies to notify when arcs change
+     */
+    final private List<NavHierarchy> hierarchies = new ArrayList<>(1);
     /**
      * vertex for each name
      */
     final private Map<String, NavVertex> vertices = new HashMap<>(30);
+    /**
+     * member vertices in index order
+     */
+    final private List<NavVertex> vertexList = new ArrayList<>(30);
+    /**
+     * connectivity analysis, or null if not yet done (or the graph has changed
+     * since)
+     */
+    private Connectivity connectivity = null;
+    /**
+     * spatial index of vertex loci, or null if spatial indexing is disabled
+     */
+    private LocusTree locusIndex = null;
+    /**
+     * number of modifications that might affect routes: incremented by arc
+     * additions, arc removals, cost changes, locus changes, and heuristic
+     * changes
+     */
+    private long modificationCount = 0L;
+    /**
+     * cache of routes found by seek(), or null if route caching is disabled
+     */
+    private RouteCache routeCache = null;
+    /**
+     * working storage for breadth-first traversals, or null if not yet
+     * allocated
+     */
+    private TraversalScratch scratch = null;
+    /**
+     * incremental planners to notify when arc costs change
+     */
+    final private List<NavPlanner> planners = new ArrayList<>(2);
+    /**
+     * engine used by seek(), or null if not yet created
+     */
+    private NavSearch search = null;
     // *************************************************************************
     // new methods exposed
 
@@ -74,7 +128,8 @@ public class NavGraph {
      *
      * @param origin originating member vertex (distinct from terminus)
      * @param terminus terminating member vertex (distinct from origin)
-     * @param initialCost initial cost (or length) of the arc (&ge;0)
+     * @param initialCost initial cost (or length) of the arc (&ge;0, at least
+     * the distance between the endpoints if the default heuristic is used)
      * @return a new member arc
      */
     public NavArc addArc(NavVertex origin, NavVertex terminus,
@@ -95,6 +150,8 @@ public class NavGraph {
 
         origin.addOutgoing(newArc);
         terminus.addIncoming(newArc);
+        connectivity = null;
+        notifyArcChanged(newArc, Float.POSITIVE_INFINITY, initialCost);
 
         return newArc;
     }
@@ -134,13 +191,34 @@ public class NavGraph {
         }
         Validate.nonNull(location, "location");
 
-        NavVertex newVertex = new NavVertex(name, locus, location);
+        int index = vertices.size();
+        NavVertex newVertex
+                = new NavVertex(name, locus, location, this, index);
         NavVertex oldVertex = vertices.put(name, newVertex);
         assert oldVertex == null : oldVertex;
+        vertexList.add(newVertex);
+        connectivity = null;
+        if (locusIndex != null) {
+            locusIndex.invalidate();
+        }
 
         return newVertex;
     }
 
+    /**
+     * Create a compact, immutable snapshot of this graph, for fast traversals.
+     * The snapshot's searches use this graph's current heuristic.
+     *
+     * @return a new instance
+     */
+    public CompiledNavGraph compile() {
+        NavSearch engine = getSearch();
+        NavHeuristic heuristic = engine.getHeuristic();
+        CompiledNavGraph result = new CompiledNavGraph(this, heuristic);
+
+        return result;
+    }
+
     /**
      * Test whether the specified arc is a member of this graph.
      *
@@ -212,15 +290,71 @@ public class NavGraph {
      * Count the number of vertices reachable from the specified member vertex.
      *
      * @param start input vertex (member)
-     * @return true if connected, false otherwise
+     * @return count (&ge;1)
      */
     public int countReachableFrom(NavVertex start) {
         validateMember(start, "start");
+        int result = breadthFirst(start, null);
+        return result;
+    }
+
+    /**
+     * Read the current cost (or length) of a member arc, without validating
+     * the argument.
+     *
+     * @param arc which arc to read (member)
+     * @return cost (or length) of arc (&ge;0)
+     */
+    float costOf(NavArc arc) {
+        float result = arcCosts.get(arc);
+        return result;
+    }
 
-        Set<NavVertex> visited = new HashSet<>(100);
-        visitReachable(start, visited);
+    /**
+     * Count how many vertices were expanded during the most recent invocation
+     * of {@link #seek(NavVertex, NavVertex)}. A route found in the route cache
+     * counts as 0 expansions.
+     *
+     * @return count (&ge;0)
+     */
+    public int countExpanded() {
+        int result = 0;
+        if (search != null) {
+            result = search.numExpanded();
+        }
 
-        return visited.size();
+        assert result >= 0 : result;
+        return result;
+    }
+
+    /**
+     * Count the strongly connected components of this graph. The result is
+     * cached until the graph's vertices or arcs change.
+     *
+     * @return count (&ge;0)
+     */
+    public int countComponents() {
+        int result = getConnectivity().numComponents();
+        return result;
+    }
+
+    /**
+     * Create an incremental planner for routes to the specified goal. Until
+     * it's removed using {@link #removePlanner(NavPlanner)}, the planner is
+     * notified whenever an arc is added or removed or has its cost altered.
+     * The planner's searches use this graph's current heuristic.
+     *
+     * @param goalVertex goal for all routes (member)
+     * @return a new planner
+     */
+    public NavPlanner createPlanner(NavVertex goalVertex) {
+        validateMember(goalVertex, "goal vertex");
+
+        NavHeuristic heuristic = getSearch().getHeuristic();
+        NavPlanner result = new NavPlanner(this, goalVertex, heuristic);
+        planners.add(result);
+
+        return result;
     }
 
     /**
@@ -243,6 +377,10 @@ public class NavGraph {
      */
     public NavVertex findContains(Vector3f point) {
         Validate.nonNull(point, "point");
+        if (locusIndex != null) {
+            NavVertex result = locusIndex.findContains(point);
+            return result;
+        }
         /*
          * Test the closest vertex first.
          */
@@ -313,14 +451,16 @@ public class NavGraph {
         }
         validateMember(startVertex, "start vertex");
 
-        Map<NavVertex, Integer> hopData = new HashMap<>(numVertices());
-        forwardHopCounts(startVertex, 0, hopData);
+        breadthFirst(startVertex, null);
 
         List<NavVertex> result = new ArrayList<>(30);
-        for (NavVertex vertex : vertices.values()) {
-            Integer hops = hopData.get(vertex);
-            if (hops != null && hops >= minHopCount && hops <= maxHopCount) {
-                result.add(vertex);
+        for (NavVertex vertex : vertexList) {
+            int index = vertex.getIndex();
+            if (scratch.stamps[index] == scratch.stamp) {
+                int hops = scratch.hopCounts[index];
+                if (hops >= minHopCount && hops <= maxHopCount) {
+                    result.add(vertex);
+                }
             }
         }
 
@@ -353,14 +493,14 @@ public class NavGraph {
             Collection<NavVertex> subset) {
         validateMember(startVertex, "start vertex");
 
-        Map<NavVertex, Integer> hopData = new HashMap<>(subset.size());
-        forwardHopCounts(startVertex, 0, hopData);
+        breadthFirst(startVertex, null);
 
         int mostHops = 0;
         List<NavVertex> result = new ArrayList<>(10);
         for (NavVertex vertex : subset) {
-            Integer hops = hopData.get(vertex);
-            if (hops != null) {
+            int index = vertex.getIndex();
+            if (scratch.stamps[index] == scratch.stamp) {
+                int hops = scratch.hopCounts[index];
                 if (hops > mostHops) {
                     mostHops = hops;
                     result.clear();
@@ -374,6 +514,23 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Find the strongly connected component containing the specified member
+     * vertex. Vertices in the same component are mutually reachable. The
+     * result is cached until the graph's vertices or arcs change.
+     *
+     * @param vertex vertex to locate (member)
+     * @return component index (&ge;0, &lt;countComponents())
+     */
+    public int findComponent(NavVertex vertex) {
+        validateMember(vertex, "vertex");
+
+        int index = vertex.getIndex();
+        int result = getConnectivity().component(index);
+
+        return result;
+    }
+
     /**
      * Find the vertex nearest to a specified point.
      *
@@ -382,6 +539,10 @@ public class NavGraph {
      */
     public NavVertex findNearest(Vector3f point) {
         Validate.nonNull(point, "point");
+        if (locusIndex != null) {
+            NavVertex result = locusIndex.findNearest(point);
+            return result;
+        }
 
         NavVertex result = null;
         double nearest = Double.POSITIVE_INFINITY;
@@ -441,25 +602,79 @@ public class NavGraph {
     }
 
     /**
-     * Test whether every vertex in is reachable from every other.
+     * Read the number of modifications that might affect routes: arc
+     * additions, arc removals, cost changes, locus changes, and heuristic
+     * changes.
+     *
+     * @return count (&ge;0)
+     */
+    public long getModificationCount() {
+        assert modificationCount >= 0L : modificationCount;
+        return modificationCount;
+    }
+
+    /**
+     * Access the cache of routes found by {@link #seek(NavVertex, NavVertex)},
+     * for example to read its statistics.
+     *
+     * @return the pre-existing instance, or null if route caching is disabled
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Test whether the specified member vertex is an articulation point: a
+     * vertex whose removal would disconnect the graph, ignoring arc
+     * directions. The result is cached until the graph's vertices or arcs
+     * change.
+     *
+     * @param vertex vertex to test (member)
+     * @return true if it's an articulation point, otherwise false
+     */
+    public boolean isArticulationPoint(NavVertex vertex) {
+        validateMember(vertex, "vertex");
+
+        int index = vertex.getIndex();
+        boolean result = getConnectivity().isArticulation(index);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified member arc is a bridge: an arc whose removal
+     * (together with its reverse arc, if any) would disconnect the graph,
+     * ignoring arc directions. The result is cached until the graph's
+     * vertices or arcs change.
+     *
+     * @param arc arc to test (member)
+     * @return true if it's a bridge, otherwise false
+     */
+    public boolean isBridge(NavArc arc) {
+        validateMember(arc, "arc");
+        boolean result = getConnectivity().isBridge(arc);
+        return result;
+    }
+
+    /**
+     * Test whether every vertex in is reachable from every other. A graph
+     * with no vertices is considered connected. The result is cached until the
+     * graph's vertices or arcs change.
      *
      * @return true if connected, false otherwise
      */
     public boolean isConnected() {
-        int numVertices = numVertices();
-        for (NavVertex vertex : vertices.values()) {
-            if (countReachableFrom(vertex) != numVertices) {
-                return false;
-            }
-        }
+        int numComponents = getConnectivity().numComponents();
+        boolean result = (numComponents <= 1);
 
-        return true;
+        return result;
     }
 
     /**
      * Test whether the endpoints of the specified arc would still be connected
      * if the arc were removed. In other words, whether the arc is part of a
-     * loop.
+     * loop. If the graph is reversible, this is answered from the cached
+     * bridge analysis, otherwise by a breadth-first traversal.
      *
      * @param arc arc to hypothetically remove (member)
      * @return true if still connected, false if not
@@ -467,29 +682,45 @@ public class NavGraph {
     public boolean isConnectedWithout(NavArc arc) {
         validateMember(arc, "arc");
 
+        Connectivity analysis = getConnectivity();
+        if (analysis.isReversible()) {
+            boolean result = !analysis.isBridge(arc);
+            return result;
+        }
+
         NavVertex fromVertex = arc.getFromVertex();
         NavVertex toVertex = arc.getToVertex();
-        Set<NavVertex> visitedVertices = new HashSet<>(100);
-        boolean result = existsRouteWithout(
-                arc, fromVertex, toVertex, visitedVertices);
-
-        return result;
+        breadthFirst(fromVertex, arc);
+        int toIndex = toVertex.getIndex();
+        if (scratch.stamps[toIndex] == scratch.stamp) {
+            return true;
+        } else {
+            return false;
+        }
     }
 
     /**
-     * Test whether this graph contains a reverse arc for every member arc.
+     * Test whether this graph contains a reverse arc for every member arc. The
+     * result is cached until the graph's vertices or arcs change.
      *
      * @return true if every arc is reversible, otherwise false
      */
     public boolean isReversible() {
-        for (NavArc arc : arcCosts.keySet()) {
-            NavArc reverse = arc.findReverse();
-            if (!contains(reverse)) {
-                return false;
-            }
-        }
+        boolean result = getConnectivity().isReversible();
+        return result;
+    }
 
-        return true;
+    /**
+     * Test whether spatial indexing is enabled.
+     *
+     * @return true if enabled, otherwise false
+     */
+    public boolean isSpatiallyIndexed() {
+        if (locusIndex == null) {
+            return false;
+        } else {
+            return true;
+        }
     }
 
     /**
@@ -521,6 +752,21 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Account for a change to the locus of a member vertex. Invoked only by
+     * {@link NavVertex#setLocus(Locus3f)}.
+     *
+     * @param vertex the vertex whose locus changed (member)
+     */
+    void locusChanged(NavVertex vertex) {
+        assert contains(vertex) : vertex;
+
+        ++modificationCount;
+        if (locusIndex != null) {
+            locusIndex.update(vertex);
+        }
+    }
+
     /**
      * Count how many arcs this graph contains.
      *
@@ -543,6 +789,51 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Create a hierarchical route finder that partitions this graph into
+     * regions by square cells in the X-Z plane, based on vertex locations, and
+     * precompute its region tables. Until it's removed using
+     * {@link #removeHierarchy(NavHierarchy)}, the hierarchy is notified
+     * whenever an arc is added or removed or has its cost altered. Its
+     * searches use this graph's current heuristic.
+     *
+     * @param cellSize size of each cell (in world units, &gt;0)
+     * @return a new hierarchy
+     */
+    public NavHierarchy partitionByCells(float cellSize) {
+        Validate.positive(cellSize, "cell size");
+
+        NavHeuristic heuristic = getSearch().getHeuristic();
+        NavHierarchy result = new NavHierarchy(this, heuristic, cellSize, 0);
+        result.precompute();
+        hierarchies.add(result);
+
+        return result;
+    }
+
+    /**
+     * Create a hierarchical route finder that partitions this graph into
+     * regions by growing each region from a seed vertex, up to the specified
+     * number of hops (ignoring arc directions), and precompute its region
+     * tables. Until it's removed using
+     * {@link #removeHierarchy(NavHierarchy)}, the hierarchy is notified
+     * whenever an arc is added or removed or has its cost altered. Its
+     * searches use this graph's current heuristic.
+     *
+     * @param maxHops maximum hop count from each region's seed vertex (&ge;0)
+     * @return a new hierarchy
+     */
+    public NavHierarchy partitionByHops(int maxHops) {
+        Validate.nonNegative(maxHops, "max hops");
+
+        NavHeuristic heuristic = getSearch().getHeuristic();
+        NavHierarchy result = new NavHierarchy(this, heuristic, 0f, maxHops);
+        result.precompute();
+        hierarchies.add(result);
+
+        return result;
+    }
+
     /**
      * Remove the specified member arc from this graph.
      *
@@ -559,6 +850,8 @@ public class NavGraph {
 
         NavVertex toVertex = arc.getToVertex();
         toVertex.removeIncoming(arc);
+        connectivity = null;
+        notifyArcChanged(arc, oldCost, Float.POSITIVE_INFINITY);
     }
 
     /**
@@ -581,7 +874,39 @@ public class NavGraph {
     }
 
     /**
-     * Find the shortest (or cheapest) route from one vertex to another.
+     * Stop notifying the specified hierarchy of changes to this graph.
+     *
+     * @param hierarchy hierarchy created by {@link #partitionByCells(float)}
+     * or {@link #partitionByHops(int)} (not null)
+     * @return true for success, false if the hierarchy wasn't found
+     */
+    public boolean removeHierarchy(NavHierarchy hierarchy) {
+        Validate.nonNull(hierarchy, "hierarchy");
+        boolean result = hierarchies.remove(hierarchy);
+        return result;
+    }
+
+    /**
+     * Stop notifying the specified planner of changes to this graph.
+     *
+     * @param planner planner created by {@link #createPlanner(NavVertex)}
+     * (not null)
+     * @return true for success, false if the planner wasn't found
+     */
+    public boolean removePlanner(NavPlanner planner) {
+        Validate.nonNull(planner, "planner");
+        boolean result = planners.remove(planner);
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) route from one vertex to another, using
+     * an A* search guided by this graph's heuristic. Unless the heuristic is
+     * null, the route is guaranteed to be the cheapest only if the heuristic
+     * is admissible: for the default {@link DistanceHeuristic}, that means the
+     * cost of each arc must be at least the distance between its endpoints.
+     * If route caching is enabled, a route found since the last modification
+     * is returned without searching.
      *
      * @param startVertex starting point (member, distinct from endVertex)
      * @param endVertex goal (member, distinct from startVertex)
@@ -594,27 +919,31 @@ public class NavGraph {
             throw new IllegalArgumentException("vertices not distinct");
         }
 
-        Map<NavVertex, Float> totalCosts = new HashMap<>(numVertices());
-        reverseTotalCosts(endVertex, 0f, totalCosts);
-        if (totalCosts.get(startVertex) == null) {
-            return null;
-        }
-        List<NavArc> result = new ArrayList<>(10);
-        NavVertex routeVertex = startVertex;
-        while (routeVertex != endVertex) {
-            NavArc nextArc = null;
-            float minDistance = Float.MAX_VALUE;
-            for (NavArc arc : routeVertex.copyOutgoing()) {
-                NavVertex neighbor = arc.getToVertex();
-                float distance = totalCosts.get(neighbor) + arcCosts.get(arc);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nextArc = arc;
+        if (routeCache != null) {
+            NavArc[] cached = routeCache.lookup(startVertex, endVertex,
+                    modificationCount);
+            if (cached != null) {
+                if (search != null) {
+                    search.clearExpanded();
+                }
+                if (cached.length == 0) {
+                    return null;
+                } else {
+                    return new ArrayList<>(Arrays.asList(cached));
                 }
             }
-            routeVertex = nextArc.getToVertex();
-            assert routeVertex != startVertex;
-            result.add(nextArc);
+        }
+
+        NavSearch engine = getSearch();
+        List<NavArc> result = engine.seek(startVertex, endVertex);
+
+        if (routeCache != null) {
+            NavArc[] route = null;
+            if (result != null) {
+                route = new NavArc[result.size()];
+                result.toArray(route);
+            }
+            routeCache.store(startVertex, endVertex, route, modificationCount);
         }
 
         return result;
@@ -624,7 +953,8 @@ public class NavGraph {
      * Alter the cost (or length) of a member arc.
      *
      * @param arc which arc to modify (member)
-     * @param newCost value for cost (or length) of arc (&ge;0)
+     * @param newCost value for cost (or length) of arc (&ge;0, at least the
+     * distance between the endpoints if the default heuristic is used)
      */
     public void setCost(NavArc arc, float newCost) {
         validateMember(arc, "arc");
@@ -632,6 +962,55 @@ public class NavGraph {
 
         Float oldCost = arcCosts.put(arc, newCost);
         assert oldCost != null;
+        notifyArcChanged(arc, oldCost, newCost);
+    }
+
+    /**
+     * Alter the heuristic used by {@link #seek(NavVertex, NavVertex)}. The
+     * default is a {@link DistanceHeuristic}.
+     *
+     * @param newHeuristic heuristic (alias created) or null for uniform-cost
+     * (Dijkstra) searches
+     */
+    public void setHeuristic(NavHeuristic newHeuristic) {
+        NavSearch engine = getSearch();
+        engine.setHeuristic(newHeuristic);
+        ++modificationCount;
+    }
+
+    /**
+     * Enable or disable caching of the routes found by
+     * {@link #seek(NavVertex, NavVertex)}. Cached routes are discarded
+     * whenever this graph's modification count changes.
+     *
+     * @param capacity maximum number of routes to cache (&gt;0) or 0 to
+     * disable caching
+     */
+    public void setRouteCaching(int capacity) {
+        Validate.nonNegative(capacity, "capacity");
+
+        if (capacity == 0) {
+            routeCache = null;
+        } else if (routeCache == null || routeCache.capacity() != capacity) {
+            routeCache = new RouteCache(capacity, modificationCount);
+        }
+    }
+
+    /**
+     * Enable or disable spatial indexing of vertex loci. When enabled,
+     * {@link #findContains(Vector3f)}, {@link #findNearest(Vector3f)}, and
+     * {@link #supportDistance(Vector3f, float)} use a bounding-volume
+     * hierarchy instead of testing every vertex, and vertices without loci are
+     * ignored.
+     *
+     * @param newSetting true to enable, false to disable
+     */
+    public void setSpatialIndexing(boolean newSetting) {
+        if (newSetting && locusIndex == null) {
+            locusIndex = new LocusTree(this);
+        } else if (!newSetting) {
+            locusIndex = null;
+        }
     }
 
     /**
@@ -645,6 +1024,11 @@ public class NavGraph {
      */
     public float supportDistance(Vector3f location, float cosineTolerance) {
         Validate.nonNull(location, "point");
+        if (locusIndex != null) {
+            float result
+                    = locusIndex.supportDistance(location, cosineTolerance);
+            return result;
+        }
 
         float shortest = Float.POSITIVE_INFINITY;
         for (NavVertex vertex : vertices.values()) {
@@ -706,141 +1090,95 @@ public class NavGraph {
     // private methods
 
     /**
-     * Test whether there's a route from a starting vertex to an ending vertex
-     * which avoids a specified arc. Note: recursive depth-first traversal.
+     * Visit every vertex reachable from a starting vertex in breadth-first
+     * order, recording its minimum hop count in the working storage.
      *
-     * @param avoid arc to avoid (member)
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
-     * @param ending ending vertex (member, unaffected)
-     * @param visitedSet set of vertices previously visited, initially empty
-     * (not null, unaffected)
-     * @return true if such a route exists, false if no such route exists
-     */
-    private boolean existsRouteWithout(NavArc avoid, NavVertex visit,
-            NavVertex ending, Set<NavVertex> visitedSet) {
-        assert contains(avoid) : avoid;
-        assert contains(visit) : visit;
-        assert contains(ending) : ending;
-
-        if (visit == ending) {
-            return true;
-        }
-        if (visitedSet.contains(visit)) {
-            return false;
+     * @param startVertex starting vertex (member)
+     * @param avoidArc arc not to follow, or null to follow all arcs
+     * @return number of vertices visited (&ge;1)
+     */
+    private int breadthFirst(NavVertex startVertex, NavArc avoidArc) {
+        int numVertices = vertexList.size();
+        if (scratch == null) {
+            scratch = new TraversalScratch(numVertices, 1);
+        } else if (scratch.stamps.length < numVertices) {
+            int capacity = Math.max(numVertices, 2 * scratch.stamps.length);
+            scratch = new TraversalScratch(capacity, 1);
         }
-
-        Set<NavVertex> nextVisited = new HashSet<>(visitedSet);
-        nextVisited.add(visit);
-
-        for (NavArc arc : visit.copyOutgoing()) {
-            if (arc.equals(avoid)) {
-                continue;
-            }
-            NavVertex nextVisit = arc.getToVertex();
-            boolean exists = existsRouteWithout(
-                    avoid, nextVisit, ending, nextVisited);
-            if (exists) {
-                return true;
+        scratch.begin();
+        int[] hopCounts = scratch.hopCounts;
+        int[] queue = scratch.queue;
+        int[] stamps = scratch.stamps;
+
+        int head = 0;
+        int tail = 0;
+        int startIndex = startVertex.getIndex();
+        stamps[startIndex] = scratch.stamp;
+        hopCounts[startIndex] = 0;
+        queue[tail++] = startIndex;
+        while (head < tail) {
+            int vIndex = queue[head++];
+            int nextHopCount = hopCounts[vIndex] + 1;
+            for (NavArc arc : vertexList.get(vIndex).outgoing()) {
+                if (arc == avoidArc) {
+                    continue;
+                }
+                int toIndex = arc.getToVertex().getIndex();
+                if (stamps[toIndex] != scratch.stamp) {
+                    stamps[toIndex] = scratch.stamp;
+                    hopCounts[toIndex] = nextHopCount;
+                    queue[tail++] = toIndex;
+                }
             }
         }
-        return false;
+
+        return tail;
     }
 
     /**
-     * Calculate the minimum number of hops (arcs traversed) to each vertex from
-     * a starting vertex. Note: recursive depth-first traversal.
+     * Access the connectivity analysis, redoing it if the graph's vertices or
+     * arcs have changed.
      *
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
-     * @param hopCount hop count from the start vertex to the current vertex,
-     * initially zero (&ge;0)
-     * @param minHopCounts minimum hop counts to vertices previously visited,
-     * initially empty (not null, updated)
+     * @return the pre-existing or new instance (not null)
      */
-    private void forwardHopCounts(NavVertex visit, int hopCount,
-            Map<NavVertex, Integer> minHopCounts) {
-        assert contains(visit) : visit;
-        assert hopCount >= 0 : hopCount;
-        assert minHopCounts != null;
-
-        if (minHopCounts.containsKey(visit)
-                && hopCount > minHopCounts.get(visit)) {
-            return;
-        }
-        /*
-         * Update the hop count of the current vertex.
-         */
-        minHopCounts.put(visit, hopCount);
-        /*
-         * Follow each outgoing arc from the current vertex.
-         */
-        int nextHopCount = hopCount + 1;
-        for (NavArc arc : visit.copyOutgoing()) {
-            NavVertex nextVisit = arc.getToVertex();
-            forwardHopCounts(nextVisit, nextHopCount, minHopCounts);
+    private Connectivity getConnectivity() {
+        if (connectivity == null) {
+            connectivity = new Connectivity(vertexList, numArcs());
         }
+
+        return connectivity;
     }
 
     /**
-     * Calculate the minimum total cost (or distance) from each vertex to an
-     * ending vertex. Note: recursive depth-first traversal.
+     * Access the engine used by seek(), creating it if necessary.
      *
-     * @param visit vertex being visited, initially the ending vertex (member,
-     * unaffected)
-     * @param totalCost total cost from the current vertex to the ending vertex,
-     * initially zero (&ge;0)
-     * @param minTotalCosts minimum total costs from vertices previously
-     * visited, initially empty (not null, updated)
+     * @return the pre-existing instance (not null)
      */
-    private void reverseTotalCosts(NavVertex visit, float totalCost,
-            Map<NavVertex, Float> minTotalCosts) {
-        assert contains(visit) : visit;
-        assert totalCost >= 0f : totalCost;
-        assert minTotalCosts != null;
-
-        if (minTotalCosts.containsKey(visit)
-                && totalCost > minTotalCosts.get(visit)) {
-            return;
-        }
-        /*
-         * Update the total cost of the current vertex.
-         */
-        minTotalCosts.put(visit, totalCost);
-        /*
-         * Follow each incoming arc of the current vertex.
-         */
-        for (NavArc arc : visit.copyIncoming()) {
-            NavVertex nextVisit = arc.getFromVertex();
-            float arcCost = arcCosts.get(arc);
-            float nextTotalCost = totalCost + arcCost;
-            reverseTotalCosts(nextVisit, nextTotalCost, minTotalCosts);
+    private NavSearch getSearch() {
+        if (search == null) {
+            NavHeuristic heuristic = new DistanceHeuristic();
+            search = new NavSearch(this, heuristic);
         }
+
+        return search;
     }
 
     /**
-     * Enumerate all vertices reachable from a starting vertex. Note: recursive
-     * depth-first traversal.
+     * Notify each incremental planner and hierarchy that an arc has been
+     * added or removed or has had its cost altered.
      *
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
-     * @param visitedVertices set of vertices previously visited, initially
-     * empty (not null, updated)
+     * @param arc the arc which changed (not null)
+     * @param oldCost the former cost (&ge;0) or +Infinity for a new arc
+     * @param newCost the new cost (&ge;0) or +Infinity for a removed arc
      */
-    private void visitReachable(NavVertex visit,
-            Set<NavVertex> visitedVertices) {
-        assert contains(visit) : visit;
-        assert visitedVertices != null;
-
-        if (visitedVertices.contains(visit)) {
-            return;
+    private void notifyArcChanged(NavArc arc, float oldCost, float newCost) {
+        ++modificationCount;
+        for (NavPlanner planner : planners) {
+            planner.arcChanged(arc, oldCost, newCost);
         }
-        boolean success = visitedVertices.add(visit);
-        assert success;
-
-        for (NavArc arc : visit.copyOutgoing()) {
-            NavVertex vertex = arc.getToVertex();
-            visitReachable(vertex, visitedVertices);
+        for (NavHierarchy hierarchy : hierarchies) {
+            hierarchy.arcChanged(arc);
         }
     }
+
 }
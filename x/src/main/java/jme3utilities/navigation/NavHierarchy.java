@@ -0,0 +1,760 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical route finder (HPA*) for a navigation graph. The vertices are
+ * partitioned into regions, either by spatial cells or by hop count. Vertices
+ * with arcs that cross region boundaries are portals. For each region, the
+ * cheapest in-region costs between its portals are precomputed when the
+ * hierarchy is created (or by {@link #precompute()}), and long-range queries
+ * search the resulting abstract graph of portals before refining each step
+ * into arcs. Because every route decomposes into
+ * in-region runs joined by crossing arcs, the routes found are as cheap as
+ * those found by {@link NavGraph#seek(NavVertex, NavVertex)}.
+ * <p>
+ * The graph notifies its hierarchies whenever an arc is added or removed or
+ * has its cost altered, and only the tables of the affected regions are
+ * discarded. Discarded tables are recomputed on demand by the next query that
+ * needs them, or all at once by {@link #precompute()}. Adding a vertex causes
+ * the graph to be repartitioned before the next query. Not thread-safe.
+ * <p>
+ * Create instances using {@link NavGraph#partitionByCells(float)} or
+ * {@link NavGraph#partitionByHops(int)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class NavHierarchy {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NavHierarchy.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * size of each spatial cell, or 0 to partition by hop count
+     */
+    final private float cellSize;
+    /**
+     * maximum hop count from each region's seed vertex, used only when
+     * cellSize is 0
+     */
+    final private int maxHops;
+    /**
+     * for each region, the position of its first member in members, plus a
+     * final element equal to the number of vertices
+     */
+    private int[] memberOffsets = new int[1];
+    /**
+     * vertex indices grouped by region
+     */
+    private int[] members = new int[0];
+    /**
+     * number of vertices expanded in the abstract graph during the most
+     * recent query (&ge;0)
+     */
+    private int numExpanded = 0;
+    /**
+     * slot of each portal in its region's table (valid only where that table
+     * exists)
+     */
+    private int[] portalSlots = new int[0];
+    /**
+     * region index of each vertex
+     */
+    private int[] regions = new int[0];
+    /**
+     * graph being searched (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
+    /**
+     * heuristic to guide abstract searches, or null for uniform-cost searches
+     */
+    final private NavHeuristic heuristic;
+    /**
+     * original vertex for each index
+     */
+    private NavVertex[] vertices = new NavVertex[0];
+    /**
+     * precomputed data for each region, or null where not yet computed (or
+     * discarded)
+     */
+    private RegionTable[] tables = new RegionTable[0];
+    /**
+     * working storage for the abstract search
+     */
+    private TraversalScratch abstractWork;
+    /**
+     * working storage for the in-region search from the goal vertex
+     */
+    private TraversalScratch goalWork;
+    /**
+     * working storage for table computations and route refinement
+     */
+    private TraversalScratch localWork;
+    /**
+     * working storage for the in-region search from the starting vertex
+     */
+    private TraversalScratch startWork;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a hierarchy for the specified graph. Invoked only by
+     * {@link NavGraph}.
+     *
+     * @param graph graph to search (not null, alias created)
+     * @param heuristic heuristic to guide abstract searches (alias created) or
+     * null for uniform-cost searches
+     * @param cellSize size of each spatial cell (&gt;0) or 0 to partition by
+     * hop count
+     * @param maxHops maximum hop count from each region's seed vertex (&ge;0,
+     * used only if cellSize is 0)
+     */
+    NavHierarchy(NavGraph graph, NavHeuristic heuristic, float cellSize,
+            int maxHops) {
+        assert graph != null;
+        assert cellSize >= 0f : cellSize;
+        assert maxHops >= 0 : maxHops;
+
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.cellSize = cellSize;
+        this.maxHops = maxHops;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard the tables of the regions affected by a change to the specified
+     * arc. Invoked only by {@link NavGraph}, after the change.
+     *
+     * @param arc the arc which was added, removed, or altered (not null)
+     */
+    void arcChanged(NavArc arc) {
+        int fromIndex = arc.getFromVertex().getIndex();
+        int toIndex = arc.getToVertex().getIndex();
+        if (fromIndex < regions.length && toIndex < regions.length) {
+            tables[regions[fromIndex]] = null;
+            tables[regions[toIndex]] = null;
+        }
+    }
+
+    /**
+     * Count how many regions have precomputed tables.
+     *
+     * @return count (&ge;0)
+     */
+    public int countTables() {
+        int result = 0;
+        for (RegionTable table : tables) {
+            if (table != null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine which region contains the specified vertex.
+     *
+     * @param vertex the vertex (member)
+     * @return region index (&ge;0, &lt;numRegions)
+     */
+    public int findRegion(NavVertex vertex) {
+        graph.validateMember(vertex, "vertex");
+
+        partitionIfStale();
+        int result = regions[vertex.getIndex()];
+
+        return result;
+    }
+
+    /**
+     * Count how many abstract vertices were expanded during the most recent
+     * query.
+     *
+     * @return count (&ge;0)
+     */
+    public int numExpanded() {
+        assert numExpanded >= 0 : numExpanded;
+        return numExpanded;
+    }
+
+    /**
+     * Count the regions.
+     *
+     * @return count (&ge;0)
+     */
+    public int numRegions() {
+        partitionIfStale();
+        int result = memberOffsets.length - 1;
+
+        return result;
+    }
+
+    /**
+     * Partition the graph (if it has changed since the last partitioning) and
+     * compute every region table that's missing, so that subsequent queries
+     * don't pay for precomputation. Invoked automatically when the hierarchy
+     * is created; invoke it again after modifying the graph to move the cost
+     * of recomputation away from queries.
+     */
+    public void precompute() {
+        partitionIfStale();
+
+        int numRegions = memberOffsets.length - 1;
+        for (int region = 0; region < numRegions; region++) {
+            getTable(region);
+        }
+    }
+
+    /**
+     * Find the cheapest route from one vertex to another by searching the
+     * abstract graph of portals and then refining the result. The route is
+     * guaranteed to be the cheapest only if the heuristic is admissible.
+     *
+     * @param startVertex starting point (member, distinct from goalVertex)
+     * @param goalVertex goal (member, distinct from startVertex)
+     * @return a new list of pre-existing arcs, or null if the goal is
+     * unreachable
+     */
+    public List<NavArc> seek(NavVertex startVertex, NavVertex goalVertex) {
+        graph.validateMember(startVertex, "start vertex");
+        graph.validateMember(goalVertex, "goal vertex");
+        if (startVertex == goalVertex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+
+        partitionIfStale();
+        int startIndex = startVertex.getIndex();
+        int goalIndex = goalVertex.getIndex();
+        /*
+         * Find the in-region routes out of the start vertex and
+         * into the goal vertex.
+         */
+        localSearch(startWork, startIndex, -1, false);
+        localSearch(goalWork, goalIndex, -1, true);
+
+        boolean found = abstractSearch(startIndex, goalIndex);
+        if (!found) {
+            return null;
+        }
+        /*
+         * Trace the abstract route backward from the goal, then refine
+         * each step into arcs.
+         */
+        List<Integer> waypoints = new ArrayList<>(20);
+        for (int vIndex = goalIndex; vIndex != startIndex;
+                vIndex = abstractWork.viaArcs[vIndex]) {
+            waypoints.add(vIndex);
+        }
+        waypoints.add(startIndex);
+        Collections.reverse(waypoints);
+
+        List<NavArc> result = new ArrayList<>(50);
+        int numWaypoints = waypoints.size();
+        for (int i = 1; i < numWaypoints; i++) {
+            int fromIndex = waypoints.get(i - 1);
+            int toIndex = waypoints.get(i);
+            refine(fromIndex, toIndex, startIndex, goalIndex, result);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Perform an A* search of the abstract graph, whose vertices are the
+     * portals plus the start and goal vertices. The predecessor of each
+     * abstract vertex reached is recorded in abstractWork.viaArcs.
+     *
+     * @param startIndex index of the starting vertex
+     * @param goalIndex index of the goal vertex
+     * @return true if the goal was reached, otherwise false
+     */
+    private boolean abstractSearch(int startIndex, int goalIndex) {
+        TraversalScratch work = abstractWork;
+        work.begin();
+        float[] costs = work.costs;
+        float[] estimates = work.estimates;
+        int[] stamps = work.stamps;
+        int[] via = work.viaArcs;
+        NavVertex goalVertex = vertices[goalIndex];
+        int goalRegion = regions[goalIndex];
+
+        stamps[startIndex] = work.stamp;
+        costs[startIndex] = 0f;
+        estimates[startIndex] = estimate(startIndex, goalVertex);
+        via[startIndex] = -1;
+        work.insert(startIndex, estimates[startIndex]);
+
+        while (!work.isHeapEmpty()) {
+            float key = work.topKey();
+            int vIndex = work.topVertex();
+            work.removeTop();
+            if (key > costs[vIndex] + estimates[vIndex]) {
+                continue; // stale entry: a cheaper route was found later
+            }
+            if (vIndex == goalIndex) {
+                numExpanded = work.numExpanded;
+                return true;
+            }
+            ++work.numExpanded;
+
+            float cost = costs[vIndex];
+            int region = regions[vIndex];
+            RegionTable table = getTable(region);
+            /*
+             * in-region steps to other portals
+             */
+            if (vIndex == startIndex) {
+                for (int portal : table.portals) {
+                    if (portal != startIndex
+                            && startWork.stamps[portal] == startWork.stamp) {
+                        float step = startWork.costs[portal];
+                        relax(vIndex, portal, cost + step, goalVertex);
+                    }
+                }
+            } else {
+                int slot = portalSlots[vIndex];
+                int numPortals = table.numPortals();
+                for (int toSlot = 0; toSlot < numPortals; toSlot++) {
+                    float step = table.cost(slot, toSlot);
+                    if (toSlot != slot && step < Float.POSITIVE_INFINITY) {
+                        int portal = table.portals[toSlot];
+                        relax(vIndex, portal, cost + step, goalVertex);
+                    }
+                }
+            }
+            /*
+             * in-region step to the goal
+             */
+            if (region == goalRegion
+                    && goalWork.stamps[vIndex] == goalWork.stamp) {
+                float step = goalWork.costs[vIndex];
+                relax(vIndex, goalIndex, cost + step, goalVertex);
+            }
+            /*
+             * steps across region boundaries
+             */
+            for (NavArc arc : vertices[vIndex].outgoing()) {
+                int toIndex = arc.getToVertex().getIndex();
+                if (regions[toIndex] != region) {
+                    float step = graph.costOf(arc);
+                    relax(vIndex, toIndex, cost + step, goalVertex);
+                }
+            }
+        }
+
+        numExpanded = work.numExpanded;
+        return false;
+    }
+
+    /**
+     * Compute the table for the specified region: find its portals and the
+     * cheapest in-region costs between them.
+     *
+     * @param region index of the region
+     * @return a new table
+     */
+    private RegionTable computeTable(int region) {
+        int start = memberOffsets[region];
+        int end = memberOffsets[region + 1];
+        int numPortals = 0;
+        int[] portalBuffer = new int[end - start];
+        for (int position = start; position < end; position++) {
+            int vIndex = members[position];
+            if (isPortal(vIndex)) {
+                portalSlots[vIndex] = numPortals;
+                portalBuffer[numPortals] = vIndex;
+                ++numPortals;
+            }
+        }
+        int[] portals = new int[numPortals];
+        System.arraycopy(portalBuffer, 0, portals, 0, numPortals);
+
+        RegionTable result = new RegionTable(portals);
+        for (int fromSlot = 0; fromSlot < numPortals; fromSlot++) {
+            localSearch(localWork, portals[fromSlot], -1, false);
+            int base = fromSlot * numPortals;
+            for (int toSlot = 0; toSlot < numPortals; toSlot++) {
+                int portal = portals[toSlot];
+                if (localWork.stamps[portal] == localWork.stamp) {
+                    result.costs[base + toSlot] = localWork.costs[portal];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Estimate the remaining cost from the indexed vertex to the goal.
+     *
+     * @param vertexIndex index of the vertex
+     * @param goalVertex goal vertex (not null)
+     * @return estimated cost (&ge;0)
+     */
+    private float estimate(int vertexIndex, NavVertex goalVertex) {
+        float result = 0f;
+        NavVertex vertex = vertices[vertexIndex];
+        if (heuristic != null && vertex != goalVertex) {
+            result = heuristic.estimateCost(vertex, goalVertex);
+        }
+
+        assert result >= 0f : result;
+        return result;
+    }
+
+    /**
+     * Access the table for the specified region, computing it if necessary.
+     *
+     * @param region index of the region
+     * @return the pre-existing or new instance (not null)
+     */
+    private RegionTable getTable(int region) {
+        RegionTable result = tables[region];
+        if (result == null) {
+            result = computeTable(region);
+            tables[region] = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the indexed vertex has an arc crossing its region's
+     * boundary.
+     *
+     * @param vertexIndex index of the vertex
+     * @return true if it's a portal, otherwise false
+     */
+    private boolean isPortal(int vertexIndex) {
+        int region = regions[vertexIndex];
+        NavVertex vertex = vertices[vertexIndex];
+        for (NavArc arc : vertex.outgoing()) {
+            if (regions[arc.getToVertex().getIndex()] != region) {
+                return true;
+            }
+        }
+        for (NavArc arc : vertex.incoming()) {
+            if (regions[arc.getFromVertex().getIndex()] != region) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Perform a Dijkstra search confined to the region of the source vertex,
+     * recording in work.viaArcs the neighbor on the best route to (or from)
+     * each vertex reached.
+     *
+     * @param work working storage (not null)
+     * @param sourceIndex index of the source vertex
+     * @param targetIndex index of a vertex at which to stop, or -1 to search
+     * the entire region
+     * @param reverse true to follow arcs backward, false to follow them
+     * forward
+     */
+    private void localSearch(TraversalScratch work, int sourceIndex,
+            int targetIndex, boolean reverse) {
+        work.begin();
+        float[] costs = work.costs;
+        int[] stamps = work.stamps;
+        int[] via = work.viaArcs;
+        int region = regions[sourceIndex];
+
+        stamps[sourceIndex] = work.stamp;
+        costs[sourceIndex] = 0f;
+        via[sourceIndex] = -1;
+        work.insert(sourceIndex, 0f);
+
+        while (!work.isHeapEmpty()) {
+            float key = work.topKey();
+            int vIndex = work.topVertex();
+            work.removeTop();
+            if (key > costs[vIndex]) {
+                continue; // stale entry: a cheaper route was found later
+            }
+            if (vIndex == targetIndex) {
+                return;
+            }
+
+            NavVertex vertex = vertices[vIndex];
+            for (NavArc arc : reverse ? vertex.incoming() : vertex.outgoing()) {
+                NavVertex neighbor
+                        = reverse ? arc.getFromVertex() : arc.getToVertex();
+                int nIndex = neighbor.getIndex();
+                if (regions[nIndex] != region) {
+                    continue;
+                }
+                float nCost = key + graph.costOf(arc);
+                if (stamps[nIndex] != work.stamp) {
+                    stamps[nIndex] = work.stamp;
+                } else if (nCost >= costs[nIndex]) {
+                    continue;
+                }
+                costs[nIndex] = nCost;
+                via[nIndex] = vIndex;
+                work.insert(nIndex, nCost);
+            }
+        }
+    }
+
+    /**
+     * Partition the graph into regions by spatial cells in the X-Z plane.
+     */
+    private void partitionByCells() {
+        int numVertices = vertices.length;
+        Map<Long, Integer> cellRegions = new HashMap<>(numVertices / 16 + 1);
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            Vector3f location = vertices[vIndex].copyLocation();
+            long cellX = (long) FastMath.floor(location.x / cellSize);
+            long cellZ = (long) FastMath.floor(location.z / cellSize);
+            Long key = (cellX << 32) ^ (cellZ & 0xffffffffL);
+            Integer region = cellRegions.get(key);
+            if (region == null) {
+                region = cellRegions.size();
+                cellRegions.put(key, region);
+            }
+            regions[vIndex] = region;
+        }
+        setMembers(cellRegions.size());
+    }
+
+    /**
+     * Partition the graph into regions by growing each region breadth-first
+     * (ignoring arc directions) from a seed vertex, up to maxHops hops.
+     */
+    private void partitionByHops() {
+        int numVertices = vertices.length;
+        int[] hopCounts = localWork.hopCounts;
+        int[] queue = localWork.queue;
+        Arrays.fill(regions, -1);
+
+        int numRegions = 0;
+        for (int seed = 0; seed < numVertices; seed++) {
+            if (regions[seed] >= 0) {
+                continue;
+            }
+            int region = numRegions;
+            ++numRegions;
+            int head = 0;
+            int tail = 0;
+            regions[seed] = region;
+            hopCounts[seed] = 0;
+            queue[tail++] = seed;
+            while (head < tail) {
+                int vIndex = queue[head++];
+                int hopCount = hopCounts[vIndex];
+                if (hopCount >= maxHops) {
+                    continue;
+                }
+                NavVertex vertex = vertices[vIndex];
+                for (NavArc arc : vertex.outgoing()) {
+                    int nIndex = arc.getToVertex().getIndex();
+                    if (regions[nIndex] < 0) {
+                        regions[nIndex] = region;
+                        hopCounts[nIndex] = hopCount + 1;
+                        queue[tail++] = nIndex;
+                    }
+                }
+                for (NavArc arc : vertex.incoming()) {
+                    int nIndex = arc.getFromVertex().getIndex();
+                    if (regions[nIndex] < 0) {
+                        regions[nIndex] = region;
+                        hopCounts[nIndex] = hopCount + 1;
+                        queue[tail++] = nIndex;
+                    }
+                }
+            }
+        }
+        setMembers(numRegions);
+    }
+
+    /**
+     * Partition the graph into regions if it's never been partitioned or if
+     * vertices have been added since it was.
+     */
+    private void partitionIfStale() {
+        int numVertices = graph.numVertices();
+        if (numVertices == regions.length && abstractWork != null) {
+            return;
+        }
+
+        vertices = new NavVertex[numVertices];
+        for (NavVertex vertex : graph.copyVertices()) {
+            vertices[vertex.getIndex()] = vertex;
+        }
+        regions = new int[numVertices];
+        portalSlots = new int[numVertices];
+        int heapCapacity = Math.max(16, numVertices);
+        abstractWork = new TraversalScratch(numVertices, heapCapacity);
+        goalWork = new TraversalScratch(numVertices, heapCapacity);
+        localWork = new TraversalScratch(numVertices, heapCapacity);
+        startWork = new TraversalScratch(numVertices, heapCapacity);
+
+        if (cellSize > 0f) {
+            partitionByCells();
+        } else {
+            partitionByHops();
+        }
+    }
+
+    /**
+     * Refine one step of an abstract route into arcs.
+     *
+     * @param fromIndex index of the step's originating vertex
+     * @param toIndex index of the step's terminating vertex
+     * @param startIndex index of the starting vertex of the query
+     * @param goalIndex index of the goal vertex of the query
+     * @param addArcs list to which the arcs will be added (not null, modified)
+     */
+    private void refine(int fromIndex, int toIndex, int startIndex,
+            int goalIndex, List<NavArc> addArcs) {
+        int region = regions[fromIndex];
+        if (regions[toIndex] != region) {
+            NavArc arc = vertices[fromIndex].findOutgoing(vertices[toIndex]);
+            assert arc != null;
+            addArcs.add(arc);
+
+        } else if (fromIndex == startIndex) {
+            /*
+             * Trace the start search backward from the step's terminus.
+             */
+            int size = addArcs.size();
+            for (int vIndex = toIndex; vIndex != startIndex;) {
+                int previous = startWork.viaArcs[vIndex];
+                NavArc arc = vertices[previous].findOutgoing(vertices[vIndex]);
+                addArcs.add(size, arc);
+                vIndex = previous;
+            }
+
+        } else if (toIndex == goalIndex) {
+            /*
+             * Trace the goal search forward from the step's origin.
+             */
+            for (int vIndex = fromIndex; vIndex != goalIndex;) {
+                int next = goalWork.viaArcs[vIndex];
+                NavArc arc = vertices[vIndex].findOutgoing(vertices[next]);
+                addArcs.add(arc);
+                vIndex = next;
+            }
+
+        } else {
+            /*
+             * a step between portals: use the cached route, if any
+             */
+            RegionTable table = getTable(region);
+            int key = portalSlots[fromIndex] * table.numPortals()
+                    + portalSlots[toIndex];
+            List<NavArc> route = table.routes.get(key);
+            if (route == null) {
+                route = new ArrayList<>(10);
+                localSearch(localWork, fromIndex, toIndex, false);
+                for (int vIndex = toIndex; vIndex != fromIndex;) {
+                    int previous = localWork.viaArcs[vIndex];
+                    NavArc arc
+                            = vertices[previous].findOutgoing(vertices[vIndex]);
+                    route.add(arc);
+                    vIndex = previous;
+                }
+                Collections.reverse(route);
+                table.routes.put(key, route);
+            }
+            addArcs.addAll(route);
+        }
+    }
+
+    /**
+     * Record a new (or cheaper) route to an abstract vertex and enqueue it for
+     * expansion.
+     *
+     * @param fromIndex index of the predecessor in the abstract route
+     * @param toIndex index of the abstract vertex reached
+     * @param cost total cost of the route from the start vertex (&ge;0)
+     * @param goalVertex goal vertex (not null)
+     */
+    private void relax(int fromIndex, int toIndex, float cost,
+            NavVertex goalVertex) {
+        TraversalScratch work = abstractWork;
+        if (work.stamps[toIndex] != work.stamp) {
+            work.stamps[toIndex] = work.stamp;
+            work.estimates[toIndex] = estimate(toIndex, goalVertex);
+        } else if (cost >= work.costs[toIndex]) {
+            return;
+        }
+        work.costs[toIndex] = cost;
+        work.viaArcs[toIndex] = fromIndex;
+        work.insert(toIndex, cost + work.estimates[toIndex]);
+    }
+
+    /**
+     * Group the vertex indices by region and discard all tables.
+     *
+     * @param numRegions number of regions (&ge;0)
+     */
+    private void setMembers(int numRegions) {
+        int numVertices = vertices.length;
+        memberOffsets = new int[numRegions + 1];
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            ++memberOffsets[regions[vIndex] + 1];
+        }
+        for (int region = 0; region < numRegions; region++) {
+            memberOffsets[region + 1] += memberOffsets[region];
+        }
+        members = new int[numVertices];
+        int[] fill = new int[numRegions];
+        for (int vIndex = 0; vIndex < numVertices; vIndex++) {
+            int region = regions[vIndex];
+            members[memberOffsets[region] + fill[region]] = vIndex;
+            ++fill[region];
+        }
+
+        tables = new RegionTable[numRegions];
+    }
+}
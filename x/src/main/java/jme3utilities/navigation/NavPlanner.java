@@ -0,0 +1,601 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Incremental route planner for a single goal in a navigation graph, based on
+ * the D* Lite algorithm (Koenig and Likhachev, 2002). Search state is retained
+ * between queries, and when arcs are added, removed, or have their costs
+ * altered, the graph notifies its planners so that only the affected portion
+ * of the state gets repaired, during the next query. Queries may start from
+ * any vertex. Not thread-safe.
+ * <p>
+ * Create instances using {@link NavGraph#createPlanner(NavVertex)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class NavPlanner {
+    // *************************************************************************
+    // constants
+
+    /**
+     * initial capacity of the priority queue
+     */
+    final private static int initialHeapCapacity = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NavPlanner.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if each vertex is in the priority queue, otherwise false
+     */
+    private boolean[] isQueued = new boolean[0];
+    /**
+     * cost of the cheapest known route from each vertex to the goal vertex
+     * (the "g" value in D* Lite)
+     */
+    private float[] costs = new float[0];
+    /**
+     * primary priority of each entry in the queue
+     */
+    private float[] heapPrimary = new float[initialHeapCapacity];
+    /**
+     * secondary (tie-breaking) priority of each entry in the queue
+     */
+    private float[] heapSecondary = new float[initialHeapCapacity];
+    /**
+     * one-step lookahead cost from each vertex to the goal vertex, based on
+     * the costs of its successors (the "rhs" value in D* Lite)
+     */
+    private float[] lookaheads = new float[0];
+    /**
+     * primary priority with which each vertex was most recently queued (valid
+     * only where isQueued is true)
+     */
+    private float[] queuedPrimary = new float[0];
+    /**
+     * secondary priority with which each vertex was most recently queued
+     * (valid only where isQueued is true)
+     */
+    private float[] queuedSecondary = new float[0];
+    /**
+     * accumulated heuristic offset due to changes in the starting vertex (the
+     * "k_m" value in D* Lite)
+     */
+    private float keyModifier = 0f;
+    /**
+     * number of entries in the priority queue, including stale ones (&ge;0)
+     */
+    private int heapSize = 0;
+    /**
+     * number of vertices expanded during the most recent query (&ge;0)
+     */
+    private int numExpanded = 0;
+    /**
+     * number of vertices in the priority queue (&ge;0)
+     */
+    private int numQueued = 0;
+    /**
+     * graph being searched (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
+    /**
+     * heuristic to guide the search (not null, initialized by constructor)
+     */
+    final private NavHeuristic heuristic;
+    /**
+     * goal vertex of every route (not null, initialized by constructor)
+     */
+    final private NavVertex goalVertex;
+    /**
+     * starting vertex of the most recent query, or null before the first query
+     */
+    private NavVertex lastStart = null;
+    /**
+     * vertex of each entry in the priority queue
+     */
+    private NavVertex[] heapVertices = new NavVertex[initialHeapCapacity];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a planner for the specified goal. Invoked only by
+     * {@link NavGraph#createPlanner(NavVertex)}.
+     *
+     * @param graph graph to search (not null, alias created)
+     * @param goalVertex goal (member, alias created)
+     * @param heuristic heuristic to guide searches (alias created) or null for
+     * uniform-cost searches
+     */
+    NavPlanner(NavGraph graph, NavVertex goalVertex, NavHeuristic heuristic) {
+        assert graph != null;
+        assert graph.contains(goalVertex);
+
+        this.graph = graph;
+        this.goalVertex = goalVertex;
+        this.heuristic = heuristic;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Repair the search state after the cost of an arc changes. Invoked only by
+     * {@link NavGraph}, after the change.
+     *
+     * @param arc the arc which changed (not null)
+     * @param oldCost the former cost (&ge;0) or +Infinity for a new arc
+     * @param newCost the new cost (&ge;0) or +Infinity for a removed arc
+     */
+    void arcChanged(NavArc arc, float oldCost, float newCost) {
+        assert arc != null;
+        assert oldCost >= 0f : oldCost;
+        assert newCost >= 0f : newCost;
+
+        NavVertex origin = arc.getFromVertex();
+        if (lastStart == null || origin == goalVertex) {
+            return;
+        }
+        resize();
+
+        int originIndex = origin.getIndex();
+        int terminusIndex = arc.getToVertex().getIndex();
+        float viaCost = costs[terminusIndex];
+        if (newCost < oldCost) {
+            float lookahead = newCost + viaCost;
+            if (lookahead < lookaheads[originIndex]) {
+                lookaheads[originIndex] = lookahead;
+            }
+        } else if (lookaheads[originIndex] == oldCost + viaCost) {
+            lookaheads[originIndex] = bestLookahead(origin);
+        }
+        updateVertex(origin);
+    }
+
+    /**
+     * Access the goal vertex.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public NavVertex getGoal() {
+        assert goalVertex != null;
+        return goalVertex;
+    }
+
+    /**
+     * Count how many vertices were expanded during the most recent query.
+     *
+     * @return count (&ge;0)
+     */
+    public int numExpanded() {
+        assert numExpanded >= 0 : numExpanded;
+        return numExpanded;
+    }
+
+    /**
+     * Find the cheapest route from the specified vertex to the goal, reusing
+     * the results of previous queries wherever the graph hasn't changed. The
+     * route is guaranteed to be the cheapest only if the heuristic is
+     * consistent.
+     *
+     * @param startVertex starting point (member, distinct from the goal)
+     * @return a new list of pre-existing arcs, or null if the goal is
+     * unreachable
+     */
+    public List<NavArc> seek(NavVertex startVertex) {
+        graph.validateMember(startVertex, "start vertex");
+        if (startVertex == goalVertex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+
+        resize();
+        if (lastStart == null) {
+            lastStart = startVertex;
+            int goalIndex = goalVertex.getIndex();
+            lookaheads[goalIndex] = 0f;
+            updateVertex(goalVertex);
+        } else if (startVertex != lastStart) {
+            keyModifier += estimate(lastStart, startVertex);
+            lastStart = startVertex;
+        }
+        numExpanded = 0;
+        computeCosts(startVertex);
+
+        int startIndex = startVertex.getIndex();
+        if (costs[startIndex] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        /*
+         * Trace the route forward by following the cheapest arcs.
+         */
+        int numVertices = graph.numVertices();
+        List<NavArc> result = new ArrayList<>(10);
+        NavVertex routeVertex = startVertex;
+        while (routeVertex != goalVertex) {
+            NavArc bestArc = null;
+            float bestCost = Float.POSITIVE_INFINITY;
+            for (NavArc arc : routeVertex.outgoing()) {
+                int toIndex = arc.getToVertex().getIndex();
+                float cost = graph.costOf(arc) + costs[toIndex];
+                if (cost < bestCost) {
+                    bestArc = arc;
+                    bestCost = cost;
+                }
+            }
+            if (bestArc == null || result.size() >= numVertices) {
+                /*
+                 * Can't happen unless there's a cycle of zero-cost arcs:
+                 * fall back on a non-incremental search.
+                 */
+                NavSearch search = new NavSearch(graph, heuristic);
+                return search.seek(startVertex, goalVertex);
+            }
+            result.add(bestArc);
+            routeVertex = bestArc.getToVertex();
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the best one-step lookahead cost from the specified vertex,
+     * based on the current costs of its successors.
+     *
+     * @param vertex the vertex (not null, not the goal)
+     * @return cost (&ge;0) or +Infinity if no successor can reach the goal
+     */
+    private float bestLookahead(NavVertex vertex) {
+        float result = Float.POSITIVE_INFINITY;
+        for (NavArc arc : vertex.outgoing()) {
+            int toIndex = arc.getToVertex().getIndex();
+            float lookahead = graph.costOf(arc) + costs[toIndex];
+            if (lookahead < result) {
+                result = lookahead;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Expand locally inconsistent vertices until the cost of the starting
+     * vertex is known to be correct.
+     *
+     * @param startVertex starting vertex of the current query (not null)
+     */
+    private void computeCosts(NavVertex startVertex) {
+        int startIndex = startVertex.getIndex();
+        while (true) {
+            discardStale();
+            if (heapSize == 0) {
+                break;
+            }
+            float startMin = Math.min(costs[startIndex],
+                    lookaheads[startIndex]);
+            float startPrimary = startMin + keyModifier;
+            boolean isStartConsistent
+                    = costs[startIndex] == lookaheads[startIndex];
+            if (isStartConsistent && !isLess(heapPrimary[0], heapSecondary[0],
+                    startPrimary, startMin)) {
+                break;
+            }
+
+            NavVertex vertex = heapVertices[0];
+            int index = vertex.getIndex();
+            float oldPrimary = heapPrimary[0];
+            float oldSecondary = heapSecondary[0];
+            float min = Math.min(costs[index], lookaheads[index]);
+            float newPrimary = min + estimate(startVertex, vertex)
+                    + keyModifier;
+            if (isLess(oldPrimary, oldSecondary, newPrimary, min)) {
+                /*
+                 * The vertex was queued before the start moved:
+                 * requeue it with its current priority.
+                 */
+                updateVertex(vertex);
+                continue;
+            }
+
+            ++numExpanded;
+            if (costs[index] > lookaheads[index]) {
+                /*
+                 * overconsistent: lower the cost and propagate to predecessors
+                 */
+                float cost = lookaheads[index];
+                costs[index] = cost;
+                dequeue(vertex);
+                for (NavArc arc : vertex.incoming()) {
+                    NavVertex predecessor = arc.getFromVertex();
+                    if (predecessor == goalVertex) {
+                        continue;
+                    }
+                    int predIndex = predecessor.getIndex();
+                    float lookahead = graph.costOf(arc) + cost;
+                    if (lookahead < lookaheads[predIndex]) {
+                        lookaheads[predIndex] = lookahead;
+                        updateVertex(predecessor);
+                    }
+                }
+            } else {
+                /*
+                 * underconsistent: raise the cost to +Infinity and
+                 * recalculate any predecessors that depended on it
+                 */
+                float oldCost = costs[index];
+                costs[index] = Float.POSITIVE_INFINITY;
+                updateVertex(vertex);
+                for (NavArc arc : vertex.incoming()) {
+                    NavVertex predecessor = arc.getFromVertex();
+                    if (predecessor == goalVertex) {
+                        continue;
+                    }
+                    int predIndex = predecessor.getIndex();
+                    if (lookaheads[predIndex]
+                            == graph.costOf(arc) + oldCost) {
+                        lookaheads[predIndex] = bestLookahead(predecessor);
+                        updateVertex(predecessor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the specified vertex from the priority queue. Its entries become
+     * stale and are discarded when they reach the root.
+     *
+     * @param vertex vertex to remove (not null)
+     */
+    private void dequeue(NavVertex vertex) {
+        int index = vertex.getIndex();
+        if (isQueued[index]) {
+            isQueued[index] = false;
+            --numQueued;
+        }
+    }
+
+    /**
+     * Discard stale entries from the root of the priority queue.
+     */
+    private void discardStale() {
+        while (heapSize > 0) {
+            int index = heapVertices[0].getIndex();
+            if (isQueued[index] && heapPrimary[0] == queuedPrimary[index]
+                    && heapSecondary[0] == queuedSecondary[index]) {
+                break;
+            }
+            removeTop();
+        }
+    }
+
+    /**
+     * Estimate the cost of the cheapest route between 2 vertices.
+     *
+     * @param fromVertex first vertex (not null)
+     * @param toVertex 2nd vertex (not null)
+     * @return estimated cost (&ge;0)
+     */
+    private float estimate(NavVertex fromVertex, NavVertex toVertex) {
+        float result = 0f;
+        if (heuristic != null && fromVertex != toVertex) {
+            result = heuristic.estimateCost(fromVertex, toVertex);
+        }
+
+        assert result >= 0f : result;
+        return result;
+    }
+
+    /**
+     * Add an entry to the priority queue.
+     *
+     * @param vertex vertex to add (not null)
+     * @param primary primary priority of the entry
+     * @param secondary secondary priority of the entry
+     */
+    private void insert(NavVertex vertex, float primary, float secondary) {
+        assert vertex != null;
+
+        if (heapSize == heapPrimary.length) {
+            if (heapSize > 4 * numQueued + initialHeapCapacity) {
+                rebuildHeap();
+            } else {
+                int newCapacity = 2 * heapSize;
+                heapPrimary = Arrays.copyOf(heapPrimary, newCapacity);
+                heapSecondary = Arrays.copyOf(heapSecondary, newCapacity);
+                heapVertices = Arrays.copyOf(heapVertices, newCapacity);
+            }
+        }
+        /*
+         * Sift the new entry up toward the root.
+         */
+        int position = heapSize;
+        ++heapSize;
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isLess(primary, secondary, heapPrimary[parent],
+                    heapSecondary[parent])) {
+                break;
+            }
+            heapPrimary[position] = heapPrimary[parent];
+            heapSecondary[position] = heapSecondary[parent];
+            heapVertices[position] = heapVertices[parent];
+            position = parent;
+        }
+        heapPrimary[position] = primary;
+        heapSecondary[position] = secondary;
+        heapVertices[position] = vertex;
+    }
+
+    /**
+     * Compare 2 priorities lexicographically.
+     *
+     * @param primary1 primary part of the first priority
+     * @param secondary1 secondary part of the first priority
+     * @param primary2 primary part of the 2nd priority
+     * @param secondary2 secondary part of the 2nd priority
+     * @return true if the first priority is less than the 2nd, otherwise false
+     */
+    private static boolean isLess(float primary1, float secondary1,
+            float primary2, float secondary2) {
+        if (primary1 < primary2) {
+            return true;
+        } else if (primary1 > primary2) {
+            return false;
+        } else {
+            return secondary1 < secondary2;
+        }
+    }
+
+    /**
+     * Rebuild the priority queue from scratch, discarding all stale entries.
+     */
+    private void rebuildHeap() {
+        int oldSize = heapSize;
+        NavVertex[] oldVertices = heapVertices;
+        heapSize = 0;
+        heapVertices = new NavVertex[heapPrimary.length];
+        for (int position = 0; position < oldSize; position++) {
+            NavVertex vertex = oldVertices[position];
+            int index = vertex.getIndex();
+            if (isQueued[index]) {
+                /*
+                 * Mark each vertex as it's reinserted, to avoid duplicates.
+                 */
+                isQueued[index] = false;
+                insert(vertex, queuedPrimary[index], queuedSecondary[index]);
+            }
+        }
+        for (int position = 0; position < heapSize; position++) {
+            int index = heapVertices[position].getIndex();
+            isQueued[index] = true;
+        }
+        assert heapSize <= numQueued : heapSize;
+    }
+
+    /**
+     * Remove the root entry from the priority queue.
+     */
+    private void removeTop() {
+        assert heapSize > 0 : heapSize;
+
+        --heapSize;
+        float primary = heapPrimary[heapSize];
+        float secondary = heapSecondary[heapSize];
+        NavVertex vertex = heapVertices[heapSize];
+        heapVertices[heapSize] = null;
+        if (heapSize == 0) {
+            return;
+        }
+        /*
+         * Sift the former last entry down from the root.
+         */
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && isLess(heapPrimary[child + 1],
+                    heapSecondary[child + 1], heapPrimary[child],
+                    heapSecondary[child])) {
+                ++child;
+            }
+            if (!isLess(heapPrimary[child], heapSecondary[child], primary,
+                    secondary)) {
+                break;
+            }
+            heapPrimary[position] = heapPrimary[child];
+            heapSecondary[position] = heapSecondary[child];
+            heapVertices[position] = heapVertices[child];
+            position = child;
+        }
+        heapPrimary[position] = primary;
+        heapSecondary[position] = secondary;
+        heapVertices[position] = vertex;
+    }
+
+    /**
+     * Enlarge the per-vertex arrays if vertices have been added to the graph.
+     * New vertices start with infinite costs.
+     */
+    private void resize() {
+        int numVertices = graph.numVertices();
+        int oldLength = costs.length;
+        if (oldLength >= numVertices) {
+            return;
+        }
+
+        int newLength = Math.max(numVertices, 2 * oldLength);
+        costs = Arrays.copyOf(costs, newLength);
+        lookaheads = Arrays.copyOf(lookaheads, newLength);
+        isQueued = Arrays.copyOf(isQueued, newLength);
+        queuedPrimary = Arrays.copyOf(queuedPrimary, newLength);
+        queuedSecondary = Arrays.copyOf(queuedSecondary, newLength);
+        Arrays.fill(costs, oldLength, newLength, Float.POSITIVE_INFINITY);
+        Arrays.fill(lookaheads, oldLength, newLength, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Queue the specified vertex with its current priority if it's locally
+     * inconsistent, otherwise remove it from the queue.
+     *
+     * @param vertex the vertex to update (not null)
+     */
+    private void updateVertex(NavVertex vertex) {
+        int index = vertex.getIndex();
+        float cost = costs[index];
+        float lookahead = lookaheads[index];
+        if (cost == lookahead) {
+            dequeue(vertex);
+            return;
+        }
+
+        float secondary = Math.min(cost, lookahead);
+        float primary = secondary + estimate(lastStart, vertex) + keyModifier;
+        if (isQueued[index] && queuedPrimary[index] == primary
+                && queuedSecondary[index] == secondary) {
+            return;
+        }
+        if (!isQueued[index]) {
+            isQueued[index] = true;
+            ++numQueued;
+        }
+        queuedPrimary[index] = primary;
+        queuedSecondary[index] = secondary;
+        insert(vertex, primary, secondary);
+    }
+}
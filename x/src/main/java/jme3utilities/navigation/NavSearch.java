@@ -0,0 +1,354 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Iterative, heap-based A* search engine for a navigation graph. Per-vertex
+ * search state is kept in primitive arrays indexed by vertex index, and these
+ * arrays are reused from one query to the next. Not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class NavSearch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * initial capacity of the priority queue
+     */
+    final private static int initialHeapCapacity = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NavSearch.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * cost of the cheapest known route from the start vertex to each vertex
+     * (valid only where the vertex's stamp matches the current query)
+     */
+    private float[] costs = new float[0];
+    /**
+     * estimated remaining cost from each vertex to the goal vertex (valid only
+     * where the vertex's stamp matches the current query)
+     */
+    private float[] estimates = new float[0];
+    /**
+     * priority of each entry in the queue: estimated total route cost
+     */
+    private float[] heapKeys = new float[initialHeapCapacity];
+    /**
+     * query number in which each vertex was last reached
+     */
+    private int[] stamps = new int[0];
+    /**
+     * number of entries in the priority queue (&ge;0)
+     */
+    private int heapSize = 0;
+    /**
+     * number of vertices expanded during the most recent query (&ge;0)
+     */
+    private int numExpanded = 0;
+    /**
+     * number of the current (or most recent) query
+     */
+    private int queryStamp = 0;
+    /**
+     * final arc of the cheapest known route to each vertex (valid only where
+     * the vertex's stamp matches the current query)
+     */
+    private NavArc[] viaArcs = new NavArc[0];
+    /**
+     * graph being searched (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
+    /**
+     * heuristic to guide the search, or null for a uniform-cost (Dijkstra)
+     * search
+     */
+    private NavHeuristic heuristic;
+    /**
+     * vertex of each entry in the priority queue
+     */
+    private NavVertex[] heapVertices = new NavVertex[initialHeapCapacity];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an engine for the specified graph.
+     *
+     * @param graph graph to search (not null, alias created)
+     * @param heuristic heuristic to guide searches (alias created) or null for
+     * uniform-cost searches
+     */
+    public NavSearch(NavGraph graph, NavHeuristic heuristic) {
+        Validate.nonNull(graph, "graph");
+
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Zero the count of expanded vertices, for a query that was answered
+     * without searching. Invoked only by {@link NavGraph}.
+     */
+    void clearExpanded() {
+        numExpanded = 0;
+    }
+
+    /**
+     * Access the heuristic used to guide searches.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public NavHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Count how many vertices were expanded during the most recent query.
+     *
+     * @return count (&ge;0)
+     */
+    public int numExpanded() {
+        assert numExpanded >= 0 : numExpanded;
+        return numExpanded;
+    }
+
+    /**
+     * Find the cheapest route from one vertex to another. The search stops as
+     * soon as the goal is expanded. If the heuristic isn't admissible, the
+     * route found might not be the cheapest.
+     *
+     * @param startVertex starting point (member, distinct from goalVertex)
+     * @param goalVertex goal (member, distinct from startVertex)
+     * @return a new list of pre-existing arcs, or null if the goal is
+     * unreachable
+     */
+    public List<NavArc> seek(NavVertex startVertex, NavVertex goalVertex) {
+        graph.validateMember(startVertex, "start vertex");
+        graph.validateMember(goalVertex, "goal vertex");
+        if (startVertex == goalVertex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+
+        startQuery();
+        reach(startVertex, 0f, null, goalVertex);
+
+        boolean found = false;
+        while (heapSize > 0) {
+            float key = heapKeys[0];
+            NavVertex vertex = heapVertices[0];
+            removeTop();
+
+            int index = vertex.getIndex();
+            if (key > costs[index] + estimates[index]) {
+                continue; // stale entry: a cheaper route was found later
+            }
+            if (vertex == goalVertex) {
+                found = true;
+                break;
+            }
+            ++numExpanded;
+
+            float cost = costs[index];
+            for (NavArc arc : vertex.outgoing()) {
+                NavVertex neighbor = arc.getToVertex();
+                float neighborCost = cost + graph.costOf(arc);
+                int neighborIndex = neighbor.getIndex();
+                if (stamps[neighborIndex] != queryStamp
+                        || neighborCost < costs[neighborIndex]) {
+                    reach(neighbor, neighborCost, arc, goalVertex);
+                }
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        /*
+         * Trace the route backward from the goal.
+         */
+        List<NavArc> result = new ArrayList<>(10);
+        NavVertex routeVertex = goalVertex;
+        while (routeVertex != startVertex) {
+            NavArc arc = viaArcs[routeVertex.getIndex()];
+            result.add(arc);
+            routeVertex = arc.getFromVertex();
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    /**
+     * Alter the heuristic used to guide searches.
+     *
+     * @param newHeuristic heuristic (alias created) or null for uniform-cost
+     * searches
+     */
+    public void setHeuristic(NavHeuristic newHeuristic) {
+        heuristic = newHeuristic;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add an entry to the priority queue.
+     *
+     * @param vertex vertex to add (not null)
+     * @param key priority of the entry
+     */
+    private void insert(NavVertex vertex, float key) {
+        assert vertex != null;
+
+        if (heapSize == heapKeys.length) {
+            int newCapacity = 2 * heapSize;
+            heapKeys = Arrays.copyOf(heapKeys, newCapacity);
+            heapVertices = Arrays.copyOf(heapVertices, newCapacity);
+        }
+        /*
+         * Sift the new entry up toward the root.
+         */
+        int position = heapSize;
+        ++heapSize;
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapKeys[position] = heapKeys[parent];
+            heapVertices[position] = heapVertices[parent];
+            position = parent;
+        }
+        heapKeys[position] = key;
+        heapVertices[position] = vertex;
+    }
+
+    /**
+     * Record a new (or cheaper) route to the specified vertex and enqueue the
+     * vertex for expansion.
+     *
+     * @param vertex vertex reached (not null)
+     * @param cost total cost of the route from the start vertex (&ge;0)
+     * @param viaArc final arc of the route, or null for the start vertex
+     * @param goalVertex goal of the current query (not null)
+     */
+    private void reach(NavVertex vertex, float cost, NavArc viaArc,
+            NavVertex goalVertex) {
+        assert cost >= 0f : cost;
+
+        int index = vertex.getIndex();
+        if (stamps[index] != queryStamp) {
+            stamps[index] = queryStamp;
+            float estimate = 0f;
+            if (heuristic != null) {
+                estimate = heuristic.estimateCost(vertex, goalVertex);
+                assert estimate >= 0f : estimate;
+            }
+            estimates[index] = estimate;
+        }
+        costs[index] = cost;
+        viaArcs[index] = viaArc;
+
+        float key = cost + estimates[index];
+        insert(vertex, key);
+    }
+
+    /**
+     * Remove the root entry from the priority queue.
+     */
+    private void removeTop() {
+        assert heapSize > 0 : heapSize;
+
+        --heapSize;
+        float key = heapKeys[heapSize];
+        NavVertex vertex = heapVertices[heapSize];
+        heapVertices[heapSize] = null;
+        if (heapSize == 0) {
+            return;
+        }
+        /*
+         * Sift the former last entry down from the root.
+         */
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && heapKeys[child + 1] < heapKeys[child]) {
+                ++child;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[position] = heapKeys[child];
+            heapVertices[position] = heapVertices[child];
+            position = child;
+        }
+        heapKeys[position] = key;
+        heapVertices[position] = vertex;
+    }
+
+    /**
+     * Prepare the per-vertex arrays and the priority queue for a new query.
+     */
+    private void startQuery() {
+        int numVertices = graph.numVertices();
+        if (stamps.length < numVertices) {
+            int newLength = Math.max(numVertices, 2 * stamps.length);
+            costs = new float[newLength];
+            estimates = new float[newLength];
+            stamps = new int[newLength];
+            viaArcs = new NavArc[newLength];
+            queryStamp = 0;
+        }
+        if (queryStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            queryStamp = 0;
+        }
+        ++queryStamp;
+
+        for (int i = 0; i < heapSize; i++) {
+            heapVertices[i] = null;
+        }
+        heapSize = 0;
+        numExpanded = 0;
+    }
+}
@@ -66,10 +66,18 @@ public class NavVertex implements Comparable<NavVertex> {
      * set of arcs which terminate at this vertex
      */
     final private Set<NavArc> incoming = new HashSet<>(4);
+    /**
+     * index of this vertex in its graph (&ge;0, initialized by constructor)
+     */
+    final private int index;
     /**
      * set of arcs which originate from this vertex
      */
     final private Set<NavArc> outgoing = new HashSet<>(4);
+    /**
+     * graph which contains this vertex (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
     /**
      * name of this vertex (not null, initialized by constructor)
      */
@@ -88,11 +96,18 @@ public class NavVertex implements Comparable<NavVertex> {
      * @param name name for the new vertex (not null)
      * @param locus region represented or null
      * @param location for calculating arc offsets (not null, unaffected)
+     * @param graph graph which will contain the new vertex (not null)
+     * @param index index of the new vertex in its graph (&ge;0)
      */
-    NavVertex(String name, Locus3f locus, Vector3f location) {
+    NavVertex(String name, Locus3f locus, Vector3f location, NavGraph graph,
+            int index) {
         assert name != null;
         assert location != null;
+        assert graph != null;
+        assert index >= 0 : index;
 
+        this.graph = graph;
+        this.index = index;
         this.name = name;
         this.locus = locus;
         this.location = location;
@@ -171,6 +186,22 @@ public class NavVertex implements Comparable<NavVertex> {
         return result;
     }
 
+    /**
+     * Calculate the straight-line distance between the locations of this
+     * vertex and another.
+     *
+     * @param otherVertex (not null, unaffected)
+     * @return distance (&ge;0)
+     */
+    public float distance(NavVertex otherVertex) {
+        Validate.nonNull(otherVertex, "other vertex");
+
+        float result = location.distance(otherVertex.location);
+
+        assert result >= 0f : result;
+        return result;
+    }
+
     /**
      * Find the arc (if any) from a specified origin.
      *
@@ -287,6 +318,17 @@ public class NavVertex implements Comparable<NavVertex> {
         return name;
     }
 
+    /**
+     * Read the index of this vertex in its graph. Indices are assigned in
+     * order of creation, starting from zero.
+     *
+     * @return index (&ge;0)
+     */
+    public int getIndex() {
+        assert index >= 0 : index;
+        return index;
+    }
+
     /**
      * Access the region currently represented by this vertex.
      *
@@ -296,6 +338,16 @@ public class NavVertex implements Comparable<NavVertex> {
         return locus;
     }
 
+    /**
+     * Access the set of incoming arcs, for traversal without copying.
+     *
+     * @return the pre-existing set (not null)
+     */
+    Set<NavArc> incoming() {
+        assert incoming != null;
+        return incoming;
+    }
+
     /**
      * List the incoming arcs.
      *
@@ -344,6 +396,16 @@ public class NavVertex implements Comparable<NavVertex> {
         return result;
     }
 
+    /**
+     * Access the set of outgoing arcs, for traversal without copying.
+     *
+     * @return the pre-existing set (not null)
+     */
+    Set<NavArc> outgoing() {
+        assert outgoing != null;
+        return outgoing;
+    }
+
     /**
      * Remove an incoming arc.
      *
@@ -371,12 +433,15 @@ public class NavVertex implements Comparable<NavVertex> {
     }
 
     /**
-     * Alter the region represented by this vertex.
+     * Alter the region represented by this vertex. After modifying a locus in
+     * place, invoke this method again so the graph can update its spatial
+     * index.
      *
      * @param newLocus region or null
      */
     public void setLocus(Locus3f newLocus) {
         this.locus = newLocus;
+        graph.locusChanged(this);
     }
     // *************************************************************************
     // Comparable methods
@@ -0,0 +1,100 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed routing data for one region of a navigation hierarchy: its
+ * portal vertices, the cheapest in-region cost between each pair of portals,
+ * and a cache of refined in-region routes between portals.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class RegionTable {
+    // *************************************************************************
+    // fields
+
+    /**
+     * cost of the cheapest in-region route from each portal to each portal,
+     * indexed by (fromSlot * numPortals + toSlot), or +Infinity if there is
+     * none
+     */
+    final float[] costs;
+    /**
+     * vertex index of each portal, indexed by slot
+     */
+    final int[] portals;
+    /**
+     * refined in-region routes found so far, keyed by (fromSlot * numPortals +
+     * toSlot)
+     */
+    final Map<Integer, List<NavArc>> routes = new HashMap<>(16);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a table for the specified portals, with all costs infinite.
+     *
+     * @param portals vertex index of each portal (not null, alias created)
+     */
+    RegionTable(int[] portals) {
+        assert portals != null;
+
+        this.portals = portals;
+        int numPortals = portals.length;
+        costs = new float[numPortals * numPortals];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the cost of the cheapest in-region route between 2 portals.
+     *
+     * @param fromSlot slot of the originating portal (&ge;0, &lt;numPortals)
+     * @param toSlot slot of the terminating portal (&ge;0, &lt;numPortals)
+     * @return cost (&ge;0) or +Infinity if there is no such route
+     */
+    float cost(int fromSlot, int toSlot) {
+        float result = costs[fromSlot * portals.length + toSlot];
+        return result;
+    }
+
+    /**
+     * Count the portals.
+     *
+     * @return count (&ge;0)
+     */
+    int numPortals() {
+        int result = portals.length;
+        return result;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Bounded, least-recently-used cache of routes found by
+ * {@link NavGraph#seek(NavVertex, NavVertex)}, keyed by start and goal vertex.
+ * The entire cache is invalidated whenever the graph's modification count
+ * changes. Lookups and insertions take constant time. Not thread-safe.
+ * <p>
+ * Enable caching using {@link NavGraph#setRouteCaching(int)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class RouteCache {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(RouteCache.class.getName());
+    /**
+     * placeholder for an unreachable goal
+     */
+    final private static NavArc[] unreachable = new NavArc[0];
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of routes to cache (&gt;0, set by constructor)
+     */
+    final private int capacity;
+    /**
+     * number of routes evicted to stay within capacity (&ge;0)
+     */
+    private long numEvictions = 0L;
+    /**
+     * number of lookups that found a cached route (&ge;0)
+     */
+    private long numHits = 0L;
+    /**
+     * number of times the cache was invalidated by a graph modification (&ge;0)
+     */
+    private long numInvalidations = 0L;
+    /**
+     * number of lookups that didn't find a cached route (&ge;0)
+     */
+    private long numMisses = 0L;
+    /**
+     * graph modification count when the cached routes were found
+     */
+    private long version;
+    /**
+     * cached routes, in access order (least-recently used first)
+     */
+    final private Map<Long, NavArc[]> routes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty cache with the specified capacity. Invoked only by
+     * {@link NavGraph}.
+     *
+     * @param capacity maximum number of routes to cache (&gt;0)
+     * @param version current modification count of the graph
+     */
+    RouteCache(final int capacity, long version) {
+        assert capacity > 0 : capacity;
+
+        this.capacity = capacity;
+        this.version = version;
+        int initialCapacity = Math.min(capacity, 1024);
+        routes = new LinkedHashMap<Long, NavArc[]>(initialCapacity, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Long, NavArc[]> eldest) {
+                if (size() > capacity) {
+                    ++numEvictions;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the maximum number of routes this cache can hold.
+     *
+     * @return count (&gt;0)
+     */
+    public int capacity() {
+        assert capacity > 0 : capacity;
+        return capacity;
+    }
+
+    /**
+     * Discard all cached routes without altering the statistics.
+     */
+    public void clear() {
+        routes.clear();
+    }
+
+    /**
+     * Look up the cached route between the specified vertices.
+     *
+     * @param startVertex starting vertex (not null)
+     * @param goalVertex goal vertex (not null)
+     * @param currentVersion current modification count of the graph
+     * @return the pre-existing array (not null, empty if the goal is
+     * unreachable) or null if not cached
+     */
+    NavArc[] lookup(NavVertex startVertex, NavVertex goalVertex,
+            long currentVersion) {
+        validate(currentVersion);
+
+        long key = key(startVertex, goalVertex);
+        NavArc[] result = routes.get(key);
+        if (result == null) {
+            ++numMisses;
+        } else {
+            ++numHits;
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the routes evicted to stay within capacity.
+     *
+     * @return count (&ge;0)
+     */
+    public long numEvictions() {
+        assert numEvictions >= 0L : numEvictions;
+        return numEvictions;
+    }
+
+    /**
+     * Count the lookups that found a cached route.
+     *
+     * @return count (&ge;0)
+     */
+    public long numHits() {
+        assert numHits >= 0L : numHits;
+        return numHits;
+    }
+
+    /**
+     * Count the times the cache was invalidated by a graph modification.
+     *
+     * @return count (&ge;0)
+     */
+    public long numInvalidations() {
+        assert numInvalidations >= 0L : numInvalidations;
+        return numInvalidations;
+    }
+
+    /**
+     * Count the lookups that didn't find a cached route.
+     *
+     * @return count (&ge;0)
+     */
+    public long numMisses() {
+        assert numMisses >= 0L : numMisses;
+        return numMisses;
+    }
+
+    /**
+     * Reset all statistics to zero.
+     */
+    public void resetStatistics() {
+        numEvictions = 0L;
+        numHits = 0L;
+        numInvalidations = 0L;
+        numMisses = 0L;
+    }
+
+    /**
+     * Count the routes currently cached.
+     *
+     * @return count (&ge;0, &le;capacity)
+     */
+    public int size() {
+        int result = routes.size();
+        return result;
+    }
+
+    /**
+     * Cache the route between the specified vertices.
+     *
+     * @param startVertex starting vertex (not null)
+     * @param goalVertex goal vertex (not null)
+     * @param route the route found (unaffected) or null if the goal is
+     * unreachable
+     * @param currentVersion current modification count of the graph
+     */
+    void store(NavVertex startVertex, NavVertex goalVertex, NavArc[] route,
+            long currentVersion) {
+        validate(currentVersion);
+
+        long key = key(startVertex, goalVertex);
+        if (route == null) {
+            routes.put(key, unreachable);
+        } else {
+            routes.put(key, route);
+        }
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this cache as a text string.
+     *
+     * @return descriptive string of text (not null)
+     */
+    @Override
+    public String toString() {
+        String result = String.format(
+                "RouteCache[size=%d/%d hits=%d misses=%d evictions=%d "
+                + "invalidations=%d]", routes.size(), capacity, numHits,
+                numMisses, numEvictions, numInvalidations);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the cache key for the specified pair of vertices.
+     *
+     * @param startVertex starting vertex (not null)
+     * @param goalVertex goal vertex (not null)
+     * @return key value
+     */
+    private static long key(NavVertex startVertex, NavVertex goalVertex) {
+        long startIndex = startVertex.getIndex();
+        long goalIndex = goalVertex.getIndex();
+        long result = (startIndex << 32) | goalIndex;
+
+        return result;
+    }
+
+    /**
+     * Discard all cached routes if the graph has been modified since they
+     * were found.
+     *
+     * @param currentVersion current modification count of the graph
+     */
+    private void validate(long currentVersion) {
+        if (currentVersion != version) {
+            if (!routes.isEmpty()) {
+                routes.clear();
+                ++numInvalidations;
+            }
+            version = currentVersion;
+        }
+    }
+}
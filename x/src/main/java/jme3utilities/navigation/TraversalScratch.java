@@ -0,0 +1,238 @@
+/*
+ Copyright (c) 2017, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Reusable working storage for traversals of a compiled navigation graph:
+ * per-vertex arrays indexed by vertex index plus a binary min-heap of vertex
+ * indices. Each instance is pooled by its graph and used by one traversal at a
+ * time. Not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class TraversalScratch {
+    // *************************************************************************
+    // fields
+
+    /**
+     * best known route cost for each vertex (valid only where
+     * the vertex's stamp matches the current traversal)
+     */
+    float[] costs;
+    /**
+     * estimated remaining cost for each vertex (valid only where the vertex's
+     * stamp matches the current traversal)
+     */
+    float[] estimates;
+    /**
+     * priority of each entry in the heap
+     */
+    private float[] heapKeys;
+    /**
+     * vertex index of each entry in the heap
+     */
+    private int[] heapVertices;
+    /**
+     * minimum hop count to each vertex (valid only where the vertex's stamp
+     * matches the current traversal)
+     */
+    int[] hopCounts;
+    /**
+     * flag for each vertex, used to recognize the targets of multi-target
+     * traversals (valid only where the vertex's stamp matches the current
+     * traversal)
+     */
+    boolean[] marks;
+    /**
+     * FIFO queue of vertex indices for breadth-first traversals
+     */
+    int[] queue;
+    /**
+     * traversal number in which each vertex was last reached
+     */
+    int[] stamps;
+    /**
+     * final arc of the best known route to each vertex (valid only where the
+     * vertex's stamp matches the current traversal)
+     */
+    int[] viaArcs;
+    /**
+     * number of entries in the heap (&ge;0)
+     */
+    private int heapSize = 0;
+    /**
+     * number of vertices expanded during the current (or most recent)
+     * traversal (&ge;0)
+     */
+    int numExpanded = 0;
+    /**
+     * number of the current (or most recent) traversal
+     */
+    int stamp = 0;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate storage for the specified graph size.
+     *
+     * @param numVertices number of vertices (&ge;0)
+     * @param heapCapacity initial capacity of the heap (&gt;0)
+     */
+    TraversalScratch(int numVertices, int heapCapacity) {
+        assert numVertices >= 0 : numVertices;
+        assert heapCapacity > 0 : heapCapacity;
+
+        costs = new float[numVertices];
+        estimates = new float[numVertices];
+        hopCounts = new int[numVertices];
+        marks = new boolean[numVertices];
+        queue = new int[numVertices];
+        stamps = new int[numVertices];
+        viaArcs = new int[numVertices];
+        heapKeys = new float[heapCapacity];
+        heapVertices = new int[heapCapacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Begin a new traversal, invalidating all per-vertex data and emptying the
+     * heap.
+     */
+    void begin() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+        ++stamp;
+        heapSize = 0;
+        numExpanded = 0;
+    }
+
+    /**
+     * Add an entry to the heap.
+     *
+     * @param vertexIndex index of the vertex (&ge;0)
+     * @param key priority of the entry
+     */
+    void insert(int vertexIndex, float key) {
+        assert vertexIndex >= 0 : vertexIndex;
+
+        if (heapSize == heapKeys.length) {
+            int newCapacity = 2 * heapSize;
+            heapKeys = Arrays.copyOf(heapKeys, newCapacity);
+            heapVertices = Arrays.copyOf(heapVertices, newCapacity);
+        }
+        /*
+         * Sift the new entry up toward the root.
+         */
+        int position = heapSize;
+        ++heapSize;
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapKeys[position] = heapKeys[parent];
+            heapVertices[position] = heapVertices[parent];
+            position = parent;
+        }
+        heapKeys[position] = key;
+        heapVertices[position] = vertexIndex;
+    }
+
+    /**
+     * Test whether the heap is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    boolean isHeapEmpty() {
+        if (heapSize == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Read the priority of the root entry of the heap.
+     *
+     * @return priority
+     */
+    float topKey() {
+        assert heapSize > 0 : heapSize;
+        return heapKeys[0];
+    }
+
+    /**
+     * Read the vertex index of the root entry of the heap.
+     *
+     * @return vertex index (&ge;0)
+     */
+    int topVertex() {
+        assert heapSize > 0 : heapSize;
+        return heapVertices[0];
+    }
+
+    /**
+     * Remove the root entry from the heap.
+     */
+    void removeTop() {
+        assert heapSize > 0 : heapSize;
+
+        --heapSize;
+        if (heapSize == 0) {
+            return;
+        }
+        float key = heapKeys[heapSize];
+        int vertexIndex = heapVertices[heapSize];
+        /*
+         * Sift the former last entry down from the root.
+         */
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && heapKeys[child + 1] < heapKeys[child]) {
+                ++child;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[position] = heapKeys[child];
+            heapVertices[position] = heapVertices[child];
+            position = child;
+        }
+        heapKeys[position] = key;
+        heapVertices[position] = vertexIndex;
+    }
+}